@@ -20,7 +20,6 @@
 include cts/CtsTestCaseList.mk
 
 cts_api_coverage_exe := $(HOST_OUT_EXECUTABLES)/cts-api-coverage
-dexdeps_exe := $(HOST_OUT_EXECUTABLES)/dexdeps
 
 coverage_out := $(HOST_OUT)/cts-api-coverage
 
@@ -34,7 +33,7 @@ $(api_xml_description) : $(api_text_description) $(APICHECK)
 cts-test-coverage-report := $(coverage_out)/test-coverage.html
 cts-verifier-coverage-report := $(coverage_out)/verifier-coverage.html
 
-cts_api_coverage_dependencies := $(cts_api_coverage_exe) $(dexdeps_exe) $(api_xml_description) $(ACP)
+cts_api_coverage_dependencies := $(cts_api_coverage_exe) $(api_xml_description) $(ACP)
 
 $(cts-test-coverage-report) : $(CTS_COVERAGE_TEST_CASE_LIST) $(cts_api_coverage_dependencies)
 	$(call generate-coverage-report,"CTS Tests API Coverage Report",\
@@ -65,7 +64,7 @@ endif
 define generate-coverage-report
 	$(foreach testcase,$(2),$(eval $(call add-testcase-apk,$(3),$(testcase))))
 	$(hide) mkdir -p $(coverage_out)
-	$(hide) $(cts_api_coverage_exe) -d $(dexdeps_exe) -a $(api_xml_description) -f $(4) -o $(coverage_out)/$(5) $($(3))
+	$(hide) $(cts_api_coverage_exe) -a $(api_xml_description) -f $(4) -o $(coverage_out)/$(5) $($(3))
 	$(hide) echo $(1): file://$(ANDROID_BUILD_TOP)/$(coverage_out)/$(5)
 endef
 
@@ -25,5 +25,6 @@ LOCAL_JAR_MANIFEST := MANIFEST.mf
 
 LOCAL_MODULE := cts-api-coverage
 LOCAL_MODULE_TAGS := optional
+LOCAL_STATIC_JAVA_LIBRARIES := dex-tools
 
 include $(BUILD_HOST_JAVA_LIBRARY)
@@ -27,7 +27,8 @@ class ApiConstructor implements Comparable<ApiConstructor> {
 
     private final List<String> mParameterTypes;
 
-    private boolean mIsCovered;
+    /** Set by the threads scanning the test APKs, which only ever set it to true. */
+    private volatile boolean mIsCovered;
 
     ApiConstructor(String name, List<String> parameterTypes) {
         this.mName = name;
@@ -29,7 +29,8 @@ class ApiMethod implements Comparable<ApiMethod> {
 
     private final String mReturnType;
 
-    private boolean mIsCovered;
+    /** Set by the threads scanning the test APKs, which only ever set it to true. */
+    private volatile boolean mIsCovered;
 
     ApiMethod(String name, List<String> parameterTypes, String returnType) {
         this.mName = name;
@@ -28,6 +28,11 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.transform.TransformerException;
 
@@ -52,13 +57,14 @@ public class CtsApiCoverage {
         System.out.println("Use the Makefiles rules in CtsTestCoverage.mk to generate the report ");
         System.out.println("rather than executing this directly. If you still want to run this ");
         System.out.println("directly, then this must be used from the $ANDROID_BUILD_TOP ");
-        System.out.println("directory and dexdeps must be built via \"make dexdeps\".");
+        System.out.println("directory.");
         System.out.println();
         System.out.println("Options:");
         System.out.println("  -o FILE              output file or standard out if not given");
         System.out.println("  -f [txt|xml|html]    format of output");
-        System.out.println("  -d PATH              path to dexdeps or expected to be in $PATH");
         System.out.println("  -a PATH              path to the API XML file");
+        System.out.println("  -j N                 number of APKs scanned in parallel or the");
+        System.out.println("                       number of processors if not given");
         System.out.println();
         System.exit(1);
     }
@@ -67,8 +73,8 @@ public class CtsApiCoverage {
         List<File> testApks = new ArrayList<File>();
         File outputFile = null;
         int format = FORMAT_TXT;
-        String dexDeps = "dexDeps";
         String apiXmlPath = "";
+        int numThreads = Runtime.getRuntime().availableProcessors();
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].startsWith("-")) {
@@ -85,10 +91,14 @@ public class CtsApiCoverage {
                     } else {
                         printUsage();
                     }
-                } else if ("-d".equals(args[i])) {
-                    dexDeps = getExpectedArg(args, ++i);
                 } else if ("-a".equals(args[i])) {
                     apiXmlPath = getExpectedArg(args, ++i);
+                } else if ("-j".equals(args[i])) {
+                    try {
+                        numThreads = Integer.parseInt(getExpectedArg(args, ++i));
+                    } catch (NumberFormatException e) {
+                        printUsage();
+                    }
                 } else {
                     printUsage();
                 }
@@ -102,16 +112,16 @@ public class CtsApiCoverage {
          *    in current.xml. The object will have no information about the coverage for each
          *    constructor or method yet.
          *
-         * 2. For each provided APK, scan it using dexdeps, parse the output of dexdeps, and
-         *    call methods on the ApiCoverage object to cumulatively add coverage stats.
+         * 2. For each provided APK, read the methods it references from its dex files and
+         *    call methods on the ApiCoverage object to cumulatively add coverage stats. The
+         *    APKs are scanned in parallel. Since marks are only ever added, the order in which
+         *    the APKs are scanned does not matter.
          *
          * 3. Output a report based on the coverage stats in the ApiCoverage object.
          */
 
         ApiCoverage apiCoverage = getEmptyApiCoverage(apiXmlPath);
-        for (File testApk : testApks) {
-            addApiCoverage(apiCoverage, testApk, dexDeps);
-        }
+        addApiCoverage(apiCoverage, testApks, numThreads);
         outputCoverageReport(apiCoverage, testApks, outputFile, format);
     }
 
@@ -154,20 +164,47 @@ public class CtsApiCoverage {
     }
 
     /**
-     * Adds coverage information gleamed from running dexdeps on the APK to the
-     * {@link ApiCoverage} object.
+     * Adds coverage information gleamed from the method references of the APKs to the
+     * {@link ApiCoverage} object. The structure of the {@link ApiCoverage} object is not
+     * modified, so the APKs can be scanned concurrently.
      *
      * @param apiCoverage object to which the coverage statistics will be added to
-     * @param testApk containing the tests that will be scanned by dexdeps
+     * @param testApks containing the tests whose dex files will be scanned
+     * @param numThreads number of APKs scanned in parallel
      */
-    private static void addApiCoverage(ApiCoverage apiCoverage, File testApk, String dexdeps)
-            throws SAXException, IOException {
-        XMLReader xmlReader = XMLReaderFactory.createXMLReader();
-        DexDepsXmlHandler dexDepsXmlHandler = new DexDepsXmlHandler(apiCoverage);
-        xmlReader.setContentHandler(dexDepsXmlHandler);
-
-        Process process = new ProcessBuilder(dexdeps, "--format=xml", testApk.getPath()).start();
-        xmlReader.parse(new InputSource(process.getInputStream()));
+    private static void addApiCoverage(final ApiCoverage apiCoverage, List<File> testApks,
+            int numThreads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(numThreads, testApks.size())));
+        List<Future<Void>> results = new ArrayList<Future<Void>>();
+        try {
+            for (final File testApk : testApks) {
+                results.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws IOException {
+                        new DexReferenceScanner(apiCoverage).scan(testApk);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning test APKs");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     private static void outputCoverageReport(ApiCoverage apiCoverage, List<File> testApks,
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2010 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.cts.apicoverage;
+
+import dex.reader.DexArchive;
+import dex.reader.DexBuffer;
+import dex.reader.DexFileReader;
+import dex.structure.DexMethodReference;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Adds the coverage information of an APK to an {@link ApiCoverage} object. The constructors and
+ * methods which the APK references are read straight from the method id tables of its dex files,
+ * like dexdeps does, without parsing any class. Scanners of different APKs may add to the same
+ * {@link ApiCoverage} object concurrently.
+ */
+class DexReferenceScanner {
+
+    private final ApiCoverage mPackageMap;
+
+    DexReferenceScanner(ApiCoverage packageMap) {
+        this.mPackageMap = packageMap;
+    }
+
+    /**
+     * Marks the constructors and methods referenced by the given APK as covered.
+     *
+     * @param testApk an APK or jar file containing classes.dex, or a plain dex file
+     */
+    public void scan(File testApk) throws IOException {
+        List<DexBuffer> buffers;
+        if (testApk.getName().endsWith(".dex")) {
+            buffers = Collections.singletonList(new DexBuffer(testApk.getPath()));
+        } else {
+            // the makefiles pass package.apk.unaligned, so any other name is read as an archive
+            buffers = DexArchive.read(testApk.getPath());
+        }
+        for (DexBuffer buffer : buffers) {
+            for (DexMethodReference method : new DexFileReader().read(buffer)
+                    .getReferencedMethods()) {
+                markCovered(method);
+            }
+        }
+    }
+
+    private void markCovered(DexMethodReference method) {
+        String declaringClass = method.getDeclaringClass();
+        if (declaringClass.charAt(0) != 'L') {
+            // methods of array classes, e.g. clone(), are not part of the API
+            return;
+        }
+        String binaryName = declaringClass.substring(1, declaringClass.length() - 1);
+        int packageEnd = binaryName.lastIndexOf('/');
+        String packageName = packageEnd < 0
+                ? ""
+                : binaryName.substring(0, packageEnd).replace('/', '.');
+        ApiPackage apiPackage = mPackageMap.getPackage(packageName);
+        if (apiPackage == null) {
+            return;
+        }
+        ApiClass apiClass = apiPackage.getClass(binaryName.substring(packageEnd + 1)
+                .replace('$', '.'));
+        if (apiClass == null) {
+            return;
+        }
+
+        List<String> parameterTypes = new ArrayList<String>();
+        for (String parameterType : method.getParameterTypes()) {
+            parameterTypes.add(descriptorToDot(parameterType));
+        }
+        if ("<init>".equals(method.getName())) {
+            ApiConstructor apiConstructor = apiClass.getConstructor(parameterTypes);
+            if (apiConstructor != null) {
+                apiConstructor.setCovered(true);
+            }
+        } else {
+            ApiMethod apiMethod = apiClass.getMethod(method.getName(), parameterTypes,
+                    descriptorToDot(method.getReturnType()));
+            if (apiMethod != null) {
+                apiMethod.setCovered(true);
+            }
+        }
+    }
+
+    /**
+     * Converts a type descriptor to the notation of current.xml, e.g.
+     * {@code [Ljava/util/Map$Entry;} to {@code java.util.Map.Entry[]} and {@code I} to {@code int}.
+     */
+    static String descriptorToDot(String descriptor) {
+        int arrayDepth = 0;
+        while (descriptor.charAt(arrayDepth) == '[') {
+            arrayDepth++;
+        }
+        StringBuilder builder = new StringBuilder();
+        char type = descriptor.charAt(arrayDepth);
+        if (type == 'L') {
+            builder.append(descriptor.substring(arrayDepth + 1, descriptor.length() - 1)
+                    .replace('/', '.').replace('$', '.'));
+        } else {
+            builder.append(getPrimitiveTypeName(type));
+        }
+        for (int i = 0; i < arrayDepth; i++) {
+            builder.append("[]");
+        }
+        return builder.toString();
+    }
+
+    private static String getPrimitiveTypeName(char type) {
+        switch (type) {
+            case 'Z': return "boolean";
+            case 'B': return "byte";
+            case 'S': return "short";
+            case 'C': return "char";
+            case 'I': return "int";
+            case 'J': return "long";
+            case 'F': return "float";
+            case 'D': return "double";
+            case 'V': return "void";
+            default:
+                throw new IllegalArgumentException("Bad type descriptor: " + type);
+        }
+    }
+}
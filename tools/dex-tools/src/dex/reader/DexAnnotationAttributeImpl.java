@@ -16,7 +16,7 @@
 
 package dex.reader;
 
-import dex.reader.DexFileReader.FieldIdItem;
+import dex.reader.DexFileReader.FieldIds;
 import dex.structure.DexAnnotation;
 import dex.structure.DexAnnotationAttribute;
 import dex.structure.DexEncodedValue;
@@ -25,31 +25,31 @@ import dex.structure.DexEncodedValue;
         DexAnnotationAttribute {
     int nameIdx; // uleb128
     DexEncodedValue value;// encoded_value
-    private String[] stringPool;
+    private StringPool stringPool;
     private DexBuffer buffer;
     private final int[] typeIds;
-    private final FieldIdItem[] fieldIdItems;
+    private final FieldIds fieldIds;
     private final DexAnnotation annotation;
 
     public DexAnnotationAttributeImpl(DexBuffer buffer,
-            DexAnnotation annotation, int[] typeIds, String[] stringPool,
-            FieldIdItem[] fieldIdItems) {
+            DexAnnotation annotation, int[] typeIds, StringPool stringPool,
+            FieldIds fieldIds) {
         this.buffer = buffer;
         this.annotation = annotation;
         this.typeIds = typeIds;
         this.stringPool = stringPool;
-        this.fieldIdItems = fieldIdItems;
+        this.fieldIds = fieldIds;
         parseValue();
     }
 
     private void parseValue() {
         nameIdx = buffer.readUleb128();
         value = new DexEncodedValueImpl(buffer, annotation, typeIds,
-                stringPool, fieldIdItems);
+                stringPool, fieldIds);
     }
 
     public String getName() {
-        return stringPool[nameIdx];
+        return stringPool.get(nameIdx);
     }
 
     public DexEncodedValue getEncodedValue() {
@@ -16,7 +16,7 @@
 
 package dex.reader;
 
-import dex.reader.DexFileReader.FieldIdItem;
+import dex.reader.DexFileReader.FieldIds;
 import dex.structure.DexAnnotation;
 import dex.structure.DexAnnotationAttribute;
 
@@ -28,20 +28,20 @@ import java.util.List;
     private int offset;
     private DexBuffer buffer;
     private int[] typeIds;
-    private String[] stringPool;
+    private StringPool stringPool;
     private Visibility visibility;
     private DexEncodedAnnotationImpl encodedAnnotation;
 
     private TypeFormatter formatter = new TypeFormatter();
-    private final FieldIdItem[] fieldIdItems;
+    private final FieldIds fieldIds;
 
     public DexAnnotationImpl(DexBuffer buffer, int offset, int[] typeIds,
-            String[] stringPool, FieldIdItem[] fieldIdItems) {
+            StringPool stringPool, FieldIds fieldIds) {
         this.buffer = buffer;
         this.offset = offset;
         this.typeIds = typeIds;
         this.stringPool = stringPool;
-        this.fieldIdItems = fieldIdItems;
+        this.fieldIds = fieldIds;
         parseAnnotations();
     }
 
@@ -49,7 +49,7 @@ import java.util.List;
         buffer.setPosition(offset);
         visibility = Visibility.get(buffer.readUByte());
         encodedAnnotation = new DexEncodedAnnotationImpl(buffer, this, typeIds,
-                stringPool, fieldIdItems);
+                stringPool, fieldIds);
     }
 
     public List<DexAnnotationAttribute> getAttributes() {
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dex.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the dex files contained in an archive, i.e. an apk or jar file,
+ * without extracting them. These are the entries <code>classes.dex</code>,
+ * <code>classes2.dex</code>, ... in the root of the archive.
+ */
+public final class DexArchive {
+
+    private static final String[] ARCHIVE_SUFFIXES = {".apk", ".jar",
+            ".zip"};
+
+    private DexArchive() {
+    }
+
+    /**
+     * Returns whether the given file name denotes an archive, as opposed to
+     * a plain dex file.
+     */
+    public static boolean isArchive(String fileName) {
+        String lowerCase = fileName.toLowerCase();
+        for (String suffix : ARCHIVE_SUFFIXES) {
+            if (lowerCase.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads each dex file of the given archive into a buffer of its size.
+     * 
+     * @param fileName
+     *            the name of the archive
+     * @return the dex files in the order <code>classes.dex</code>,
+     *         <code>classes2.dex</code>, ..., empty if there are none
+     */
+    public static List<DexBuffer> read(String fileName) throws IOException {
+        List<DexBuffer> buffers = new ArrayList<DexBuffer>();
+        ZipFile zipFile = new ZipFile(fileName);
+        try {
+            for (int i = 1;; i++) {
+                ZipEntry entry = zipFile.getEntry(i == 1 ? "classes.dex"
+                        : "classes" + i + ".dex");
+                if (entry == null) {
+                    break;
+                }
+                InputStream in = zipFile.getInputStream(entry);
+                try {
+                    buffers.add(new DexBuffer(in, entry.getSize()));
+                } finally {
+                    in.close();
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+        return buffers;
+    }
+}
@@ -16,40 +16,50 @@
 
 package dex.reader;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 public final class DexBuffer {
 
     private ByteBuffer b;
 
+    /**
+     * Maps the given dex file into memory. The file is not copied, its pages
+     * are read on demand and are not part of the heap. The file must not be
+     * modified while the buffer or any of its copies is in use.
+     */
     public DexBuffer(String fileName) throws IOException {
-
-        // FIXME channel? allocate fix size?
-        FileInputStream fis = null;
+        FileInputStream fis = new FileInputStream(fileName);
         try {
-            fis = new FileInputStream(fileName);
-
-            BufferedInputStream bis = new BufferedInputStream(fis);
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            byte[] buf = new byte[1024];
-            int len;
-            while ((len = bis.read(buf)) > 0) {
-                bos.write(buf, 0, len);
-            }
-            byte[] bytes = bos.toByteArray();
-            initialize(ByteBuffer.wrap(bytes));
+            FileChannel channel = fis.getChannel();
+            // the mapping stays valid after the channel is closed
+            initialize(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel
+                    .size()));
         } finally {
-            if (fis != null) {
-                fis.close();
-            }
+            fis.close();
         }
     }
 
+    /**
+     * Reads the given number of bytes from the given stream into a new
+     * buffer. The stream is not closed.
+     * 
+     * @param in
+     *            the stream to read the dex file from
+     * @param length
+     *            the length of the dex file, or -1 if it is not known, in
+     *            which case the stream is read to its end
+     */
+    public DexBuffer(InputStream in, long length) throws IOException {
+        initialize(ByteBuffer.wrap(readFully(in, length)));
+    }
+
     public DexBuffer(byte[] bytes) {
         initialize(ByteBuffer.wrap(bytes));
     }
@@ -58,12 +68,46 @@ public final class DexBuffer {
         initialize(slice);
     }
 
+    private static byte[] readFully(InputStream in, long length)
+            throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Dex file too large: " + length);
+        }
+        if (length < 0) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = in.read(buf)) > 0) {
+                bos.write(buf, 0, len);
+            }
+            return bos.toByteArray();
+        }
+        byte[] bytes = new byte[(int) length];
+        int offset = 0;
+        while (offset < bytes.length) {
+            int len = in.read(bytes, offset, bytes.length - offset);
+            if (len < 0) {
+                throw new EOFException("Dex file truncated after " + offset
+                        + " of " + length + " bytes");
+            }
+            offset += len;
+        }
+        return bytes;
+    }
+
     private void initialize(ByteBuffer buffer) {
         b = buffer.asReadOnlyBuffer();
         b.clear();
         b.order(ByteOrder.LITTLE_ENDIAN);
     }
 
+    /**
+     * Returns the byte at the given offset, without changing the position.
+     */
+    public byte byteAt(int offset) {
+        return b.get(offset);
+    }
+
     public void setPosition(int offset) {
         b.position(offset);
     }
@@ -165,6 +209,10 @@ public final class DexBuffer {
         return b.get();
     }
 
+    /**
+     * Returns a buffer with its own position, which shares the contents of
+     * this buffer.
+     */
     public DexBuffer createCopy() {
         return new DexBuffer(b.duplicate());
     }
@@ -25,10 +25,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import dex.reader.DexFileReader.ClassDefItem;
-import dex.reader.DexFileReader.FieldIdItem;
-import dex.reader.DexFileReader.MethodsIdItem;
-import dex.reader.DexFileReader.ProtIdItem;
+import dex.reader.DexFileReader.ClassDefs;
+import dex.reader.DexFileReader.FieldIds;
+import dex.reader.DexFileReader.MethodIds;
+import dex.reader.DexFileReader.ProtoIds;
 import dex.structure.DexAnnotation;
 import dex.structure.DexClass;
 import dex.structure.DexField;
@@ -37,15 +37,18 @@ import dex.structure.DexMethod;
 /* package */final class DexClassImpl implements DexClass {
     // constant
     private final int NO_INDEX = -1;
-    // dex bytes
-    private final DexBuffer buffer;
+    // dex bytes, shared with the file; never positioned by this class
+    private final DexBuffer fileBuffer;
+    // private view on the dex bytes, created by parse()
+    private DexBuffer buffer;
     // allready parsed
-    private final ClassDefItem classDefItem;
+    private final ClassDefs classDefs;
+    private final int classDefIdx;
     private final int[] typeIds;
-    private final String[] stringPool;
-    private ProtIdItem[] protoIdItems;
-    private FieldIdItem[] fieldIdItems;
-    private MethodsIdItem[] methodIdItems;
+    private final StringPool stringPool;
+    private final ProtoIds protoIds;
+    private FieldIds fieldIds;
+    private final MethodIds methodIds;
 
     //
     private List<DexField> fields;
@@ -64,22 +67,41 @@ import dex.structure.DexMethod;
     private TypeFormatter formatter = new TypeFormatter();
 
     private boolean hasClassData;
-
-
-    public DexClassImpl(DexBuffer buffer, ClassDefItem classDefItem,
-            String[] stringPool, int[] typeIds, ProtIdItem[] protoIdItems,
-            FieldIdItem[] fieldIdItems, MethodsIdItem[] methodIdItems) {
-        this.buffer = buffer;
-        this.classDefItem = classDefItem;
+    private boolean parsed;
+
+
+    /**
+     * Creates a handle on the class def at {@code classDefIdx}. Only the
+     * indices are stored here; the class data and annotations are parsed on
+     * the first access to a member, see {@link #parse()}.
+     */
+    public DexClassImpl(DexBuffer buffer, ClassDefs classDefs,
+            int classDefIdx, StringPool stringPool, int[] typeIds,
+            ProtoIds protoIds, FieldIds fieldIds, MethodIds methodIds) {
+        this.fileBuffer = buffer;
+        this.classDefs = classDefs;
+        this.classDefIdx = classDefIdx;
         this.stringPool = stringPool;
         this.typeIds = typeIds;
-        this.protoIdItems = protoIdItems;
-        this.fieldIdItems = fieldIdItems;
-        this.methodIdItems = methodIdItems;
-        hasClassData = classDefItem.class_data_off != 0;
-        parseClassData();
-        parseAnnotationDirectory();
-        parseClassAnnotations();
+        this.protoIds = protoIds;
+        this.fieldIds = fieldIds;
+        this.methodIds = methodIds;
+        hasClassData = classDefs.classDataOff[classDefIdx] != 0;
+    }
+
+    /**
+     * Parses the class data and the annotations of this class if this has
+     * not happened yet. Each class reads through its own view on the dex
+     * bytes, so distinct classes can be parsed concurrently.
+     */
+    synchronized void parse() {
+        if (!parsed) {
+            buffer = fileBuffer.createCopy();
+            parseClassData();
+            parseAnnotationDirectory();
+            parseClassAnnotations();
+            parsed = true;
+        }
     }
 
     static class AnnotationsDirectoryItem {
@@ -116,8 +138,8 @@ import dex.structure.DexMethod;
     }
 
     private void parseAnnotationDirectory() {
-        if (classDefItem.annotations_off != 0) {
-            buffer.setPosition(classDefItem.annotations_off);
+        if (classDefs.annotationsOff[classDefIdx] != 0) {
+            buffer.setPosition(classDefs.annotationsOff[classDefIdx]);
             annotationDir = new AnnotationsDirectoryItem();
             annotationDir.class_annotations_off = buffer.readUInt();
             annotationDir.fields_size = buffer.readUInt();
@@ -195,7 +217,7 @@ import dex.structure.DexMethod;
 
     private void parseClassData() {
         if (hasClassData) {
-            buffer.setPosition(classDefItem.class_data_off);
+            buffer.setPosition(classDefs.classDataOff[classDefIdx]);
             classDataItem = new ClassDataItem();
             classDataItem.static_fields_size = buffer.readUleb128();
             classDataItem.instance_fields_size = buffer.readUleb128();
@@ -240,13 +262,14 @@ import dex.structure.DexMethod;
             final int size = buffer.readUInt();
             for (int i = 0; i < size; i++) {
                 annotations.add(new DexAnnotationImpl(buffer.createCopy(),
-                        buffer.readUInt(), typeIds, stringPool, fieldIdItems));
+                        buffer.readUInt(), typeIds, stringPool, fieldIds));
             }
         }
     }
 
     public synchronized List<DexField> getFields() {
         if (fields == null) {
+            parse();
             fields = new ArrayList<DexField>();
             if (hasClassData) {
                 fields.addAll(getDexFields(classDataItem.staticFields));
@@ -265,9 +288,9 @@ import dex.structure.DexMethod;
                 fieldIdIdx = (i == 0) ? fields[i].field_idx_diff : fieldIdIdx
                         + fields[i].field_idx_diff;
                 dexFields.add(new DexFieldImpl(buffer.createCopy(), this,
-                        fieldIdItems[fieldIdIdx], accessFlags,
+                        fieldIdIdx, accessFlags,
                         idToFieldAnnotation.get(fieldIdIdx), stringPool,
-                        typeIds, fieldIdItems));
+                        typeIds, fieldIds));
             }
         }
         return dexFields;
@@ -275,6 +298,7 @@ import dex.structure.DexMethod;
 
     public synchronized List<DexMethod> getMethods() {
         if (methods == null) {
+            parse();
             methods = new ArrayList<DexMethod>();
             if (hasClassData) {
                 methods.addAll(getDexMethods(classDataItem.directMethods));
@@ -293,13 +317,12 @@ import dex.structure.DexMethod;
                 method = methods[i];
                 methodIdIdx = (i == 0) ? method.method_idx_diff : methodIdIdx
                         + method.method_idx_diff;
-                dexMethods.add(new DexMethodImpl(buffer, this,
-                        methodIdItems[methodIdIdx],
-                        protoIdItems[methodIdItems[methodIdIdx].proto_idx],
+                dexMethods.add(new DexMethodImpl(buffer.createCopy(), this,
+                        methodIds, methodIdIdx, protoIds,
                         method.access_flags, idToMethodAnnotation
                                 .get(methodIdIdx), idToParameterAnnotation
                                 .get(methodIdIdx), stringPool, typeIds,
-                        fieldIdItems));
+                        fieldIds));
             }
         }
         return dexMethods;
@@ -309,12 +332,15 @@ import dex.structure.DexMethod;
 
     public synchronized List<String> getInterfaces() {
         if (interfaces == null) {
+            parse();
             interfaces = new LinkedList<String>();
-            if (classDefItem.interfaces_off != 0) {
-                buffer.setPosition(classDefItem.interfaces_off);
+            int interfacesOff = classDefs.interfacesOff[classDefIdx];
+            if (interfacesOff != 0) {
+                buffer.setPosition(interfacesOff);
                 int size = buffer.readUInt();
                 for (int i = 0; i < size; i++) {
-                    interfaces.add(stringPool[typeIds[buffer.readUShort()]]);
+                    interfaces.add(stringPool.get(typeIds[buffer
+                            .readUShort()]));
                 }
             }
         }
@@ -323,20 +349,22 @@ import dex.structure.DexMethod;
 
     // returns null if no super class is present
     public String getSuperClass() {
-        return classDefItem.superclass_idx == NO_INDEX ? null
-                : stringPool[typeIds[classDefItem.superclass_idx]];
+        int superclassIdx = classDefs.superclassIdx[classDefIdx];
+        return superclassIdx == NO_INDEX ? null : stringPool
+                .get(typeIds[superclassIdx]);
     }
 
-    public Set<DexAnnotation> getAnnotations() {
+    public synchronized Set<DexAnnotation> getAnnotations() {
+        parse();
         return annotations;
     }
 
     public String getName() {
-        return stringPool[typeIds[classDefItem.class_idx]];
+        return stringPool.get(typeIds[classDefs.classIdx[classDefIdx]]);
     }
 
     public int getModifiers() {
-        return classDefItem.access_flags;
+        return classDefs.accessFlags[classDefIdx];
     }
 
     @Override
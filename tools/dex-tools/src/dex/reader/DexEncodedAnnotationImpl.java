@@ -16,7 +16,7 @@
 
 package dex.reader;
 
-import dex.reader.DexFileReader.FieldIdItem;
+import dex.reader.DexFileReader.FieldIds;
 import dex.structure.DexAnnotation;
 import dex.structure.DexAnnotationAttribute;
 import dex.structure.DexEncodedAnnotation;
@@ -31,18 +31,18 @@ import java.util.List;
     private List<DexAnnotationAttribute> values;
     private final DexBuffer buffer;
     private final int[] typeIds;
-    private final String[] stringPool;
+    private final StringPool stringPool;
     private int typeIdx;
-    private final FieldIdItem[] fieldIdItems;
+    private final FieldIds fieldIds;
     private final DexAnnotation annotation;
 
     public DexEncodedAnnotationImpl(DexBuffer buffer, DexAnnotation annotation,
-            int[] typeIds, String[] stringPool, FieldIdItem[] fieldIdItems) {
+            int[] typeIds, StringPool stringPool, FieldIds fieldIds) {
         this.buffer = buffer;
         this.annotation = annotation;
         this.typeIds = typeIds;
         this.stringPool = stringPool;
-        this.fieldIdItems = fieldIdItems;
+        this.fieldIds = fieldIds;
         parseEncodedAnnotation();
     }
 
@@ -52,7 +52,7 @@ import java.util.List;
         values = new ArrayList<DexAnnotationAttribute>(size);
         for (int j = 0; j < size; j++) {
             values.add(new DexAnnotationAttributeImpl(buffer, annotation,
-                    typeIds, stringPool, fieldIdItems));
+                    typeIds, stringPool, fieldIds));
         }
     }
 
@@ -65,7 +65,7 @@ import java.util.List;
     }
 
     public String getTypeName() {
-        return stringPool[typeIds[typeIdx]];
+        return stringPool.get(typeIds[typeIdx]);
     }
 
     @Override
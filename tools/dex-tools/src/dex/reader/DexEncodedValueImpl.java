@@ -17,7 +17,7 @@
 package dex.reader;
 
 import static dex.structure.DexEncodedValueType.*;
-import dex.reader.DexFileReader.FieldIdItem;
+import dex.reader.DexFileReader.FieldIds;
 import dex.structure.DexAnnotation;
 import dex.structure.DexEncodedValue;
 import dex.structure.DexEncodedValueType;
@@ -30,10 +30,10 @@ import java.util.List;
     private final DexBuffer buffer;
     private byte typeAndValueArg;
     private DexEncodedValueType type;
-    private String[] stringPool;
+    private StringPool stringPool;
     private Object value;
     private int[] typeIds;
-    private final FieldIdItem[] fieldIdItems;
+    private final FieldIds fieldIds;
     private final DexAnnotation annotation;
 
     /**
@@ -42,15 +42,15 @@ import java.util.List;
      *            the buffer with the correct position
      * @param annotation
      * @param stringPool
-     * @param fieldIdItems
+     * @param fieldIds
      */
     public DexEncodedValueImpl(DexBuffer buffer, DexAnnotation annotation,
-            int[] typeIds, String[] stringPool, FieldIdItem[] fieldIdItems) {
+            int[] typeIds, StringPool stringPool, FieldIds fieldIds) {
         this.buffer = buffer;
         this.annotation = annotation;
         this.typeIds = typeIds;
         this.stringPool = stringPool;
-        this.fieldIdItems = fieldIdItems;
+        this.fieldIds = fieldIds;
         parseValue();
     }
 
@@ -134,7 +134,7 @@ import java.util.List;
     private Object getAnnotationValue(int valueArg) {
         // use the buffer directly to get adjusted offset
         return new DexEncodedAnnotationImpl(buffer, annotation, typeIds,
-                stringPool, fieldIdItems);
+                stringPool, fieldIds);
     }
 
     /**
@@ -147,7 +147,7 @@ import java.util.List;
         List<DexEncodedValue> values = new ArrayList<DexEncodedValue>(size);
         for (int i = 0; i < size; i++) {
             values.add(new DexEncodedValueImpl(buffer, annotation, typeIds,
-                    stringPool, fieldIdItems));
+                    stringPool, fieldIds));
         }
         return values;
     }
@@ -159,10 +159,10 @@ import java.util.List;
      */
     private Object getEnumValue(int valueArg) {
         int fieldOffset = buffer.readInt(valueArg + 1);
-        FieldIdItem fieldIdItem = fieldIdItems[fieldOffset];
         // FORMAT La/b/E;!CONSTANT
-        String constantName = stringPool[fieldIdItem.name_idx];
-        String typeName = stringPool[typeIds[fieldIdItem.type_idx]];
+        String constantName = stringPool.get(fieldIds.nameIdx[fieldOffset]);
+        String typeName = stringPool.get(typeIds[fieldIds
+                .typeIdx[fieldOffset]]);
         return typeName + "!" + constantName;
     }
 
@@ -184,10 +184,10 @@ import java.util.List;
      */
     private Object getFieldValue(int valueArg) {
         int fieldOffset = buffer.readInt(valueArg + 1);
-        FieldIdItem fieldIdItem = fieldIdItems[fieldOffset];
         // FORMAT La/b/E;!CONSTANT
-        String fieldName = stringPool[fieldIdItem.name_idx];
-        String typeName = stringPool[typeIds[fieldIdItem.type_idx]];
+        String fieldName = stringPool.get(fieldIds.nameIdx[fieldOffset]);
+        String typeName = stringPool.get(typeIds[fieldIds
+                .typeIdx[fieldOffset]]);
         return typeName + "!" + fieldName;
     }
 
@@ -199,7 +199,7 @@ import java.util.List;
     private Object getTypeValue(int valueArg) {
         valueArg++; // size - 1 (0...3)
         // FIXME SPEC!! states: unsigned (zero-extended) four-byte integer value
-        return stringPool[typeIds[buffer.readInt(valueArg)]];
+        return stringPool.get(typeIds[buffer.readInt(valueArg)]);
     }
 
     /**
@@ -209,7 +209,7 @@ import java.util.List;
      */
     private Object getStringValue(int valueArg) {
         valueArg++;
-        return stringPool[buffer.readInt(valueArg)];
+        return stringPool.get(buffer.readInt(valueArg));
     }
 
     /**
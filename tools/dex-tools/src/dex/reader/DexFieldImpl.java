@@ -17,7 +17,7 @@
 package dex.reader;
 
 import dex.reader.DexClassImpl.FieldAnnotation;
-import dex.reader.DexFileReader.FieldIdItem;
+import dex.reader.DexFileReader.FieldIds;
 import dex.structure.DexAnnotation;
 import dex.structure.DexClass;
 import dex.structure.DexField;
@@ -29,28 +29,28 @@ import java.util.Set;
 /* package */final class DexFieldImpl implements DexField {
 
     private DexBuffer buffer;
-    private String[] stringPool;
-    private FieldIdItem fieldIdItem;
+    private StringPool stringPool;
+    private final int fieldIdx;
     private int[] typeIds;
     private final int accessFlags;
     private Set<DexAnnotation> annotations;
     private FieldAnnotation fieldAnnotation;
     private TypeFormatter formatter = new TypeFormatter();
     private final DexClass declaringClass;
-    private final FieldIdItem[] fieldIdItems;
+    private final FieldIds fieldIds;
 
     public DexFieldImpl(DexBuffer buffer, DexClass declaringClass,
-            FieldIdItem fieldIdItem, int accessFlags,
-            FieldAnnotation fieldAnnotation, String[] stringPool,
-            int[] typeIds, FieldIdItem[] fieldIdItems) {
+            int fieldIdx, int accessFlags,
+            FieldAnnotation fieldAnnotation, StringPool stringPool,
+            int[] typeIds, FieldIds fieldIds) {
         this.buffer = buffer;
         this.declaringClass = declaringClass;
-        this.fieldIdItem = fieldIdItem;
+        this.fieldIdx = fieldIdx;
         this.accessFlags = accessFlags;
         this.fieldAnnotation = fieldAnnotation;
         this.stringPool = stringPool;
         this.typeIds = typeIds;
-        this.fieldIdItems = fieldIdItems;
+        this.fieldIds = fieldIds;
         parseAnnotations();
     }
 
@@ -61,17 +61,17 @@ import java.util.Set;
             final int size = buffer.readUInt();
             for (int i = 0; i < size; i++) {
                 annotations.add(new DexAnnotationImpl(buffer.createCopy(),
-                        buffer.readUInt(), typeIds, stringPool, fieldIdItems));
+                        buffer.readUInt(), typeIds, stringPool, fieldIds));
             }
         }
     }
 
     public String getName() {
-        return stringPool[fieldIdItem.name_idx];
+        return stringPool.get(fieldIds.nameIdx[fieldIdx]);
     }
 
     public String getType() {
-        return stringPool[typeIds[fieldIdItem.type_idx]];
+        return stringPool.get(typeIds[fieldIds.typeIdx[fieldIdx]]);
     }
 
     public int getModifiers() {
@@ -16,70 +16,226 @@
 
 package dex.reader;
 
-import dex.reader.DexFileReader.ClassDefItem;
-import dex.reader.DexFileReader.FieldIdItem;
-import dex.reader.DexFileReader.MethodsIdItem;
-import dex.reader.DexFileReader.ProtIdItem;
+import dex.reader.DexFileReader.ClassDefs;
+import dex.reader.DexFileReader.FieldIds;
+import dex.reader.DexFileReader.MethodIds;
+import dex.reader.DexFileReader.ProtoIds;
 import dex.structure.DexClass;
+import dex.structure.DexField;
+import dex.structure.DexFieldReference;
 import dex.structure.DexFile;
+import dex.structure.DexMethod;
+import dex.structure.DexMethodReference;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /* package */final class DexFileImpl implements DexFile {
 
-    private final String[] stringPool;
+    private final StringPool stringPool;
     private final int[] typeIds;
-    private ProtIdItem[] protoIdItems;
-    private FieldIdItem[] fieldIdItems;
-    private MethodsIdItem[] methodIdItems;
-    private ClassDefItem[] classDefItems;
+    private final ProtoIds protoIds;
+    private final FieldIds fieldIds;
+    private final MethodIds methodIds;
+    private final ClassDefs classDefs;
     private final DexBuffer buffer;
+    private final List<DexClass> classes;
 
-    private List<DexClass> classes = null;
+    private DexFileIndex index;
+    private List<DexMethodReference> referencedMethods;
+    private List<DexFieldReference> referencedFields;
 
-    public DexFileImpl(DexBuffer buffer, String[] stringPool, int[] typeIds,
-            ProtIdItem[] protoIds, FieldIdItem[] fieldIdItems,
-            MethodsIdItem[] methodIdItems, ClassDefItem[] classDefItems) {
+    public DexFileImpl(DexBuffer buffer, StringPool stringPool, int[] typeIds,
+            ProtoIds protoIds, FieldIds fieldIds, MethodIds methodIds,
+            ClassDefs classDefs) {
         this.buffer = buffer;
         this.stringPool = stringPool;
         this.typeIds = typeIds;
-        this.protoIdItems = protoIds;
-        this.fieldIdItems = fieldIdItems;
-        this.methodIdItems = methodIdItems;
-        this.classDefItems = classDefItems;
+        this.protoIds = protoIds;
+        this.fieldIds = fieldIds;
+        this.methodIds = methodIds;
+        this.classDefs = classDefs;
+        List<DexClass> classes = new ArrayList<DexClass>(classDefs.size());
+        for (int i = 0; i < classDefs.size(); i++) {
+            classes.add(new DexClassImpl(buffer, classDefs, i, stringPool,
+                    typeIds, protoIds, fieldIds, methodIds));
+        }
+        this.classes = Collections.unmodifiableList(classes);
     }
 
-    /*
-     * (non-Javadoc)
+    /**
+     * Returns handles on all classes defined in this file. The handles only
+     * parse the class data and annotations of a class when one of its
+     * members is accessed, see {@link #parseClasses(int)} to parse them all
+     * up front.
      * 
      * @see dex.reader.DexFile#getDefinedClasses()
      */
-    public synchronized List<DexClass> getDefinedClasses() {
-        if (classes == null) {
-            classes = new ArrayList<DexClass>(classDefItems.length);
-            for (int i = 0; i < classDefItems.length; i++) {
-                classes.add(new DexClassImpl(buffer.createCopy(),
-                        classDefItems[i], stringPool, typeIds, protoIdItems,
-                        fieldIdItems, methodIdItems));
+    public List<DexClass> getDefinedClasses() {
+        return classes;
+    }
+
+    public DexClass getDefinedClass(String descriptor) {
+        return getIndex().getClass(descriptor);
+    }
+
+    public List<DexMethod> getDefinedMethods(String name) {
+        return getIndex().getMethods(name);
+    }
+
+    public List<DexMethod> getDefinedMethodsByPrototype(String prototype) {
+        return getIndex().getMethodsByPrototype(prototype);
+    }
+
+    public List<DexField> getDefinedFields(String name) {
+        return getIndex().getFields(name);
+    }
+
+    private synchronized DexFileIndex getIndex() {
+        if (index == null) {
+            index = new DexFileIndex(classes);
+        }
+        return index;
+    }
+
+    public List<DexMethodReference> getReferencedMethods() {
+        indexReferences();
+        return referencedMethods;
+    }
+
+    public List<DexFieldReference> getReferencedFields() {
+        indexReferences();
+        return referencedFields;
+    }
+
+    /**
+     * Collects the entries of the method and field id tables whose declaring
+     * class is not defined in this file. Only the id tables and the type
+     * lists of the prototypes are read, no class is parsed.
+     */
+    private synchronized void indexReferences() {
+        if (referencedMethods != null) {
+            return;
+        }
+        boolean[] defined = new boolean[typeIds.length];
+        for (int i = 0; i < classDefs.size(); i++) {
+            defined[classDefs.classIdx[i]] = true;
+        }
+
+        DexBuffer typeLists = buffer.createCopy();
+        Map<Integer, List<String>> parameterTypes =
+                new HashMap<Integer, List<String>>();
+        List<DexMethodReference> methods =
+                new ArrayList<DexMethodReference>();
+        for (int i = 0; i < methodIds.nameIdx.length; i++) {
+            if (!defined[methodIds.classIdx[i]]) {
+                int protoIdx = methodIds.protoIdx[i];
+                List<String> parameters = parameterTypes.get(protoIdx);
+                if (parameters == null) {
+                    parameters = readTypeList(typeLists,
+                            protoIds.parameterOff[protoIdx]);
+                    parameterTypes.put(protoIdx, parameters);
+                }
+                methods.add(new DexMethodReferenceImpl(stringPool
+                        .get(typeIds[methodIds.classIdx[i]]), stringPool
+                        .get(methodIds.nameIdx[i]), stringPool
+                        .get(typeIds[protoIds.returnTypeIdx[protoIdx]]),
+                        parameters));
             }
         }
-        return classes;
+
+        List<DexFieldReference> fields = new ArrayList<DexFieldReference>();
+        for (int i = 0; i < fieldIds.nameIdx.length; i++) {
+            if (!defined[fieldIds.classIdx[i]]) {
+                fields.add(new DexFieldReferenceImpl(stringPool
+                        .get(typeIds[fieldIds.classIdx[i]]), stringPool
+                        .get(fieldIds.nameIdx[i]), stringPool
+                        .get(typeIds[fieldIds.typeIdx[i]])));
+            }
+        }
+        referencedFields = Collections.unmodifiableList(fields);
+        referencedMethods = Collections.unmodifiableList(methods);
+    }
+
+    private List<String> readTypeList(DexBuffer buffer, int offset) {
+        if (offset == 0) {
+            return Collections.emptyList();
+        }
+        buffer.setPosition(offset);
+        String[] types = new String[buffer.readUInt()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = stringPool.get(typeIds[buffer.readUShort()]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(types));
+    }
+
+    /**
+     * Parses the class data and annotations of all defined classes on the
+     * given number of threads.
+     * 
+     * @param numThreads
+     *            the number of threads to parse the classes on
+     */
+    void parseClasses(int numThreads) {
+        final int stride = Math.max(1, Math.min(numThreads, classes.size()));
+        if (stride == 1) {
+            for (DexClass clazz : classes) {
+                ((DexClassImpl) clazz).parse();
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(stride);
+        List<Future<?>> results = new ArrayList<Future<?>>(stride);
+        try {
+            for (int i = 0; i < stride; i++) {
+                final int first = i;
+                results.add(executor.submit(new Runnable() {
+                    public void run() {
+                        for (int j = first; j < classes.size(); j += stride) {
+                            ((DexClassImpl) classes.get(j)).parse();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing classes");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder();
-        b.append("StringPool:\n").append(Arrays.toString(stringPool));
+        b.append("StringPool:\n").append(stringPool);
         b.append("\nTypes:\n");
         for (int i = 0; i < typeIds.length; i++) {
-            b.append(stringPool[typeIds[i]] + "\n");
+            b.append(stringPool.get(typeIds[i]) + "\n");
         }
-        b.append("\nProtos:\n").append(Arrays.toString(protoIdItems));
-        b.append("\nFields:\n").append(Arrays.toString(fieldIdItems));
-        b.append("\nMethods:\n").append(Arrays.toString(methodIdItems));
-        b.append("\nClasses:\n").append(Arrays.toString(classDefItems));
+        b.append("\nProtos: ").append(protoIds.shortyIdx.length);
+        b.append("\nFields: ").append(fieldIds.nameIdx.length);
+        b.append("\nMethods: ").append(methodIds.nameIdx.length);
+        b.append("\nClasses: ").append(classDefs.size());
         return b.toString();
     }
 
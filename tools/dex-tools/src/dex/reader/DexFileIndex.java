@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dex.reader;
+
+import dex.structure.DexClass;
+import dex.structure.DexField;
+import dex.structure.DexFile;
+import dex.structure.DexMethod;
+import dex.structure.DexParameter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lookup tables over the classes and members defined in a {@link DexFile}.
+ * The class table is built when the index is created, the member tables are
+ * built on the first member query since they require all classes to be
+ * parsed.
+ */
+public final class DexFileIndex {
+
+    private final List<DexClass> classes;
+    private final Map<String, DexClass> classesByName;
+
+    private Map<String, List<DexMethod>> methodsByName;
+    private Map<String, List<DexMethod>> methodsByPrototype;
+    private Map<String, List<DexField>> fieldsByName;
+
+    public DexFileIndex(List<DexClass> classes) {
+        this.classes = classes;
+        classesByName = new HashMap<String, DexClass>(classes.size() * 2);
+        for (DexClass clazz : classes) {
+            classesByName.put(clazz.getName(), clazz);
+        }
+    }
+
+    public DexClass getClass(String descriptor) {
+        return classesByName.get(descriptor);
+    }
+
+    public List<DexMethod> getMethods(String name) {
+        indexMembers();
+        return get(methodsByName, name);
+    }
+
+    public List<DexMethod> getMethodsByPrototype(String prototype) {
+        indexMembers();
+        return get(methodsByPrototype, prototype);
+    }
+
+    public List<DexField> getFields(String name) {
+        indexMembers();
+        return get(fieldsByName, name);
+    }
+
+    private synchronized void indexMembers() {
+        if (fieldsByName != null) {
+            return;
+        }
+        Map<String, List<DexMethod>> methodsByName =
+                new HashMap<String, List<DexMethod>>();
+        Map<String, List<DexMethod>> methodsByPrototype =
+                new HashMap<String, List<DexMethod>>();
+        Map<String, List<DexField>> fieldsByName =
+                new HashMap<String, List<DexField>>();
+        for (DexClass clazz : classes) {
+            for (DexMethod method : clazz.getMethods()) {
+                add(methodsByName, method.getName(), method);
+                add(methodsByPrototype, getPrototype(method), method);
+            }
+            for (DexField field : clazz.getFields()) {
+                add(fieldsByName, field.getName(), field);
+            }
+        }
+        this.methodsByName = methodsByName;
+        this.methodsByPrototype = methodsByPrototype;
+        this.fieldsByName = fieldsByName;
+    }
+
+    private static <T> void add(Map<String, List<T>> map, String key,
+            T value) {
+        List<T> values = map.get(key);
+        if (values == null) {
+            values = new ArrayList<T>(1);
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    private static <T> List<T> get(Map<String, List<T>> map, String key) {
+        List<T> values = map.get(key);
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Returns the prototype of the given method, e.g.
+     * {@code (Ljava/lang/String;I)V}.
+     * 
+     * @param method
+     *            the method
+     * @return the prototype of the method
+     */
+    public static String getPrototype(DexMethod method) {
+        StringBuilder prototype = new StringBuilder("(");
+        for (DexParameter parameter : method.getParameters()) {
+            prototype.append(parameter.getTypeName());
+        }
+        return prototype.append(')').append(method.getReturnType())
+                .toString();
+    }
+}
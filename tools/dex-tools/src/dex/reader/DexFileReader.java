@@ -57,12 +57,30 @@ public final class DexFileReader {
 
 
     //
-    private String[] stringPool;
+    private StringPool stringPool;
     private int[] typeIds; // values are index of stringPool
-    private ProtIdItem[] protoIdItems;
-    private FieldIdItem[] fieldIdItems;
-    private MethodsIdItem[] methodIdItems;
-    private ClassDefItem[] classDefItems;
+    private ProtoIds protoIds;
+    private FieldIds fieldIds;
+    private MethodIds methodIds;
+    private ClassDefs classDefs;
+
+    /**
+     * Reads the dex file in the given buffer and parses the classes it
+     * defines on the given number of threads. Use this when all classes of
+     * the file are going to be visited; {@link #read(DexBuffer)} defers the
+     * parsing of each class until it is accessed.
+     * 
+     * @param buffer
+     *            the dex file, positioned at zero
+     * @param numThreads
+     *            the number of threads to parse the classes on
+     * @return the parsed dex file
+     */
+    public DexFile read(DexBuffer buffer, int numThreads) {
+        DexFileImpl dexFile = (DexFileImpl) read(buffer);
+        dexFile.parseClasses(numThreads);
+        return dexFile;
+    }
 
     // starting buffer at zero
     public DexFile read(DexBuffer buffer) {
@@ -99,7 +117,7 @@ public final class DexFileReader {
         readClasses();
 
         return new DexFileImpl(b.createCopy(), stringPool, typeIds,
-                protoIdItems, fieldIdItems, methodIdItems, classDefItems);
+                protoIds, fieldIds, methodIds, classDefs);
     }
 
     // MAGIC (8, U_BYTE)
@@ -154,15 +172,8 @@ public final class DexFileReader {
             stringDataOffsets[i] = b.readUInt();
         }
 
-        stringPool = new String[nStrings];
-        for (int i = 0; i < stringDataOffsets.length; i++) {
-            b.setPosition(stringDataOffsets[i]); // set buffer to offset
-            // Position
-            int lenght = b.readUleb128(); // read uleb128
-            byte[] values = new byte[lenght];
-            b.readBytes(values);
-            stringPool[i] = new String(values);
-        }
+        // the strings are decoded on demand
+        stringPool = new StringPool(b.createCopy(), stringDataOffsets);
     }
 
     private void readTypeIds() {
@@ -175,99 +186,133 @@ public final class DexFileReader {
         }
     }
 
-    static class ProtIdItem {
-        public int shorty_idx;
-        public int return_type_idx;
-        public int parameter_off;
+    /**
+     * The proto_id_items, as one array per column, indexed by proto index.
+     */
+    static final class ProtoIds {
+        final int[] shortyIdx; // index into string ids
+        final int[] returnTypeIdx; // index of type_ids
+        final int[] parameterOff; // offset of the type list or 0
+
+        ProtoIds(int size) {
+            shortyIdx = new int[size];
+            returnTypeIdx = new int[size];
+            parameterOff = new int[size];
+        }
     }
 
     private void readProtos() {
         int nProtos = size[PROTO_IDS];
         b.setPosition(off[PROTO_IDS]);
-        protoIdItems = new ProtIdItem[nProtos];
-
-        ProtIdItem item = null;
-        for (int i = 0; i < protoIdItems.length; i++) {
-            item = new ProtIdItem();
-            item.shorty_idx = b.readUInt();
-            item.return_type_idx = b.readUInt();
-            item.parameter_off = b.readUInt();
-            protoIdItems[i] = item;
+        protoIds = new ProtoIds(nProtos);
+
+        for (int i = 0; i < nProtos; i++) {
+            protoIds.shortyIdx[i] = b.readUInt();
+            protoIds.returnTypeIdx[i] = b.readUInt();
+            protoIds.parameterOff[i] = b.readUInt();
         }
     }
 
-    static class FieldIdItem {
-        public int class_idx; // defining class : index of type_ids
-        public int type_idx; // type of field : index of type_ids
-        public int name_idx; // name of field : index into string id (or
-        // directly stringpool)
+    /**
+     * The field_id_items, as one array per column, indexed by field index.
+     * The unsigned short columns are stored as chars.
+     */
+    static final class FieldIds {
+        final char[] classIdx; // defining class : index of type_ids
+        final char[] typeIdx; // type of field : index of type_ids
+        final int[] nameIdx; // name of field : index into string ids
+
+        FieldIds(int size) {
+            classIdx = new char[size];
+            typeIdx = new char[size];
+            nameIdx = new int[size];
+        }
     }
 
     private void readFields() {
         int nFields = size[FIELD_IDS];
         b.setPosition(off[FIELD_IDS]);
-        fieldIdItems = new FieldIdItem[nFields];
-
-        FieldIdItem item = null;
-        for (int i = 0; i < fieldIdItems.length; i++) {
-            item = new FieldIdItem();
-            item.class_idx = b.readUShort();
-            item.type_idx = b.readUShort();
-            item.name_idx = b.readUInt();
-            fieldIdItems[i] = item;
+        fieldIds = new FieldIds(nFields);
+
+        for (int i = 0; i < nFields; i++) {
+            fieldIds.classIdx[i] = (char) b.readUShort();
+            fieldIds.typeIdx[i] = (char) b.readUShort();
+            fieldIds.nameIdx[i] = b.readUInt();
         }
     }
 
-    static class MethodsIdItem {
-        public int class_idx; // defining class : index of typeIds
-        public int proto_idx; // proto of method : index of protoIdItems
-        public int name_idx; // name of method : index into string id (or
-        // directly stringpool)
+    /**
+     * The method_id_items, as one array per column, indexed by method index.
+     * The unsigned short columns are stored as chars.
+     */
+    static final class MethodIds {
+        final char[] classIdx; // defining class : index of type_ids
+        final char[] protoIdx; // proto of method : index of proto ids
+        final int[] nameIdx; // name of method : index into string ids
+
+        MethodIds(int size) {
+            classIdx = new char[size];
+            protoIdx = new char[size];
+            nameIdx = new int[size];
+        }
     }
 
     private void readMethods() {
         int nMethods = size[METHOD_IDS];
         b.setPosition(off[METHOD_IDS]);
-        methodIdItems = new MethodsIdItem[nMethods];
-
-        MethodsIdItem item = null;
-        for (int i = 0; i < methodIdItems.length; i++) {
-            item = new MethodsIdItem();
-            item.class_idx = b.readUShort();
-            item.proto_idx = b.readUShort();
-            item.name_idx = b.readUInt();
-            methodIdItems[i] = item;
+        methodIds = new MethodIds(nMethods);
+
+        for (int i = 0; i < nMethods; i++) {
+            methodIds.classIdx[i] = (char) b.readUShort();
+            methodIds.protoIdx[i] = (char) b.readUShort();
+            methodIds.nameIdx[i] = b.readUInt();
         }
     }
 
-    public static class ClassDefItem {
-        public int class_idx;
-        public int access_flags;
-        public int superclass_idx;
-        public int interfaces_off;
-        public int source_file_idx;
-        public int annotations_off;
-        public int class_data_off;
-        public int static_values_off;
+    /**
+     * The class_def_items, as one array per column, indexed by class
+     * definition index.
+     */
+    static final class ClassDefs {
+        final int[] classIdx;
+        final int[] accessFlags;
+        final int[] superclassIdx;
+        final int[] interfacesOff;
+        final int[] sourceFileIdx;
+        final int[] annotationsOff;
+        final int[] classDataOff;
+        final int[] staticValuesOff;
+
+        ClassDefs(int size) {
+            classIdx = new int[size];
+            accessFlags = new int[size];
+            superclassIdx = new int[size];
+            interfacesOff = new int[size];
+            sourceFileIdx = new int[size];
+            annotationsOff = new int[size];
+            classDataOff = new int[size];
+            staticValuesOff = new int[size];
+        }
+
+        int size() {
+            return classIdx.length;
+        }
     }
 
     private void readClasses() {
         int nClassDefs = size[CLASS_DEFS];
         b.setPosition(off[CLASS_DEFS]);
-        classDefItems = new ClassDefItem[nClassDefs];
-
-        ClassDefItem item = null;
-        for (int i = 0; i < classDefItems.length; i++) {
-            item = new ClassDefItem();
-            item.class_idx = b.readUInt();
-            item.access_flags = b.readUInt();
-            item.superclass_idx = b.readUInt();
-            item.interfaces_off = b.readUInt();
-            item.source_file_idx = b.readUInt();
-            item.annotations_off = b.readUInt();
-            item.class_data_off = b.readUInt();
-            item.static_values_off = b.readUInt();
-            classDefItems[i] = item;
+        classDefs = new ClassDefs(nClassDefs);
+
+        for (int i = 0; i < nClassDefs; i++) {
+            classDefs.classIdx[i] = b.readUInt();
+            classDefs.accessFlags[i] = b.readUInt();
+            classDefs.superclassIdx[i] = b.readUInt();
+            classDefs.interfacesOff[i] = b.readUInt();
+            classDefs.sourceFileIdx[i] = b.readUInt();
+            classDefs.annotationsOff[i] = b.readUInt();
+            classDefs.classDataOff[i] = b.readUInt();
+            classDefs.staticValuesOff[i] = b.readUInt();
         }
     }
 }
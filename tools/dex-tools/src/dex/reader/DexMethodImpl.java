@@ -26,9 +26,9 @@ import java.util.Set;
 
 import dex.reader.DexClassImpl.MethodAnnotation;
 import dex.reader.DexClassImpl.ParameterAnnotation;
-import dex.reader.DexFileReader.FieldIdItem;
-import dex.reader.DexFileReader.MethodsIdItem;
-import dex.reader.DexFileReader.ProtIdItem;
+import dex.reader.DexFileReader.FieldIds;
+import dex.reader.DexFileReader.MethodIds;
+import dex.reader.DexFileReader.ProtoIds;
 import dex.structure.DexAnnotation;
 import dex.structure.DexClass;
 import dex.structure.DexMethod;
@@ -37,10 +37,12 @@ import dex.structure.DexParameter;
 /* package */final class DexMethodImpl implements DexMethod {
 
     private DexBuffer buffer;
-    private MethodsIdItem methodsIdItem;
-    private String[] stringPool;
+    private final MethodIds methodIds;
+    private final int methodIdx;
+    private StringPool stringPool;
     private int[] typeIds;
-    private ProtIdItem protoIdItem;
+    private final ProtoIds protoIds;
+    private final int protoIdx;
     private List<DexParameter> parameters;
     private final int accessFlags;
     private final MethodAnnotation methodAnnotation;
@@ -49,23 +51,25 @@ import dex.structure.DexParameter;
     private final DexClass declaringClass;
     private final ParameterAnnotation parameterAnnotation;
     private Map<Integer, Integer> parameterIdToIndex;
-    private final FieldIdItem[] fieldIdItems;
+    private final FieldIds fieldIds;
 
     public DexMethodImpl(DexBuffer buffer, DexClass declaringClass,
-            MethodsIdItem methodsIdItem, ProtIdItem protoIdItem,
+            MethodIds methodIds, int methodIdx, ProtoIds protoIds,
             int accessFlags, MethodAnnotation methodAnnotation,
-            ParameterAnnotation parameterAnnotation, String[] stringPool,
-            int[] typeIds, FieldIdItem[] fieldIdItems) {
+            ParameterAnnotation parameterAnnotation, StringPool stringPool,
+            int[] typeIds, FieldIds fieldIds) {
         this.buffer = buffer;
         this.declaringClass = declaringClass;
-        this.methodsIdItem = methodsIdItem;
-        this.protoIdItem = protoIdItem;
+        this.methodIds = methodIds;
+        this.methodIdx = methodIdx;
+        this.protoIds = protoIds;
+        protoIdx = methodIds.protoIdx[methodIdx];
         this.accessFlags = accessFlags;
         this.methodAnnotation = methodAnnotation;
         this.parameterAnnotation = parameterAnnotation;
         this.stringPool = stringPool;
         this.typeIds = typeIds;
-        this.fieldIdItems = fieldIdItems;
+        this.fieldIds = fieldIds;
         parseAnnotations();
         parseParameterAnnotations();
     }
@@ -88,25 +92,26 @@ import dex.structure.DexParameter;
             final int size = buffer.readUInt();
             for (int i = 0; i < size; i++) {
                 annotations.add(new DexAnnotationImpl(buffer.createCopy(),
-                        buffer.readUInt(), typeIds, stringPool, fieldIdItems));
+                        buffer.readUInt(), typeIds, stringPool, fieldIds));
             }
         }
     }
 
     public String getName() {
-        return stringPool[methodsIdItem.name_idx];
+        return stringPool.get(methodIds.nameIdx[methodIdx]);
     }
 
     public String getReturnType() {
-        return stringPool[typeIds[protoIdItem.return_type_idx]];
+        return stringPool.get(typeIds[protoIds.returnTypeIdx[protoIdx]]);
     }
 
     public synchronized List<DexParameter> getParameters() {
         if (parameters == null) {
             parameters = new LinkedList<DexParameter>();
-            if (protoIdItem.parameter_off != 0) {
+            int parameterOff = protoIds.parameterOff[protoIdx];
+            if (parameterOff != 0) {
 
-                buffer.setPosition(protoIdItem.parameter_off);
+                buffer.setPosition(parameterOff);
                 int size = buffer.readUInt();
 
                 int[] paramTypeIdx = new int[size];
@@ -115,9 +120,9 @@ import dex.structure.DexParameter;
                 }
                 for (int i = 0; i < paramTypeIdx.length; i++) {
                     parameters.add(new DexParameterImpl(buffer.createCopy(),
-                            stringPool[typeIds[paramTypeIdx[i]]],
+                            stringPool.get(typeIds[paramTypeIdx[i]]),
                             parameterIdToIndex.get(i), typeIds, stringPool,
-                            fieldIdItems));
+                            fieldIds));
                 }
             }
         }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dex.reader;
+
+import dex.structure.DexMethodReference;
+
+import java.util.List;
+
+/* package */final class DexMethodReferenceImpl implements
+        DexMethodReference {
+
+    private final String declaringClass;
+    private final String name;
+    private final String returnType;
+    private final List<String> parameterTypes;
+
+    public DexMethodReferenceImpl(String declaringClass, String name,
+            String returnType, List<String> parameterTypes) {
+        this.declaringClass = declaringClass;
+        this.name = name;
+        this.returnType = returnType;
+        this.parameterTypes = parameterTypes;
+    }
+
+    public String getDeclaringClass() {
+        return declaringClass;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getReturnType() {
+        return returnType;
+    }
+
+    public List<String> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    public String getPrototype() {
+        StringBuilder prototype = new StringBuilder("(");
+        for (String parameterType : parameterTypes) {
+            prototype.append(parameterType);
+        }
+        return prototype.append(')').append(returnType).toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof DexMethodReferenceImpl)) {
+            return false;
+        }
+        DexMethodReferenceImpl other = (DexMethodReferenceImpl) obj;
+        return declaringClass.equals(other.declaringClass)
+                && name.equals(other.name)
+                && returnType.equals(other.returnType)
+                && parameterTypes.equals(other.parameterTypes);
+    }
+
+    @Override
+    public int hashCode() {
+        return (declaringClass.hashCode() * 31 + name.hashCode()) * 31
+                + parameterTypes.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return declaringClass + "." + name + getPrototype();
+    }
+}
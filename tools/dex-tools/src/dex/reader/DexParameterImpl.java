@@ -19,7 +19,7 @@ package dex.reader;
 import java.util.HashSet;
 import java.util.Set;
 
-import dex.reader.DexFileReader.FieldIdItem;
+import dex.reader.DexFileReader.FieldIds;
 import dex.structure.DexAnnotation;
 import dex.structure.DexParameter;
 
@@ -30,18 +30,18 @@ public class DexParameterImpl implements DexParameter {
     private Set<DexAnnotation> annotations;
     private final DexBuffer buffer;
     private final int[] typeIds;
-    private final String[] stringPool;
-    private final FieldIdItem[] fieldIdItems;
+    private final StringPool stringPool;
+    private final FieldIds fieldIds;
 
     public DexParameterImpl(DexBuffer buffer, String typeName,
-            Integer annotationOffset, int[] typeIds, String[] stringPool,
-            FieldIdItem[] fieldIdItems) {
+            Integer annotationOffset, int[] typeIds, StringPool stringPool,
+            FieldIds fieldIds) {
         this.buffer = buffer;
         this.typeName = typeName;
         this.annotationOffset = annotationOffset;
         this.typeIds = typeIds;
         this.stringPool = stringPool;
-        this.fieldIdItems = fieldIdItems;
+        this.fieldIds = fieldIds;
         parseAnnotations();
     }
 
@@ -52,7 +52,7 @@ public class DexParameterImpl implements DexParameter {
             final int size = buffer.readUInt();
             for (int i = 0; i < size; i++) {
                 annotations.add(new DexAnnotationImpl(buffer.createCopy(),
-                        buffer.readUInt(), typeIds, stringPool, fieldIdItems));
+                        buffer.readUInt(), typeIds, stringPool, fieldIds));
             }
         }
     }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dex.reader;
+
+/**
+ * The string pool of a dex file. Only the offsets of the string data items
+ * are read up front; a string is decoded from its modified UTF-8 encoding on
+ * first access and cached.
+ * <p>
+ * Strings may be requested by several threads at once. The buffer is only
+ * read at absolute offsets, and a string decoded concurrently by two threads
+ * is equal either way, so the cache needs no lock.
+ */
+final class StringPool {
+
+    private final DexBuffer buffer;
+    private final int[] offsets;
+    private final String[] strings;
+
+    /**
+     * @param buffer
+     *            the dex file
+     * @param offsets
+     *            the offsets of the string data items, by string index
+     */
+    StringPool(DexBuffer buffer, int[] offsets) {
+        this.buffer = buffer;
+        this.offsets = offsets;
+        strings = new String[offsets.length];
+    }
+
+    int size() {
+        return offsets.length;
+    }
+
+    String get(int index) {
+        String string = strings[index];
+        if (string == null) {
+            string = decode(offsets[index]);
+            strings[index] = string;
+        }
+        return string;
+    }
+
+    /**
+     * Decodes the string data item at the given offset: the number of UTF-16
+     * code units as uleb128, followed by the MUTF-8 encoded characters and a
+     * terminating zero byte. In MUTF-8, NUL is encoded in two bytes and
+     * supplementary characters as two encoded surrogates.
+     */
+    private String decode(int offset) {
+        int length = 0;
+        int shift = 0;
+        int value;
+        do {
+            value = buffer.byteAt(offset++) & 0xFF;
+            length |= (value & 0x7F) << shift;
+            shift += 7;
+        } while ((value & 0x80) != 0);
+
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            int a = buffer.byteAt(offset++) & 0xFF;
+            if (a < 0x80) {
+                if (a == 0) {
+                    throw malformed(offset - 1);
+                }
+                chars[i] = (char) a;
+            } else if ((a & 0xE0) == 0xC0) {
+                int b = continuation(offset++);
+                chars[i] = (char) (((a & 0x1F) << 6) | b);
+            } else if ((a & 0xF0) == 0xE0) {
+                int b = continuation(offset++);
+                int c = continuation(offset++);
+                chars[i] = (char) (((a & 0x0F) << 12) | (b << 6) | c);
+            } else {
+                throw malformed(offset - 1);
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns the payload of the continuation byte at the given offset.
+     */
+    private int continuation(int offset) {
+        int b = buffer.byteAt(offset) & 0xFF;
+        if ((b & 0xC0) != 0x80) {
+            throw malformed(offset);
+        }
+        return b & 0x3F;
+    }
+
+    private static IllegalStateException malformed(int offset) {
+        return new IllegalStateException("Bad MUTF-8 string data at offset "
+                + offset);
+    }
+}
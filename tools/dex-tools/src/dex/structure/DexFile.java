@@ -33,4 +33,62 @@ public interface DexFile extends NamedElement {
      */
     public List<DexClass> getDefinedClasses();
 
+    /**
+     * Returns the class with the given descriptor which is defined in this
+     * {@code DexFile}.
+     * 
+     * @param descriptor
+     *            the descriptor of the class, e.g. {@code Ljava/lang/Object;}
+     * @return the defined class or {@code null} if this {@code DexFile} does
+     *         not define such a class
+     */
+    public DexClass getDefinedClass(String descriptor);
+
+    /**
+     * Returns the methods with the given name which are defined in this
+     * {@code DexFile}, in the order of {@link #getDefinedClasses()}.
+     * 
+     * @param name
+     *            the name of the methods
+     * @return the defined methods with the given name
+     */
+    public List<DexMethod> getDefinedMethods(String name);
+
+    /**
+     * Returns the methods with the given prototype which are defined in this
+     * {@code DexFile}, in the order of {@link #getDefinedClasses()}.
+     * 
+     * @param prototype
+     *            the prototype of the methods, e.g. {@code (I)V}
+     * @return the defined methods with the given prototype
+     */
+    public List<DexMethod> getDefinedMethodsByPrototype(String prototype);
+
+    /**
+     * Returns the fields with the given name which are defined in this
+     * {@code DexFile}, in the order of {@link #getDefinedClasses()}.
+     * 
+     * @param name
+     *            the name of the fields
+     * @return the defined fields with the given name
+     */
+    public List<DexField> getDefinedFields(String name);
+
+    /**
+     * Returns the methods which are referenced by this {@code DexFile} but
+     * declared by a class that is not defined in it, e.g. the framework
+     * methods invoked by an application.
+     * 
+     * @return the methods referenced but not defined by this {@code DexFile}
+     */
+    public List<DexMethodReference> getReferencedMethods();
+
+    /**
+     * Returns the fields which are referenced by this {@code DexFile} but
+     * declared by a class that is not defined in it.
+     * 
+     * @return the fields referenced but not defined by this {@code DexFile}
+     */
+    public List<DexFieldReference> getReferencedFields();
+
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dex.structure;
+
+import java.util.List;
+
+/**
+ * {@code DexMethodReference} represents an entry of the method id table of a
+ * dex file, i.e. a method which is invoked or otherwise referenced by the
+ * code in that file. The method is not necessarily defined in that file.
+ */
+public interface DexMethodReference extends NamedElement {
+
+    /**
+     * Returns the descriptor of the class declaring the referenced method.
+     * 
+     * @return the descriptor of the class declaring the referenced method
+     */
+    String getDeclaringClass();
+
+    String getReturnType();
+
+    /**
+     * Returns the descriptors of the parameter types of the referenced
+     * method.
+     * 
+     * @return the descriptors of the parameter types of the referenced
+     *         method
+     */
+    List<String> getParameterTypes();
+
+    /**
+     * Returns the prototype of the referenced method, e.g.
+     * {@code (Ljava/lang/String;I)V}.
+     * 
+     * @return the prototype of the referenced method
+     */
+    String getPrototype();
+}
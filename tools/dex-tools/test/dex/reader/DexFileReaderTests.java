@@ -17,7 +17,10 @@
 package dex.reader;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.FileWriter;
@@ -36,8 +39,10 @@ import dex.structure.DexAnnotationAttribute;
 import dex.structure.DexClass;
 import dex.structure.DexEncodedValue;
 import dex.structure.DexField;
+import dex.structure.DexFieldReference;
 import dex.structure.DexFile;
 import dex.structure.DexMethod;
+import dex.structure.DexMethodReference;
 import dex.structure.DexParameter;
 
 
@@ -378,5 +383,61 @@ public class DexFileReaderTests extends DexTestsCommon {
         w.close();
         assertTrue(true);
     }
-    
+
+    /**
+     * Tests that parsing all classes of a huge dex file up front on several
+     * threads yields the same classes as parsing them on access. The lines
+     * are compared as sets since annotations are kept in hash sets.
+     * @throws IOException
+     */
+    @Test
+    public void testParallelReader0() throws IOException {
+        TypeFormatter formatter = new TypeFormatter();
+        DexFile lazy = new DexFileReader().read(new DexBuffer(
+                "dex/classes0.dex"));
+        DexFile parsed = new DexFileReader().read(new DexBuffer(
+                "dex/classes0.dex"), 4);
+        assertEquals(lines(formatter.formatDexFile(lazy)), lines(formatter
+                .formatDexFile(parsed)));
+    }
+
+    private Set<String> lines(String formatted) {
+        return new HashSet<String>(Arrays.asList(formatted.split("\n")));
+    }
+
+    /**
+     * Tests the class and member queries and the referenced members of a
+     * huge dex file.
+     * @throws IOException
+     */
+    @Test
+    public void testQueries0() throws IOException {
+        DexFile dexFile = new DexFileReader().read(new DexBuffer(
+                "dex/classes0.dex"));
+        Set<String> defined = new HashSet<String>();
+        for (DexClass clazz : dexFile.getDefinedClasses()) {
+            defined.add(clazz.getName());
+            assertSame(clazz, dexFile.getDefinedClass(clazz.getName()));
+            for (DexMethod method : clazz.getMethods()) {
+                assertTrue(dexFile.getDefinedMethods(method.getName())
+                        .contains(method));
+                assertTrue(dexFile.getDefinedMethodsByPrototype(
+                        DexFileIndex.getPrototype(method)).contains(method));
+            }
+            for (DexField field : clazz.getFields()) {
+                assertTrue(dexFile.getDefinedFields(field.getName())
+                        .contains(field));
+            }
+        }
+        assertNull(dexFile.getDefinedClass("Lno/such/Class;"));
+        assertTrue(dexFile.getDefinedMethods("noSuchMethod").isEmpty());
+
+        assertFalse(dexFile.getReferencedMethods().isEmpty());
+        for (DexMethodReference method : dexFile.getReferencedMethods()) {
+            assertFalse(defined.contains(method.getDeclaringClass()));
+        }
+        for (DexFieldReference field : dexFile.getReferencedFields()) {
+            assertFalse(defined.contains(field.getDeclaringClass()));
+        }
+    }
 }
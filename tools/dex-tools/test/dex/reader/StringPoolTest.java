@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package dex.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class StringPoolTest {
+
+    /**
+     * Creates a pool of one string data item, preceded by a padding byte so
+     * that the offset is not zero.
+     */
+    private StringPool pool(int utf16Length, int... bytes) {
+        byte[] data = new byte[bytes.length + 3];
+        data[1] = (byte) utf16Length;
+        for (int i = 0; i < bytes.length; i++) {
+            data[i + 2] = (byte) bytes[i];
+        }
+        return new StringPool(new DexBuffer(data), new int[] {1});
+    }
+
+    @Test
+    public void testAscii() {
+        assertEquals("Ljava/lang/Object;", pool(18, 'L', 'j', 'a', 'v',
+                'a', '/', 'l', 'a', 'n', 'g', '/', 'O', 'b', 'j', 'e', 'c',
+                't', ';').get(0));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertEquals("", pool(0).get(0));
+    }
+
+    @Test
+    public void testTwoAndThreeByteCharacters() {
+        // U+00E4 and U+20AC
+        assertEquals("\u00e4\u20ac", pool(2, 0xC3, 0xA4, 0xE2, 0x82, 0xAC)
+                .get(0));
+    }
+
+    @Test
+    public void testEncodedNul() {
+        assertEquals("a\u0000b", pool(3, 'a', 0xC0, 0x80, 'b').get(0));
+    }
+
+    @Test
+    public void testSurrogatePair() {
+        // U+1F600, encoded as two separately encoded surrogates
+        assertEquals("\ud83d\ude00", pool(2, 0xED, 0xA0, 0xBD, 0xED, 0xB8,
+                0x80).get(0));
+    }
+
+    @Test
+    public void testCachedString() {
+        StringPool pool = pool(1, 'x');
+        assertSame(pool.get(0), pool.get(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBadContinuationByte() {
+        pool(1, 0xC3, 'a').get(0);
+    }
+}
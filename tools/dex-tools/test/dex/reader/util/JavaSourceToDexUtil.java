@@ -70,6 +70,16 @@ public class JavaSourceToDexUtil {
     }
     
 
+    /**
+     * Converts java source code to the bytes of a dex file, as they would be
+     * stored in a .dex file or an apk.
+     * 
+     * @throws IOException
+     */
+    public byte[] getDexCode(Set<JavaSource> sources) throws IOException {
+        return convertToDexCode(compileToByteCode(sources), null);
+    }
+
     private byte[] convertToDexCode(Set<MemoryByteCode> byteCodeInMemory, Set<String> classNamesToDex) throws IOException {
         CfOptions cfOptions = new CfOptions();
         DexFile dexFile = new DexFile();
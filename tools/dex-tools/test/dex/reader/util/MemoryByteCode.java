@@ -26,7 +26,7 @@ import javax.tools.SimpleJavaFileObject;
 /**
  * {@code MemoryByteCode} represents an in-memory java byte code.
  */
-/* package */ class MemoryByteCode extends SimpleJavaFileObject {
+public class MemoryByteCode extends SimpleJavaFileObject {
     private ByteArrayOutputStream baos;
     private final String name;
 
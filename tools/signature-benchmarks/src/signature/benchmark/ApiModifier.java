@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.benchmark;
+
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+import signature.model.IMethod;
+import signature.model.IPackage;
+import signature.model.Modifier;
+import signature.model.impl.SigClassDefinition;
+import signature.model.impl.SigPackage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Derives a second version of an API from a converted dex file, for inputs
+ * of which only one version is available. Of every twenty classes, in the
+ * order of their qualified names, the first is removed, the sixth becomes
+ * final or stops being final and the eleventh loses a method. The other
+ * classes are left unchanged, so that the comparator skips them by their
+ * hashes as it does for real API versions.
+ */
+final class ApiModifier {
+
+    private static final int PERIOD = 20;
+
+    private ApiModifier() {
+    }
+
+    /**
+     * Modifies the given API in place.
+     * 
+     * @param api
+     *            a converted API, whose packages and classes are not shared
+     *            with other APIs
+     * @return the number of removed and changed classes
+     */
+    static int modify(IApi api) {
+        List<IClassDefinition> classes = new ArrayList<IClassDefinition>();
+        for (IPackage aPackage : api.getPackages()) {
+            classes.addAll(aPackage.getClasses());
+        }
+        Collections.sort(classes, new Comparator<IClassDefinition>() {
+            public int compare(IClassDefinition a, IClassDefinition b) {
+                return a.getQualifiedName().compareTo(b.getQualifiedName());
+            }
+        });
+
+        int modified = 0;
+        for (int i = 0; i < classes.size(); i++) {
+            SigClassDefinition clazz = (SigClassDefinition) classes.get(i);
+            switch (i % PERIOD) {
+            case 0:
+                removeClass(api, clazz);
+                modified++;
+                break;
+            case 5:
+                toggleFinal(clazz);
+                modified++;
+                break;
+            case 10:
+                if (removeMethod(clazz)) {
+                    modified++;
+                }
+                break;
+            }
+        }
+        return modified;
+    }
+
+    private static void removeClass(IApi api, IClassDefinition clazz) {
+        for (IPackage aPackage : api.getPackages()) {
+            if (aPackage.getName().equals(clazz.getPackageName())) {
+                Set<IClassDefinition> classes = new HashSet<IClassDefinition>(
+                        aPackage.getClasses());
+                classes.remove(clazz);
+                ((SigPackage) aPackage).setClasses(classes);
+            }
+        }
+    }
+
+    private static void toggleFinal(SigClassDefinition clazz) {
+        Set<Modifier> modifiers = EnumSet.noneOf(Modifier.class);
+        modifiers.addAll(clazz.getModifiers());
+        if (!modifiers.remove(Modifier.FINAL)) {
+            modifiers.add(Modifier.FINAL);
+        }
+        clazz.setModifiers(modifiers);
+    }
+
+    private static boolean removeMethod(SigClassDefinition clazz) {
+        if (clazz.getMethods().isEmpty()) {
+            return false;
+        }
+        IMethod removed = null;
+        for (IMethod method : clazz.getMethods()) {
+            if (removed == null
+                    || method.getName().compareTo(removed.getName()) < 0) {
+                removed = method;
+            }
+        }
+        Set<IMethod> methods = new HashSet<IMethod>(clazz.getMethods());
+        methods.remove(removed);
+        clazz.setMethods(methods);
+        return true;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.benchmark;
+
+/**
+ * A benchmarked operation. The {@link BenchmarkRunner} calls {@link #run()}
+ * repeatedly between {@link #setUp()} and {@link #tearDown()}, only the
+ * calls to {@link #run()} are measured.
+ */
+public abstract class Benchmark {
+
+    private final String name;
+
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Prepares the input of the operation.
+     */
+    public void setUp() throws Exception {
+    }
+
+    /**
+     * Runs the operation once. The result is consumed by the runner so that
+     * the work cannot be optimized away.
+     * 
+     * @return the result of the operation
+     */
+    public abstract Object run() throws Exception;
+
+    /**
+     * Releases the input of the operation.
+     */
+    public void tearDown() throws Exception {
+    }
+}
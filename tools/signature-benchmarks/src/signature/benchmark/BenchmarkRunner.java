@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.benchmark;
+
+import java.io.PrintStream;
+
+/**
+ * Runs benchmarks in a number of timed warmup iterations, which let the
+ * JIT compile the measured code, followed by a number of timed measurement
+ * iterations. Each iteration calls the benchmark until its time is used up
+ * and yields the mean time per call. The report line of a benchmark gives
+ * the mean over the measurement iterations and their standard deviation.
+ */
+public class BenchmarkRunner {
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final PrintStream out;
+
+    /** Consumed results, see {@link #consume(Object)}. */
+    private int sink;
+
+    /**
+     * Creates a new {@link BenchmarkRunner}.
+     * 
+     * @param warmupIterations
+     *            the number of iterations which are not measured
+     * @param measurementIterations
+     *            the number of measured iterations
+     * @param iterationMillis
+     *            the minimal duration of an iteration
+     * @param out
+     *            the stream to report to
+     */
+    public BenchmarkRunner(int warmupIterations, int measurementIterations,
+            long iterationMillis, PrintStream out) {
+        this.warmupIterations = Math.max(0, warmupIterations);
+        this.measurementIterations = Math.max(1, measurementIterations);
+        this.iterationNanos = Math.max(1, iterationMillis) * 1000000L;
+        this.out = out;
+    }
+
+    /**
+     * Runs the given benchmark and reports its score.
+     * 
+     * @param benchmark
+     *            the benchmark to run
+     * @return the mean time per call in milliseconds
+     */
+    public double run(Benchmark benchmark) throws Exception {
+        benchmark.setUp();
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                iterate(benchmark);
+            }
+            double[] scores = new double[measurementIterations];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = iterate(benchmark);
+            }
+            double mean = mean(scores);
+            out.println(String.format("%-44s %12.3f +- %10.3f ms/op",
+                    benchmark.getName(), mean, deviation(scores, mean)));
+            return mean;
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+
+    private double iterate(Benchmark benchmark) throws Exception {
+        long start = System.nanoTime();
+        long deadline = start + iterationNanos;
+        long now;
+        int calls = 0;
+        do {
+            consume(benchmark.run());
+            calls++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        return (now - start) / 1e6 / calls;
+    }
+
+    private void consume(Object result) {
+        sink += System.identityHashCode(result);
+    }
+
+    /**
+     * Returns a value derived from all benchmark results. Printing it keeps
+     * the JIT from eliminating the benchmarked calls.
+     */
+    public int getSink() {
+        return sink;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double deviation(double[] values, double mean) {
+        if (values.length < 2) {
+            return 0;
+        }
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.benchmark;
+
+import dex.reader.DexBuffer;
+import dex.reader.DexFileReader;
+import dex.structure.DexClass;
+import dex.structure.DexField;
+import dex.structure.DexFile;
+import dex.structure.DexMethod;
+import signature.compare.ApiComparator;
+import signature.converter.Visibility;
+import signature.converter.dex.DexToSigConverter;
+import signature.io.impl.BinaryApi;
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+import signature.model.IPackage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The benchmarks of the dex reader, the dex converter, the binary signature
+ * format and the comparator.
+ */
+public final class Benchmarks {
+
+    /** The number of values decoded per call of the buffer benchmarks. */
+    private static final int BUFFER_VALUES = 1 << 20;
+
+    private final byte[] from;
+    private final byte[] to;
+    private final int numThreads;
+
+    /**
+     * Creates the benchmarks over the given dex files.
+     * 
+     * @param from
+     *            the dex file read and converted by all benchmarks
+     * @param to
+     *            the dex file which is compared against {@code from}, or
+     *            null to compare against a modified copy of {@code from}, see
+     *            {@link ApiModifier}
+     * @param numThreads
+     *            the number of threads of the parallel benchmarks
+     */
+    public Benchmarks(byte[] from, byte[] to, int numThreads) {
+        this.from = from;
+        this.to = to;
+        this.numThreads = numThreads;
+    }
+
+    public List<Benchmark> getBenchmarks() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        benchmarks.add(readUleb128());
+        benchmarks.add(readInt());
+        benchmarks.add(readDexFile());
+        benchmarks.add(materializeClasses());
+        benchmarks.add(parseClasses());
+        benchmarks.add(convertApi());
+        benchmarks.add(storeApi());
+        benchmarks.add(loadApi());
+        benchmarks.add(compareApis());
+        return benchmarks;
+    }
+
+    private static DexFile read(byte[] dex) {
+        return new DexFileReader().read(new DexBuffer(dex));
+    }
+
+    private IApi convert(byte[] dex) {
+        return new DexToSigConverter(numThreads).convertApi("Benchmark",
+                Collections.singleton(read(dex)), Visibility.PROTECTED);
+    }
+
+    private Benchmark readUleb128() {
+        return new Benchmark("DexBuffer.readUleb128") {
+            private byte[] values;
+
+            @Override
+            public void setUp() {
+                // values of one to five bytes, small ones being most common
+                Random random = new Random(0);
+                byte[] bytes = new byte[BUFFER_VALUES * 5];
+                int length = 0;
+                for (int i = 0; i < BUFFER_VALUES; i++) {
+                    int value = random.nextInt() >>> random.nextInt(32);
+                    while ((value & ~0x7F) != 0) {
+                        bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                        value >>>= 7;
+                    }
+                    bytes[length++] = (byte) value;
+                }
+                values = new byte[length];
+                System.arraycopy(bytes, 0, values, 0, length);
+            }
+
+            @Override
+            public Object run() {
+                DexBuffer buffer = new DexBuffer(values);
+                int sum = 0;
+                for (int i = 0; i < BUFFER_VALUES; i++) {
+                    sum += buffer.readUleb128();
+                }
+                return sum;
+            }
+        };
+    }
+
+    private Benchmark readInt() {
+        return new Benchmark("DexBuffer.readInt") {
+            private byte[] values;
+
+            @Override
+            public void setUp() {
+                values = new byte[BUFFER_VALUES * 4];
+                new Random(0).nextBytes(values);
+            }
+
+            @Override
+            public Object run() {
+                DexBuffer buffer = new DexBuffer(values);
+                int sum = 0;
+                for (int i = 0; i < BUFFER_VALUES; i++) {
+                    sum += buffer.readInt(4);
+                }
+                return sum;
+            }
+        };
+    }
+
+    private Benchmark readDexFile() {
+        return new Benchmark("DexFileReader.read") {
+            @Override
+            public Object run() {
+                return read(from);
+            }
+        };
+    }
+
+    private Benchmark materializeClasses() {
+        return new Benchmark("DexClass members") {
+            @Override
+            public Object run() {
+                int members = 0;
+                for (DexClass clazz : read(from).getDefinedClasses()) {
+                    members += clazz.getAnnotations().size();
+                    members += clazz.getInterfaces().size();
+                    for (DexField field : clazz.getFields()) {
+                        members += field.getAnnotations().size();
+                    }
+                    for (DexMethod method : clazz.getMethods()) {
+                        members += method.getParameters().size();
+                    }
+                }
+                return members;
+            }
+        };
+    }
+
+    private Benchmark parseClasses() {
+        return new Benchmark("DexFileReader.read + parse (threads="
+                + numThreads + ")") {
+            @Override
+            public Object run() {
+                return new DexFileReader().read(new DexBuffer(from),
+                        numThreads);
+            }
+        };
+    }
+
+    private Benchmark convertApi() {
+        return new Benchmark("DexToSigConverter.convertApi (threads="
+                + numThreads + ")") {
+            @Override
+            public Object run() {
+                return convert(from);
+            }
+        };
+    }
+
+    private Benchmark storeApi() {
+        return new Benchmark("BinaryApi.externalizeApi") {
+            private IApi api;
+            private File directory;
+
+            @Override
+            public void setUp() throws IOException {
+                api = convert(from);
+                directory = createTempDirectory();
+            }
+
+            @Override
+            public Object run() throws IOException {
+                new BinaryApi().externalizeApi(directory.getPath(), api);
+                return directory;
+            }
+
+            @Override
+            public void tearDown() {
+                delete(directory);
+            }
+        };
+    }
+
+    private Benchmark loadApi() {
+        return new Benchmark("BinaryApi.loadApi + all classes") {
+            private File directory;
+            private String fileName;
+
+            @Override
+            public void setUp() throws IOException {
+                directory = createTempDirectory();
+                new BinaryApi().externalizeApi(directory.getPath(),
+                        convert(from));
+                fileName = directory.listFiles()[0].getPath();
+            }
+
+            @Override
+            public Object run() throws IOException {
+                IApi api = new BinaryApi(true).loadApi(null, null, Collections
+                        .singleton(fileName), Collections.<String> emptySet());
+                int members = 0;
+                for (IPackage aPackage : api.getPackages()) {
+                    for (IClassDefinition clazz : aPackage.getClasses()) {
+                        members += clazz.getMethods().size();
+                    }
+                }
+                return members;
+            }
+
+            @Override
+            public void tearDown() {
+                delete(directory);
+            }
+        };
+    }
+
+    private Benchmark compareApis() {
+        return new Benchmark("ApiComparator.compare (threads="
+                + numThreads + ")") {
+            private IApi fromApi;
+            private IApi toApi;
+
+            @Override
+            public void setUp() {
+                fromApi = convert(from);
+                if (to != null) {
+                    toApi = convert(to);
+                } else {
+                    toApi = convert(from);
+                    ApiModifier.modify(toApi);
+                }
+            }
+
+            @Override
+            public Object run() {
+                return new ApiComparator(numThreads).compare(fromApi, toApi);
+            }
+        };
+    }
+
+    private static File createTempDirectory() throws IOException {
+        File directory = File.createTempFile("benchmark", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Could not create " + directory);
+        }
+        return directory;
+    }
+
+    private static void delete(File directory) {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+}
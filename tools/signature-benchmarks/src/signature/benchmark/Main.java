@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.benchmark;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Runs the benchmarks. See {@link #USAGE} for the options.
+ */
+public class Main {
+
+    private static final String USAGE = "USAGE:\n"
+            + "sig-bench [options]\n"
+            + "  --classes <n>     number of generated classes (2000)\n"
+            + "  --members <n>     fields and methods per generated class (8)\n"
+            + "  --dex <file>      benchmark this dex file instead of a"
+            + " generated one\n"
+            + "  --to <file>       compare the dex file against this one"
+            + " (a modified copy)\n"
+            + "  --threads <n>     threads of the parallel benchmarks"
+            + " (all processors)\n"
+            + "  --warmup <n>      warmup iterations (3)\n"
+            + "  --iterations <n>  measurement iterations (5)\n"
+            + "  --time <ms>       minimal duration of an iteration (1000)\n"
+            + "  --filter <text>   only run benchmarks whose name contains"
+            + " text\n";
+
+    public static void main(String[] args) throws Exception {
+        int numClasses = 2000;
+        int numMembers = 8;
+        String dexFile = null;
+        String toDexFile = null;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        int warmup = 3;
+        int iterations = 5;
+        long time = 1000;
+        String filter = null;
+
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) {
+                usage();
+            }
+            String option = args[i];
+            String value = args[++i];
+            if ("--classes".equals(option)) {
+                numClasses = Integer.parseInt(value);
+            } else if ("--members".equals(option)) {
+                numMembers = Integer.parseInt(value);
+            } else if ("--dex".equals(option)) {
+                dexFile = value;
+            } else if ("--to".equals(option)) {
+                toDexFile = value;
+            } else if ("--threads".equals(option)) {
+                numThreads = Integer.parseInt(value);
+            } else if ("--warmup".equals(option)) {
+                warmup = Integer.parseInt(value);
+            } else if ("--iterations".equals(option)) {
+                iterations = Integer.parseInt(value);
+            } else if ("--time".equals(option)) {
+                time = Long.parseLong(value);
+            } else if ("--filter".equals(option)) {
+                filter = value;
+            } else {
+                usage();
+            }
+        }
+
+        if (toDexFile != null && dexFile == null) {
+            usage();
+        }
+
+        byte[] from;
+        byte[] to;
+        if (dexFile != null) {
+            from = readFile(dexFile);
+            if (toDexFile != null) {
+                to = readFile(toDexFile);
+                System.out.println("Input: " + dexFile + ", compared against "
+                        + toDexFile);
+            } else {
+                // compared against a modified copy, see ApiModifier
+                to = null;
+                System.out.println("Input: " + dexFile + ", compared against"
+                        + " a modified copy");
+            }
+        } else {
+            from = SyntheticDex.generate(numClasses, numMembers, 1);
+            to = SyntheticDex.generate(numClasses, numMembers, 2);
+            System.out.println("Input: " + numClasses + " generated classes"
+                    + " with " + numMembers + " fields and methods each");
+        }
+        System.out.println("Dex size: " + from.length + " bytes, "
+                + System.getProperty("java.vm.name") + " "
+                + System.getProperty("java.version") + ", "
+                + Runtime.getRuntime().availableProcessors()
+                + " processors");
+
+        BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations,
+                time, System.out);
+        for (Benchmark benchmark : new Benchmarks(from, to, numThreads)
+                .getBenchmarks()) {
+            if (filter == null || benchmark.getName().contains(filter)) {
+                runner.run(benchmark);
+            }
+        }
+        System.out.println("(" + runner.getSink() + ")");
+    }
+
+    private static byte[] readFile(String fileName) throws IOException {
+        File file = new File(fileName);
+        byte[] bytes = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            in.readFully(bytes);
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private static void usage() {
+        System.err.println(USAGE);
+        System.exit(1);
+    }
+}
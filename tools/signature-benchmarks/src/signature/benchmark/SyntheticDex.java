@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.benchmark;
+
+import com.android.dx.dex.cf.CfOptions;
+import com.android.dx.dex.cf.CfTranslator;
+import com.android.dx.dex.file.DexFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import javax.tools.JavaCompiler.CompilationTask;
+
+/**
+ * Generates dex files of a configurable size. The java sources are compiled
+ * in memory and converted to dex code with dx, no files are written.
+ * <p>
+ * The classes are spread over 20 packages and form inheritance chains of
+ * ten classes. Their members use generic types, arrays, varargs, constants,
+ * exceptions and annotations, so that all parts of the reader and the
+ * converter are exercised. The second version of an API adds a method to
+ * some classes and removes one from others.
+ */
+public final class SyntheticDex {
+
+    private static final int PACKAGES = 20;
+    private static final int CHAIN_LENGTH = 10;
+
+    private SyntheticDex() {
+    }
+
+    /**
+     * Generates a dex file.
+     * 
+     * @param numClasses
+     *            the number of classes
+     * @param numMembers
+     *            the number of fields and of methods per class
+     * @param version
+     *            the version of the API, 1 or 2
+     * @return the bytes of the dex file
+     */
+    public static byte[] generate(int numClasses, int numMembers,
+            int version) throws IOException {
+        List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+        for (int i = 0; i < numClasses; i++) {
+            sources.add(new Source(getClassName(i), getSource(i, numMembers,
+                    version)));
+        }
+        return toDex(compile(sources));
+    }
+
+    private static String getPackageName(int classIdx) {
+        return "bench.p" + (classIdx / CHAIN_LENGTH) % PACKAGES;
+    }
+
+    private static String getClassName(int classIdx) {
+        return getPackageName(classIdx) + ".C" + classIdx;
+    }
+
+    private static String getSource(int classIdx, int numMembers,
+            int version) {
+        StringBuilder b = new StringBuilder();
+        String simpleName = "C" + classIdx;
+        b.append("package ").append(getPackageName(classIdx)).append(";\n");
+        b.append("public class ").append(simpleName);
+        if (classIdx % CHAIN_LENGTH == 0) {
+            b.append(" implements java.io.Serializable, Comparable<");
+            b.append(simpleName).append("> {\n");
+            b.append("    public int compareTo(").append(simpleName);
+            b.append(" o) { return 0; }\n");
+        } else {
+            b.append(" extends C").append(classIdx - 1).append(" {\n");
+        }
+        b.append("    public ").append(simpleName).append("() {}\n");
+        for (int j = 0; j < numMembers; j++) {
+            appendField(b, j);
+            if (version == 1 || j != 0 || classIdx % CHAIN_LENGTH != 7) {
+                appendMethod(b, j);
+            }
+        }
+        if (version != 1 && classIdx % CHAIN_LENGTH == 3) {
+            b.append("    public void added").append(classIdx);
+            b.append("() {}\n");
+        }
+        return b.append("}\n").toString();
+    }
+
+    private static void appendField(StringBuilder b, int j) {
+        switch (j % 4) {
+        case 0:
+            b.append("    public int f").append(j).append(";\n");
+            break;
+        case 1:
+            b.append("    @Deprecated public java.util.List<String> f");
+            b.append(j).append(";\n");
+            break;
+        case 2:
+            b.append("    protected static final String f").append(j);
+            b.append(" = \"v").append(j).append("\";\n");
+            break;
+        default:
+            b.append("    public long[] f").append(j).append(";\n");
+        }
+    }
+
+    private static void appendMethod(StringBuilder b, int j) {
+        switch (j % 4) {
+        case 0:
+            b.append("    public int m").append(j);
+            b.append("(int a, String b) { return a; }\n");
+            break;
+        case 1:
+            b.append("    public java.util.List<String> m").append(j);
+            b.append("(java.util.Map<String, Integer> m) { return null; }\n");
+            break;
+        case 2:
+            b.append("    public <T extends Comparable<T>> T m").append(j);
+            b.append("(T[] a) throws java.io.IOException { return a[0]; }\n");
+            break;
+        default:
+            b.append("    @Deprecated public void m").append(j);
+            b.append("(long... a) {}\n");
+        }
+    }
+
+    private static Map<String, byte[]> compile(List<JavaFileObject> sources) {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics =
+                new DiagnosticCollector<JavaFileObject>();
+        ClassFileManager fileManager = new ClassFileManager(javac
+                .getStandardFileManager(diagnostics, null, null));
+        CompilationTask task = javac.getTask(null, fileManager, diagnostics,
+                Arrays.asList("-g:none"), null, sources);
+        if (!task.call()) {
+            StringBuilder message = new StringBuilder();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics
+                    .getDiagnostics()) {
+                message.append(diagnostic).append('\n');
+            }
+            throw new IllegalStateException(message.toString());
+        }
+        return fileManager.getClassFiles();
+    }
+
+    private static byte[] toDex(Map<String, byte[]> classFiles)
+            throws IOException {
+        CfOptions options = new CfOptions();
+        DexFile dexFile = new DexFile();
+        for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+            dexFile.add(CfTranslator.translate(classFile.getKey().replace(
+                    '.', '/')
+                    + ".class", classFile.getValue(), options));
+        }
+        return dexFile.toDex(null, false);
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+        private final String source;
+
+        Source(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/')
+                    + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * Keeps the compiled class files in memory.
+     */
+    private static final class ClassFileManager extends
+            ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, ByteArrayOutputStream> classFiles =
+                new TreeMap<String, ByteArrayOutputStream>();
+
+        ClassFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location,
+                final String className, JavaFileObject.Kind kind,
+                FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("bytes:///"
+                    + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    classFiles.put(className, out);
+                    return out;
+                }
+            };
+        }
+
+        Map<String, byte[]> getClassFiles() {
+            Map<String, byte[]> bytes = new TreeMap<String, byte[]>();
+            for (Map.Entry<String, ByteArrayOutputStream> classFile
+                    : classFiles.entrySet()) {
+                bytes.put(classFile.getKey(), classFile.getValue()
+                        .toByteArray());
+            }
+            return bytes;
+        }
+    }
+}
@@ -20,19 +20,28 @@ package signature;
  * The main entry point for the signature tool. If invoked with
  * <code>--create</code> the call is delegated to
  * {@link signature.converter.Main}. If invoked with <code>--compare</code> the
- * call is delegated to {@link signature.compare.Main}.
+ * call is delegated to {@link signature.compare.Main}. If invoked with
+ * <code>--timeline</code> the call is delegated to
+ * {@link signature.compare.TimelineMain}.
  * 
  * @see signature.converter.Main
  * @see signature.compare.Main
+ * @see signature.compare.TimelineMain
  */
 public class Main {
 
     private static final String USAGE_MESSAGE = "usage:\n"
-            + "  sig --create (doclet | dex) sourcefiles --out directory"
-            + " --name <name> --packages packageName{ packageName}\n"
-            + "  sig --compare --from=(doclet | dex | sig) <sourcefiles>"
-            + " --name <name> --to=(doclet | dex | sig) <sourcefiles>"
+            + "  sig --create (doclet | dex | class) sourcefiles"
+            + " --out directory --name <name> --packages packageName{"
+            + " packageName}\n"
+            + "  sig --compare --from=(doclet | dex | class | sig)"
+            + " <sourcefiles> --name <name>"
+            + " --to=(doclet | dex | class | sig) <sourcefiles>"
             + " --name <name> --out directory"
+            + " [--format (html | json [--fail-on-incompatible])]"
+            + " --packages packageName{ packageName}\n"
+            + "  sig --timeline --api (doclet | dex | class | sig)"
+            + " <sourcefiles> --name <name>{ --api ...} --out file"
             + " --packages packageName{ packageName}\n  sig --help";
 
     /**
@@ -65,6 +74,9 @@ public class Main {
                 } else if (arg.equals("--compare")) {
                     signature.compare.Main.main(without(args, i));
                     break;
+                } else if (arg.equals("--timeline")) {
+                    signature.compare.TimelineMain.main(without(args, i));
+                    break;
                 } else if (arg.equals("--version")) {
                     version();
                     break;
@@ -77,6 +89,9 @@ public class Main {
             }
         } catch (UsageException ex) {
             showUsage = true;
+        } catch (IncompatibleApiException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(4);
         } catch (RuntimeException ex) {
             System.err.println("\nUNEXPECTED TOP-LEVEL EXCEPTION:");
             ex.printStackTrace();
@@ -60,8 +60,7 @@ import signature.compare.model.impl.SigTypeVariableReferenceDelta;
 import signature.compare.model.impl.SigUpperBoundsDelta;
 import signature.compare.model.impl.SigValueDelta;
 import signature.compare.model.impl.SigWildcardTypeDelta;
-import signature.compare.model.subst.ClassProjection;
-import signature.compare.model.subst.ViewpointAdapter;
+import signature.compare.model.subst.ClosureCache;
 import signature.model.IAnnotation;
 import signature.model.IAnnotationElement;
 import signature.model.IAnnotationField;
@@ -87,14 +86,23 @@ import signature.model.Kind;
 import signature.model.Modifier;
 import signature.model.impl.SigAnnotationElement;
 import signature.model.impl.SigArrayType;
+import signature.model.util.StructuralHashes;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * {@code ApiComparator} takes two signature models as input and creates a delta
@@ -102,17 +110,69 @@ import java.util.Set;
  */
 public class ApiComparator implements IApiComparator {
 
+    /**
+     * The number of classes per thread which are compared ahead of the class
+     * being reported to a listener.
+     */
+    private static final int CLASSES_AHEAD_PER_THREAD = 2;
+
+    private final int numThreads;
+
+    /**
+     * Closures of the classes of the compared models. The models must not
+     * change between two comparisons of this comparator.
+     */
+    private final ClosureCache closures = new ClosureCache();
+
+    /**
+     * Structural hashes of the packages and classes of the compared models.
+     * Packages and classes with equal hashes, which are full digests of their
+     * structure, are not compared any further.
+     */
+    private final StructuralHashes hashes = new StructuralHashes();
+
+    /**
+     * Creates a new instance of {@link ApiComparator}, which compares
+     * classes on as many threads as there are processors.
+     */
+    public ApiComparator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance of {@link ApiComparator}.
+     * 
+     * @param numThreads
+     *            the number of threads to compare classes on
+     */
+    public ApiComparator(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
     public IApiDelta compare(IApi from, IApi to) {
         assert from.getVisibility() == to.getVisibility();
 
         Set<IPackage> fromPackages = from.getPackages();
         Set<IPackage> toPackages = to.getPackages();
 
+        final Map<IClassDefinition, IClassDefinitionDelta> classDeltas;
+        if (numThreads == 1) {
+            classDeltas = null;
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            try {
+                classDeltas = compareClassesInParallel(fromPackages,
+                        toPackages, executor);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
         Set<IPackageDelta> packageDeltas = compareSets(fromPackages,
                 toPackages, new SigComparator<IPackage, IPackageDelta>() {
                     public IPackageDelta createChangedDelta(IPackage from,
                             IPackage to) {
-                        return comparePackage(from, to);
+                        return comparePackage(from, to, classDeltas);
                     }
 
                     public IPackageDelta createAddRemoveDelta(IPackage from,
@@ -134,13 +194,293 @@ public class ApiComparator implements IApiComparator {
         return delta;
     }
 
-    private IPackageDelta comparePackage(IPackage from, IPackage to) {
+    public boolean compare(IApi from, IApi to,
+            final IApiDeltaListener listener) {
+        assert from.getVisibility() == to.getVisibility();
+
+        final boolean[] reported = new boolean[1];
+        final ExecutorService executor = numThreads == 1 ? null : Executors
+                .newFixedThreadPool(numThreads);
+        try {
+            compareSets(from.getPackages(), to.getPackages(),
+                    new SigComparator<IPackage, IPackageDelta>() {
+                        public IPackageDelta createChangedDelta(IPackage from,
+                                IPackage to) {
+                            if (streamPackage(from, to, listener, executor)) {
+                                reported[0] = true;
+                            }
+                            return null;
+                        }
+
+                        public IPackageDelta createAddRemoveDelta(
+                                IPackage from, IPackage to) {
+                            listener.packageDelta(new SigPackageDelta(from,
+                                    to));
+                            reported[0] = true;
+                            return null;
+                        }
+
+                        public boolean considerEqualElement(IPackage from,
+                                IPackage to) {
+                            return from.getName().equals(to.getName());
+                        }
+                    });
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        return reported[0];
+    }
+
+    /**
+     * Reports the deltas of the classes of a package which is contained in
+     * both APIs, followed by the delta of its annotations, if any.
+     * 
+     * @param executor
+     *            the executor to compare the classes on, or null to compare
+     *            them on the calling thread
+     * @return true if any delta was reported
+     */
+    private boolean streamPackage(IPackage from, IPackage to,
+            IApiDeltaListener listener, ExecutorService executor) {
+        if (equalHashes(from, to)) {
+            return false;
+        }
+
+        // the matched classes in the order in which they are reported, a
+        // removed class has no to, an added class no from
+        final List<IClassDefinition[]> classPairs =
+                new ArrayList<IClassDefinition[]>();
+        compareSets(from.getClasses(), to.getClasses(),
+                new SigComparator<IClassDefinition, IClassDefinitionDelta>() {
+                    public boolean considerEqualElement(IClassDefinition from,
+                            IClassDefinition to) {
+                        return sameClassDefinition(from, to);
+                    }
+
+                    public IClassDefinitionDelta createChangedDelta(
+                            IClassDefinition from, IClassDefinition to) {
+                        classPairs.add(new IClassDefinition[] {from, to});
+                        return null;
+                    }
+
+                    public IClassDefinitionDelta createAddRemoveDelta(
+                            IClassDefinition from, IClassDefinition to) {
+                        classPairs.add(new IClassDefinition[] {from, to});
+                        return null;
+                    }
+                });
+        boolean reported = streamClasses(classPairs, listener, executor);
+
+        Set<IAnnotationDelta> annotationDeltas = compareAnnotations(from
+                .getAnnotations(), to.getAnnotations());
+        if (annotationDeltas != null) {
+            SigPackageDelta delta = new SigPackageDelta(from, to);
+            delta.setAnnotationDeltas(annotationDeltas);
+            listener.packageDelta(delta);
+            reported = true;
+        }
+        return reported;
+    }
+
+    /**
+     * Reports the deltas of the given pairs of classes in order, each as soon
+     * as it is known. At most {@link #CLASSES_AHEAD_PER_THREAD} classes per
+     * thread are compared ahead of the class being reported, which bounds the
+     * deltas held in memory. If the listener throws, the classes compared
+     * ahead are cancelled.
+     * 
+     * @param executor
+     *            the executor to compare the classes on, or null to compare
+     *            them on the calling thread
+     * @return true if any delta was reported
+     */
+    private boolean streamClasses(List<IClassDefinition[]> classPairs,
+            IApiDeltaListener listener, ExecutorService executor) {
+        int maxAhead = executor == null ? 0 : numThreads
+                * CLASSES_AHEAD_PER_THREAD;
+        // a null future stands for a class which is not worth submitting
+        LinkedList<Future<IClassDefinitionDelta>> results =
+                new LinkedList<Future<IClassDefinitionDelta>>();
+        boolean reported = false;
+        try {
+            int numSubmitted = 0;
+            for (IClassDefinition[] classPair : classPairs) {
+                while (numSubmitted < classPairs.size()
+                        && results.size() <= maxAhead) {
+                    results.add(submitClass(classPairs.get(numSubmitted++),
+                            executor));
+                }
+                Future<IClassDefinitionDelta> result = results.removeFirst();
+                IClassDefinitionDelta delta = result != null ? result.get()
+                        : createClassDelta(classPair[0], classPair[1]);
+                if (delta != null) {
+                    listener.classDelta(delta);
+                    reported = true;
+                }
+            }
+            return reported;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while comparing classes",
+                    e);
+        } catch (ExecutionException e) {
+            throw rethrowCause(e);
+        } finally {
+            for (Future<IClassDefinitionDelta> result : results) {
+                if (result != null) {
+                    result.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Submits the comparison of a pair of classes to the executor.
+     * 
+     * @return the future delta, or null if the pair is cheaper to compare on
+     *         the calling thread: an added or removed class, a pair with
+     *         equal hashes, or no executor
+     */
+    private Future<IClassDefinitionDelta> submitClass(
+            final IClassDefinition[] classPair, ExecutorService executor) {
+        if (executor == null || classPair[0] == null || classPair[1] == null
+                || equalHashes(classPair[0], classPair[1])) {
+            return null;
+        }
+        return executor.submit(new Callable<IClassDefinitionDelta>() {
+            public IClassDefinitionDelta call() {
+                return compareClass(classPair[0], classPair[1]);
+            }
+        });
+    }
+
+    private IClassDefinitionDelta createClassDelta(IClassDefinition from,
+            IClassDefinition to) {
+        if (from == null || to == null) {
+            return new SigClassDefinitionDelta(from, to);
+        }
+        return compareClass(from, to);
+    }
+
+    /**
+     * Rethrows the cause of a failed class comparison.
+     * 
+     * @return never returns normally, the exception to throw for a checked
+     *         cause
+     */
+    private static RuntimeException rethrowCause(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RuntimeException(cause);
+    }
+
+    /**
+     * Compares all classes which are contained in both APIs on a thread pool.
+     * Classes are matched exactly like {@link #compare(IApi, IApi)} does, so
+     * the returned deltas can be looked up while assembling the package
+     * deltas.
+     * 
+     * @return the deltas of the compared classes, keyed by the class of the
+     *         <code>from</code> API. Equal classes are mapped to null.
+     */
+    private Map<IClassDefinition, IClassDefinitionDelta> compareClassesInParallel(
+            Set<IPackage> fromPackages, Set<IPackage> toPackages,
+            final ExecutorService executor) {
+        final Map<IClassDefinition, Future<IClassDefinitionDelta>> results =
+                new HashMap<IClassDefinition, Future<IClassDefinitionDelta>>();
+        try {
+            final SigComparator<IClassDefinition, IClassDefinitionDelta> classSubmitter =
+                    new SigComparator<IClassDefinition, IClassDefinitionDelta>() {
+                public boolean considerEqualElement(IClassDefinition from,
+                        IClassDefinition to) {
+                    return sameClassDefinition(from, to);
+                }
+
+                public IClassDefinitionDelta createChangedDelta(
+                        final IClassDefinition from,
+                        final IClassDefinition to) {
+                    if (equalHashes(from, to)) {
+                        return null;
+                    }
+                    results.put(from, executor.submit(
+                            new Callable<IClassDefinitionDelta>() {
+                                public IClassDefinitionDelta call() {
+                                    return compareClass(from, to);
+                                }
+                            }));
+                    return null;
+                }
+
+                public IClassDefinitionDelta createAddRemoveDelta(
+                        IClassDefinition from, IClassDefinition to) {
+                    return null;
+                }
+            };
+            compareSets(fromPackages, toPackages,
+                    new SigComparator<IPackage, IPackageDelta>() {
+                        public boolean considerEqualElement(IPackage from,
+                                IPackage to) {
+                            return from.getName().equals(to.getName());
+                        }
+
+                        public IPackageDelta createChangedDelta(
+                                IPackage from, IPackage to) {
+                            if (!equalHashes(from, to)) {
+                                compareSets(from.getClasses(),
+                                        to.getClasses(), classSubmitter);
+                            }
+                            return null;
+                        }
+
+                        public IPackageDelta createAddRemoveDelta(
+                                IPackage from, IPackage to) {
+                            return null;
+                        }
+                    });
+
+            Map<IClassDefinition, IClassDefinitionDelta> classDeltas =
+                    new HashMap<IClassDefinition, IClassDefinitionDelta>();
+            for (Map.Entry<IClassDefinition, Future<IClassDefinitionDelta>> entry
+                    : results.entrySet()) {
+                classDeltas.put(entry.getKey(), entry.getValue().get());
+            }
+            return classDeltas;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while comparing classes",
+                    e);
+        } catch (ExecutionException e) {
+            throw rethrowCause(e);
+        } finally {
+            for (Future<IClassDefinitionDelta> result : results.values()) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @param classDeltas
+     *            the deltas of the classes compared in advance, or null to
+     *            compare the classes now
+     */
+    private IPackageDelta comparePackage(IPackage from, IPackage to,
+            final Map<IClassDefinition, IClassDefinitionDelta> classDeltas) {
         assert from.getName().equals(to.getName());
 
+        if (equalHashes(from, to)) {
+            return null;
+        }
+
         Set<IClassDefinition> fromClasses = from.getClasses();
         Set<IClassDefinition> toClasses = to.getClasses();
 
-        Set<IClassDefinitionDelta> classDeltas = compareSets(fromClasses,
+        Set<IClassDefinitionDelta> classDeltaSet = compareSets(fromClasses,
                 toClasses,
                 new SigComparator<IClassDefinition, IClassDefinitionDelta>() {
                     public boolean considerEqualElement(IClassDefinition from,
@@ -150,6 +490,10 @@ public class ApiComparator implements IApiComparator {
 
                     public IClassDefinitionDelta createChangedDelta(
                             IClassDefinition from, IClassDefinition to) {
+                        if (classDeltas != null
+                                && classDeltas.containsKey(from)) {
+                            return classDeltas.get(from);
+                        }
                         return compareClass(from, to);
                     }
 
@@ -160,9 +504,9 @@ public class ApiComparator implements IApiComparator {
                 });
 
         SigPackageDelta delta = null;
-        if (classDeltas != null) {
+        if (classDeltaSet != null) {
             delta = new SigPackageDelta(from, to);
-            delta.setClassDeltas(classDeltas);
+            delta.setClassDeltas(classDeltaSet);
         }
 
         // Annotations
@@ -183,6 +527,10 @@ public class ApiComparator implements IApiComparator {
         assert from.getName().equals(to.getName());
         assert from.getPackageName().equals(to.getPackageName());
 
+        if (equalHashes(from, to)) {
+            return null;
+        }
+
         SigClassDefinitionDelta classDelta = null;
 
         // modifiers
@@ -339,41 +687,7 @@ public class ApiComparator implements IApiComparator {
     }
 
     private Set<ITypeReference> getInterfaceClosure(IClassDefinition clazz) {
-        Set<ITypeReference> closure = new HashSet<ITypeReference>();
-        collectInterfaceClosure(ViewpointAdapter.getReferenceTo(clazz),
-                closure);
-        return closure;
-    }
-
-    private void collectInterfaceClosure(ITypeReference clazz,
-            Set<ITypeReference> closure) {
-
-        IClassDefinition classDefinition = getClassDefinition(clazz);
-        Set<ITypeReference> interfaces = classDefinition.getInterfaces();
-        if (interfaces == null) {
-            return;
-        }
-        for (ITypeReference interfaze : interfaces) {
-            closure.add(interfaze);
-        }
-
-        ITypeReference superclass = classDefinition.getSuperClass();
-        if (superclass != null) {
-            if (superclass instanceof IParameterizedType) {
-                collectInterfaceClosure(((IParameterizedType) superclass)
-                        .getRawType(), closure);
-            } else {
-                collectInterfaceClosure(superclass, closure);
-            }
-        }
-        for (ITypeReference interfaze : interfaces) {
-            if (interfaze instanceof IParameterizedType) {
-                collectInterfaceClosure(((IParameterizedType) interfaze)
-                        .getRawType(), closure);
-            } else {
-                collectInterfaceClosure(interfaze, closure);
-            }
-        }
+        return closures.getInterfaceClosure(clazz);
     }
 
     private Set<IAnnotationDelta> compareAnnotations(Set<IAnnotation> from,
@@ -509,28 +823,7 @@ public class ApiComparator implements IApiComparator {
 
 
     private Set<IMethod> getMethodClosure(IClassDefinition clazz) {
-        Set<IMethod> closure = new HashSet<IMethod>();
-        collectMethods(new ClassProjection(clazz,
-                new HashMap<ITypeVariableDefinition, ITypeReference>()),
-                closure);
-        return closure;
-    }
-
-    private void collectMethods(IClassDefinition clazz, Set<IMethod> closure) {
-        if (clazz == null) {
-            return;
-        }
-        if (clazz.getMethods() != null) {
-            closure.addAll(clazz.getMethods());
-        }
-        if (clazz.getSuperClass() != null) {
-            collectMethods(getClassDefinition(clazz.getSuperClass()), closure);
-        }
-        if (clazz.getInterfaces() != null) {
-            for (ITypeReference interfaze : clazz.getInterfaces()) {
-                collectMethods(getClassDefinition(interfaze), closure);
-            }
-        }
+        return closures.getMethodClosure(clazz);
     }
 
     private Set<IConstructorDelta> compareConstructors(Set<IConstructor> from,
@@ -612,8 +905,14 @@ public class ApiComparator implements IApiComparator {
             names.add(annotationElement.getDeclaringField().getName());
         }
 
-        for (IAnnotationField field : annotation.getType().getClassDefinition()
-                .getAnnotationFields()) {
+        // the fields of an annotation type which is not part of the api, e.g.
+        // java.lang.Deprecated, are unknown
+        Set<IAnnotationField> fields = annotation.getType()
+                .getClassDefinition().getAnnotationFields();
+        if (fields == null) {
+            return elements;
+        }
+        for (IAnnotationField field : fields) {
             if (!names.contains(field.getName())) {
                 SigAnnotationElement sigAnnotationElement =
                         new SigAnnotationElement();
@@ -1242,23 +1541,40 @@ public class ApiComparator implements IApiComparator {
         return false;
     }
 
-    private Set<ITypeReference> fromComparison = new HashSet<ITypeReference>();
-    private Set<ITypeReference> toComparison = new HashSet<ITypeReference>();
+    /**
+     * The types currently being compared, per thread, as classes are compared
+     * in parallel.
+     */
+    private static class ComparisonSets {
+        final Set<ITypeReference> from = new HashSet<ITypeReference>();
+        final Set<ITypeReference> to = new HashSet<ITypeReference>();
+    }
+
+    private final ThreadLocal<ComparisonSets> inComparison =
+            new ThreadLocal<ComparisonSets>() {
+                @Override
+                protected ComparisonSets initialValue() {
+                    return new ComparisonSets();
+                }
+            };
 
 
     private boolean areInComparison(ITypeReference from, ITypeReference to) {
-        return fromComparison.contains(from) && toComparison.contains(to);
+        ComparisonSets sets = inComparison.get();
+        return sets.from.contains(from) && sets.to.contains(to);
     }
 
     private void markInComparison(ITypeReference from, ITypeReference to) {
-        fromComparison.add(from);
-        toComparison.add(to);
+        ComparisonSets sets = inComparison.get();
+        sets.from.add(from);
+        sets.to.add(to);
     }
 
     private void markFinishedComparison(ITypeReference from,
             ITypeReference to) {
-        fromComparison.remove(from);
-        toComparison.remove(to);
+        ComparisonSets sets = inComparison.get();
+        sets.from.remove(from);
+        sets.to.remove(to);
     }
 
     private ITypeReferenceDelta<? extends ITypeReference> compareType(
@@ -1358,6 +1674,18 @@ public class ApiComparator implements IApiComparator {
         throw new IllegalArgumentException("Unexpected type: " + reference);
     }
 
+    /**
+     * Compares by the kind of declaration rather than by implementation
+     * class, as e.g. lazily loaded classes subclass {@code SigClassDefinition}.
+     */
+    private boolean sameDeclarationKind(IGenericDeclaration from,
+            IGenericDeclaration to) {
+        return (from instanceof IClassDefinition
+                && to instanceof IClassDefinition)
+                || (from instanceof IConstructor && to instanceof IConstructor)
+                || (from instanceof IMethod && to instanceof IMethod);
+    }
+
     private boolean implementInterface(ITypeReference from, ITypeReference to,
             Class<?> check) {
         return check.isAssignableFrom(from.getClass())
@@ -1399,7 +1727,7 @@ public class ApiComparator implements IApiComparator {
 
         if (from != null && to != null) {
 
-            if (from.getClass() != to.getClass()) {
+            if (!sameDeclarationKind(from, to)) {
                 delta = new SigGenericDeclarationDelta(from, to);
             } else if (from instanceof IClassDefinition) {
                 IClassDefinition fromDeclaringClass = (IClassDefinition) from;
@@ -1686,13 +2014,22 @@ public class ApiComparator implements IApiComparator {
             IClassDefinition to) {
         boolean sameName = from.getName().equals(to.getName());
         boolean samePackage = from.getPackageName().equals(to.getPackageName());
+        if (!sameName || !samePackage) {
+            // the kind is only looked at if needed, as it may have to be read
+            return false;
+        }
 
         Kind fromKind = from.getKind();
         Kind toKind = to.getKind();
-        boolean sameKind = (fromKind == null || toKind == null)
-                || fromKind.equals(toKind);
+        return (fromKind == null || toKind == null) || fromKind.equals(toKind);
+    }
+
+    private boolean equalHashes(IPackage from, IPackage to) {
+        return hashes.getHash(from).equals(hashes.getHash(to));
+    }
 
-        return sameName && samePackage && sameKind;
+    private boolean equalHashes(IClassDefinition from, IClassDefinition to) {
+        return hashes.getHash(from).equals(hashes.getHash(to));
     }
 
     private IPrimitiveTypeDelta comparePrimitiveType(IPrimitiveType from,
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package signature.compare;
+
+import signature.model.IApi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares a sequence of API versions, each with its successor. All pairs
+ * are compared by one {@link ApiComparator}, so that the closures and
+ * hashes of a version are computed once, although the version takes part in
+ * two comparisons.
+ */
+public class ApiEvolution {
+
+    private final int numThreads;
+
+    /**
+     * Creates a new instance of {@link ApiEvolution}, which compares on as
+     * many threads as there are processors.
+     */
+    public ApiEvolution() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance of {@link ApiEvolution}.
+     * 
+     * @param numThreads
+     *            the number of threads to compare on
+     */
+    public ApiEvolution(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * Compares each of the given APIs with the next one. The pairs are
+     * compared in parallel, the threads left over are used to compare the
+     * classes of each pair in parallel.
+     * 
+     * @param apis
+     *            the versions of the API, oldest first
+     * @param listeners
+     *            the listeners to report the deltas to, the listener at
+     *            index <code>i</code> receives the deltas from
+     *            <code>apis.get(i)</code> to <code>apis.get(i + 1)</code>.
+     *            Each listener is called by one thread at a time.
+     * @return for each pair, whether any delta was reported
+     */
+    public boolean[] compare(List<? extends IApi> apis,
+            final List<? extends IApiDeltaListener> listeners) {
+        final int pairs = apis.size() - 1;
+        if (pairs < 1 || listeners.size() != pairs) {
+            throw new IllegalArgumentException(
+                    "need one listener per pair of successive APIs");
+        }
+        final boolean[] reported = new boolean[pairs];
+        int pairThreads = Math.min(numThreads, pairs);
+        final IApiComparator comparator = new ApiComparator(Math.max(1,
+                numThreads / pairThreads));
+        if (pairThreads == 1) {
+            for (int i = 0; i < pairs; i++) {
+                reported[i] = comparator.compare(apis.get(i),
+                        apis.get(i + 1), listeners.get(i));
+            }
+            return reported;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(pairThreads);
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+        try {
+            for (int i = 0; i < pairs; i++) {
+                final IApi from = apis.get(i);
+                final IApi to = apis.get(i + 1);
+                final IApiDeltaListener listener = listeners.get(i);
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() {
+                        return comparator.compare(from, to, listener);
+                    }
+                }));
+            }
+            for (int i = 0; i < pairs; i++) {
+                reported[i] = futures.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while comparing APIs", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return reported;
+    }
+}
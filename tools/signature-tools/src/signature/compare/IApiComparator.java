@@ -36,4 +36,23 @@ public interface IApiComparator {
      *         fromApi} to {@code toApi}
      */
     IApiDelta compare(IApi fromApi, IApi toApi);
+
+    /**
+     * Compares {@code fromApi} to {@code toApi} like
+     * {@link #compare(IApi, IApi)}, but reports each package and class delta
+     * to {@code listener} as soon as it is known, instead of returning the
+     * complete difference model. Each class delta is reported as soon as the
+     * class and the classes reported before it have been compared, in an
+     * order which does not depend on the number of threads. A runtime
+     * exception thrown by the listener aborts the comparison.
+     * 
+     * @param fromApi
+     *            differences are computed relative to {@code fromApi}
+     * @param toApi
+     *            the target signature model
+     * @param listener
+     *            the listener to report the deltas to
+     * @return true if any delta was reported
+     */
+    boolean compare(IApi fromApi, IApi toApi, IApiDeltaListener listener);
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.compare;
+
+import signature.compare.model.IClassDefinitionDelta;
+import signature.compare.model.IPackageDelta;
+
+/**
+ * {@code IApiDeltaListener} is notified of the differences between two
+ * signature models one by one, while they are compared.
+ * 
+ * @see IApiComparator#compare(signature.model.IApi, signature.model.IApi,
+ *      IApiDeltaListener)
+ */
+public interface IApiDeltaListener {
+
+    /**
+     * Called for each package which was added or removed, and for each
+     * package whose annotations changed. The class deltas of a package are
+     * reported separately, the returned delta does not contain them.
+     * 
+     * @param delta
+     *            the delta of the package
+     */
+    void packageDelta(IPackageDelta delta);
+
+    /**
+     * Called for each class which was added, removed or changed, with all of
+     * the deltas of its members, as soon as the class has been compared.
+     * 
+     * @param delta
+     *            the delta of the class
+     */
+    void classDelta(IClassDefinitionDelta delta);
+}
@@ -16,20 +16,32 @@
 
 package signature.compare;
 
+import signature.IncompatibleApiException;
 import signature.UsageException;
+import signature.compare.model.DeltaType;
 import signature.compare.model.IApiDelta;
+import signature.compare.model.IClassDefinitionDelta;
+import signature.compare.model.IDelta;
+import signature.compare.model.IMethodDelta;
 import signature.compare.model.IPackageDelta;
 import signature.compare.model.impl.SigDelta;
 import signature.converter.Visibility;
+import signature.converter.classfile.ClassFileFactory;
 import signature.converter.dex.DexFactory;
 import signature.converter.doclet.DocletFactory;
 import signature.io.IApiDeltaExternalizer;
 import signature.io.IApiLoader;
 import signature.io.html.HtmlDeltaExternalizer;
 import signature.io.impl.BinaryApi;
+import signature.io.impl.JsonLinesDeltaWriter;
 import signature.model.IApi;
+import signature.model.Modifier;
+import signature.model.util.ModelCompactor;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -41,11 +53,12 @@ public class Main {
 
     /**
      * <pre>
-     * --from=(doclet | dex | sig) <sourcefiles>
+     * --from=(doclet | dex | class | sig) <sourcefiles>
      * --name <name>
-     * --to=(doclet | dex | sig) <sourcefiles>
+     * --to=(doclet | dex | class | sig) <sourcefiles>
      * --name <name>
      * --out directory
+     * [--format (html | json [--fail-on-incompatible])]
      * --packages packageName{ packageName}
      * </pre>
      */
@@ -129,7 +142,22 @@ public class Main {
         }
         String output = args[++at];
 
-        if (!"--packages".equals(args[++at])) {
+        String format = "html";
+        boolean failOnIncompatible = false;
+        if ("--format".equals(args[++at])) {
+            format = args[++at];
+            if (!"html".equals(format) && !"json".equals(format)) {
+                throw new UsageException();
+            }
+            ++at;
+            if ("json".equals(format)
+                    && "--fail-on-incompatible".equals(args[at])) {
+                failOnIncompatible = true;
+                ++at;
+            }
+        }
+
+        if (!"--packages".equals(args[at])) {
             throw new UsageException();
         }
         Set<String> packages = new HashSet<String>();
@@ -142,6 +170,13 @@ public class Main {
         IApi fromApi = getApi(fromType, nameFrom, fromFiles, packages);
         IApi toApi = getApi(toType, nameTo, toFiles, packages);
 
+        if ("json".equals(format)) {
+            System.out.println("Writing delta lines to " + output);
+            writeDeltaLines(comparator, fromApi, toApi, output,
+                    failOnIncompatible);
+            return;
+        }
+
         IApiDeltaExternalizer externalizer = new HtmlDeltaExternalizer();
         System.out.println("Writing delta report to " + output);
         IApiDelta delta = comparator.compare(fromApi, toApi);
@@ -152,6 +187,105 @@ public class Main {
         externalizer.externalize(output, delta);
     }
 
+    /**
+     * Writes the deltas to <code>output</code> while the APIs are compared,
+     * one JSON object per line.
+     * 
+     * @param failOnIncompatible
+     *            whether to stop after the first incompatible delta and throw
+     *            an {@link IncompatibleApiException}
+     */
+    private static void writeDeltaLines(IApiComparator comparator,
+            IApi fromApi, IApi toApi, String output,
+            boolean failOnIncompatible) throws IOException {
+        JsonLinesDeltaWriter writer = new JsonLinesDeltaWriter(
+                new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(output), "UTF-8")));
+        try {
+            comparator.compare(fromApi, toApi, failOnIncompatible
+                    ? new IncompatibleDeltaDetector(writer, output) : writer);
+        } finally {
+            writer.close();
+        }
+        if (writer.checkError()) {
+            throw new IOException("Could not write " + output);
+        }
+    }
+
+    /**
+     * Passes deltas on to another listener and aborts the comparison after
+     * the first incompatible one. A delta is incompatible if it removes or
+     * changes an element of the <code>from</code> API, or adds an abstract
+     * method, which existing subclasses do not implement. Other additions and
+     * changed annotations of packages and classes are compatible.
+     */
+    private static class IncompatibleDeltaDetector implements
+            IApiDeltaListener {
+        private final IApiDeltaListener listener;
+        private final String output;
+
+        IncompatibleDeltaDetector(IApiDeltaListener listener, String output) {
+            this.listener = listener;
+            this.output = output;
+        }
+
+        public void packageDelta(IPackageDelta delta) {
+            listener.packageDelta(delta);
+            if (delta.getType() == DeltaType.REMOVED) {
+                fail("package " + delta.getFrom().getName());
+            }
+        }
+
+        public void classDelta(IClassDefinitionDelta delta) {
+            listener.classDelta(delta);
+            if (isIncompatible(delta)) {
+                fail("class " + delta.getFrom().getQualifiedName());
+            }
+        }
+
+        private void fail(String element) {
+            throw new IncompatibleApiException("Incompatible change of "
+                    + element + ", see " + output);
+        }
+
+        private static boolean isIncompatible(IClassDefinitionDelta delta) {
+            if (delta.getType() != DeltaType.CHANGED) {
+                return delta.getType() == DeltaType.REMOVED;
+            }
+            if (delta.getModifierDeltas() != null
+                    || delta.getSuperClassDelta() != null
+                    || delta.getTypeVariableDeltas() != null) {
+                return true;
+            }
+            if (delta.getMethodDeltas() != null) {
+                for (IMethodDelta methodDelta : delta.getMethodDeltas()) {
+                    if (methodDelta.getType() != DeltaType.ADDED
+                            || methodDelta.getTo().getModifiers().contains(
+                                    Modifier.ABSTRACT)) {
+                        return true;
+                    }
+                }
+            }
+            return removesOrChanges(delta.getInterfaceDeltas())
+                    || removesOrChanges(delta.getConstructorDeltas())
+                    || removesOrChanges(delta.getFieldDeltas())
+                    || removesOrChanges(delta.getEnumConstantDeltas())
+                    || removesOrChanges(delta.getAnnotationFieldDeltas());
+        }
+
+        private static boolean removesOrChanges(
+                Set<? extends IDelta<?>> deltas) {
+            if (deltas != null) {
+                for (IDelta<?> delta : deltas) {
+                    if (delta.getType() != DeltaType.ADDED) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
     private static class EmptyDelta extends SigDelta<IApi> implements
             IApiDelta {
         public EmptyDelta(IApi from, IApi to) {
@@ -163,7 +297,7 @@ public class Main {
         }
     }
 
-    private static IApi getApi(String specType, String name,
+    static IApi getApi(String specType, String name,
             Set<String> fileNames, Set<String> packageNames) throws
             IOException {
         System.out.println("Loading " + name + " of type " + specType
@@ -175,13 +309,21 @@ public class Main {
         } else if ("dex".equals(specType)) {
             checkName(name);
             factory = new DexFactory();
+        } else if ("class".equals(specType)) {
+            checkName(name);
+            factory = new ClassFileFactory();
         } else if ("sig".equals(specType)) {
             factory = new BinaryApi();
         } else {
             throw new UsageException();
         }
-        return factory.loadApi(name, Visibility.PROTECTED, fileNames,
+        IApi api = factory.loadApi(name, Visibility.PROTECTED, fileNames,
                 packageNames);
+        if (factory instanceof BinaryApi) {
+            // reads classes on demand, compacting would read them all
+            return api;
+        }
+        return ModelCompactor.compact(api);
     }
 
     private static void checkName(String name) {
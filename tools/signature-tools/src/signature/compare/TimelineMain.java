@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package signature.compare;
+
+import signature.UsageException;
+import signature.io.impl.TimelineWriter;
+import signature.model.IApi;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Driver class for the --timeline option. Loads several versions of an API
+ * once and compares each with its successor, in parallel.
+ */
+public class TimelineMain {
+
+    /**
+     * <pre>
+     * --api (doclet | dex | class | sig) <sourcefiles>
+     * --name <name>
+     * {--api (doclet | dex | class | sig) <sourcefiles> --name <name>}
+     * --out file
+     * --packages packageName{ packageName}
+     * </pre>
+     * 
+     * The versions are given oldest first, at least two are required.
+     */
+    public static void main(String[] args) throws IOException {
+        int at = 0;
+        List<String[]> specs = new ArrayList<String[]>();
+        List<Set<String>> specFiles = new ArrayList<Set<String>>();
+
+        while (at < args.length && "--api".equals(args[at])) {
+            if (++at == args.length) {
+                throw new UsageException();
+            }
+            String type = args[at];
+            Set<String> files = new HashSet<String>();
+            ++at;
+            for (/* at */; at < args.length; at++) {
+                if ("--name".equals(args[at]) || "--api".equals(args[at])
+                        || "--out".equals(args[at])) {
+                    break;
+                }
+                files.add(args[at]);
+            }
+
+            String name = null;
+            if (at < args.length && "--name".equals(args[at])) {
+                name = "";
+                ++at;
+                for (/* at */; at < args.length; at++) {
+                    if ("--api".equals(args[at])
+                            || "--out".equals(args[at])) {
+                        break;
+                    }
+                    name += args[at];
+                    name += " ";
+                }
+                name = name.trim();
+            }
+            specs.add(new String[] {type, name});
+            specFiles.add(files);
+        }
+
+        if (specs.size() < 2 || at >= args.length
+                || !"--out".equals(args[at]) || ++at >= args.length) {
+            throw new UsageException();
+        }
+        String output = args[at];
+
+        if (++at >= args.length || !"--packages".equals(args[at])) {
+            throw new UsageException();
+        }
+        Set<String> packages = new HashSet<String>();
+        ++at;
+        for (/* at */; at < args.length; at++) {
+            packages.add(args[at]);
+        }
+
+        // the versions are compacted while loading, so that they all fit
+        List<IApi> apis = new ArrayList<IApi>();
+        for (int i = 0; i < specs.size(); i++) {
+            apis.add(Main.getApi(specs.get(i)[0], specs.get(i)[1],
+                    specFiles.get(i), packages));
+        }
+
+        List<String> versions = new ArrayList<String>();
+        for (IApi api : apis) {
+            versions.add(api.getName());
+        }
+        TimelineWriter timeline = new TimelineWriter(versions);
+        System.out.println("Comparing " + versions);
+        new ApiEvolution().compare(apis, timeline.getListeners());
+
+        System.out.println("Writing timeline to " + output);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(output), "UTF-8"));
+        try {
+            timeline.write(writer);
+        } finally {
+            writer.close();
+        }
+    }
+}
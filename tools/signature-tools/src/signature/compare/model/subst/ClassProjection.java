@@ -74,7 +74,7 @@ public class ClassProjection implements IClassDefinition {
         throw new UnsupportedOperationException();
     }
 
-    Set<ITypeReference> interfaces = null;
+    private volatile Set<ITypeReference> interfaces = null;
 
     public Set<ITypeReference> getInterfaces() {
         if (interfaces == null) {
@@ -82,12 +82,12 @@ public class ClassProjection implements IClassDefinition {
             if (originalInterfaces == null) {
                 interfaces = Collections.emptySet();
             } else {
-                interfaces = new HashSet<ITypeReference>();
+                Set<ITypeReference> result = new HashSet<ITypeReference>();
                 for (ITypeReference interfaze : originalInterfaces) {
-                    interfaces.add(ViewpointAdapter.substitutedTypeReference(
+                    result.add(ViewpointAdapter.substitutedTypeReference(
                             interfaze, substitutions));
                 }
-                interfaces = Collections.unmodifiableSet(interfaces);
+                interfaces = Collections.unmodifiableSet(result);
             }
         }
         return interfaces;
@@ -98,7 +98,7 @@ public class ClassProjection implements IClassDefinition {
     }
 
 
-    Set<IMethod> methods = null;
+    private volatile Set<IMethod> methods = null;
 
     public Set<IMethod> getMethods() {
         if (methods == null) {
@@ -106,11 +106,11 @@ public class ClassProjection implements IClassDefinition {
             if (originalMethods == null) {
                 methods = Collections.emptySet();
             } else {
-                methods = new HashSet<IMethod>();
-                for (IMethod m : original.getMethods()) {
-                    methods.add(new MethodProjection(m, substitutions));
+                Set<IMethod> result = new HashSet<IMethod>();
+                for (IMethod m : originalMethods) {
+                    result.add(new MethodProjection(m, substitutions));
                 }
-                methods = Collections.unmodifiableSet(methods);
+                methods = Collections.unmodifiableSet(result);
             }
         }
         return methods;
@@ -136,15 +136,15 @@ public class ClassProjection implements IClassDefinition {
         return original.getQualifiedName();
     }
 
-    private boolean superClassInit = false;
-    private ITypeReference superClass = null;
+    private volatile boolean superClassInit = false;
+    private volatile ITypeReference superClass = null;
 
     public ITypeReference getSuperClass() {
         if (!superClassInit) {
             ITypeReference originalSuperClass = original.getSuperClass();
             if (originalSuperClass != null) {
-                superClass = ViewpointAdapter.substitutedTypeReference(original
-                        .getSuperClass(), substitutions);
+                superClass = ViewpointAdapter.substitutedTypeReference(
+                        originalSuperClass, substitutions);
             }
             superClassInit = true;
         }
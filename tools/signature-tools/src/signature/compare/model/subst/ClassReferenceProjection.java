@@ -35,8 +35,14 @@ public class ClassReferenceProjection implements IClassReference {
         this.mappings = mappings;
     }
 
+    private volatile IClassDefinition classDefinition = null;
+
     public IClassDefinition getClassDefinition() {
-        return new ClassProjection(original.getClassDefinition(), mappings);
+        if (classDefinition == null) {
+            classDefinition = new ClassProjection(original
+                    .getClassDefinition(), mappings);
+        }
+        return classDefinition;
     }
 
     @Override
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.compare.model.subst;
+
+import signature.model.IClassDefinition;
+import signature.model.IClassReference;
+import signature.model.IMethod;
+import signature.model.IParameterizedType;
+import signature.model.ITypeReference;
+import signature.model.ITypeVariableDefinition;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Memoizes the interfaces and methods a class inherits from its supertypes.
+ * <p>
+ * The closure of a class is built from the closures of its direct supertypes,
+ * with the type arguments it passes to them substituted, so that each class of
+ * a hierarchy is visited only once. Inherited interfaces are therefore seen
+ * from the class itself: for {@code class A implements List<String>}, the
+ * closure contains {@code Collection<String>} rather than the
+ * {@code Collection<E>} declared by {@code List}. The comparison relies on
+ * this, so that restating an inherited generic interface is not reported as
+ * a change.
+ * <p>
+ * Classes are kept apart by identity, so one cache may be used for several
+ * models, but these models must not change while the cache is in use. The
+ * returned sets are unmodifiable and the cache may be shared by several
+ * threads.
+ */
+public class ClosureCache {
+
+    private final Map<IClassDefinition, Set<ITypeReference>> interfaceClosures =
+            Collections.synchronizedMap(
+                    new IdentityHashMap<IClassDefinition, Set<ITypeReference>>());
+
+    private final Map<IClassDefinition, Set<IMethod>> methodClosures =
+            Collections.synchronizedMap(
+                    new IdentityHashMap<IClassDefinition, Set<IMethod>>());
+
+    /**
+     * Returns the interfaces the given class implements, directly or through
+     * one of its supertypes.
+     * 
+     * @param clazz
+     *            the class to get the interfaces of
+     * @return the interfaces of the given class, with the type arguments of
+     *         its supertypes substituted
+     */
+    public Set<ITypeReference> getInterfaceClosure(IClassDefinition clazz) {
+        Set<ITypeReference> closure = interfaceClosures.get(clazz);
+        if (closure == null) {
+            // computed outside the lock, equal closures computed concurrently
+            // by several threads are interchangeable
+            closure = computeInterfaceClosure(clazz);
+            interfaceClosures.put(clazz, closure);
+        }
+        return closure;
+    }
+
+    /**
+     * Returns the methods the given class declares or inherits from one of its
+     * supertypes.
+     * 
+     * @param clazz
+     *            the class to get the methods of
+     * @return the methods of the given class, as seen from this class
+     */
+    public Set<IMethod> getMethodClosure(IClassDefinition clazz) {
+        Set<IMethod> closure = methodClosures.get(clazz);
+        if (closure == null) {
+            closure = computeMethodClosure(clazz);
+            methodClosures.put(clazz, closure);
+        }
+        return closure;
+    }
+
+    private Set<ITypeReference> computeInterfaceClosure(
+            IClassDefinition clazz) {
+        Set<ITypeReference> interfaces = clazz.getInterfaces();
+        if (interfaces == null) {
+            return Collections.emptySet();
+        }
+        Set<ITypeReference> closure = new HashSet<ITypeReference>(interfaces);
+        if (clazz.getSuperClass() != null) {
+            addInterfaceClosure(clazz.getSuperClass(), closure);
+        }
+        for (ITypeReference interfaze : interfaces) {
+            addInterfaceClosure(interfaze, closure);
+        }
+        return Collections.unmodifiableSet(closure);
+    }
+
+    private void addInterfaceClosure(ITypeReference supertype,
+            Set<ITypeReference> closure) {
+        IClassDefinition definition = getClassDefinition(supertype);
+        if (definition == null) {
+            return;
+        }
+        Map<ITypeVariableDefinition, ITypeReference> mapping = getTypeMapping(
+                supertype, definition);
+        for (ITypeReference interfaze : getInterfaceClosure(definition)) {
+            closure.add(mapping.isEmpty() ? interfaze : ViewpointAdapter
+                    .substitutedTypeReference(interfaze, mapping));
+        }
+    }
+
+    private Set<IMethod> computeMethodClosure(IClassDefinition clazz) {
+        Set<IMethod> closure = new HashSet<IMethod>();
+        if (clazz.getMethods() != null) {
+            Map<ITypeVariableDefinition, ITypeReference> noMapping =
+                    Collections.emptyMap();
+            for (IMethod method : clazz.getMethods()) {
+                closure.add(new MethodProjection(method, noMapping));
+            }
+        }
+        if (clazz.getSuperClass() != null) {
+            addMethodClosure(clazz.getSuperClass(), closure);
+        }
+        if (clazz.getInterfaces() != null) {
+            for (ITypeReference interfaze : clazz.getInterfaces()) {
+                addMethodClosure(interfaze, closure);
+            }
+        }
+        return Collections.unmodifiableSet(closure);
+    }
+
+    private void addMethodClosure(ITypeReference supertype,
+            Set<IMethod> closure) {
+        IClassDefinition definition = getClassDefinition(supertype);
+        if (definition == null) {
+            return;
+        }
+        Map<ITypeVariableDefinition, ITypeReference> mapping = getTypeMapping(
+                supertype, definition);
+        for (IMethod method : getMethodClosure(definition)) {
+            closure.add(mapping.isEmpty() ? method : new MethodProjection(
+                    method, mapping));
+        }
+    }
+
+    private static IClassDefinition getClassDefinition(ITypeReference type) {
+        if (type instanceof IClassReference) {
+            return ((IClassReference) type).getClassDefinition();
+        } else if (type instanceof IParameterizedType) {
+            return ((IParameterizedType) type).getRawType()
+                    .getClassDefinition();
+        }
+        return null;
+    }
+
+    private static Map<ITypeVariableDefinition, ITypeReference> getTypeMapping(
+            ITypeReference supertype, IClassDefinition definition) {
+        if (supertype instanceof IParameterizedType) {
+            return ViewpointAdapter.createTypeMapping(
+                    (IParameterizedType) supertype, definition);
+        }
+        return Collections.emptyMap();
+    }
+}
@@ -24,7 +24,8 @@ import signature.model.ITypeReference;
 import signature.model.ITypeVariableDefinition;
 import signature.model.Modifier;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -48,9 +49,15 @@ public abstract class ExecutableMemberProjection implements IExecutableMember {
         throw new UnsupportedOperationException();
     }
 
+    private volatile Set<ITypeReference> exceptions = null;
+
     public Set<ITypeReference> getExceptions() {
-        return ViewpointAdapter.substitutedTypeReferences(original
-                .getExceptions(), mappings);
+        if (exceptions == null) {
+            exceptions = Collections.unmodifiableSet(ViewpointAdapter
+                    .substitutedTypeReferences(original.getExceptions(),
+                            mappings));
+        }
+        return exceptions;
     }
 
     public Set<Modifier> getModifiers() {
@@ -61,12 +68,17 @@ public abstract class ExecutableMemberProjection implements IExecutableMember {
         return original.getName();
     }
 
+    private volatile List<IParameter> parameters = null;
+
     public List<IParameter> getParameters() {
-        List<IParameter> result = new LinkedList<IParameter>();
-        for (IParameter parameter : original.getParameters()) {
-            result.add(new ParameterProjection(parameter, mappings));
+        if (parameters == null) {
+            List<IParameter> result = new ArrayList<IParameter>();
+            for (IParameter parameter : original.getParameters()) {
+                result.add(new ParameterProjection(parameter, mappings));
+            }
+            parameters = Collections.unmodifiableList(result);
         }
-        return result;
+        return parameters;
     }
 
     public List<ITypeVariableDefinition> getTypeParameters() {
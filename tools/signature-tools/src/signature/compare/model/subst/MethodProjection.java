@@ -36,9 +36,14 @@ public class MethodProjection extends ExecutableMemberProjection implements
         this.original = original;
     }
 
+    private volatile ITypeReference returnType = null;
+
     public ITypeReference getReturnType() {
-        return ViewpointAdapter.substitutedTypeReference(original
-                .getReturnType(), mappings);
+        if (returnType == null) {
+            returnType = ViewpointAdapter.substitutedTypeReference(original
+                    .getReturnType(), mappings);
+        }
+        return returnType;
     }
 
     @Override
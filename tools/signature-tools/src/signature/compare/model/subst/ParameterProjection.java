@@ -38,9 +38,14 @@ public class ParameterProjection implements IParameter {
         return original.getAnnotations();
     }
 
+    private volatile ITypeReference type = null;
+
     public ITypeReference getType() {
-        return ViewpointAdapter.substitutedTypeReference(original.getType(),
-                mappings);
+        if (type == null) {
+            type = ViewpointAdapter.substitutedTypeReference(
+                    original.getType(), mappings);
+        }
+        return type;
     }
 
     @Override
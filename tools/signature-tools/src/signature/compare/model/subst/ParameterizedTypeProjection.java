@@ -45,7 +45,7 @@ public class ParameterizedTypeProjection implements IParameterizedType {
         return ViewpointAdapter.substitutedTypeReference(ownerType, mappings);
     }
 
-    private IClassReference rawType = null;
+    private volatile IClassReference rawType = null;
 
     /**
      * Returns the raw type with substituted type variables.
@@ -62,7 +62,7 @@ public class ParameterizedTypeProjection implements IParameterizedType {
         return rawType;
     }
 
-    private List<ITypeReference> arguments = null;
+    private volatile List<ITypeReference> arguments = null;
 
     public List<ITypeReference> getTypeArguments() {
         if (arguments == null) {
@@ -37,8 +37,11 @@ public class WildcardTypeProjection implements IWildcardType {
     }
 
     public ITypeReference getLowerBound() {
-        return ViewpointAdapter.substitutedTypeReference(original
-                .getLowerBound(), mappings);
+        ITypeReference lowerBound = original.getLowerBound();
+        if (lowerBound == null) {
+            return null;
+        }
+        return ViewpointAdapter.substitutedTypeReference(lowerBound, mappings);
     }
 
     public List<ITypeReference> getUpperBounds() {
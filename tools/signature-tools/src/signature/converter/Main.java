@@ -17,6 +17,7 @@
 package signature.converter;
 
 import signature.UsageException;
+import signature.converter.classfile.ClassFileFactory;
 import signature.converter.dex.DexFactory;
 import signature.converter.doclet.DocletFactory;
 import signature.io.IApiLoader;
@@ -28,8 +29,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 public class Main {
-    // (doclet | dex) sourcefiles --out file --name name --packages packageName{
-    // packageName}" +
+    // (doclet | dex | class) sourcefiles --out file --name name --packages
+    // packageName{ packageName}" +
     public static void main(String[] args) throws IOException {
         String type = args[0];
         Set<String> sources = new HashSet<String>();
@@ -67,6 +68,8 @@ public class Main {
             factory = new DocletFactory();
         } else if ("dex".equals(type)) {
             factory = new DexFactory();
+        } else if ("class".equals(type)) {
+            factory = new ClassFileFactory();
         } else {
             throw new UsageException();
         }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.classfile;
+
+import dex.reader.DexFileIndex;
+import dex.structure.DexClass;
+import dex.structure.DexField;
+import dex.structure.DexFieldReference;
+import dex.structure.DexFile;
+import dex.structure.DexMethod;
+import dex.structure.DexMethodReference;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The classes read from one jar or class file.
+ */
+/* package */final class ClassFileArchive implements DexFile {
+
+    private final String name;
+    private final List<DexClass> classes;
+    private final DexFileIndex index;
+
+    ClassFileArchive(String name, List<DexClass> classes) {
+        this.name = name;
+        this.classes = classes;
+        index = new DexFileIndex(classes);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<DexClass> getDefinedClasses() {
+        return classes;
+    }
+
+    public DexClass getDefinedClass(String descriptor) {
+        return index.getClass(descriptor);
+    }
+
+    public List<DexMethod> getDefinedMethods(String name) {
+        return index.getMethods(name);
+    }
+
+    public List<DexMethod> getDefinedMethodsByPrototype(String prototype) {
+        return index.getMethodsByPrototype(prototype);
+    }
+
+    public List<DexField> getDefinedFields(String name) {
+        return index.getFields(name);
+    }
+
+    /**
+     * Returns an empty list, the constant pools of the class files are not
+     * kept.
+     */
+    public List<DexMethodReference> getReferencedMethods() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns an empty list, the constant pools of the class files are not
+     * kept.
+     */
+    public List<DexFieldReference> getReferencedFields() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.classfile;
+
+import dex.structure.DexClass;
+import dex.structure.DexFile;
+import signature.converter.Visibility;
+import signature.converter.dex.DexToSigConverter;
+import signature.io.IApiLoader;
+import signature.model.IApi;
+import signature.model.IPackage;
+import signature.model.impl.SigApi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Loads an API from compiled classes, i.e. from jar files or single class
+ * files. The class files are parsed and converted on a thread pool, no
+ * sources or javadoc run are needed.
+ */
+public class ClassFileFactory implements IApiLoader {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final int numThreads;
+
+    /**
+     * Creates a new instance of {@link ClassFileFactory}, which reads classes
+     * on as many threads as there are processors.
+     */
+    public ClassFileFactory() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance of {@link ClassFileFactory}.
+     * 
+     * @param numThreads
+     *            the number of threads to read and convert classes on
+     */
+    public ClassFileFactory(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    public IApi loadApi(String name, Visibility visibility,
+            Set<String> fileNames, Set<String> packageNames) throws
+            IOException {
+        DexToSigConverter converter = new DexToSigConverter(numThreads);
+        Set<DexFile> files = getClassFiles(fileNames);
+        SigApi api = converter.convertApi(name, files, visibility);
+
+        Iterator<IPackage> it = api.getPackages().iterator();
+        while (it.hasNext()) {
+            IPackage aPackage = it.next();
+            if (!packageNames.contains(aPackage.getName())) {
+                it.remove();
+            }
+        }
+        return api;
+    }
+
+    /**
+     * Reads the classes of the given jar and class files. The files are read
+     * sequentially, while the class files are parsed in parallel.
+     * 
+     * @param fileNames
+     *            the names of jar (or zip) files and class files
+     * @return one {@link DexFile} per given file, containing its classes
+     */
+    public Set<DexFile> getClassFiles(Set<String> fileNames)
+            throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            Set<DexFile> files = new HashSet<DexFile>();
+            for (String fileName : fileNames) {
+                List<Future<DexClass>> classes =
+                        new ArrayList<Future<DexClass>>();
+                if (fileName.endsWith(CLASS_SUFFIX)) {
+                    classes.add(submit(executor, readFile(fileName)));
+                } else {
+                    submitArchive(executor, fileName, classes);
+                }
+                List<DexClass> definedClasses = new ArrayList<DexClass>(
+                        classes.size());
+                for (Future<DexClass> dexClass : classes) {
+                    definedClasses.add(dexClass.get());
+                }
+                files.add(new ClassFileArchive(fileName, definedClasses));
+            }
+            return files;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading class files");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void submitArchive(ExecutorService executor, String fileName,
+            List<Future<DexClass>> classes) throws IOException {
+        ZipFile zipFile = new ZipFile(fileName);
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()
+                        && entry.getName().endsWith(CLASS_SUFFIX)) {
+                    InputStream in = zipFile.getInputStream(entry);
+                    try {
+                        classes.add(submit(executor, readFully(in)));
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private static Future<DexClass> submit(ExecutorService executor,
+            final byte[] bytes) {
+        return executor.submit(new Callable<DexClass>() {
+            public DexClass call() throws IOException {
+                return new ClassFileReader().read(bytes);
+            }
+        });
+    }
+
+    private static byte[] readFile(String fileName) throws IOException {
+        InputStream in = new FileInputStream(fileName);
+        try {
+            return readFully(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+}
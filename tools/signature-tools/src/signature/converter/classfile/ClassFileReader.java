@@ -0,0 +1,482 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.classfile;
+
+import static dex.structure.DexEncodedValueType.VALUE_ANNOTATION;
+import static dex.structure.DexEncodedValueType.VALUE_ARRAY;
+import static dex.structure.DexEncodedValueType.VALUE_BOOLEAN;
+import static dex.structure.DexEncodedValueType.VALUE_BYTE;
+import static dex.structure.DexEncodedValueType.VALUE_CHAR;
+import static dex.structure.DexEncodedValueType.VALUE_DOUBLE;
+import static dex.structure.DexEncodedValueType.VALUE_ENUM;
+import static dex.structure.DexEncodedValueType.VALUE_FLOAT;
+import static dex.structure.DexEncodedValueType.VALUE_INT;
+import static dex.structure.DexEncodedValueType.VALUE_LONG;
+import static dex.structure.DexEncodedValueType.VALUE_METHOD;
+import static dex.structure.DexEncodedValueType.VALUE_NULL;
+import static dex.structure.DexEncodedValueType.VALUE_SHORT;
+import static dex.structure.DexEncodedValueType.VALUE_STRING;
+import static dex.structure.DexEncodedValueType.VALUE_TYPE;
+
+import dex.structure.DexAnnotation;
+import dex.structure.DexAnnotation.Visibility;
+import dex.structure.DexClass;
+import dex.structure.DexEncodedValue;
+import dex.structure.DexParameter;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads a class file in one pass into the structure a {@link
+ * dex.reader.DexFileReader} would create for the same class after dx has
+ * translated it. Generic signatures, declared exceptions, inner class
+ * information and annotation defaults, which are attributes in a class file,
+ * become the system annotations of dex ("Ldalvik/annotation/Signature;"
+ * etc.), so that the classes can be converted by
+ * {@link signature.converter.dex.DexToSigConverter}.
+ * <p>
+ * Method bodies, stack maps and debug information are skipped. Instances are
+ * not thread safe, but cheap to create.
+ */
+public class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private static final String THROWS_ANNOTATION =
+            "Ldalvik/annotation/Throws;";
+    private static final String SIGNATURE_ANNOTATION =
+            "Ldalvik/annotation/Signature;";
+    private static final String ANNOTATION_DEFAULT_ANNOTATION =
+            "Ldalvik/annotation/AnnotationDefault;";
+    private static final String ENCLOSING_CLASS_ANNOTATION =
+            "Ldalvik/annotation/EnclosingClass;";
+    private static final String ENCLOSING_METHOD_ANNOTATION =
+            "Ldalvik/annotation/EnclosingMethod;";
+    private static final String INNER_CLASS_ANNOTATION =
+            "Ldalvik/annotation/InnerClass;";
+    private static final String MEMBER_CLASS_ANNOTATION =
+            "Ldalvik/annotation/MemberClasses;";
+
+    private DataInputStream in;
+    /** Constant pool: utf8 strings and boxed numbers. */
+    private Object[] constants;
+    /** Constant pool: name index of class, string and method type entries. */
+    private int[] references;
+
+    /**
+     * Reads the given class file.
+     * 
+     * @param bytes
+     *            the content of the class file
+     * @return the class
+     * @throws IOException
+     *             if the bytes are not a valid class file
+     */
+    public DexClass read(byte[] bytes) throws IOException {
+        in = new DataInputStream(new ByteArrayInputStream(bytes));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a class file");
+            }
+            in.readUnsignedShort(); // minor version
+            in.readUnsignedShort(); // major version
+            readConstantPool();
+            return readClass();
+        } finally {
+            in = null;
+            constants = null;
+            references = null;
+        }
+    }
+
+    private void readConstantPool() throws IOException {
+        int count = in.readUnsignedShort();
+        constants = new Object[count];
+        references = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+            case CONSTANT_UTF8:
+                constants[i] = in.readUTF();
+                break;
+            case CONSTANT_INTEGER:
+                constants[i] = in.readInt();
+                break;
+            case CONSTANT_FLOAT:
+                constants[i] = in.readFloat();
+                break;
+            case CONSTANT_LONG:
+                constants[i++] = in.readLong();
+                break;
+            case CONSTANT_DOUBLE:
+                constants[i++] = in.readDouble();
+                break;
+            case CONSTANT_CLASS:
+            case CONSTANT_STRING:
+            case CONSTANT_METHOD_TYPE:
+            case CONSTANT_MODULE:
+            case CONSTANT_PACKAGE:
+                references[i] = in.readUnsignedShort();
+                break;
+            case CONSTANT_METHOD_HANDLE:
+                in.skipBytes(3);
+                break;
+            default:
+                // field, method and interface method references, name and
+                // type, dynamic and invoke dynamic entries
+                in.skipBytes(4);
+                break;
+            }
+        }
+    }
+
+    private String utf8(int index) {
+        return (String) constants[index];
+    }
+
+    /**
+     * Returns the dex descriptor of the class constant at the given index,
+     * or null for index 0.
+     */
+    private String className(int index) {
+        if (index == 0) {
+            return null;
+        }
+        String name = utf8(references[index]);
+        // array classes are already descriptors
+        return name.charAt(0) == '[' ? name : "L" + name + ";";
+    }
+
+    private ParsedClass readClass() throws IOException {
+        int accessFlags = in.readUnsignedShort();
+        String name = className(in.readUnsignedShort());
+        String superClass = className(in.readUnsignedShort());
+        ParsedClass clazz = new ParsedClass(accessFlags, name, superClass);
+
+        int interfaceCount = in.readUnsignedShort();
+        for (int i = 0; i < interfaceCount; i++) {
+            clazz.interfaces.add(className(in.readUnsignedShort()));
+        }
+
+        int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            clazz.fields.add(readField(clazz));
+        }
+
+        ParsedAnnotation defaults = new ParsedAnnotation(
+                Visibility.VISIBILITY_BUILD, name);
+        int methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            clazz.methods.add(readMethod(clazz, defaults));
+        }
+        if (!defaults.getAttributes().isEmpty()) {
+            clazz.annotations.add(systemAnnotation(
+                    ANNOTATION_DEFAULT_ANNOTATION, new ParsedValue(
+                            VALUE_ANNOTATION, defaults)));
+        }
+
+        String enclosingClass = null;
+        boolean enclosingMethod = false;
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8(in.readUnsignedShort());
+            int length = in.readInt();
+            if ("InnerClasses".equals(attributeName)) {
+                readInnerClasses(clazz);
+            } else if ("EnclosingMethod".equals(attributeName)) {
+                enclosingClass = className(in.readUnsignedShort());
+                enclosingMethod = in.readUnsignedShort() != 0;
+            } else if (!readCommonAttribute(attributeName, clazz.annotations)) {
+                in.skipBytes(length);
+            }
+        }
+        // classes declared in a method only know their enclosing class
+        // through the EnclosingMethod attribute
+        if (enclosingClass != null
+                && getAnnotation(clazz.annotations,
+                        ENCLOSING_CLASS_ANNOTATION) == null) {
+            if (enclosingMethod) {
+                clazz.annotations.add(systemAnnotation(
+                        ENCLOSING_METHOD_ANNOTATION, new ParsedValue(
+                                VALUE_METHOD, null)));
+            } else {
+                clazz.annotations.add(systemAnnotation(
+                        ENCLOSING_CLASS_ANNOTATION, new ParsedValue(
+                                VALUE_TYPE, enclosingClass)));
+            }
+        }
+        return clazz;
+    }
+
+    private void readInnerClasses(ParsedClass clazz) throws IOException {
+        List<DexEncodedValue> memberClasses = new ArrayList<DexEncodedValue>();
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            String innerClass = className(in.readUnsignedShort());
+            String outerClass = className(in.readUnsignedShort());
+            int innerNameIndex = in.readUnsignedShort();
+            int accessFlags = in.readUnsignedShort();
+            if (clazz.getName().equals(innerClass)) {
+                ParsedAnnotation innerClassAnnotation = new ParsedAnnotation(
+                        Visibility.VISIBILITY_SYSTEM, INNER_CLASS_ANNOTATION);
+                innerClassAnnotation.addAttribute("accessFlags",
+                        new ParsedValue(VALUE_INT, accessFlags));
+                innerClassAnnotation.addAttribute("name",
+                        innerNameIndex == 0 ? new ParsedValue(VALUE_NULL, null)
+                                : new ParsedValue(VALUE_STRING,
+                                        utf8(innerNameIndex)));
+                clazz.annotations.add(innerClassAnnotation);
+                if (outerClass != null) {
+                    clazz.annotations.add(systemAnnotation(
+                            ENCLOSING_CLASS_ANNOTATION, new ParsedValue(
+                                    VALUE_TYPE, outerClass)));
+                }
+            } else if (clazz.getName().equals(outerClass)
+                    && innerNameIndex != 0) {
+                memberClasses.add(new ParsedValue(VALUE_TYPE, innerClass));
+            }
+        }
+        if (!memberClasses.isEmpty()) {
+            clazz.annotations.add(systemAnnotation(MEMBER_CLASS_ANNOTATION,
+                    new ParsedValue(VALUE_ARRAY, memberClasses)));
+        }
+    }
+
+    private ParsedField readField(ParsedClass clazz) throws IOException {
+        int accessFlags = in.readUnsignedShort();
+        String name = utf8(in.readUnsignedShort());
+        String type = utf8(in.readUnsignedShort());
+        ParsedField field = new ParsedField(clazz, accessFlags, name, type);
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8(in.readUnsignedShort());
+            int length = in.readInt();
+            if (!readCommonAttribute(attributeName, field.annotations)) {
+                in.skipBytes(length);
+            }
+        }
+        return field;
+    }
+
+    private ParsedMethod readMethod(ParsedClass clazz,
+            ParsedAnnotation defaults) throws IOException {
+        int accessFlags = in.readUnsignedShort();
+        String name = utf8(in.readUnsignedShort());
+        String descriptor = utf8(in.readUnsignedShort());
+
+        int end = descriptor.indexOf(')');
+        ParsedMethod method = new ParsedMethod(clazz, accessFlags, name,
+                descriptor.substring(end + 1));
+        int at = 1;
+        while (at < end) {
+            int start = at;
+            while (descriptor.charAt(at) == '[') {
+                at++;
+            }
+            if (descriptor.charAt(at) == 'L') {
+                at = descriptor.indexOf(';', at);
+            }
+            at++;
+            method.parameters.add(new ParsedParameter(descriptor.substring(
+                    start, at)));
+        }
+
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8(in.readUnsignedShort());
+            int length = in.readInt();
+            if ("Exceptions".equals(attributeName)) {
+                List<DexEncodedValue> exceptions =
+                        new ArrayList<DexEncodedValue>();
+                int count = in.readUnsignedShort();
+                for (int j = 0; j < count; j++) {
+                    exceptions.add(new ParsedValue(VALUE_TYPE,
+                            className(in.readUnsignedShort())));
+                }
+                method.annotations.add(systemAnnotation(THROWS_ANNOTATION,
+                        new ParsedValue(VALUE_ARRAY, exceptions)));
+            } else if ("RuntimeVisibleParameterAnnotations"
+                    .equals(attributeName)) {
+                readParameterAnnotations(method.parameters,
+                        Visibility.VISIBILITY_RUNTIME);
+            } else if ("RuntimeInvisibleParameterAnnotations"
+                    .equals(attributeName)) {
+                readParameterAnnotations(method.parameters,
+                        Visibility.VISIBILITY_BUILD);
+            } else if ("AnnotationDefault".equals(attributeName)) {
+                defaults.addAttribute(name, readElementValue());
+            } else if (!readCommonAttribute(attributeName,
+                    method.annotations)) {
+                in.skipBytes(length);
+            }
+        }
+        return method;
+    }
+
+    /**
+     * Reads the attributes which classes, fields and methods have in common.
+     * 
+     * @return false if the attribute was not read
+     */
+    private boolean readCommonAttribute(String attributeName,
+            Set<DexAnnotation> annotations) throws IOException {
+        if ("Signature".equals(attributeName)) {
+            List<DexEncodedValue> signature = new ArrayList<DexEncodedValue>(1);
+            signature.add(new ParsedValue(VALUE_STRING, utf8(in
+                    .readUnsignedShort())));
+            annotations.add(systemAnnotation(SIGNATURE_ANNOTATION,
+                    new ParsedValue(VALUE_ARRAY, signature)));
+        } else if ("RuntimeVisibleAnnotations".equals(attributeName)) {
+            readAnnotations(annotations, Visibility.VISIBILITY_RUNTIME);
+        } else if ("RuntimeInvisibleAnnotations".equals(attributeName)) {
+            readAnnotations(annotations, Visibility.VISIBILITY_BUILD);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads parameter annotations. Compilers may omit synthetic leading
+     * parameters, e.g. the outer instance of an inner class constructor, so
+     * the annotations are assigned to the trailing parameters.
+     */
+    private void readParameterAnnotations(List<DexParameter> parameters,
+            Visibility visibility) throws IOException {
+        int count = in.readUnsignedByte();
+        int offset = parameters.size() - count;
+        for (int i = 0; i < count; i++) {
+            if (offset + i >= 0) {
+                readAnnotations(((ParsedParameter) parameters.get(offset
+                        + i)).annotations, visibility);
+            } else {
+                readAnnotations(new HashSet<DexAnnotation>(),
+                        visibility);
+            }
+        }
+    }
+
+    private void readAnnotations(Set<DexAnnotation> annotations,
+            Visibility visibility) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            annotations.add(readAnnotation(visibility));
+        }
+    }
+
+    private ParsedAnnotation readAnnotation(Visibility visibility)
+            throws IOException {
+        ParsedAnnotation annotation = new ParsedAnnotation(visibility,
+                utf8(in.readUnsignedShort()));
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            String name = utf8(in.readUnsignedShort());
+            annotation.addAttribute(name, readElementValue());
+        }
+        return annotation;
+    }
+
+    private ParsedValue readElementValue() throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+        case 'B':
+            return new ParsedValue(VALUE_BYTE, ((Integer) constants[in
+                    .readUnsignedShort()]).byteValue());
+        case 'C':
+            return new ParsedValue(VALUE_CHAR, (char) ((Integer) constants[in
+                    .readUnsignedShort()]).intValue());
+        case 'S':
+            return new ParsedValue(VALUE_SHORT, ((Integer) constants[in
+                    .readUnsignedShort()]).shortValue());
+        case 'Z':
+            return new ParsedValue(VALUE_BOOLEAN, ((Integer) constants[in
+                    .readUnsignedShort()]).intValue() != 0);
+        case 'I':
+            return new ParsedValue(VALUE_INT, constants[in
+                    .readUnsignedShort()]);
+        case 'J':
+            return new ParsedValue(VALUE_LONG, constants[in
+                    .readUnsignedShort()]);
+        case 'F':
+            return new ParsedValue(VALUE_FLOAT, constants[in
+                    .readUnsignedShort()]);
+        case 'D':
+            return new ParsedValue(VALUE_DOUBLE, constants[in
+                    .readUnsignedShort()]);
+        case 's':
+            return new ParsedValue(VALUE_STRING, utf8(in.readUnsignedShort()));
+        case 'e': {
+            // FORMAT La/b/E;!CONSTANT
+            String typeName = utf8(in.readUnsignedShort());
+            String constantName = utf8(in.readUnsignedShort());
+            return new ParsedValue(VALUE_ENUM, typeName + "!" + constantName);
+        }
+        case 'c':
+            return new ParsedValue(VALUE_TYPE, utf8(in.readUnsignedShort()));
+        case '@':
+            return new ParsedValue(VALUE_ANNOTATION, readAnnotation(
+                    Visibility.VISIBILITY_BUILD));
+        case '[': {
+            int count = in.readUnsignedShort();
+            List<DexEncodedValue> values = new ArrayList<DexEncodedValue>(
+                    count);
+            for (int i = 0; i < count; i++) {
+                values.add(readElementValue());
+            }
+            return new ParsedValue(VALUE_ARRAY, values);
+        }
+        default:
+            throw new IOException("Unknown element value tag "
+                    + (char) tag);
+        }
+    }
+
+    private static ParsedAnnotation systemAnnotation(String typeName,
+            DexEncodedValue value) {
+        ParsedAnnotation annotation = new ParsedAnnotation(
+                Visibility.VISIBILITY_SYSTEM, typeName);
+        annotation.addAttribute("value", value);
+        return annotation;
+    }
+
+    private static DexAnnotation getAnnotation(
+            Set<DexAnnotation> annotations, String typeName) {
+        for (DexAnnotation annotation : annotations) {
+            if (typeName.equals(annotation.getTypeName())) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+}
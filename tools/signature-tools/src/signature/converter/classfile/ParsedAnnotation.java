@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.classfile;
+
+import dex.structure.DexAnnotation;
+import dex.structure.DexAnnotationAttribute;
+import dex.structure.DexEncodedAnnotation;
+import dex.structure.DexEncodedValue;
+import dex.structure.DexEncodedValueType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An annotation read from a class file. It is used both as annotation of an
+ * element and as the value of an annotation element.
+ */
+/* package */final class ParsedAnnotation implements DexAnnotation,
+        DexEncodedAnnotation {
+
+    private final Visibility visibility;
+    private final String typeName;
+    private final List<DexAnnotationAttribute> attributes =
+            new ArrayList<DexAnnotationAttribute>();
+
+    ParsedAnnotation(Visibility visibility, String typeName) {
+        this.visibility = visibility;
+        this.typeName = typeName;
+    }
+
+    void addAttribute(String name, DexEncodedValue value) {
+        attributes.add(new ParsedAnnotationAttribute(this, name, value));
+    }
+
+    public Visibility getVisibility() {
+        return visibility;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public List<DexAnnotationAttribute> getAttributes() {
+        return attributes;
+    }
+
+    public DexEncodedValueType getType() {
+        return DexEncodedValueType.VALUE_ANNOTATION;
+    }
+
+    public List<DexAnnotationAttribute> getValue() {
+        return attributes;
+    }
+
+    @Override
+    public String toString() {
+        return "@" + typeName + attributes;
+    }
+}
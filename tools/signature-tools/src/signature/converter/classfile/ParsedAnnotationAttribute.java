@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.classfile;
+
+import dex.structure.DexAnnotation;
+import dex.structure.DexAnnotationAttribute;
+import dex.structure.DexEncodedValue;
+
+/* package */final class ParsedAnnotationAttribute implements
+        DexAnnotationAttribute {
+
+    private final DexAnnotation annotation;
+    private final String name;
+    private final DexEncodedValue value;
+
+    ParsedAnnotationAttribute(DexAnnotation annotation, String name,
+            DexEncodedValue value) {
+        this.annotation = annotation;
+        this.name = name;
+        this.value = value;
+    }
+
+    public DexAnnotation getAnnotation() {
+        return annotation;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DexEncodedValue getEncodedValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return name + value;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.classfile;
+
+import dex.structure.DexAnnotation;
+import dex.structure.DexClass;
+import dex.structure.DexField;
+import dex.structure.DexMethod;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A class read from a class file. Names and types are dex type descriptors,
+ * e.g. "Ljava/lang/Object;".
+ */
+/* package */final class ParsedClass implements DexClass {
+
+    private final int modifiers;
+    private final String name;
+    private final String superClass;
+    final List<String> interfaces = new ArrayList<String>();
+    final List<DexField> fields = new ArrayList<DexField>();
+    final List<DexMethod> methods = new ArrayList<DexMethod>();
+    final Set<DexAnnotation> annotations = new HashSet<DexAnnotation>();
+
+    ParsedClass(int modifiers, String name, String superClass) {
+        this.modifiers = modifiers;
+        this.name = name;
+        this.superClass = superClass;
+    }
+
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSuperClass() {
+        return superClass;
+    }
+
+    public List<String> getInterfaces() {
+        return interfaces;
+    }
+
+    public List<DexField> getFields() {
+        return fields;
+    }
+
+    public List<DexMethod> getMethods() {
+        return methods;
+    }
+
+    public Set<DexAnnotation> getAnnotations() {
+        return annotations;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.classfile;
+
+import dex.structure.DexAnnotation;
+import dex.structure.DexClass;
+import dex.structure.DexField;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/* package */final class ParsedField implements DexField {
+
+    private final DexClass declaringClass;
+    private final int modifiers;
+    private final String name;
+    private final String type;
+    final Set<DexAnnotation> annotations = new HashSet<DexAnnotation>();
+
+    ParsedField(DexClass declaringClass, int modifiers, String name,
+            String type) {
+        this.declaringClass = declaringClass;
+        this.modifiers = modifiers;
+        this.name = name;
+        this.type = type;
+    }
+
+    public DexClass getDeclaringClass() {
+        return declaringClass;
+    }
+
+    public int getModifiers() {
+        return modifiers;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isEnumConstant() {
+        return (modifiers & 0x4000) > 0;
+    }
+
+    public Set<DexAnnotation> getAnnotations() {
+        return annotations;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + name;
+    }
+}
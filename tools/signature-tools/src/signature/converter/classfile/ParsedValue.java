@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.classfile;
+
+import dex.structure.DexEncodedValue;
+import dex.structure.DexEncodedValueType;
+
+/**
+ * An annotation element value read from a class file. The values have the
+ * same representation as those read from a dex file.
+ */
+/* package */final class ParsedValue implements DexEncodedValue {
+
+    private final DexEncodedValueType type;
+    private final Object value;
+
+    ParsedValue(DexEncodedValueType type, Object value) {
+        this.type = type;
+        this.value = value;
+    }
+
+    public DexEncodedValueType getType() {
+        return type;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "=" + value;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.dex;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread safe cache which holds at most a given number of entries. When the
+ * cache is full, it is cleared, which is cheaper than tracking the usage of
+ * the entries and good enough for the skewed distribution of type names and
+ * signatures.
+ */
+/* package */final class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final ConcurrentMap<K, V> entries;
+
+    BoundedCache(int maxSize) {
+        this.maxSize = maxSize;
+        entries = new ConcurrentHashMap<K, V>();
+    }
+
+    /**
+     * Returns the value cached for the given key, or null.
+     */
+    V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches the given value, unless another thread cached a value for the
+     * same key in the meantime.
+     * 
+     * @return the cached value
+     */
+    V put(K key, V value) {
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+        V cached = entries.putIfAbsent(key, value);
+        return cached != null ? cached : value;
+    }
+}
@@ -21,7 +21,6 @@ import static signature.converter.dex.DexUtil.declaresExceptions;
 import static signature.converter.dex.DexUtil.declaresMemberClasses;
 import static signature.converter.dex.DexUtil.findPackageInfo;
 import static signature.converter.dex.DexUtil.getClassModifiers;
-import static signature.converter.dex.DexUtil.getClassName;
 import static signature.converter.dex.DexUtil.getDefaultMappingsAnnotation;
 import static signature.converter.dex.DexUtil.getDexName;
 import static signature.converter.dex.DexUtil.getEnclosingClassName;
@@ -30,8 +29,6 @@ import static signature.converter.dex.DexUtil.getGenericSignature;
 import static signature.converter.dex.DexUtil.getKind;
 import static signature.converter.dex.DexUtil.getMemberClassNames;
 import static signature.converter.dex.DexUtil.getModifier;
-import static signature.converter.dex.DexUtil.getPackageName;
-import static signature.converter.dex.DexUtil.getQualifiedName;
 import static signature.converter.dex.DexUtil.hasAnnotationDefaultSignature;
 import static signature.converter.dex.DexUtil.hasGenericSignature;
 import static signature.converter.dex.DexUtil.isAnnotation;
@@ -45,6 +42,7 @@ import static signature.converter.dex.DexUtil.isVisible;
 import static signature.converter.dex.DexUtil.splitTypeList;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -52,6 +50,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import signature.converter.Visibility;
 import signature.model.IAnnotation;
@@ -101,6 +103,7 @@ public final class DexToSigConverter implements IClassInitializer {
 
     private final FieldPool elementPool;
     private final TypePool factory;
+    private final SignatureCache signatureCache;
     private static final Set<IField> EMPTY_FIELDS = Collections.emptySet();
     private static final Set<IEnumConstant> EMPTY_ENUM_CONSTANTS = Collections
             .emptySet();
@@ -112,18 +115,51 @@ public final class DexToSigConverter implements IClassInitializer {
             Collections.emptySet();
     private static final Set<ITypeReference> EMPTY_EXCEPTIONS = Collections
             .emptySet();
+    private final int numThreads;
     private Visibility visibility;
     private Map<String, DexClass> dexNameToDexClass;
 
 
     /**
-     * Creates a new instance of {@link DexToSigConverter}.
+     * Creates a new instance of {@link DexToSigConverter}, which converts
+     * classes on as many threads as there are processors.
      */
     public DexToSigConverter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance of {@link DexToSigConverter}.
+     * 
+     * @param numThreads
+     *            the number of threads to convert classes on
+     */
+    public DexToSigConverter(int numThreads) {
         factory = new TypePool();
+        signatureCache = new SignatureCache();
         elementPool = new FieldPool();
+        this.numThreads = Math.max(1, numThreads);
     }
 
+    private String getPackageName(String classIdentifier) {
+        return signatureCache.getPackageName(classIdentifier);
+    }
+
+    private String getClassName(String classIdentifier) {
+        return signatureCache.getClassName(classIdentifier);
+    }
+
+    private String getQualifiedName(String classIdentifier) {
+        return signatureCache.getQualifiedName(classIdentifier);
+    }
+
+    /**
+     * Returns a new parser sharing the signature cache of this converter.
+     * Parsers are not thread safe, the cache is.
+     */
+    private GenericSignatureParser newParser() {
+        return new GenericSignatureParser(factory, this, signatureCache);
+    }
 
     public SigApi convertApi(String apiName, Set<DexFile> dexFiles,
             Visibility visibility) {
@@ -171,6 +207,8 @@ public final class DexToSigConverter implements IClassInitializer {
             }
         }
 
+        convertAllClasses(dexNameToDexClass.values());
+
         Set<SigClassDefinition> allClasses = new HashSet<SigClassDefinition>();
 
         for (SigPackage aPackage : packageToDexClasses.keySet()) {
@@ -257,22 +295,115 @@ public final class DexToSigConverter implements IClassInitializer {
     }
 
     /**
-     * Converts a set of {@link DexClass} objects to a set of the corresponding
-     * {@link SigClassDefinition} objects.
+     * Converts all given {@link DexClass} objects but synthetic ones.
+     * <p>
+     * Annotation types are converted first and sequentially, since any class
+     * may need the annotation fields of the annotations it uses. The remaining
+     * classes are then converted in parallel, with one task per top level
+     * class and all classes nested in it, since a class may need the type
+     * parameters of its declaring classes. A class is thus never converted by
+     * two threads, and the set of converted classes does not depend on the
+     * number of threads.
      * 
      * @param dexClasses
      *            the {@link DexClass} objects
-     * @return a set of {@link DexClass} objects
+     */
+    private void convertAllClasses(Collection<DexClass> dexClasses) {
+        Map<String, List<DexClass>> topLevelNameToClasses =
+                new HashMap<String, List<DexClass>>();
+        for (DexClass dexClass : dexClasses) {
+            if (!convertAnyWay(dexClass)) {
+                continue;
+            }
+            if (isAnnotation(dexClass)) {
+                convertClass(dexClass);
+            } else {
+                String topLevelName = getTopLevelDexName(dexClass);
+                List<DexClass> classes = topLevelNameToClasses
+                        .get(topLevelName);
+                if (classes == null) {
+                    classes = new ArrayList<DexClass>();
+                    topLevelNameToClasses.put(topLevelName, classes);
+                }
+                classes.add(dexClass);
+            }
+        }
+
+        if (numThreads == 1 || topLevelNameToClasses.size() <= 1) {
+            for (List<DexClass> classes : topLevelNameToClasses.values()) {
+                convertClassList(classes);
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> results = new ArrayList<Future<?>>();
+            for (final List<DexClass> classes : topLevelNameToClasses
+                    .values()) {
+                results.add(executor.submit(new Runnable() {
+                    public void run() {
+                        convertClassList(classes);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while converting classes",
+                    e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void convertClassList(List<DexClass> dexClasses) {
+        for (DexClass dexClass : dexClasses) {
+            convertClass(dexClass);
+        }
+    }
+
+    /**
+     * Returns the dex name of the top level class the given class is nested
+     * in, or the name of the class itself if it is not nested.
+     */
+    private String getTopLevelDexName(DexClass dexClass) {
+        while (isEnclosingClass(dexClass)) {
+            DexClass enclosingClass = dexNameToDexClass
+                    .get(getEnclosingClassName(dexClass));
+            if (enclosingClass == null) {
+                break;
+            }
+            dexClass = enclosingClass;
+        }
+        return dexClass.getName();
+    }
+
+    /**
+     * Returns the already converted {@link SigClassDefinition}s of the given
+     * {@link DexClass} objects which are visible.
+     * 
+     * @param dexClasses
+     *            the {@link DexClass} objects
+     * @return a set of {@link SigClassDefinition} objects
      */
     protected Set<SigClassDefinition> convertClasses(Set<DexClass> dexClasses) {
         Set<SigClassDefinition> classes = new HashSet<SigClassDefinition>();
         for (DexClass dexClass : dexClasses) {
-            // convert all classes but synthetic, return only initialized
-            if (convertAnyWay(dexClass)) {
-                SigClassDefinition sigCLass = convertClass(dexClass);
-                if (isVisible(dexClass, visibility)) {
-                    classes.add(sigCLass);
-                }
+            // all classes but synthetic are converted, return only visible
+            if (convertAnyWay(dexClass) && isVisible(dexClass, visibility)) {
+                classes.add(factory.getClass(getPackageName(dexClass
+                        .getName()), getClassName(dexClass.getName())));
             }
         }
         return classes;
@@ -309,8 +440,7 @@ public final class DexToSigConverter implements IClassInitializer {
         }
 
         if (hasGenericSignature(dexClass)) {
-            GenericSignatureParser parser = new GenericSignatureParser(factory,
-                    this);
+            GenericSignatureParser parser = newParser();
             parser.parseForClass(sigClass, getGenericSignature(dexClass));
             sigClass.setTypeParameters(parser.formalTypeParameters);
 
@@ -352,7 +482,9 @@ public final class DexToSigConverter implements IClassInitializer {
                 String interfaceName = getClassName(interfaceDexName);
                 SigClassDefinition interfaze = factory.getClass(
                         interfacePackageName, interfaceName);
-                interfaze.setKind(Kind.INTERFACE);
+                // the interface may be converted on another thread, and may
+                // be an annotation
+                interfaze.setKindIfUninitialized(Kind.INTERFACE);
                 interfaces.add(new SigClassReference(interfaze));
             }
             sigClass.setInterfaces(interfaces);
@@ -486,8 +618,7 @@ public final class DexToSigConverter implements IClassInitializer {
                 .getName());
         annotationField.setDefaultValue(defaultValue);
         annotationField.setModifiers(getModifier(dexMethod.getModifiers()));
-        GenericSignatureParser parser = new GenericSignatureParser(factory,
-                this);
+        GenericSignatureParser parser = newParser();
         annotationField.setType(parser.parseNonGenericType(dexMethod
                 .getReturnType()));
         return annotationField;
@@ -531,8 +662,7 @@ public final class DexToSigConverter implements IClassInitializer {
         field.setAnnotations(convertAnnotations(dexField.getAnnotations()));
 
         if (hasGenericSignature(dexField)) {
-            GenericSignatureParser parser = new GenericSignatureParser(factory,
-                    this);
+            GenericSignatureParser parser = newParser();
             String declaringClassPackageName = getPackageName(dexField
                     .getDeclaringClass().getName());
             String declaringClassName = getClassName(dexField
@@ -542,8 +672,7 @@ public final class DexToSigConverter implements IClassInitializer {
                     declaringClassName), getGenericSignature(dexField));
             field.setType(parser.fieldType);
         } else {
-            GenericSignatureParser parser = new GenericSignatureParser(factory,
-                    this);
+            GenericSignatureParser parser = newParser();
             field.setType(parser.parseNonGenericType(dexField.getType()));
         }
 
@@ -614,8 +743,7 @@ public final class DexToSigConverter implements IClassInitializer {
                 .getAnnotations()));
 
         if (hasGenericSignature(dexMethod)) {
-            GenericSignatureParser parser = new GenericSignatureParser(factory,
-                    this);
+            GenericSignatureParser parser = newParser();
             parser.parseForConstructor(constructor,
                     getGenericSignature(dexMethod));
 
@@ -687,8 +815,7 @@ public final class DexToSigConverter implements IClassInitializer {
         method.setAnnotations(convertAnnotations(dexMethod.getAnnotations()));
 
         if (hasGenericSignature(dexMethod)) {
-            GenericSignatureParser parser = new GenericSignatureParser(factory,
-                    this);
+            GenericSignatureParser parser = newParser();
             parser.parseForMethod(method, getGenericSignature(dexMethod));
 
             // type parameters
@@ -716,8 +843,7 @@ public final class DexToSigConverter implements IClassInitializer {
 
         } else {
             convertNonGenericExecutableMember(method, dexMethod);
-            GenericSignatureParser parser = new GenericSignatureParser(factory,
-                    this);
+            GenericSignatureParser parser = newParser();
             ITypeReference type = parser.parseNonGenericReturnType(dexMethod
                     .getReturnType());
             method.setReturnType(type);
@@ -752,8 +878,7 @@ public final class DexToSigConverter implements IClassInitializer {
                 .size());
 
         for (DexParameter dexParameter : dexParameters) {
-            GenericSignatureParser parser = new GenericSignatureParser(factory,
-                    this);
+            GenericSignatureParser parser = newParser();
             ITypeReference type = parser.parseNonGenericType(dexParameter
                     .getTypeName());
             SigParameter parameter = new SigParameter(type);
@@ -842,13 +967,22 @@ public final class DexToSigConverter implements IClassInitializer {
         SigClassDefinition annotationClass = factory.getClass(
                 getPackageName(typeName), getClassName(typeName));
         if (!Uninitialized.isInitialized(
-                annotationClass.getAnnotationFields())) {
+                annotationClass.getAnnotationFields())
+                && dexNameToDexClass.containsKey(typeName)) {
             initializeClass(getPackageName(typeName), getClassName(typeName));
         }
-        for (IAnnotationField field : annotationClass.getAnnotationFields()) {
-            if (nameOfField.equals(field.getName())) {
-                sigElement.setDeclaringField(field);
+        if (Uninitialized.isInitialized(
+                annotationClass.getAnnotationFields())) {
+            for (IAnnotationField field : annotationClass
+                    .getAnnotationFields()) {
+                if (nameOfField.equals(field.getName())) {
+                    sigElement.setDeclaringField(field);
+                }
             }
+        } else {
+            // the annotation type is not part of the converted files, e.g.
+            // if only some jars of a class path are converted
+            sigElement.setDeclaringField(new SigAnnotationField(nameOfField));
         }
 
         sigElement.setValue(convertEncodedValue(dexAnnotationAttribute
@@ -918,8 +1052,7 @@ public final class DexToSigConverter implements IClassInitializer {
         }
         case VALUE_TYPE: {
             String typeName = (String) dexEnodedValue.getValue();
-            GenericSignatureParser parser = new GenericSignatureParser(factory,
-                    this);
+            GenericSignatureParser parser = newParser();
             value = parser.parseNonGenericReturnType(typeName);
             break;
         }
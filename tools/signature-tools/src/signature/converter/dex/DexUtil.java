@@ -17,11 +17,17 @@
 package signature.converter.dex;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import signature.converter.Visibility;
 import signature.model.IClassDefinition;
@@ -29,6 +35,7 @@ import signature.model.Kind;
 import signature.model.Modifier;
 import signature.model.impl.SigPackage;
 import signature.model.util.ModelUtil;
+import dex.reader.DexArchive;
 import dex.reader.DexBuffer;
 import dex.reader.DexFileReader;
 import dex.structure.DexAnnotatedElement;
@@ -580,16 +587,82 @@ public class DexUtil {
         }
     }
 
+    /**
+     * Reads the given dex files and the dex files contained in the given
+     * apk and jar files, on as many threads as there are processors.
+     * 
+     * @see #getDexFiles(Set, int)
+     */
     public static Set<DexFile> getDexFiles(Set<String> fileNames)
             throws IOException {
-        Set<DexFile> parsedFiles = new HashSet<DexFile>();
+        return getDexFiles(fileNames, Runtime.getRuntime()
+                .availableProcessors());
+    }
 
-        for (String dexFile : fileNames) {
-            DexFileReader reader = new DexFileReader();
-            DexBuffer dexBuffer = new DexBuffer(dexFile);
-            parsedFiles.add(reader.read(dexBuffer));
+    /**
+     * Reads the given dex files and the dex files contained in the given
+     * apk and jar files. Archives are read without extracting them, the
+     * files are read and parsed concurrently.
+     * 
+     * @param fileNames
+     *            the names of dex, apk or jar files
+     * @param numThreads
+     *            the number of threads to read the files on
+     * @return the parsed dex files
+     */
+    public static Set<DexFile> getDexFiles(Set<String> fileNames,
+            int numThreads) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+                Math.min(numThreads, fileNames.size())));
+        List<Future<List<DexFile>>> results =
+                new ArrayList<Future<List<DexFile>>>();
+        try {
+            for (final String fileName : fileNames) {
+                results.add(executor.submit(new Callable<List<DexFile>>() {
+                    public List<DexFile> call() throws IOException {
+                        return readDexFiles(fileName);
+                    }
+                }));
+            }
+            Set<DexFile> parsedFiles = new HashSet<DexFile>();
+            for (Future<List<DexFile>> result : results) {
+                parsedFiles.addAll(result.get());
+            }
+            return parsedFiles;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading dex files");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<DexFile> readDexFiles(String fileName)
+            throws IOException {
+        List<DexBuffer> buffers;
+        if (DexArchive.isArchive(fileName)) {
+            buffers = DexArchive.read(fileName);
+            if (buffers.isEmpty()) {
+                throw new IOException("No classes.dex in " + fileName);
+            }
+        } else {
+            buffers = Collections.singletonList(new DexBuffer(fileName));
+        }
+        List<DexFile> dexFiles = new ArrayList<DexFile>(buffers.size());
+        for (DexBuffer buffer : buffers) {
+            dexFiles.add(new DexFileReader().read(buffer));
         }
-        return parsedFiles;
+        return dexFiles;
     }
 
 
@@ -16,8 +16,6 @@
 
 package signature.converter.dex;
 
-import static signature.converter.dex.DexUtil.getClassName;
-import static signature.converter.dex.DexUtil.getPackageName;
 import signature.model.IClassDefinition;
 import signature.model.IClassReference;
 import signature.model.IConstructor;
@@ -36,6 +34,7 @@ import signature.model.util.ITypeFactory;
 
 import java.lang.reflect.GenericSignatureFormatError;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -111,20 +110,48 @@ public class GenericSignatureParser {
 
     private final ITypeFactory factory;
     private final IClassInitializer classFinder;
+    private final SignatureCache cache;
     private boolean parseForField;
+    /** Whether the parsed signature declares or refers to type variables. */
+    private boolean usesTypeVariables;
 
 
     public GenericSignatureParser(ITypeFactory factory,
             IClassInitializer classFinder) {
+        this(factory, classFinder, null);
+    }
+
+    /**
+     * Creates a parser which looks up and stores the parsed types in the given
+     * cache.
+     * 
+     * @param cache
+     *            the cache, or null to parse every signature
+     */
+    public GenericSignatureParser(ITypeFactory factory,
+            IClassInitializer classFinder, SignatureCache cache) {
         this.factory = factory;
         this.classFinder = classFinder;
+        this.cache = cache;
+    }
+
+    private String getPackageName(String descriptor) {
+        return cache != null ? cache.getPackageName(descriptor) : DexUtil
+                .getPackageName(descriptor);
+    }
+
+    private String getClassName(String descriptor) {
+        return cache != null ? cache.getClassName(descriptor) : DexUtil
+                .getClassName(descriptor);
     }
 
     private void setInput(IGenericDeclaration genericDecl, String input) {
         if (input != null) {
             this.genericDecl = genericDecl;
             this.buffer = input.toCharArray();
+            this.pos = 0;
             this.eof = false;
+            this.usesTypeVariables = false;
             scanSymbol();
         } else {
             this.eof = true;
@@ -132,21 +159,34 @@ public class GenericSignatureParser {
     }
 
     public ITypeReference parseNonGenericType(String typeSignature) {
+        if (cache != null) {
+            ITypeReference type = cache.getType(typeSignature);
+            if (type != null) {
+                return type;
+            }
+        }
         setInput(null, typeSignature);
         ITypeReference type = parsePrimitiveType();
         if (type == null) {
             type = parseFieldTypeSignature();
         }
-        return type;
+        return cache != null ? cache.putType(typeSignature, type) : type;
     }
 
     public ITypeReference parseNonGenericReturnType(String typeSignature) {
+        if (cache != null) {
+            ITypeReference type = cache.getType(typeSignature);
+            if (type != null) {
+                return type;
+            }
+        }
         setInput(null, typeSignature);
         ITypeReference returnType = parsePrimitiveType();
         if (returnType == null) {
             returnType = parseReturnType();
         }
-        return returnType;
+        return cache != null ? cache.putType(typeSignature, returnType)
+                : returnType;
     }
 
     private ITypeReference parsePrimitiveType() {
@@ -209,12 +249,7 @@ public class GenericSignatureParser {
      *            the generic signature of the class
      */
     public void parseForMethod(IMethod genericDecl, String signature) {
-        setInput(genericDecl, signature);
-        if (!eof) {
-            parseMethodTypeSignature();
-        } else {
-            throw new IllegalStateException("Generic signature is invalid!");
-        }
+        parseForExecutableMember(genericDecl, signature);
     }
 
     /**
@@ -228,12 +263,33 @@ public class GenericSignatureParser {
      */
     public void parseForConstructor(IConstructor genericDecl,
             String signature) {
+        parseForExecutableMember(genericDecl, signature);
+    }
+
+    private void parseForExecutableMember(IGenericDeclaration genericDecl,
+            String signature) {
+        if (cache != null && signature != null) {
+            SignatureCache.MethodSignature cached = cache.getMethod(signature);
+            if (cached != null) {
+                formalTypeParameters = Collections.emptyList();
+                parameterTypes = cached.parameterTypes;
+                returnType = cached.returnType;
+                exceptionTypes = cached.exceptionTypes;
+                return;
+            }
+        }
         setInput(genericDecl, signature);
         if (!eof) {
             parseMethodTypeSignature();
         } else {
             throw new IllegalStateException("Generic signature is invalid!");
         }
+        if (cache != null && !usesTypeVariables) {
+            parameterTypes = Collections.unmodifiableList(parameterTypes);
+            exceptionTypes = Collections.unmodifiableList(exceptionTypes);
+            cache.putMethod(signature, new SignatureCache.MethodSignature(
+                    parameterTypes, returnType, exceptionTypes));
+        }
     }
 
     /**
@@ -246,6 +302,13 @@ public class GenericSignatureParser {
      *            the generic signature of the class
      */
     public void parseForField(IClassDefinition genericDecl, String signature) {
+        if (cache != null && signature != null) {
+            ITypeReference cached = cache.getType(signature);
+            if (cached != null) {
+                this.fieldType = cached;
+                return;
+            }
+        }
         parseForField = true;
         setInput(genericDecl, signature);
         try {
@@ -258,6 +321,9 @@ public class GenericSignatureParser {
         } finally {
             parseForField = false;
         }
+        if (cache != null && !usesTypeVariables) {
+            this.fieldType = cache.putType(signature, fieldType);
+        }
     }
 
     private void parseClassSignature() {
@@ -299,6 +365,7 @@ public class GenericSignatureParser {
     private SigTypeVariableDefinition parseFormalTypeParameter() {
         // FormalTypeParameter ::= Ident ClassBound {InterfaceBound}.
 
+        usesTypeVariables = true;
         scanIdentifier();
         String name = identifier.intern();
         SigTypeVariableDefinition typeVariable = factory.getTypeVariable(name,
@@ -391,8 +458,9 @@ public class GenericSignatureParser {
 
         ITypeReference parentType = null;
 
-        String packageName = getPackageName(qualIdent.toString() + ";");
-        String className = getClassName(qualIdent.toString() + ";");
+        String descriptor = qualIdent.toString() + ";";
+        String packageName = getPackageName(descriptor);
+        String className = getClassName(descriptor);
 
         if (typeArgs.isEmpty()) {
             parentType = factory.getClassReference(packageName, className);
@@ -416,8 +484,9 @@ public class GenericSignatureParser {
             typeArgs = parseOptTypeArguments();
             ITypeReference memberType = null;
 
-            packageName = getPackageName(qualIdent.toString() + ";");
-            className = getClassName(qualIdent.toString() + ";");
+            descriptor = qualIdent.toString() + ";";
+            packageName = getPackageName(descriptor);
+            className = getClassName(descriptor);
 
             if (typeArgs.isEmpty()) {
                 memberType = factory.getClassReference(packageName, className);
@@ -482,6 +551,7 @@ public class GenericSignatureParser {
 
     private ITypeVariableReference parseTypeVariableSignature() {
         // TypeVariableSignature ::= "T" Ident ";".
+        usesTypeVariables = true;
         expect('T');
         scanIdentifier();
         expect(';');
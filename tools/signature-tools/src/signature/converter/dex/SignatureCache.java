@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.dex;
+
+import signature.model.ITypeReference;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the results of {@link GenericSignatureParser} for type descriptors
+ * and for generic signatures which neither declare nor refer to type
+ * variables. Such results do not depend on the element they are parsed for,
+ * so all elements with the same signature share them. The cached types are
+ * built from the flyweights of one {@link signature.model.util.TypePool}, a
+ * cache must thus not outlive the conversion it was created for.
+ * <p>
+ * The cache also holds the package and class names derived from type
+ * descriptors, see {@link DexUtil#getPackageName(String)}. Equal names are
+ * shared by all descriptors of one conversion.
+ */
+public final class SignatureCache {
+
+    private static final int MAX_SIZE = 1 << 14;
+
+    /** The parsed generic signature of a method or constructor. */
+    static final class MethodSignature {
+        final List<ITypeReference> parameterTypes;
+        final ITypeReference returnType;
+        final List<ITypeReference> exceptionTypes;
+
+        MethodSignature(List<ITypeReference> parameterTypes,
+                ITypeReference returnType,
+                List<ITypeReference> exceptionTypes) {
+            this.parameterTypes = parameterTypes;
+            this.returnType = returnType;
+            this.exceptionTypes = exceptionTypes;
+        }
+    }
+
+    /** The names derived from a type descriptor. */
+    private static final class TypeName {
+        final String packageName;
+        final String className;
+        final String qualifiedName;
+
+        TypeName(String packageName, String className, String qualifiedName) {
+            this.packageName = packageName;
+            this.className = className;
+            this.qualifiedName = qualifiedName;
+        }
+    }
+
+    private final BoundedCache<String, TypeName> typeNames =
+            new BoundedCache<String, TypeName>(MAX_SIZE);
+    /**
+     * The package and class names of all type names, by themselves. The
+     * number of distinct names is bounded by the converted API.
+     */
+    private final ConcurrentMap<String, String> names =
+            new ConcurrentHashMap<String, String>();
+    private final BoundedCache<String, ITypeReference> types =
+            new BoundedCache<String, ITypeReference>(MAX_SIZE);
+    private final BoundedCache<String, MethodSignature> methods =
+            new BoundedCache<String, MethodSignature>(MAX_SIZE);
+
+    ITypeReference getType(String signature) {
+        return types.get(signature);
+    }
+
+    ITypeReference putType(String signature, ITypeReference type) {
+        return types.put(signature, type);
+    }
+
+    MethodSignature getMethod(String signature) {
+        return methods.get(signature);
+    }
+
+    MethodSignature putMethod(String signature, MethodSignature method) {
+        return methods.put(signature, method);
+    }
+
+    String getPackageName(String descriptor) {
+        return getTypeName(descriptor).packageName;
+    }
+
+    String getClassName(String descriptor) {
+        return getTypeName(descriptor).className;
+    }
+
+    String getQualifiedName(String descriptor) {
+        return getTypeName(descriptor).qualifiedName;
+    }
+
+    private TypeName getTypeName(String descriptor) {
+        TypeName typeName = typeNames.get(descriptor);
+        if (typeName == null) {
+            typeName = typeNames.put(descriptor, new TypeName(
+                    getName(DexUtil.getPackageName(descriptor)),
+                    getName(DexUtil.getClassName(descriptor)), DexUtil
+                            .getQualifiedName(descriptor)));
+        }
+        return typeName;
+    }
+
+    private String getName(String name) {
+        String shared = names.putIfAbsent(name, name);
+        return shared != null ? shared : name;
+    }
+}
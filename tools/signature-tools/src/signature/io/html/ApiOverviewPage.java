@@ -22,6 +22,8 @@ import signature.compare.model.IApiDelta;
 import signature.compare.model.IPackageDelta;
 import signature.compare.model.impl.SigDelta;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -60,13 +62,13 @@ public class ApiOverviewPage implements IEmitter {
         Collections.sort(changedPackages, new PackageByNameComparator());
     }
 
-    public void writeTo(StringBuilder b) {
+    public void writeTo(Writer writer) throws IOException {
         StringTemplate template = TemplateStore
                 .getStringTemplate("ApiOverviewPage");
         template.setArgumentContext(commonInfos);
         template.setAttribute("removed_packages", removedPackages);
         template.setAttribute("added_packages", addedPackages);
         template.setAttribute("changed_packages", changedPackages);
-        b.append(template.toString());
+        TemplateStore.write(template, writer);
     }
 }
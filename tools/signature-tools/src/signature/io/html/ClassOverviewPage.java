@@ -16,6 +16,8 @@
 
 package signature.io.html;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Map;
@@ -163,7 +165,7 @@ public class ClassOverviewPage implements IEmitter {
         Collections.sort(changedMethods, methodComparator);
     }
 
-    public void writeTo(StringBuilder b) {
+    public void writeTo(Writer writer) throws IOException {
         StringTemplate template = TemplateStore.getStringTemplate(PAGE);
 
         template.setAttribute("class_delta", classDelta);
@@ -200,6 +202,6 @@ public class ClassOverviewPage implements IEmitter {
         template.setAttribute("changed_methods", changedMethods);
 
         template.setArgumentContext(commonInfos);
-        b.append(template.toString());
+        TemplateStore.write(template, writer);
     }
 }
@@ -28,14 +28,24 @@ import signature.io.IApiDeltaExternalizer;
 import signature.model.IClassDefinition;
 import signature.model.IPackage;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class HtmlDeltaExternalizer implements IApiDeltaExternalizer {
 
@@ -43,6 +53,26 @@ public class HtmlDeltaExternalizer implements IApiDeltaExternalizer {
     private static final String STYLE_SHEET_NAME = "styles.css";
     private static final String DELTA_FOLDER = "changes" + File.separator;
 
+    private final int numThreads;
+
+    /**
+     * Creates a new instance of {@link HtmlDeltaExternalizer}, which renders
+     * pages on as many threads as there are processors.
+     */
+    public HtmlDeltaExternalizer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance of {@link HtmlDeltaExternalizer}.
+     * 
+     * @param numThreads
+     *            the number of threads to render pages on
+     */
+    public HtmlDeltaExternalizer(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
     public void externalize(String location, IApiDelta apiDelta)
             throws IOException {
         if (!location.endsWith(File.separator)) {
@@ -62,49 +92,86 @@ public class HtmlDeltaExternalizer implements IApiDeltaExternalizer {
         commonInfos.put("from_desc", apiDelta.getFrom().getName());
         commonInfos.put("to_desc", apiDelta.getTo().getName());
 
-        // write overview page
-        StringBuilder content = new StringBuilder();
-        ApiOverviewPage apiOverviewPage = new ApiOverviewPage(apiDelta,
-                commonInfos);
-        apiOverviewPage.writeTo(content);
-        writeToFile(location + OVERVIEW_PAGE_NAME, content.toString());
-
-        // write package overview
-        Set<IPackageDelta> changedPackages = SigDelta.getChanged(apiDelta
-                .getPackageDeltas());
-        if (!changedPackages.isEmpty()) {
-
-            File file = new File(location + DELTA_FOLDER);
-            if (!file.exists()) {
-                file.mkdir();
-            }
+        // the pages are created up front, as the overview page adds to the
+        // common infos which all pages share
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<Void>> pages = new ArrayList<Future<Void>>();
+
+            // write overview page
+            ApiOverviewPage apiOverviewPage = new ApiOverviewPage(apiDelta,
+                    commonInfos);
+            pages.add(submitPage(executor, location + OVERVIEW_PAGE_NAME,
+                    apiOverviewPage));
+
+            // write package overview
+            Set<IPackageDelta> changedPackages = SigDelta
+                    .getChanged(apiDelta.getPackageDeltas());
+            if (!changedPackages.isEmpty()) {
+
+                File file = new File(location + DELTA_FOLDER);
+                if (!file.exists()) {
+                    file.mkdir();
+                }
 
-            for (IPackageDelta packageDelta : changedPackages) {
-                content = new StringBuilder();
-                PackageOverviewPage packagePage = new PackageOverviewPage(
-                        packageDelta, commonInfos);
-                packagePage.writeTo(content);
-                IPackage aPackage = getAnElement(packageDelta);
-                String packageOverviewFileName = location + DELTA_FOLDER
-                        + "pkg_" + aPackage.getName() + ".html";
-                writeToFile(packageOverviewFileName, content.toString());
-
-                // write class overviews
-                for (IClassDefinitionDelta classDelta : packageDelta
-                        .getClassDeltas()) {
-                    content = new StringBuilder();
-                    ClassOverviewPage classPage = new ClassOverviewPage(
-                            classDelta, commonInfos);
-                    classPage.writeTo(content);
-                    IClassDefinition aClass = getAnElement(classDelta);
-                    String classOverviewFileName = location + DELTA_FOLDER
-                            + aPackage.getName() + "." + aClass.getName()
-                            + ".html";
-                    writeToFile(classOverviewFileName, content.toString());
+                for (IPackageDelta packageDelta : changedPackages) {
+                    PackageOverviewPage packagePage = new PackageOverviewPage(
+                            packageDelta, commonInfos);
+                    IPackage aPackage = getAnElement(packageDelta);
+                    String packageOverviewFileName = location + DELTA_FOLDER
+                            + "pkg_" + aPackage.getName() + ".html";
+                    pages.add(submitPage(executor, packageOverviewFileName,
+                            packagePage));
+
+                    // write class overviews
+                    for (IClassDefinitionDelta classDelta : packageDelta
+                            .getClassDeltas()) {
+                        ClassOverviewPage classPage = new ClassOverviewPage(
+                                classDelta, commonInfos);
+                        IClassDefinition aClass = getAnElement(classDelta);
+                        String classOverviewFileName = location
+                                + DELTA_FOLDER + aPackage.getName() + "."
+                                + aClass.getName() + ".html";
+                        pages.add(submitPage(executor, classOverviewFileName,
+                                classPage));
+                    }
                 }
             }
+
+            for (Future<Void> page : pages) {
+                page.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing pages");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
         }
-        // write class overview
+    }
+
+    private Future<Void> submitPage(ExecutorService executor,
+            final String fileName, final IEmitter page) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() throws IOException {
+                Writer writer = openFile(fileName);
+                try {
+                    page.writeTo(writer);
+                } finally {
+                    writer.close();
+                }
+                return null;
+            }
+        });
     }
 
     private static <T> T getAnElement(IDelta<T> delta) {
@@ -118,14 +185,16 @@ public class HtmlDeltaExternalizer implements IApiDeltaExternalizer {
     private void copyStyleSheet(String directory) throws IOException {
         StringTemplate template = TemplateStore.getStringTemplate("Styles");
         template.setAttribute("version", Version.VERSION);
-        writeToFile(directory + STYLE_SHEET_NAME, template.toString());
+        Writer writer = openFile(directory + STYLE_SHEET_NAME);
+        try {
+            TemplateStore.write(template, writer);
+        } finally {
+            writer.close();
+        }
     }
 
-    private void writeToFile(String fileName, String content)
-            throws IOException {
-        FileOutputStream fileOutputStream = new FileOutputStream(fileName);
-        fileOutputStream.write(content.getBytes());
-        fileOutputStream.flush();
-        fileOutputStream.close();
+    private Writer openFile(String fileName) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+                fileName)));
     }
 }
@@ -16,8 +16,10 @@
 
 package signature.io.html;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Writer;
 
 import org.antlr.stringtemplate.StringTemplate;
 import org.antlr.stringtemplate.StringTemplateGroup;
@@ -25,7 +27,17 @@ import org.antlr.stringtemplate.language.DefaultTemplateLexer;
 
 public class TemplateStore {
 
-    private static StringTemplateGroup group = initialize();
+    /**
+     * Each thread has its own templates, as rendering templates of the same
+     * group on several threads at once is not safe.
+     */
+    private static final ThreadLocal<StringTemplateGroup> group =
+            new ThreadLocal<StringTemplateGroup>() {
+                @Override
+                protected StringTemplateGroup initialValue() {
+                    return initialize();
+                }
+            };
 
 
     private static StringTemplateGroup initialize() {
@@ -53,6 +65,16 @@ public class TemplateStore {
     }
 
     public static StringTemplate getStringTemplate(String name) {
-        return group.getInstanceOf(name);
+        return group.get().getInstanceOf(name);
+    }
+
+    /**
+     * Renders the given template to the given writer, with the same result
+     * as {@link StringTemplate#toString()}, but without building the whole
+     * text in memory.
+     */
+    public static void write(StringTemplate template, Writer writer)
+            throws IOException {
+        template.write(template.getGroup().getStringTemplateWriter(writer));
     }
 }
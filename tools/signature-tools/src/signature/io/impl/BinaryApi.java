@@ -1,83 +1,146 @@
-/*
- * Copyright (C) 2009 The Android Open Source Project
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package signature.io.impl;
-
-import signature.converter.Visibility;
-import signature.io.IApiExternalizer;
-import signature.io.IApiLoader;
-import signature.model.IApi;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.Set;
-
-public class BinaryApi implements IApiExternalizer, IApiLoader {
-
-    public void externalizeApi(String fileName, IApi api) throws IOException {
-
-        File directory = new File(fileName);
-        if (!directory.exists()) {
-            directory.mkdirs();
-        }
-
-        File file = new File(directory, getFileName(api));
-        file.createNewFile();
-
-        ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(
-                file));
-        oos.writeObject(api);
-
-        oos.flush();
-        oos.close();
-    }
-
-    private String getFileName(IApi api) {
-        return api.getName().replaceAll(" ", "_").concat(".sig");
-    }
-
-    public IApi loadApi(String name, Visibility visibility,
-            Set<String> fileNames, Set<String> packageNames) throws
-            IOException {
-        System.err
-                .println("Binary signature loader ignores visibility and " +
-                        "package names.");
-        if (fileNames.size() != 1) {
-            throw new IllegalArgumentException(
-                    "Only one file can be processed by the binary signature " +
-                    "loader.");
-        }
-        String fileName = fileNames.iterator().next();
-        File file = new File(fileName);
-        ObjectInputStream ois = new ObjectInputStream(
-                new FileInputStream(file));
-        IApi sig = null;
-        try {
-            sig = (IApi) ois.readObject();
-        } catch (ClassNotFoundException e) {
-            throw new IllegalArgumentException(e);
-        }
-        if (name != null) {
-            sig.setName(name);
-        }
-
-        ois.close();
-        return sig;
-    }
-}
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.io.impl;
+
+import signature.converter.Visibility;
+import signature.io.IApiExternalizer;
+import signature.io.IApiLoader;
+import signature.model.IApi;
+import signature.model.IPackage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Stores an api in the binary format described in {@link BinaryApiFormat}.
+ * <p>
+ * The loader maps the file into memory and reads only the requested packages,
+ * and of these only the classes which are actually accessed. Files written
+ * with Java serialization by earlier versions are still loaded.
+ */
+public class BinaryApi implements IApiExternalizer, IApiLoader {
+
+    private final boolean quiet;
+
+    /**
+     * Creates a new instance of {@link BinaryApi}, whose loader reports that
+     * it ignores the requested visibility.
+     */
+    public BinaryApi() {
+        this(false);
+    }
+
+    /**
+     * Creates a new instance of {@link BinaryApi}.
+     * 
+     * @param quiet
+     *            whether the loader omits the report that it ignores the
+     *            requested visibility, e.g. when loading many files
+     */
+    public BinaryApi(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    public void externalizeApi(String fileName, IApi api) throws IOException {
+
+        File directory = new File(fileName);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        File file = new File(directory, getFileName(api));
+        file.createNewFile();
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(
+                file));
+        try {
+            new BinaryApiWriter().write(api, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private String getFileName(IApi api) {
+        return api.getName().replaceAll(" ", "_").concat(".sig");
+    }
+
+    public IApi loadApi(String name, Visibility visibility,
+            Set<String> fileNames, Set<String> packageNames) throws
+            IOException {
+        if (!quiet) {
+            System.err.println("Binary signature loader ignores visibility.");
+        }
+        if (fileNames.size() != 1) {
+            throw new IllegalArgumentException(
+                    "Only one file can be processed by the binary signature " +
+                    "loader.");
+        }
+        String fileName = fileNames.iterator().next();
+        FileInputStream in = new FileInputStream(fileName);
+        ByteBuffer buffer;
+        try {
+            FileChannel channel = in.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel
+                    .size());
+        } finally {
+            in.close();
+        }
+
+        IApi sig;
+        if (BinaryApiReader.hasMagic(buffer)) {
+            sig = new BinaryApiReader(buffer).readApi(packageNames);
+        } else {
+            sig = loadSerializedApi(buffer);
+            if (!packageNames.isEmpty()) {
+                Iterator<IPackage> it = sig.getPackages().iterator();
+                while (it.hasNext()) {
+                    if (!packageNames.contains(it.next().getName())) {
+                        it.remove();
+                    }
+                }
+            }
+        }
+        if (name != null) {
+            sig.setName(name);
+        }
+        return sig;
+    }
+
+    private IApi loadSerializedApi(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(bytes));
+        try {
+            return (IApi) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            ois.close();
+        }
+    }
+}
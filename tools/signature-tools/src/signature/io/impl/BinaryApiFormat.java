@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.io.impl;
+
+/**
+ * Constants of the binary signature file format.
+ *
+ * <pre>
+ * header        : MAGIC VERSION apiName:int visibility:int
+ * string table  : count:int offset:int[count] length:int data
+ * class table   : count:int (packageName:int name:int offset:int hash)[count]
+ * package table : count:int (name:int offset:int hash)[count]
+ * hash          : high:long low:long
+ * body          : package sections and class records
+ * </pre>
+ *
+ * The tables have fixed size entries, so that strings, classes and packages
+ * can be looked up by index without reading the preceding entries. Offsets in
+ * the string table are relative to the start of the string data, offsets in
+ * the class and package tables are relative to the start of the body. The
+ * hashes are the full structural hashes of the classes and packages, see
+ * {@link signature.model.util.StructuralHash}.
+ * <p>
+ * Within the body, numbers are written as variable length unsigned integers,
+ * shifted by two so that {@link #NULL} and {@link #UNSET} can be encoded as
+ * well. Strings and classes are referred to by their index in the respective
+ * table.
+ */
+final class BinaryApiFormat {
+
+    static final int MAGIC = 0x53494742; // "SIGB"
+    static final int VERSION = 2;
+
+    static final int CLASS_ENTRY_SIZE = 28;
+    static final int PACKAGE_ENTRY_SIZE = 24;
+
+    /** Count, index or ordinal of an element which is <code>null</code>. */
+    static final int NULL = -1;
+    /** Count, index or ordinal of an element which is uninitialized. */
+    static final int UNSET = -2;
+
+    static final byte TYPE_NULL = 0;
+    static final byte TYPE_UNSET = 1;
+    static final byte TYPE_PRIMITIVE = 2;
+    static final byte TYPE_CLASS = 3;
+    static final byte TYPE_ARRAY = 4;
+    static final byte TYPE_PARAMETERIZED = 5;
+    static final byte TYPE_WILDCARD = 6;
+    /** Type variable declared by a class: class index, position. */
+    static final byte TYPE_CLASS_VARIABLE = 7;
+    /** Type variable declared by the enclosing member: position. */
+    static final byte TYPE_MEMBER_VARIABLE = 8;
+    /** Type variable whose declaration is not part of the file: name. */
+    static final byte TYPE_DETACHED_VARIABLE = 9;
+
+    static final byte VALUE_NULL = 0;
+    static final byte VALUE_UNSET = 1;
+    static final byte VALUE_BOOLEAN = 2;
+    static final byte VALUE_BYTE = 3;
+    static final byte VALUE_CHAR = 4;
+    static final byte VALUE_SHORT = 5;
+    static final byte VALUE_INT = 6;
+    static final byte VALUE_LONG = 7;
+    static final byte VALUE_FLOAT = 8;
+    static final byte VALUE_DOUBLE = 9;
+    static final byte VALUE_STRING = 10;
+    static final byte VALUE_ARRAY = 11;
+    static final byte VALUE_ANNOTATION = 12;
+    static final byte VALUE_ENUM_CONSTANT = 13;
+    static final byte VALUE_FIELD = 14;
+    static final byte VALUE_TYPE = 15;
+
+    private BinaryApiFormat() {
+    }
+}
@@ -0,0 +1,689 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.io.impl;
+
+import static signature.io.impl.BinaryApiFormat.*;
+import static signature.model.impl.Uninitialized.isInitialized;
+
+import signature.converter.Visibility;
+import signature.model.IAnnotation;
+import signature.model.IAnnotationElement;
+import signature.model.IAnnotationField;
+import signature.model.IClassDefinition;
+import signature.model.IConstructor;
+import signature.model.IEnumConstant;
+import signature.model.IField;
+import signature.model.IGenericDeclaration;
+import signature.model.IMethod;
+import signature.model.IPackage;
+import signature.model.IParameter;
+import signature.model.ITypeReference;
+import signature.model.ITypeVariableDefinition;
+import signature.model.Kind;
+import signature.model.Modifier;
+import signature.model.impl.SigAnnotation;
+import signature.model.impl.SigAnnotationElement;
+import signature.model.impl.SigAnnotationField;
+import signature.model.impl.SigApi;
+import signature.model.impl.SigArrayType;
+import signature.model.impl.SigClassReference;
+import signature.model.impl.SigConstructor;
+import signature.model.impl.SigEnumConstant;
+import signature.model.impl.SigExecutableMember;
+import signature.model.impl.SigField;
+import signature.model.impl.SigMethod;
+import signature.model.impl.SigPackage;
+import signature.model.impl.SigParameter;
+import signature.model.impl.SigParameterizedType;
+import signature.model.impl.SigPrimitiveType;
+import signature.model.impl.SigTypeVariableDefinition;
+import signature.model.impl.SigTypeVariableReference;
+import signature.model.impl.SigWildcardType;
+import signature.model.impl.Uninitialized;
+import signature.model.util.StructuralHash;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads an api written by {@link BinaryApiWriter}.
+ * <p>
+ * Only the tables are read up front. Packages are read on request, and the
+ * classes they contain are {@link LazyClassDefinition}s, which are read on
+ * first access. Classes of packages which were not requested are still
+ * available through references from the requested ones.
+ */
+class BinaryApiReader {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final Modifier[] MODIFIERS = Modifier.values();
+    private static final SigPrimitiveType[] PRIMITIVE_TYPES =
+            SigPrimitiveType.values();
+
+    /** An annotation element whose declaring field is not resolved yet. */
+    private static class UnresolvedElement {
+        final SigAnnotationElement element;
+        final IClassDefinition annotationType;
+        final String fieldName;
+
+        UnresolvedElement(SigAnnotationElement element,
+                IClassDefinition annotationType, String fieldName) {
+            this.element = element;
+            this.annotationType = annotationType;
+            this.fieldName = fieldName;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final String name;
+    private final Visibility visibility;
+    private final int stringTableOffset;
+    private final int stringDataOffset;
+    private final String[] strings;
+    private final int classTableOffset;
+    private final IClassDefinition[] classes;
+    private final int packageTableOffset;
+    private final int packageCount;
+    private final int bodyOffset;
+
+    // guarded by this
+    private int depth;
+    private final List<LazyClassDefinition> loadingClasses =
+            new ArrayList<LazyClassDefinition>();
+    private final List<UnresolvedElement> unresolvedElements =
+            new ArrayList<UnresolvedElement>();
+
+    /**
+     * @return true if given buffer starts with the signature file header
+     */
+    static boolean hasMagic(ByteBuffer buffer) {
+        return buffer.limit() >= 4 && buffer.getInt(0) == MAGIC;
+    }
+
+    BinaryApiReader(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        try {
+            if (!hasMagic(buffer)) {
+                throw new IOException("Not a binary signature file");
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported signature file version "
+                        + version);
+            }
+            int nameIndex = buffer.getInt(8);
+            int visibilityOrdinal = buffer.getInt(12);
+            stringTableOffset = 16;
+            int stringCount = buffer.getInt(stringTableOffset);
+            strings = new String[stringCount];
+            int stringDataLengthOffset = stringTableOffset + 4 + 4
+                    * stringCount;
+            stringDataOffset = stringDataLengthOffset + 4;
+            classTableOffset = stringDataOffset
+                    + buffer.getInt(stringDataLengthOffset);
+            classes = new IClassDefinition[buffer.getInt(classTableOffset)];
+            packageTableOffset = classTableOffset + 4 + CLASS_ENTRY_SIZE
+                    * classes.length;
+            packageCount = buffer.getInt(packageTableOffset);
+            bodyOffset = packageTableOffset + 4 + PACKAGE_ENTRY_SIZE
+                    * packageCount;
+
+            name = getString(nameIndex);
+            visibility = visibilityOrdinal == NULL ? null : Visibility
+                    .values()[visibilityOrdinal];
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Truncated signature file");
+        }
+    }
+
+    /**
+     * Reads the api, with the packages in <code>packageNames</code> only, or
+     * all packages if <code>packageNames</code> is empty.
+     */
+    synchronized SigApi readApi(Set<String> packageNames) {
+        SigApi api = new SigApi(name, visibility);
+        Set<IPackage> packages = new HashSet<IPackage>();
+        depth++;
+        try {
+            for (int i = 0; i < packageCount; i++) {
+                int entry = packageTableOffset + 4 + PACKAGE_ENTRY_SIZE * i;
+                String packageName = getString(buffer.getInt(entry));
+                if (packageNames.isEmpty()
+                        || packageNames.contains(packageName)) {
+                    packages.add(readPackage(packageName, buffer
+                            .getInt(entry + 4), getHash(entry + 8)));
+                }
+            }
+            resolveElements();
+        } finally {
+            finishLoading();
+        }
+        api.setPackages(packages);
+        return api;
+    }
+
+    /**
+     * Reads the properties of given class. Classes referred to while reading
+     * are read as well, and are published together with <code>clazz</code>
+     * once all of them are complete.
+     */
+    synchronized void load(LazyClassDefinition clazz) {
+        if (!clazz.startLoading()) {
+            return;
+        }
+        depth++;
+        try {
+            loadingClasses.add(clazz);
+            readClass(clazz);
+            if (depth == 1) {
+                resolveElements();
+            }
+        } finally {
+            finishLoading();
+        }
+    }
+
+    private void finishLoading() {
+        depth--;
+        if (depth == 0) {
+            for (LazyClassDefinition clazz : loadingClasses) {
+                clazz.finishLoading();
+            }
+            loadingClasses.clear();
+        }
+    }
+
+    /**
+     * Annotation elements refer to fields of the annotation type, which may
+     * be the class being read, so they are resolved once the outermost read
+     * is complete.
+     */
+    private void resolveElements() {
+        while (!unresolvedElements.isEmpty()) {
+            UnresolvedElement unresolved = unresolvedElements
+                    .remove(unresolvedElements.size() - 1);
+            IAnnotationField field = null;
+            if (unresolved.annotationType != null
+                    && isInitialized(unresolved.annotationType)) {
+                Set<IAnnotationField> fields = unresolved.annotationType
+                        .getAnnotationFields();
+                if (fields != null && isInitialized(fields)) {
+                    for (IAnnotationField candidate : fields) {
+                        if (unresolved.fieldName.equals(candidate.getName())) {
+                            field = candidate;
+                        }
+                    }
+                }
+            }
+            if (field == null) {
+                field = new SigAnnotationField(unresolved.fieldName);
+            }
+            unresolved.element.setDeclaringField(field);
+        }
+    }
+
+    private ByteBuffer bodyAt(int offset) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(bodyOffset + offset);
+        return in;
+    }
+
+    static int readNumber(ByteBuffer in) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            result |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result - 2;
+    }
+
+    private String getString(int index) {
+        if (index == NULL) {
+            return null;
+        }
+        String string = strings[index];
+        if (string == null) {
+            ByteBuffer in = buffer.duplicate();
+            in.position(stringDataOffset
+                    + buffer.getInt(stringTableOffset + 4 + 4 * index));
+            byte[] bytes = new byte[readNumber(in)];
+            in.get(bytes);
+            string = new String(bytes, UTF_8);
+            strings[index] = string;
+        }
+        return string;
+    }
+
+    private String readString(ByteBuffer in) {
+        return getString(readNumber(in));
+    }
+
+    private IClassDefinition getClass(int index) {
+        if (index == NULL) {
+            return null;
+        }
+        if (index == UNSET) {
+            return Uninitialized.unset();
+        }
+        IClassDefinition clazz = classes[index];
+        if (clazz == null) {
+            int entry = classTableOffset + 4 + CLASS_ENTRY_SIZE * index;
+            clazz = new LazyClassDefinition(this, getString(buffer
+                    .getInt(entry)), getString(buffer.getInt(entry + 4)),
+                    buffer.getInt(entry + 8), getHash(entry + 12));
+            classes[index] = clazz;
+        }
+        return clazz;
+    }
+
+    /**
+     * Returns the collection to use for a count of zero or less.
+     */
+    private static <T> T emptyOrMissing(int count, T empty) {
+        if (count == NULL) {
+            return null;
+        }
+        if (count == UNSET) {
+            return Uninitialized.<T> unset();
+        }
+        return empty;
+    }
+
+    private Set<Modifier> readModifiers(ByteBuffer in) {
+        int mask = readNumber(in);
+        if (mask == NULL) {
+            return null;
+        }
+        if (mask == UNSET) {
+            return Uninitialized.unset();
+        }
+        Set<Modifier> modifiers = EnumSet.noneOf(Modifier.class);
+        for (Modifier modifier : MODIFIERS) {
+            if ((mask & (1 << modifier.ordinal())) != 0) {
+                modifiers.add(modifier);
+            }
+        }
+        return modifiers;
+    }
+
+    private StructuralHash getHash(int entryOffset) {
+        return new StructuralHash(buffer.getLong(entryOffset), buffer
+                .getLong(entryOffset + 8));
+    }
+
+    private SigPackage readPackage(String packageName, int offset,
+            StructuralHash hash) {
+        ByteBuffer in = bodyAt(offset);
+        SigPackage aPackage = new HashedPackage(packageName, hash);
+        aPackage.setAnnotations(readAnnotations(in));
+        aPackage.setClasses(readClasses(in));
+        return aPackage;
+    }
+
+    private Set<IClassDefinition> readClasses(ByteBuffer in) {
+        int count = readNumber(in);
+        if (count <= 0) {
+            return emptyOrMissing(count, Collections
+                    .<IClassDefinition> emptySet());
+        }
+        Set<IClassDefinition> classes = new HashSet<IClassDefinition>(
+                count * 2);
+        for (int i = 0; i < count; i++) {
+            classes.add(getClass(readNumber(in)));
+        }
+        return classes;
+    }
+
+    private void readClass(LazyClassDefinition clazz) {
+        ByteBuffer in = bodyAt(clazz.getOffset());
+        try {
+            int kind = readNumber(in);
+            clazz.setKind(kind == NULL ? null : KINDS[kind]);
+            clazz.setModifiers(readModifiers(in));
+            clazz.setDeclaringClass(getClass(readNumber(in)));
+            // set before reading the bounds, which may refer to them
+            List<ITypeVariableDefinition> typeParameters =
+                    readTypeVariables(in, clazz);
+            clazz.setTypeParameters(typeParameters);
+            readUpperBounds(in, typeParameters, null);
+            clazz.setSuperClass(readType(in, null));
+            clazz.setInterfaces(readTypes(in, null));
+            clazz.setAnnotations(readAnnotations(in));
+            clazz.setInnerClasses(readClasses(in));
+
+            int count = readNumber(in);
+            if (count <= 0) {
+                clazz.setFields(emptyOrMissing(count, Collections
+                        .<IField> emptySet()));
+            } else {
+                Set<IField> fields = new HashSet<IField>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    fields.add(readField(in, new SigField(readString(in))));
+                }
+                clazz.setFields(fields);
+            }
+
+            count = readNumber(in);
+            if (count <= 0) {
+                clazz.setEnumConstants(emptyOrMissing(count, Collections
+                        .<IEnumConstant> emptySet()));
+            } else {
+                Set<IEnumConstant> enumConstants = new HashSet<IEnumConstant>(
+                        count * 2);
+                for (int i = 0; i < count; i++) {
+                    enumConstants.add(readEnumConstant(in));
+                }
+                clazz.setEnumConstants(enumConstants);
+            }
+
+            count = readNumber(in);
+            if (count <= 0) {
+                clazz.setAnnotationFields(emptyOrMissing(count, Collections
+                        .<IAnnotationField> emptySet()));
+            } else {
+                Set<IAnnotationField> annotationFields =
+                        new HashSet<IAnnotationField>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    SigAnnotationField annotationField = readField(in,
+                            new SigAnnotationField(readString(in)));
+                    annotationField.setDefaultValue(readValue(in));
+                    annotationFields.add(annotationField);
+                }
+                clazz.setAnnotationFields(annotationFields);
+            }
+
+            count = readNumber(in);
+            if (count <= 0) {
+                clazz.setConstructors(emptyOrMissing(count, Collections
+                        .<IConstructor> emptySet()));
+            } else {
+                Set<IConstructor> constructors = new HashSet<IConstructor>(
+                        count * 2);
+                for (int i = 0; i < count; i++) {
+                    SigConstructor constructor = new SigConstructor(
+                            readString(in));
+                    readExecutableMember(in, constructor);
+                    constructors.add(constructor);
+                }
+                clazz.setConstructors(constructors);
+            }
+
+            count = readNumber(in);
+            if (count <= 0) {
+                clazz.setMethods(emptyOrMissing(count, Collections
+                        .<IMethod> emptySet()));
+            } else {
+                Set<IMethod> methods = new HashSet<IMethod>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    SigMethod method = new SigMethod(readString(in));
+                    readExecutableMember(in, method);
+                    method.setReturnType(readType(in, method
+                            .getTypeParameters()));
+                    methods.add(method);
+                }
+                clazz.setMethods(methods);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Corrupt signature file at class "
+                    + clazz.getQualifiedName(), e);
+        }
+    }
+
+    private <T extends SigField> T readField(ByteBuffer in, T field) {
+        field.setModifiers(readModifiers(in));
+        field.setType(readType(in, null));
+        field.setAnnotations(readAnnotations(in));
+        return field;
+    }
+
+    private SigEnumConstant readEnumConstant(ByteBuffer in) {
+        SigEnumConstant enumConstant = readField(in, new SigEnumConstant(
+                readString(in)));
+        int ordinal = readNumber(in);
+        if (ordinal != NULL) {
+            enumConstant.setOrdinal(ordinal);
+        }
+        return enumConstant;
+    }
+
+    private void readExecutableMember(ByteBuffer in,
+            SigExecutableMember member) {
+        member.setModifiers(readModifiers(in));
+        member.setDeclaringClass(getClass(readNumber(in)));
+        List<ITypeVariableDefinition> typeParameters = readTypeVariables(in,
+                member);
+        member.setTypeParameters(typeParameters);
+        readUpperBounds(in, typeParameters, typeParameters);
+
+        int count = readNumber(in);
+        if (count <= 0) {
+            member.setParameters(emptyOrMissing(count, Collections
+                    .<IParameter> emptyList()));
+        } else {
+            List<IParameter> parameters = new ArrayList<IParameter>(count);
+            for (int i = 0; i < count; i++) {
+                SigParameter parameter = new SigParameter(readType(in,
+                        typeParameters));
+                parameter.setAnnotations(readAnnotations(in));
+                parameters.add(parameter);
+            }
+            member.setParameters(parameters);
+        }
+        member.setExceptions(readTypes(in, typeParameters));
+        member.setAnnotations(readAnnotations(in));
+    }
+
+    private List<ITypeVariableDefinition> readTypeVariables(ByteBuffer in,
+            IGenericDeclaration declaration) {
+        int count = readNumber(in);
+        if (count <= 0) {
+            return emptyOrMissing(count, Collections
+                    .<ITypeVariableDefinition> emptyList());
+        }
+        List<ITypeVariableDefinition> typeVariables =
+                new ArrayList<ITypeVariableDefinition>(count);
+        for (int i = 0; i < count; i++) {
+            typeVariables.add(new SigTypeVariableDefinition(readString(in),
+                    declaration));
+        }
+        return typeVariables;
+    }
+
+    private void readUpperBounds(ByteBuffer in,
+            List<ITypeVariableDefinition> typeVariables,
+            List<ITypeVariableDefinition> memberTypeParameters) {
+        if (typeVariables == null || !isInitialized(typeVariables)) {
+            return;
+        }
+        for (ITypeVariableDefinition typeVariable : typeVariables) {
+            ((SigTypeVariableDefinition) typeVariable)
+                    .setUpperBounds(readTypeList(in, memberTypeParameters));
+        }
+    }
+
+    private Set<ITypeReference> readTypes(ByteBuffer in,
+            List<ITypeVariableDefinition> memberTypeParameters) {
+        int count = readNumber(in);
+        if (count <= 0) {
+            return emptyOrMissing(count, Collections
+                    .<ITypeReference> emptySet());
+        }
+        Set<ITypeReference> types = new HashSet<ITypeReference>(count * 2);
+        for (int i = 0; i < count; i++) {
+            types.add(readType(in, memberTypeParameters));
+        }
+        return types;
+    }
+
+    private List<ITypeReference> readTypeList(ByteBuffer in,
+            List<ITypeVariableDefinition> memberTypeParameters) {
+        int count = readNumber(in);
+        if (count <= 0) {
+            return emptyOrMissing(count, Collections
+                    .<ITypeReference> emptyList());
+        }
+        List<ITypeReference> types = new ArrayList<ITypeReference>(count);
+        for (int i = 0; i < count; i++) {
+            types.add(readType(in, memberTypeParameters));
+        }
+        return types;
+    }
+
+    private ITypeReference readType(ByteBuffer in,
+            List<ITypeVariableDefinition> memberTypeParameters) {
+        byte tag = in.get();
+        switch (tag) {
+        case TYPE_NULL:
+            return null;
+        case TYPE_UNSET:
+            return Uninitialized.unset();
+        case TYPE_PRIMITIVE:
+            return PRIMITIVE_TYPES[in.get()];
+        case TYPE_CLASS:
+            return new SigClassReference(getClass(readNumber(in)));
+        case TYPE_ARRAY:
+            return new SigArrayType(readType(in, memberTypeParameters));
+        case TYPE_PARAMETERIZED: {
+            ITypeReference ownerType = readType(in, memberTypeParameters);
+            SigClassReference rawType = new SigClassReference(
+                    getClass(readNumber(in)));
+            return new SigParameterizedType(ownerType, rawType, readTypeList(
+                    in, memberTypeParameters));
+        }
+        case TYPE_WILDCARD: {
+            ITypeReference lowerBound = readType(in, memberTypeParameters);
+            return new SigWildcardType(lowerBound, readTypeList(in,
+                    memberTypeParameters));
+        }
+        case TYPE_CLASS_VARIABLE: {
+            IClassDefinition clazz = getClass(readNumber(in));
+            return new SigTypeVariableReference(clazz.getTypeParameters()
+                    .get(readNumber(in)));
+        }
+        case TYPE_MEMBER_VARIABLE:
+            return new SigTypeVariableReference(memberTypeParameters
+                    .get(readNumber(in)));
+        case TYPE_DETACHED_VARIABLE: {
+            SigTypeVariableDefinition typeVariable =
+                    new SigTypeVariableDefinition(readString(in), null);
+            typeVariable.setUpperBounds(Collections
+                    .<ITypeReference> emptyList());
+            return new SigTypeVariableReference(typeVariable);
+        }
+        default:
+            throw new IllegalStateException("Unknown type tag " + tag);
+        }
+    }
+
+    private Set<IAnnotation> readAnnotations(ByteBuffer in) {
+        int count = readNumber(in);
+        if (count <= 0) {
+            return emptyOrMissing(count, Collections.<IAnnotation> emptySet());
+        }
+        Set<IAnnotation> annotations = new HashSet<IAnnotation>(count * 2);
+        for (int i = 0; i < count; i++) {
+            annotations.add(readAnnotation(in));
+        }
+        return annotations;
+    }
+
+    private SigAnnotation readAnnotation(ByteBuffer in) {
+        SigAnnotation annotation = new SigAnnotation();
+        IClassDefinition type = getClass(readNumber(in));
+        if (type != null) {
+            annotation.setType(new SigClassReference(type));
+        }
+        int count = readNumber(in);
+        if (count <= 0) {
+            annotation.setElements(emptyOrMissing(count, Collections
+                    .<IAnnotationElement> emptySet()));
+            return annotation;
+        }
+        Set<IAnnotationElement> elements = new HashSet<IAnnotationElement>(
+                count * 2);
+        for (int i = 0; i < count; i++) {
+            SigAnnotationElement element = new SigAnnotationElement();
+            String fieldName = readString(in);
+            if (fieldName != null) {
+                unresolvedElements.add(new UnresolvedElement(element, type,
+                        fieldName));
+            }
+            element.setValue(readValue(in));
+            elements.add(element);
+        }
+        annotation.setElements(elements);
+        return annotation;
+    }
+
+    private Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+        case VALUE_NULL:
+            return null;
+        case VALUE_UNSET:
+            return Uninitialized.unset();
+        case VALUE_BOOLEAN:
+            return in.get() != 0;
+        case VALUE_BYTE:
+            return in.get();
+        case VALUE_CHAR:
+            return in.getChar();
+        case VALUE_SHORT:
+            return in.getShort();
+        case VALUE_INT:
+            return in.getInt();
+        case VALUE_LONG:
+            return in.getLong();
+        case VALUE_FLOAT:
+            return in.getFloat();
+        case VALUE_DOUBLE:
+            return in.getDouble();
+        case VALUE_STRING:
+            return readString(in);
+        case VALUE_ARRAY: {
+            Object[] array = new Object[readNumber(in)];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = readValue(in);
+            }
+            return array;
+        }
+        case VALUE_ANNOTATION:
+            return readAnnotation(in);
+        case VALUE_ENUM_CONSTANT:
+            return readEnumConstant(in);
+        case VALUE_FIELD:
+            return readField(in, new SigField(readString(in)));
+        case VALUE_TYPE:
+            return readType(in, null);
+        default:
+            throw new IllegalStateException("Unknown value tag " + tag);
+        }
+    }
+}
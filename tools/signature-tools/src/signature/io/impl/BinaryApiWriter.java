@@ -0,0 +1,518 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.io.impl;
+
+import static signature.io.impl.BinaryApiFormat.*;
+import static signature.model.impl.Uninitialized.isInitialized;
+
+import signature.model.IAnnotation;
+import signature.model.IAnnotationElement;
+import signature.model.IAnnotationField;
+import signature.model.IApi;
+import signature.model.IArrayType;
+import signature.model.IClassDefinition;
+import signature.model.IClassReference;
+import signature.model.IConstructor;
+import signature.model.IEnumConstant;
+import signature.model.IExecutableMember;
+import signature.model.IField;
+import signature.model.IMethod;
+import signature.model.IPackage;
+import signature.model.IParameter;
+import signature.model.IParameterizedType;
+import signature.model.IPrimitiveType;
+import signature.model.ITypeReference;
+import signature.model.ITypeVariableDefinition;
+import signature.model.ITypeVariableReference;
+import signature.model.IWildcardType;
+import signature.model.Kind;
+import signature.model.Modifier;
+import signature.model.impl.SigPrimitiveType;
+import signature.model.util.StructuralHash;
+import signature.model.util.StructuralHashes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes an {@link IApi} in the format described in {@link BinaryApiFormat}.
+ * <p>
+ * Each class definition reachable from the api is written exactly once,
+ * references to it are written as its index in the class table.
+ */
+class BinaryApiWriter {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Map<String, Integer> strings =
+            new LinkedHashMap<String, Integer>();
+    private final Map<IClassDefinition, Integer> classIndices =
+            new HashMap<IClassDefinition, Integer>();
+    private final List<IClassDefinition> classes =
+            new ArrayList<IClassDefinition>();
+    private final List<Integer> classOffsets = new ArrayList<Integer>();
+    private final LinkedList<IClassDefinition> pendingClasses =
+            new LinkedList<IClassDefinition>();
+
+    private final ByteArrayOutputStream bodyBytes =
+            new ByteArrayOutputStream();
+    private final DataOutputStream body = new DataOutputStream(bodyBytes);
+
+    public void write(IApi api, OutputStream outputStream)
+            throws IOException {
+        int nameIndex = getStringIndex(api.getName());
+
+        List<IPackage> packages = new ArrayList<IPackage>(api.getPackages());
+        Collections.sort(packages, new Comparator<IPackage>() {
+            public int compare(IPackage p1, IPackage p2) {
+                return p1.getName().compareTo(p2.getName());
+            }
+        });
+        int[] packageNames = new int[packages.size()];
+        int[] packageOffsets = new int[packages.size()];
+        for (int i = 0; i < packages.size(); i++) {
+            IPackage aPackage = packages.get(i);
+            packageNames[i] = getStringIndex(aPackage.getName());
+            packageOffsets[i] = body.size();
+            writeAnnotations(aPackage.getAnnotations());
+            writeClasses(aPackage.getClasses());
+        }
+        // writing a class may discover further classes
+        while (!pendingClasses.isEmpty()) {
+            IClassDefinition clazz = pendingClasses.removeFirst();
+            classOffsets.set(classIndices.get(clazz), body.size());
+            writeClass(clazz);
+        }
+        body.flush();
+
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(nameIndex);
+        out.writeInt(api.getVisibility() == null ? NULL : api.getVisibility()
+                .ordinal());
+
+        ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+        DataOutputStream stringOut = new DataOutputStream(stringData);
+        out.writeInt(strings.size());
+        for (String string : strings.keySet()) {
+            out.writeInt(stringData.size());
+            byte[] bytes = string.getBytes(UTF_8);
+            writeNumber(stringOut, bytes.length);
+            stringOut.write(bytes);
+        }
+        stringOut.flush();
+        out.writeInt(stringData.size());
+        stringData.writeTo(out);
+
+        StructuralHashes hashes = new StructuralHashes();
+        out.writeInt(classes.size());
+        for (int i = 0; i < classes.size(); i++) {
+            IClassDefinition clazz = classes.get(i);
+            out.writeInt(getStringIndex(clazz.getPackageName()));
+            out.writeInt(getStringIndex(clazz.getName()));
+            out.writeInt(classOffsets.get(i));
+            writeHash(out, hashes.getHash(clazz));
+        }
+
+        out.writeInt(packages.size());
+        for (int i = 0; i < packages.size(); i++) {
+            out.writeInt(packageNames[i]);
+            out.writeInt(packageOffsets[i]);
+            writeHash(out, hashes.getHash(packages.get(i)));
+        }
+
+        bodyBytes.writeTo(out);
+        out.flush();
+    }
+
+    private static void writeHash(DataOutputStream out, StructuralHash hash)
+            throws IOException {
+        out.writeLong(hash.getHigh());
+        out.writeLong(hash.getLow());
+    }
+
+    static void writeNumber(DataOutputStream out, int value)
+            throws IOException {
+        int unsigned = value + 2;
+        while ((unsigned & ~0x7f) != 0) {
+            out.writeByte((unsigned & 0x7f) | 0x80);
+            unsigned >>>= 7;
+        }
+        out.writeByte(unsigned);
+    }
+
+    private int getStringIndex(String string) {
+        if (string == null) {
+            return NULL;
+        }
+        Integer index = strings.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.put(string, index);
+        }
+        return index;
+    }
+
+    private int getClassIndex(IClassDefinition clazz) {
+        if (clazz == null) {
+            return NULL;
+        }
+        if (!isInitialized(clazz)) {
+            return UNSET;
+        }
+        Integer index = classIndices.get(clazz);
+        if (index == null) {
+            index = classes.size();
+            classIndices.put(clazz, index);
+            classes.add(clazz);
+            // the string table is written before the class table
+            getStringIndex(clazz.getPackageName());
+            getStringIndex(clazz.getName());
+            classOffsets.add(NULL);
+            pendingClasses.add(clazz);
+        }
+        return index;
+    }
+
+    /**
+     * Writes the count of given collection.
+     *
+     * @return true if the collection has elements to be written
+     */
+    private boolean writeCount(Collection<?> collection) throws IOException {
+        if (collection == null) {
+            writeNumber(body, NULL);
+            return false;
+        }
+        if (!isInitialized(collection)) {
+            writeNumber(body, UNSET);
+            return false;
+        }
+        writeNumber(body, collection.size());
+        return !collection.isEmpty();
+    }
+
+    private void writeString(String string) throws IOException {
+        writeNumber(body, getStringIndex(string));
+    }
+
+    private void writeModifiers(Set<Modifier> modifiers) throws IOException {
+        if (modifiers == null) {
+            writeNumber(body, NULL);
+        } else if (!isInitialized(modifiers)) {
+            writeNumber(body, UNSET);
+        } else {
+            int mask = 0;
+            for (Modifier modifier : modifiers) {
+                mask |= 1 << modifier.ordinal();
+            }
+            writeNumber(body, mask);
+        }
+    }
+
+    private void writeClasses(Set<IClassDefinition> classes)
+            throws IOException {
+        if (writeCount(classes)) {
+            for (IClassDefinition clazz : classes) {
+                writeNumber(body, getClassIndex(clazz));
+            }
+        }
+    }
+
+    private void writeClass(IClassDefinition clazz) throws IOException {
+        Kind kind = clazz.getKind();
+        writeNumber(body, kind == null ? NULL : kind.ordinal());
+        writeModifiers(clazz.getModifiers());
+        writeNumber(body, getClassIndex(clazz.getDeclaringClass()));
+        writeTypeParameters(clazz.getTypeParameters(), null);
+        writeType(clazz.getSuperClass(), null);
+        writeTypes(clazz.getInterfaces(), null);
+        writeAnnotations(clazz.getAnnotations());
+        writeClasses(clazz.getInnerClasses());
+
+        Set<IField> fields = clazz.getFields();
+        if (writeCount(fields)) {
+            for (IField field : fields) {
+                writeField(field);
+            }
+        }
+        Set<IEnumConstant> enumConstants = clazz.getEnumConstants();
+        if (writeCount(enumConstants)) {
+            for (IEnumConstant enumConstant : enumConstants) {
+                writeEnumConstant(enumConstant);
+            }
+        }
+        Set<IAnnotationField> annotationFields = clazz.getAnnotationFields();
+        if (writeCount(annotationFields)) {
+            for (IAnnotationField annotationField : annotationFields) {
+                writeField(annotationField);
+                writeValue(annotationField.getDefaultValue());
+            }
+        }
+        Set<IConstructor> constructors = clazz.getConstructors();
+        if (writeCount(constructors)) {
+            for (IConstructor constructor : constructors) {
+                writeExecutableMember(constructor);
+            }
+        }
+        Set<IMethod> methods = clazz.getMethods();
+        if (writeCount(methods)) {
+            for (IMethod method : methods) {
+                writeExecutableMember(method);
+                writeType(method.getReturnType(), method.getTypeParameters());
+            }
+        }
+    }
+
+    private void writeField(IField field) throws IOException {
+        writeString(field.getName());
+        writeModifiers(field.getModifiers());
+        writeType(field.getType(), null);
+        writeAnnotations(field.getAnnotations());
+    }
+
+    private void writeEnumConstant(IEnumConstant enumConstant)
+            throws IOException {
+        writeField(enumConstant);
+        int ordinal;
+        try {
+            ordinal = enumConstant.getOrdinal();
+        } catch (UnsupportedOperationException e) {
+            ordinal = NULL;
+        }
+        writeNumber(body, ordinal);
+    }
+
+    private void writeExecutableMember(IExecutableMember member)
+            throws IOException {
+        List<ITypeVariableDefinition> typeParameters = member
+                .getTypeParameters();
+        writeString(member.getName());
+        writeModifiers(member.getModifiers());
+        writeNumber(body, getClassIndex(member.getDeclaringClass()));
+        writeTypeParameters(typeParameters, typeParameters);
+        List<IParameter> parameters = member.getParameters();
+        if (writeCount(parameters)) {
+            for (IParameter parameter : parameters) {
+                writeType(parameter.getType(), typeParameters);
+                writeAnnotations(parameter.getAnnotations());
+            }
+        }
+        writeTypes(member.getExceptions(), typeParameters);
+        writeAnnotations(member.getAnnotations());
+    }
+
+    /**
+     * Writes the names of all type parameters first, so that the reader can
+     * create them before it reads bounds which refer to them.
+     */
+    private void writeTypeParameters(
+            List<ITypeVariableDefinition> typeParameters,
+            List<ITypeVariableDefinition> memberTypeParameters)
+            throws IOException {
+        if (writeCount(typeParameters)) {
+            for (ITypeVariableDefinition typeParameter : typeParameters) {
+                writeString(typeParameter.getName());
+            }
+            for (ITypeVariableDefinition typeParameter : typeParameters) {
+                writeTypes(typeParameter.getUpperBounds(),
+                        memberTypeParameters);
+            }
+        }
+    }
+
+    private void writeTypes(Collection<ITypeReference> types,
+            List<ITypeVariableDefinition> memberTypeParameters)
+            throws IOException {
+        if (writeCount(types)) {
+            for (ITypeReference type : types) {
+                writeType(type, memberTypeParameters);
+            }
+        }
+    }
+
+    /**
+     * @param memberTypeParameters
+     *            the type parameters of the enclosing method or constructor,
+     *            may be null
+     */
+    private void writeType(ITypeReference type,
+            List<ITypeVariableDefinition> memberTypeParameters)
+            throws IOException {
+        if (type == null) {
+            body.writeByte(TYPE_NULL);
+        } else if (!isInitialized(type)) {
+            body.writeByte(TYPE_UNSET);
+        } else if (type instanceof IPrimitiveType) {
+            body.writeByte(TYPE_PRIMITIVE);
+            body.writeByte(SigPrimitiveType.valueOfTypeName(
+                    ((IPrimitiveType) type).getName()).ordinal());
+        } else if (type instanceof IClassReference) {
+            body.writeByte(TYPE_CLASS);
+            writeNumber(body, getClassIndex(((IClassReference) type)
+                    .getClassDefinition()));
+        } else if (type instanceof IArrayType) {
+            body.writeByte(TYPE_ARRAY);
+            writeType(((IArrayType) type).getComponentType(),
+                    memberTypeParameters);
+        } else if (type instanceof IParameterizedType) {
+            IParameterizedType parameterizedType = (IParameterizedType) type;
+            body.writeByte(TYPE_PARAMETERIZED);
+            writeType(parameterizedType.getOwnerType(), memberTypeParameters);
+            writeNumber(body, getClassIndex(parameterizedType.getRawType()
+                    .getClassDefinition()));
+            writeTypes(parameterizedType.getTypeArguments(),
+                    memberTypeParameters);
+        } else if (type instanceof IWildcardType) {
+            IWildcardType wildcardType = (IWildcardType) type;
+            body.writeByte(TYPE_WILDCARD);
+            writeType(wildcardType.getLowerBound(), memberTypeParameters);
+            writeTypes(wildcardType.getUpperBounds(), memberTypeParameters);
+        } else if (type instanceof ITypeVariableReference) {
+            writeTypeVariable(((ITypeVariableReference) type)
+                    .getTypeVariableDefinition(), memberTypeParameters);
+        } else {
+            throw new IllegalArgumentException("Unsupported type reference "
+                    + type);
+        }
+    }
+
+    private void writeTypeVariable(ITypeVariableDefinition typeVariable,
+            List<ITypeVariableDefinition> memberTypeParameters)
+            throws IOException {
+        if (memberTypeParameters != null
+                && isInitialized(memberTypeParameters)) {
+            int position = memberTypeParameters.indexOf(typeVariable);
+            if (position >= 0) {
+                body.writeByte(TYPE_MEMBER_VARIABLE);
+                writeNumber(body, position);
+                return;
+            }
+        }
+        if (typeVariable.getGenericDeclaration() instanceof IClassDefinition) {
+            IClassDefinition clazz = (IClassDefinition) typeVariable
+                    .getGenericDeclaration();
+            List<ITypeVariableDefinition> typeParameters = clazz
+                    .getTypeParameters();
+            int position = typeParameters == null
+                    || !isInitialized(typeParameters) ? -1 : typeParameters
+                    .indexOf(typeVariable);
+            if (position >= 0) {
+                body.writeByte(TYPE_CLASS_VARIABLE);
+                writeNumber(body, getClassIndex(clazz));
+                writeNumber(body, position);
+                return;
+            }
+        }
+        // e.g. declared by a method enclosing a local class
+        body.writeByte(TYPE_DETACHED_VARIABLE);
+        writeString(typeVariable.getName());
+    }
+
+    private void writeAnnotations(Set<IAnnotation> annotations)
+            throws IOException {
+        if (writeCount(annotations)) {
+            for (IAnnotation annotation : annotations) {
+                writeAnnotation(annotation);
+            }
+        }
+    }
+
+    private void writeAnnotation(IAnnotation annotation) throws IOException {
+        IClassReference type = annotation.getType();
+        writeNumber(body, getClassIndex(type == null ? null : type
+                .getClassDefinition()));
+        Set<IAnnotationElement> elements = annotation.getElements();
+        if (writeCount(elements)) {
+            for (IAnnotationElement element : elements) {
+                IAnnotationField field = element.getDeclaringField();
+                writeString(field == null ? null : field.getName());
+                writeValue(element.getValue());
+            }
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            body.writeByte(VALUE_NULL);
+        } else if (!isInitialized(value)) {
+            body.writeByte(VALUE_UNSET);
+        } else if (value instanceof Boolean) {
+            body.writeByte(VALUE_BOOLEAN);
+            body.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            body.writeByte(VALUE_BYTE);
+            body.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            body.writeByte(VALUE_CHAR);
+            body.writeChar((Character) value);
+        } else if (value instanceof Short) {
+            body.writeByte(VALUE_SHORT);
+            body.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            body.writeByte(VALUE_INT);
+            body.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            body.writeByte(VALUE_LONG);
+            body.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            body.writeByte(VALUE_FLOAT);
+            body.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            body.writeByte(VALUE_DOUBLE);
+            body.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            body.writeByte(VALUE_STRING);
+            writeString((String) value);
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            body.writeByte(VALUE_ARRAY);
+            writeNumber(body, array.length);
+            for (Object element : array) {
+                writeValue(element);
+            }
+        } else if (value instanceof IAnnotation) {
+            body.writeByte(VALUE_ANNOTATION);
+            writeAnnotation((IAnnotation) value);
+        } else if (value instanceof IEnumConstant) {
+            body.writeByte(VALUE_ENUM_CONSTANT);
+            writeEnumConstant((IEnumConstant) value);
+        } else if (value instanceof IField) {
+            body.writeByte(VALUE_FIELD);
+            writeField((IField) value);
+        } else if (value instanceof ITypeReference) {
+            body.writeByte(VALUE_TYPE);
+            writeType((ITypeReference) value, null);
+        } else {
+            throw new IllegalArgumentException("Unsupported value " + value);
+        }
+    }
+}
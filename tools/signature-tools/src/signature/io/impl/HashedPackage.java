@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.io.impl;
+
+import signature.model.impl.SigPackage;
+import signature.model.util.IStructurallyHashed;
+import signature.model.util.StructuralHash;
+
+/**
+ * A package whose structural hash was read from the signature file.
+ */
+@SuppressWarnings("serial")
+class HashedPackage extends SigPackage implements IStructurallyHashed {
+
+    private final StructuralHash hash;
+
+    HashedPackage(String name, StructuralHash hash) {
+        super(name);
+        this.hash = hash;
+    }
+
+    public StructuralHash getStructuralHash() {
+        return hash;
+    }
+}
@@ -0,0 +1,554 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.io.impl;
+
+import signature.compare.IApiDeltaListener;
+import signature.compare.model.DeltaType;
+import signature.compare.model.IAnnotationDelta;
+import signature.compare.model.IAnnotationFieldDelta;
+import signature.compare.model.IClassDefinitionDelta;
+import signature.compare.model.IConstructorDelta;
+import signature.compare.model.IDelta;
+import signature.compare.model.IEnumConstantDelta;
+import signature.compare.model.IFieldDelta;
+import signature.compare.model.IMethodDelta;
+import signature.compare.model.IModifierDelta;
+import signature.compare.model.IPackageDelta;
+import signature.compare.model.ITypeReferenceDelta;
+import signature.compare.model.ITypeVariableDefinitionDelta;
+import signature.model.IAnnotation;
+import signature.model.IAnnotationElement;
+import signature.model.IAnnotationField;
+import signature.model.IArrayType;
+import signature.model.IClassDefinition;
+import signature.model.IClassReference;
+import signature.model.IEnumConstant;
+import signature.model.IExecutableMember;
+import signature.model.IField;
+import signature.model.IMethod;
+import signature.model.IPackage;
+import signature.model.IParameter;
+import signature.model.IParameterizedType;
+import signature.model.IPrimitiveType;
+import signature.model.ITypeReference;
+import signature.model.ITypeVariableDefinition;
+import signature.model.ITypeVariableReference;
+import signature.model.IWildcardType;
+import signature.model.Modifier;
+import signature.model.util.ModelUtil;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes deltas as JSON lines, one object per package or class delta, as
+ * they are reported by {@link signature.compare.IApiComparator}. Each line is
+ * flushed as soon as it is written, so that a consumer can stop at the first
+ * delta.
+ * 
+ * <pre>
+ * {"delta":"package","type":"added","package":"p"}
+ * {"delta":"class","type":"changed","package":"p","class":"C","changes":[
+ *     {"element":"method","type":"removed","from":"public void m(int)",
+ *      "to":null},
+ *     {"element":"field","type":"changed","from":"public int f",
+ *      "to":"public long f"}]}
+ * </pre>
+ * 
+ * The changes of a class are given as element kind, delta type and the
+ * signatures of the changed element in both APIs, so that a changed element
+ * shows its old and its new signature. Like {@link PrintWriter},
+ * this class never throws I/O exceptions, use {@link #checkError()}.
+ */
+public class JsonLinesDeltaWriter implements IApiDeltaListener {
+
+    private final PrintWriter out;
+
+    public JsonLinesDeltaWriter(Writer writer) {
+        out = new PrintWriter(writer);
+    }
+
+    public synchronized void packageDelta(IPackageDelta delta) {
+        IPackage aPackage = delta.getFrom() != null ? delta.getFrom() : delta
+                .getTo();
+        StringBuilder line = new StringBuilder();
+        line.append("{\"delta\":\"package\",\"type\":");
+        appendType(line, delta);
+        line.append(",\"package\":");
+        appendString(line, aPackage.getName());
+        if (delta.getAnnotationDeltas() != null) {
+            line.append(",\"changes\":[");
+            appendAnnotationChanges(line, delta.getAnnotationDeltas(), true);
+            line.append("]");
+        }
+        line.append("}");
+        writeLine(line);
+    }
+
+    public synchronized void classDelta(IClassDefinitionDelta delta) {
+        IClassDefinition clazz = delta.getFrom() != null ? delta.getFrom()
+                : delta.getTo();
+        StringBuilder line = new StringBuilder();
+        line.append("{\"delta\":\"class\",\"type\":");
+        appendType(line, delta);
+        line.append(",\"package\":");
+        appendString(line, clazz.getPackageName());
+        line.append(",\"class\":");
+        appendString(line, clazz.getName());
+        if (delta.getType() == DeltaType.CHANGED) {
+            line.append(",\"changes\":[");
+            appendChanges(line, delta);
+            line.append("]");
+        }
+        line.append("}");
+        writeLine(line);
+    }
+
+    /**
+     * Returns true if writing any of the lines failed.
+     */
+    public synchronized boolean checkError() {
+        return out.checkError();
+    }
+
+    public synchronized void close() {
+        out.close();
+    }
+
+    private void writeLine(StringBuilder line) {
+        out.print(line);
+        out.print('\n');
+        out.flush();
+    }
+
+    private void appendChanges(StringBuilder line,
+            IClassDefinitionDelta delta) {
+        boolean first = true;
+        if (delta.getModifierDeltas() != null) {
+            for (IModifierDelta modifierDelta : delta.getModifierDeltas()) {
+                first = appendChange(line, first, "modifier", modifierDelta,
+                        modifierDelta.getFrom(), modifierDelta.getTo());
+            }
+        }
+        if (delta.getSuperClassDelta() != null) {
+            ITypeReferenceDelta<?> superClassDelta = delta
+                    .getSuperClassDelta();
+            first = appendChange(line, first, "superclass", superClassDelta,
+                    describe(superClassDelta.getFrom()),
+                    describe(superClassDelta.getTo()));
+        }
+        if (delta.getInterfaceDeltas() != null) {
+            for (ITypeReferenceDelta<?> interfaceDelta : delta
+                    .getInterfaceDeltas()) {
+                first = appendChange(line, first, "interface", interfaceDelta,
+                        describe(interfaceDelta.getFrom()),
+                        describe(interfaceDelta.getTo()));
+            }
+        }
+        if (delta.getTypeVariableDeltas() != null) {
+            for (ITypeVariableDefinitionDelta typeVariableDelta : delta
+                    .getTypeVariableDeltas()) {
+                first = appendChange(line, first, "type_parameter",
+                        typeVariableDelta,
+                        describeSignature(typeVariableDelta.getFrom()),
+                        describeSignature(typeVariableDelta.getTo()));
+            }
+        }
+        if (delta.getConstructorDeltas() != null) {
+            for (IConstructorDelta constructorDelta : delta
+                    .getConstructorDeltas()) {
+                first = appendChange(line, first, "constructor",
+                        constructorDelta,
+                        describeSignature(constructorDelta.getFrom()),
+                        describeSignature(constructorDelta.getTo()));
+            }
+        }
+        if (delta.getMethodDeltas() != null) {
+            for (IMethodDelta methodDelta : delta.getMethodDeltas()) {
+                first = appendChange(line, first, "method", methodDelta,
+                        describeSignature(methodDelta.getFrom()),
+                        describeSignature(methodDelta.getTo()));
+            }
+        }
+        if (delta.getFieldDeltas() != null) {
+            for (IFieldDelta fieldDelta : delta.getFieldDeltas()) {
+                first = appendChange(line, first, "field", fieldDelta,
+                        describeSignature(fieldDelta.getFrom()),
+                        describeSignature(fieldDelta.getTo()));
+            }
+        }
+        if (delta.getEnumConstantDeltas() != null) {
+            for (IEnumConstantDelta enumConstantDelta : delta
+                    .getEnumConstantDeltas()) {
+                first = appendChange(line, first, "enum_constant",
+                        enumConstantDelta,
+                        describeSignature(enumConstantDelta.getFrom()),
+                        describeSignature(enumConstantDelta.getTo()));
+            }
+        }
+        if (delta.getAnnotationFieldDeltas() != null) {
+            for (IAnnotationFieldDelta annotationFieldDelta : delta
+                    .getAnnotationFieldDeltas()) {
+                first = appendChange(line, first, "annotation_field",
+                        annotationFieldDelta,
+                        describeSignature(annotationFieldDelta.getFrom()),
+                        describeSignature(annotationFieldDelta.getTo()));
+            }
+        }
+        if (delta.getAnnotationDeltas() != null) {
+            appendAnnotationChanges(line, delta.getAnnotationDeltas(), first);
+        }
+    }
+
+    private void appendAnnotationChanges(StringBuilder line,
+            Set<IAnnotationDelta> annotationDeltas, boolean first) {
+        for (IAnnotationDelta annotationDelta : annotationDeltas) {
+            first = appendChange(line, first, "annotation", annotationDelta,
+                    describe(annotationDelta.getFrom()),
+                    describe(annotationDelta.getTo()));
+        }
+    }
+
+    /**
+     * Appends one element of the "changes" array.
+     * 
+     * @return false, to be passed as <code>first</code> of the next change
+     */
+    private boolean appendChange(StringBuilder line, boolean first,
+            String element, IDelta<?> delta, Object from, Object to) {
+        if (!first) {
+            line.append(",");
+        }
+        line.append("{\"element\":\"");
+        line.append(element);
+        line.append("\",\"type\":");
+        appendType(line, delta);
+        line.append(",\"from\":");
+        appendString(line, from == null ? null : from.toString());
+        line.append(",\"to\":");
+        appendString(line, to == null ? null : to.toString());
+        line.append("}");
+        return false;
+    }
+
+    static void appendType(StringBuilder line, IDelta<?> delta) {
+        line.append("\"");
+        line.append(delta.getType().name().toLowerCase());
+        line.append("\"");
+    }
+
+    static void appendString(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                line.append("\\\"");
+                break;
+            case '\\':
+                line.append("\\\\");
+                break;
+            case '\n':
+                line.append("\\n");
+                break;
+            case '\r':
+                line.append("\\r");
+                break;
+            case '\t':
+                line.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    line.append(String.format("\\u%04x", (int) c));
+                } else {
+                    line.append(c);
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    static String describe(IExecutableMember member) {
+        if (member == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append(member.getName());
+        builder.append("(");
+        boolean first = true;
+        for (IParameter parameter : member.getParameters()) {
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append(describe(parameter.getType()));
+        }
+        builder.append(")");
+        return builder.toString();
+    }
+
+    static String describe(IField field) {
+        return field == null ? null : field.getName();
+    }
+
+    /**
+     * Returns the declaration of the given member in Java source notation,
+     * with its annotations, modifiers, type parameters, return type,
+     * parameter types and exceptions.
+     */
+    static String describeSignature(IExecutableMember member) {
+        if (member == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        appendAnnotations(builder, member.getAnnotations());
+        appendModifiers(builder, member.getModifiers());
+        List<ITypeVariableDefinition> typeParameters = member
+                .getTypeParameters();
+        if (typeParameters != null && !typeParameters.isEmpty()) {
+            builder.append("<");
+            boolean first = true;
+            for (ITypeVariableDefinition typeParameter : typeParameters) {
+                if (!first) {
+                    builder.append(", ");
+                }
+                first = false;
+                builder.append(describeSignature(typeParameter));
+            }
+            builder.append("> ");
+        }
+        if (member instanceof IMethod) {
+            builder.append(describe(((IMethod) member).getReturnType()));
+            builder.append(" ");
+        }
+        builder.append(describe(member));
+        Set<ITypeReference> exceptions = member.getExceptions();
+        if (exceptions != null && !exceptions.isEmpty()) {
+            builder.append(" throws ");
+            builder.append(describeSorted(exceptions, ", "));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the declaration of the given field, enum constant or annotation
+     * field in Java source notation.
+     */
+    static String describeSignature(IField field) {
+        if (field == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder();
+        appendAnnotations(builder, field.getAnnotations());
+        if (field instanceof IEnumConstant) {
+            return builder.append(field.getName()).toString();
+        }
+        appendModifiers(builder, field.getModifiers());
+        builder.append(describe(field.getType()));
+        builder.append(" ");
+        builder.append(field.getName());
+        if (field instanceof IAnnotationField) {
+            Object defaultValue = ((IAnnotationField) field)
+                    .getDefaultValue();
+            if (defaultValue != null) {
+                builder.append(" default ");
+                builder.append(describeValue(defaultValue));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String describeSignature(
+            ITypeVariableDefinition typeVariable) {
+        if (typeVariable == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(typeVariable.getName());
+        String separator = " extends ";
+        for (ITypeReference bound : typeVariable.getUpperBounds()) {
+            if (bound != null && !(bound instanceof IClassReference
+                    && "java.lang.Object".equals(describe(bound)))) {
+                builder.append(separator);
+                builder.append(describe(bound));
+                separator = " & ";
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void appendAnnotations(StringBuilder builder,
+            Set<IAnnotation> annotations) {
+        if (annotations != null && !annotations.isEmpty()) {
+            builder.append(describeSorted(annotations, " "));
+            builder.append(" ");
+        }
+    }
+
+    private static void appendModifiers(StringBuilder builder,
+            Set<Modifier> modifiers) {
+        if (modifiers != null) {
+            builder.append(Modifier.toString(modifiers));
+        }
+    }
+
+    /**
+     * Returns the given annotation with its elements, sorted by name.
+     */
+    private static String describe(IAnnotation annotation) {
+        if (annotation == null) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder("@");
+        builder.append(describe(annotation.getType()));
+        Set<IAnnotationElement> elements = annotation.getElements();
+        if (elements != null && !elements.isEmpty()) {
+            List<String> values = new ArrayList<String>();
+            for (IAnnotationElement element : elements) {
+                values.add(element.getDeclaringField().getName() + "="
+                        + describeValue(element.getValue()));
+            }
+            Collections.sort(values);
+            builder.append("(");
+            builder.append(ModelUtil.separate(values, ", "));
+            builder.append(")");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the value of an annotation element in Java source notation.
+     */
+    private static String describeValue(Object value) {
+        if (value instanceof Object[]) {
+            StringBuilder builder = new StringBuilder("{");
+            boolean first = true;
+            for (Object element : (Object[]) value) {
+                if (!first) {
+                    builder.append(", ");
+                }
+                first = false;
+                builder.append(describeValue(element));
+            }
+            return builder.append("}").toString();
+        }
+        if (value instanceof IAnnotation) {
+            return describe((IAnnotation) value);
+        }
+        if (value instanceof IField) {
+            return ((IField) value).getName();
+        }
+        if (value instanceof ITypeReference) {
+            return describe((ITypeReference) value) + ".class";
+        }
+        if (value instanceof String) {
+            // the JSON escapes are valid Java escapes as well
+            StringBuilder builder = new StringBuilder();
+            appendString(builder, (String) value);
+            return builder.toString();
+        }
+        if (value instanceof Character) {
+            if (((Character) value).charValue() == '\'') {
+                return "'\\''";
+            }
+            StringBuilder builder = new StringBuilder();
+            appendString(builder, value.toString());
+            return "'" + builder.substring(1, builder.length() - 1) + "'";
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Returns the descriptions of the given annotations or types, sorted and
+     * separated by <code>separator</code>.
+     */
+    private static String describeSorted(Set<?> elements, String separator) {
+        List<String> descriptions = new ArrayList<String>();
+        for (Object element : elements) {
+            descriptions.add(element instanceof IAnnotation
+                    ? describe((IAnnotation) element)
+                    : describe((ITypeReference) element));
+        }
+        Collections.sort(descriptions);
+        return ModelUtil.separate(descriptions, separator);
+    }
+
+    /**
+     * Returns the Java source notation of the given type.
+     */
+    private static String describe(ITypeReference type) {
+        if (type == null) {
+            return null;
+        }
+        if (type instanceof IClassReference) {
+            return ((IClassReference) type).getClassDefinition()
+                    .getQualifiedName();
+        }
+        if (type instanceof IPrimitiveType) {
+            return ((IPrimitiveType) type).getName();
+        }
+        if (type instanceof IArrayType) {
+            return describe(((IArrayType) type).getComponentType()) + "[]";
+        }
+        if (type instanceof ITypeVariableReference) {
+            return ((ITypeVariableReference) type).getTypeVariableDefinition()
+                    .getName();
+        }
+        if (type instanceof IParameterizedType) {
+            IParameterizedType parameterizedType = (IParameterizedType) type;
+            StringBuilder builder = new StringBuilder();
+            builder.append(describe(parameterizedType.getRawType()));
+            builder.append("<");
+            boolean first = true;
+            for (ITypeReference argument : parameterizedType
+                    .getTypeArguments()) {
+                if (!first) {
+                    builder.append(", ");
+                }
+                first = false;
+                builder.append(describe(argument));
+            }
+            builder.append(">");
+            return builder.toString();
+        }
+        if (type instanceof IWildcardType) {
+            IWildcardType wildcardType = (IWildcardType) type;
+            StringBuilder builder = new StringBuilder("?");
+            if (wildcardType.getLowerBound() != null) {
+                builder.append(" super ");
+                builder.append(describe(wildcardType.getLowerBound()));
+            }
+            for (ITypeReference bound : wildcardType.getUpperBounds()) {
+                if (bound != null && !(bound instanceof IClassReference
+                        && "java.lang.Object".equals(describe(bound)))) {
+                    builder.append(builder.length() == 1 ? " extends "
+                            : " & ");
+                    builder.append(describe(bound));
+                }
+            }
+            return builder.toString();
+        }
+        return type.toString();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.io.impl;
+
+import signature.model.IAnnotation;
+import signature.model.IAnnotationField;
+import signature.model.IClassDefinition;
+import signature.model.IConstructor;
+import signature.model.IEnumConstant;
+import signature.model.IField;
+import signature.model.IMethod;
+import signature.model.ITypeReference;
+import signature.model.ITypeVariableDefinition;
+import signature.model.Kind;
+import signature.model.Modifier;
+import signature.model.impl.SigClassDefinition;
+import signature.model.util.IStructurallyHashed;
+import signature.model.util.StructuralHash;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A class definition whose name and structural hash are known up front, but
+ * whose other properties are read from the signature file on first access.
+ */
+@SuppressWarnings("serial")
+class LazyClassDefinition extends SigClassDefinition implements
+        IStructurallyHashed {
+
+    private final transient BinaryApiReader reader;
+    private final int offset;
+    private final StructuralHash hash;
+    private volatile boolean loaded;
+    /** Guarded by the reader. */
+    private boolean loading;
+
+    LazyClassDefinition(BinaryApiReader reader, String packageName,
+            String name, int offset, StructuralHash hash) {
+        super(packageName, name);
+        this.reader = reader;
+        this.offset = offset;
+        this.hash = hash;
+    }
+
+    int getOffset() {
+        return offset;
+    }
+
+    public StructuralHash getStructuralHash() {
+        return hash;
+    }
+
+    /**
+     * Marks this class as being read.
+     *
+     * @return false if this class is already read or being read
+     */
+    boolean startLoading() {
+        if (loaded || loading) {
+            return false;
+        }
+        loading = true;
+        return true;
+    }
+
+    void finishLoading() {
+        loaded = true;
+    }
+
+    private void load() {
+        if (!loaded) {
+            reader.load(this);
+        }
+    }
+
+    @Override
+    public Kind getKind() {
+        load();
+        return super.getKind();
+    }
+
+    @Override
+    public Set<Modifier> getModifiers() {
+        load();
+        return super.getModifiers();
+    }
+
+    @Override
+    public Set<IClassDefinition> getInnerClasses() {
+        load();
+        return super.getInnerClasses();
+    }
+
+    @Override
+    public Set<ITypeReference> getInterfaces() {
+        load();
+        return super.getInterfaces();
+    }
+
+    @Override
+    public Set<IMethod> getMethods() {
+        load();
+        return super.getMethods();
+    }
+
+    @Override
+    public Set<IConstructor> getConstructors() {
+        load();
+        return super.getConstructors();
+    }
+
+    @Override
+    public ITypeReference getSuperClass() {
+        load();
+        return super.getSuperClass();
+    }
+
+    @Override
+    public IClassDefinition getDeclaringClass() {
+        load();
+        return super.getDeclaringClass();
+    }
+
+    @Override
+    public Set<IAnnotationField> getAnnotationFields() {
+        load();
+        return super.getAnnotationFields();
+    }
+
+    @Override
+    public Set<IField> getFields() {
+        load();
+        return super.getFields();
+    }
+
+    @Override
+    public Set<IEnumConstant> getEnumConstants() {
+        load();
+        return super.getEnumConstants();
+    }
+
+    @Override
+    public List<ITypeVariableDefinition> getTypeParameters() {
+        load();
+        return super.getTypeParameters();
+    }
+
+    @Override
+    public Set<IAnnotation> getAnnotations() {
+        load();
+        return super.getAnnotations();
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package signature.io.impl;
+
+import signature.compare.IApiDeltaListener;
+import signature.compare.model.DeltaType;
+import signature.compare.model.IClassDefinitionDelta;
+import signature.compare.model.IDelta;
+import signature.compare.model.IExecutableMemberDelta;
+import signature.compare.model.IFieldDelta;
+import signature.compare.model.IPackageDelta;
+import signature.model.IClassDefinition;
+import signature.model.IExecutableMember;
+import signature.model.IField;
+import signature.model.IPackage;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects the deltas between successive versions of an API into one
+ * timeline per package, class and member, and writes the timelines as JSON
+ * lines, sorted by element.
+ * 
+ * <pre>
+ * {"element":"p.C#m(int)","kind":"method","timeline":[
+ *     {"version":"v2","type":"added"},{"version":"v4","type":"removed"}]}
+ * </pre>
+ * 
+ * The version of an entry is the name of the version in which the element
+ * was added, changed or removed. Elements are identified by name and kind,
+ * and sorted by name, then kind. Members of added or removed classes are
+ * not listed separately.
+ */
+public class TimelineWriter {
+
+    private final List<String> versions;
+    private final ConcurrentMap<Element, Timeline> timelines =
+            new ConcurrentHashMap<Element, Timeline>();
+
+    /**
+     * Creates a new instance of {@link TimelineWriter}.
+     * 
+     * @param versions
+     *            the names of all versions, oldest first
+     */
+    public TimelineWriter(List<String> versions) {
+        if (versions.size() < 2) {
+            throw new IllegalArgumentException("need at least two versions");
+        }
+        this.versions = new ArrayList<String>(versions);
+    }
+
+    /**
+     * Returns one listener per pair of successive versions, to be passed to
+     * {@link signature.compare.ApiEvolution#compare(List, List)}.
+     */
+    public List<IApiDeltaListener> getListeners() {
+        List<IApiDeltaListener> listeners = new ArrayList<IApiDeltaListener>();
+        for (int i = 1; i < versions.size(); i++) {
+            listeners.add(new VersionListener(i));
+        }
+        return listeners;
+    }
+
+    /**
+     * Writes the timelines collected so far. The writer is not closed.
+     */
+    public void write(Writer writer) throws IOException {
+        Map<Element, Timeline> sorted = new TreeMap<Element, Timeline>(
+                timelines);
+        StringBuilder line = new StringBuilder();
+        for (Map.Entry<Element, Timeline> entry : sorted.entrySet()) {
+            Element element = entry.getKey();
+            Timeline timeline = entry.getValue();
+            line.setLength(0);
+            line.append("{\"element\":");
+            JsonLinesDeltaWriter.appendString(line, element.name);
+            line.append(",\"kind\":\"");
+            line.append(element.kind);
+            line.append("\",\"timeline\":[");
+            boolean first = true;
+            for (int i = 0; i < timeline.types.length; i++) {
+                DeltaType type = timeline.types[i];
+                if (type == null) {
+                    continue;
+                }
+                if (!first) {
+                    line.append(",");
+                }
+                first = false;
+                line.append("{\"version\":");
+                JsonLinesDeltaWriter.appendString(line, versions.get(i));
+                line.append(",\"type\":\"");
+                line.append(type.name().toLowerCase());
+                line.append("\"}");
+            }
+            line.append("]}\n");
+            writer.write(line.toString());
+        }
+    }
+
+    private void record(String name, String kind, int version,
+            DeltaType type) {
+        Element element = new Element(name, kind);
+        Timeline timeline = timelines.get(element);
+        if (timeline == null) {
+            timeline = new Timeline(versions.size());
+            Timeline existing = timelines.putIfAbsent(element, timeline);
+            if (existing != null) {
+                timeline = existing;
+            }
+        }
+        timeline.record(version, type);
+    }
+
+    /**
+     * An element of an API, identified by its name and kind, since e.g. the
+     * package a.b and the class b of package a share a name.
+     */
+    private static final class Element implements Comparable<Element> {
+        final String name;
+        final String kind;
+
+        Element(String name, String kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+
+        public int compareTo(Element other) {
+            int result = name.compareTo(other.name);
+            return result != 0 ? result : kind.compareTo(other.kind);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Element)) {
+                return false;
+            }
+            Element other = (Element) obj;
+            return name.equals(other.name) && kind.equals(other.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + kind.hashCode();
+        }
+    }
+
+    /**
+     * The delta types of an element, by version.
+     */
+    private static final class Timeline {
+        final DeltaType[] types;
+
+        Timeline(int versions) {
+            types = new DeltaType[versions];
+        }
+
+        /**
+         * Records a delta. Several deltas of one element in the same version,
+         * e.g. of a method and its bridge method, amount to a change.
+         */
+        synchronized void record(int version, DeltaType type) {
+            DeltaType recorded = types[version];
+            types[version] = recorded == null || recorded == type ? type
+                    : DeltaType.CHANGED;
+        }
+    }
+
+    /**
+     * Records the deltas between the given version and its predecessor.
+     */
+    private final class VersionListener implements IApiDeltaListener {
+        private final int version;
+
+        VersionListener(int version) {
+            this.version = version;
+        }
+
+        public void packageDelta(IPackageDelta delta) {
+            IPackage aPackage = delta.getFrom() != null ? delta.getFrom()
+                    : delta.getTo();
+            record(aPackage.getName(), "package", version, delta.getType());
+        }
+
+        public void classDelta(IClassDefinitionDelta delta) {
+            IClassDefinition clazz = delta.getFrom() != null ? delta
+                    .getFrom() : delta.getTo();
+            String className = clazz.getQualifiedName();
+            record(className, "class", version, delta.getType());
+            if (delta.getType() != DeltaType.CHANGED) {
+                return;
+            }
+            recordMembers(className, "constructor", delta
+                    .getConstructorDeltas());
+            recordMembers(className, "method", delta.getMethodDeltas());
+            recordFields(className, "field", delta.getFieldDeltas());
+            recordFields(className, "enum_constant", delta
+                    .getEnumConstantDeltas());
+            recordFields(className, "annotation_field", delta
+                    .getAnnotationFieldDeltas());
+        }
+
+        private void recordMembers(String className, String kind,
+                Set<? extends IExecutableMemberDelta<?>> deltas) {
+            for (IExecutableMemberDelta<?> delta : nonNull(deltas)) {
+                IExecutableMember member = delta.getFrom() != null ? delta
+                        .getFrom() : delta.getTo();
+                record(className + "#"
+                        + JsonLinesDeltaWriter.describe(member), kind,
+                        version, delta.getType());
+            }
+        }
+
+        private void recordFields(String className, String kind,
+                Set<? extends IDelta<? extends IField>> deltas) {
+            for (IDelta<? extends IField> delta : nonNull(deltas)) {
+                IField field = delta.getFrom() != null ? delta.getFrom()
+                        : delta.getTo();
+                record(className + "#" + JsonLinesDeltaWriter.describe(field),
+                        kind, version, delta.getType());
+            }
+        }
+    }
+
+    private static <T> Set<T> nonNull(Set<T> set) {
+        if (set == null) {
+            return Collections.emptySet();
+        }
+        return set;
+    }
+}
@@ -38,7 +38,9 @@ public class SigClassDefinition extends SigAnnotatableElement implements
         IClassDefinition, Serializable {
 
     private String name;
-    private Kind kind = Kind.UNINITIALIZED;
+    // written by the conversion of this class and of the classes referring to
+    // it, which may run on different threads
+    private volatile Kind kind = Kind.UNINITIALIZED;
     private ITypeReference superClass = Uninitialized.unset();
     private Set<ITypeReference> interfaces = Uninitialized.unset();
     private Set<Modifier> modifiers = Uninitialized.unset();
@@ -54,18 +56,36 @@ public class SigClassDefinition extends SigAnnotatableElement implements
     private String packageName;
 
     public SigClassDefinition(String packageName, String name) {
-        this.packageName = packageName;
-        this.name = name;
+        this.packageName = ModelUtil.intern(packageName);
+        this.name = ModelUtil.intern(name);
     }
 
     public Kind getKind() {
         return kind;
     }
 
-    public void setKind(Kind kind) {
+    public synchronized void setKind(Kind kind) {
         this.kind = kind;
     }
 
+    /**
+     * Sets the kind of this class, unless it has already been set.
+     * <p>
+     * Used for a kind inferred from a reference to this class, which must
+     * not override the kind set by the conversion of the class itself.
+     * 
+     * @param kind
+     *            the inferred kind
+     * @return {@code true} if the kind was set
+     */
+    public synchronized boolean setKindIfUninitialized(Kind kind) {
+        if (this.kind != Kind.UNINITIALIZED) {
+            return false;
+        }
+        this.kind = kind;
+        return true;
+    }
+
     public String getName() {
         return name;
     }
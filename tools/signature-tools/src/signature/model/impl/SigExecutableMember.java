@@ -22,6 +22,7 @@ import signature.model.IParameter;
 import signature.model.ITypeReference;
 import signature.model.ITypeVariableDefinition;
 import signature.model.Modifier;
+import signature.model.util.ModelUtil;
 
 import java.io.Serializable;
 import java.util.List;
@@ -40,7 +41,7 @@ public abstract class SigExecutableMember extends SigAnnotatableElement
     private IClassDefinition declaringClass = Uninitialized.unset();
 
     public SigExecutableMember(String name) {
-        this.name = name;
+        this.name = ModelUtil.intern(name);
     }
 
     public String getName() {
@@ -19,6 +19,7 @@ package signature.model.impl;
 import signature.model.IField;
 import signature.model.ITypeReference;
 import signature.model.Modifier;
+import signature.model.util.ModelUtil;
 
 import java.io.Serializable;
 import java.util.Collections;
@@ -33,7 +34,7 @@ public class SigField extends SigAnnotatableElement implements IField,
     private Set<Modifier> modifiers = Uninitialized.unset();
 
     public SigField(String name) {
-        this.name = name;
+        this.name = ModelUtil.intern(name);
         modifiers = Collections.emptySet();
     }
 
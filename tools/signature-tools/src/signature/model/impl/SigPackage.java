@@ -18,6 +18,7 @@ package signature.model.impl;
 
 import signature.model.IClassDefinition;
 import signature.model.IPackage;
+import signature.model.util.ModelUtil;
 
 import java.io.Serializable;
 import java.util.Arrays;
@@ -32,7 +33,7 @@ public class SigPackage extends SigAnnotatableElement implements IPackage,
     private Set<IClassDefinition> classes = Uninitialized.unset();
 
     public SigPackage(String name) {
-        this.name = name;
+        this.name = ModelUtil.intern(name);
     }
 
     public String getName() {
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package signature.model.util;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable set which stores its elements in an array sorted by hash
+ * code. It needs no entry objects and no spare capacity, and looks up
+ * elements by binary search.
+ * <p>
+ * The hash codes of the elements must not change while they are in the set.
+ */
+@SuppressWarnings("serial")
+public final class CompactSet<E> extends AbstractSet<E> implements
+        Serializable {
+
+    private static final Comparator<Object> BY_HASH_CODE =
+            new Comparator<Object>() {
+                public int compare(Object o1, Object o2) {
+                    int h1 = o1.hashCode();
+                    int h2 = o2.hashCode();
+                    return h1 < h2 ? -1 : (h1 == h2 ? 0 : 1);
+                }
+            };
+
+    private final Object[] elements;
+    private final int[] hashCodes;
+
+    private CompactSet(Object[] elements) {
+        this.elements = elements;
+        hashCodes = new int[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            hashCodes[i] = elements[i].hashCode();
+        }
+    }
+
+    /**
+     * Returns an immutable set with the elements of the given set. Empty and
+     * single element sets are shared or represented by the respective
+     * {@link Collections} sets, as are sets containing <code>null</code>.
+     *
+     * @param set
+     *            the set to copy
+     * @return an immutable set equal to <code>set</code>
+     */
+    public static <E> Set<E> copyOf(Set<E> set) {
+        if (set instanceof CompactSet<?>) {
+            return set;
+        }
+        switch (set.size()) {
+        case 0:
+            return Collections.emptySet();
+        case 1:
+            return Collections.singleton(set.iterator().next());
+        default:
+            if (set.contains(null)) {
+                return Collections.unmodifiableSet(set);
+            }
+            Object[] elements = set.toArray();
+            Arrays.sort(elements, BY_HASH_CODE);
+            return new CompactSet<E>(elements);
+        }
+    }
+
+    @Override
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        int hashCode = o.hashCode();
+        int index = Arrays.binarySearch(hashCodes, hashCode);
+        if (index < 0) {
+            return false;
+        }
+        // scan all elements with the same hash code
+        while (index > 0 && hashCodes[index - 1] == hashCode) {
+            index--;
+        }
+        for (; index < elements.length && hashCodes[index] == hashCode;
+                index++) {
+            if (o.equals(elements[index])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int index;
+
+            public boolean hasNext() {
+                return index < elements.length;
+            }
+
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (index >= elements.length) {
+                    throw new NoSuchElementException();
+                }
+                return (E) elements[index++];
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        return elements.clone();
+    }
+}
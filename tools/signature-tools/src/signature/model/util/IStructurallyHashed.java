@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.model.util;
+
+/**
+ * Implemented by model elements which know their structural hash in advance,
+ * e.g. because it was stored together with the element.
+ * 
+ * @see StructuralHashes
+ */
+public interface IStructurallyHashed {
+
+    /**
+     * Returns the structural hash of this element, as computed by
+     * {@link StructuralHashes}.
+     * 
+     * @return the structural hash of this element
+     */
+    StructuralHash getStructuralHash();
+}
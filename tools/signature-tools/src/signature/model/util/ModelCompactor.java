@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package signature.model.util;
+
+import signature.model.IAnnotation;
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+import signature.model.IExecutableMember;
+import signature.model.IField;
+import signature.model.IPackage;
+import signature.model.IParameter;
+import signature.model.ITypeVariableDefinition;
+import signature.model.Modifier;
+import signature.model.impl.SigAnnotatableElement;
+import signature.model.impl.SigAnnotation;
+import signature.model.impl.SigApi;
+import signature.model.impl.SigClassDefinition;
+import signature.model.impl.SigExecutableMember;
+import signature.model.impl.SigField;
+import signature.model.impl.SigPackage;
+import signature.model.impl.SigTypeVariableDefinition;
+import signature.model.impl.Uninitialized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Replaces the collections of a loaded api by immutable, compact ones, so
+ * that several apis can be held in memory at once:
+ * <ul>
+ * <li>sets of elements become {@link CompactSet}s,</li>
+ * <li>lists become fixed size, unmodifiable lists,</li>
+ * <li>empty collections are shared,</li>
+ * <li>modifier sets are shared by all elements, of all apis, with the same
+ * modifiers.</li>
+ * </ul>
+ * Only elements of the {@code signature.model.impl} classes are compacted,
+ * other implementations are left as they are. Compacting an api reads all
+ * of its classes, which defeats lazily loaded apis.
+ */
+public final class ModelCompactor {
+
+    /** Shared modifier sets, by the bitmask of their ordinals. */
+    private static final ConcurrentMap<Integer, Set<Modifier>> MODIFIERS =
+            new ConcurrentHashMap<Integer, Set<Modifier>>();
+
+    private ModelCompactor() {
+    }
+
+    /**
+     * Compacts the given api in place. The api must not be modified while
+     * it is compacted, and its collections cannot be modified afterwards.
+     *
+     * @param api
+     *            the api to compact
+     * @return the given api
+     */
+    public static IApi compact(IApi api) {
+        if (api instanceof SigApi) {
+            SigApi sigApi = (SigApi) api;
+            sigApi.setPackages(compactSet(sigApi.getPackages()));
+        }
+        for (IPackage aPackage : elements(api.getPackages())) {
+            compactPackage(aPackage);
+        }
+        return api;
+    }
+
+    private static void compactPackage(IPackage aPackage) {
+        if (!(aPackage instanceof SigPackage)) {
+            return;
+        }
+        SigPackage sigPackage = (SigPackage) aPackage;
+        compactAnnotations(sigPackage);
+        sigPackage.setClasses(compactSet(sigPackage.getClasses()));
+        // inner classes are contained in their package as well
+        for (IClassDefinition clazz : elements(sigPackage.getClasses())) {
+            compactClass(clazz);
+        }
+    }
+
+    private static void compactClass(IClassDefinition clazz) {
+        if (!(clazz instanceof SigClassDefinition)) {
+            return;
+        }
+        SigClassDefinition sigClass = (SigClassDefinition) clazz;
+        compactAnnotations(sigClass);
+        sigClass.setModifiers(compactModifiers(sigClass.getModifiers()));
+        sigClass.setInterfaces(compactSet(sigClass.getInterfaces()));
+        sigClass.setInnerClasses(compactSet(sigClass.getInnerClasses()));
+        sigClass.setTypeParameters(compactTypeParameters(sigClass
+                .getTypeParameters()));
+
+        sigClass.setMethods(compactSet(sigClass.getMethods()));
+        compactExecutableMembers(sigClass.getMethods());
+        sigClass.setConstructors(compactSet(sigClass.getConstructors()));
+        compactExecutableMembers(sigClass.getConstructors());
+
+        sigClass.setFields(compactSet(sigClass.getFields()));
+        compactFields(sigClass.getFields());
+        sigClass.setEnumConstants(compactSet(sigClass.getEnumConstants()));
+        compactFields(sigClass.getEnumConstants());
+        sigClass.setAnnotationFields(compactSet(sigClass
+                .getAnnotationFields()));
+        compactFields(sigClass.getAnnotationFields());
+    }
+
+    private static void compactExecutableMembers(
+            Set<? extends IExecutableMember> members) {
+        for (IExecutableMember member : elements(members)) {
+            if (!(member instanceof SigExecutableMember)) {
+                continue;
+            }
+            SigExecutableMember sigMember = (SigExecutableMember) member;
+            compactAnnotations(sigMember);
+            sigMember.setModifiers(compactModifiers(sigMember
+                    .getModifiers()));
+            sigMember.setExceptions(compactSet(sigMember.getExceptions()));
+            sigMember.setTypeParameters(compactTypeParameters(sigMember
+                    .getTypeParameters()));
+            sigMember.setParameters(compactList(sigMember.getParameters()));
+            for (IParameter parameter : elements(sigMember.getParameters())) {
+                if (parameter instanceof SigAnnotatableElement) {
+                    compactAnnotations((SigAnnotatableElement) parameter);
+                }
+            }
+        }
+    }
+
+    private static void compactFields(Set<? extends IField> fields) {
+        for (IField field : elements(fields)) {
+            if (field instanceof SigField) {
+                SigField sigField = (SigField) field;
+                compactAnnotations(sigField);
+                sigField.setModifiers(compactModifiers(sigField
+                        .getModifiers()));
+            }
+        }
+    }
+
+    private static List<ITypeVariableDefinition> compactTypeParameters(
+            List<ITypeVariableDefinition> typeParameters) {
+        for (ITypeVariableDefinition typeParameter : elements(
+                typeParameters)) {
+            if (typeParameter instanceof SigTypeVariableDefinition) {
+                SigTypeVariableDefinition sigTypeParameter =
+                        (SigTypeVariableDefinition) typeParameter;
+                sigTypeParameter.setUpperBounds(compactList(sigTypeParameter
+                        .getUpperBounds()));
+            }
+        }
+        return compactList(typeParameters);
+    }
+
+    private static void compactAnnotations(SigAnnotatableElement element) {
+        element.setAnnotations(compactSet(element.getAnnotations()));
+        for (IAnnotation annotation : elements(element.getAnnotations())) {
+            if (annotation instanceof SigAnnotation) {
+                SigAnnotation sigAnnotation = (SigAnnotation) annotation;
+                sigAnnotation.setElements(compactSet(sigAnnotation
+                        .getElements()));
+            }
+        }
+    }
+
+    /**
+     * Returns the shared, unmodifiable set with the given modifiers.
+     */
+    private static Set<Modifier> compactModifiers(Set<Modifier> modifiers) {
+        if (!isInitialized(modifiers)) {
+            return modifiers;
+        }
+        int mask = 0;
+        for (Modifier modifier : modifiers) {
+            mask |= 1 << modifier.ordinal();
+        }
+        Set<Modifier> shared = MODIFIERS.get(mask);
+        if (shared == null) {
+            Set<Modifier> copy = modifiers.isEmpty() ? EnumSet
+                    .noneOf(Modifier.class) : EnumSet.copyOf(modifiers);
+            shared = Collections.unmodifiableSet(copy);
+            Set<Modifier> pooled = MODIFIERS.putIfAbsent(mask, shared);
+            if (pooled != null) {
+                shared = pooled;
+            }
+        }
+        return shared;
+    }
+
+    private static <E> Set<E> compactSet(Set<E> set) {
+        if (!isInitialized(set)) {
+            return set;
+        }
+        return CompactSet.copyOf(set);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> List<E> compactList(List<E> list) {
+        if (!isInitialized(list)) {
+            return list;
+        }
+        switch (list.size()) {
+        case 0:
+            return Collections.emptyList();
+        case 1:
+            return Collections.singletonList(list.get(0));
+        default:
+            return Collections.unmodifiableList(Arrays.asList((E[]) list
+                    .toArray()));
+        }
+    }
+
+    /**
+     * Returns the given collection, or an empty one if it is
+     * <code>null</code> or not initialized.
+     */
+    private static <E> Collection<E> elements(
+            Collection<? extends E> collection) {
+        if (!isInitialized(collection)) {
+            return Collections.emptySet();
+        }
+        return Collections.<E> unmodifiableCollection(collection);
+    }
+
+    private static boolean isInitialized(Object o) {
+        return o != null && Uninitialized.isInitialized(o);
+    }
+}
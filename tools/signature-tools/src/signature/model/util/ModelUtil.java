@@ -145,6 +145,18 @@ public class ModelUtil {
     }
 
 
+    /**
+     * Returns the canonical representation of the given name, which is
+     * shared by all elements of all apis loaded by this process.
+     *
+     * @param name
+     *            the name, may be <code>null</code>
+     * @return the interned name
+     */
+    public static String intern(String name) {
+        return name == null ? null : name.intern();
+    }
+
     public static String separate(Collection<? extends Object> elements,
             String separator) {
         StringBuilder s = new StringBuilder();
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.model.util;
+
+/**
+ * The full MD5 digest of the structure of a package or class, as computed by
+ * {@link StructuralHashes}. Unlike a truncated hash, two different structures
+ * having the same digest is unlikely enough that elements with equal digests
+ * may be treated as equal.
+ */
+public final class StructuralHash implements Comparable<StructuralHash> {
+
+    private final long high;
+    private final long low;
+
+    public StructuralHash(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /** Returns the first eight bytes of the digest. */
+    public long getHigh() {
+        return high;
+    }
+
+    /** Returns the last eight bytes of the digest. */
+    public long getLow() {
+        return low;
+    }
+
+    public int compareTo(StructuralHash other) {
+        if (high != other.high) {
+            return high < other.high ? -1 : 1;
+        }
+        if (low != other.low) {
+            return low < other.low ? -1 : 1;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof StructuralHash)) {
+            return false;
+        }
+        StructuralHash other = (StructuralHash) obj;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (high ^ (high >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x%016x", high, low);
+    }
+}
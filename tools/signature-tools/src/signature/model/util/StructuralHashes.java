@@ -0,0 +1,487 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.model.util;
+
+import static signature.model.impl.Uninitialized.isInitialized;
+import signature.model.IAnnotation;
+import signature.model.IAnnotationElement;
+import signature.model.IAnnotationField;
+import signature.model.IArrayType;
+import signature.model.IClassDefinition;
+import signature.model.IClassReference;
+import signature.model.IConstructor;
+import signature.model.IEnumConstant;
+import signature.model.IExecutableMember;
+import signature.model.IField;
+import signature.model.IGenericDeclaration;
+import signature.model.IMethod;
+import signature.model.IPackage;
+import signature.model.IParameter;
+import signature.model.IParameterizedType;
+import signature.model.IPrimitiveType;
+import signature.model.ITypeReference;
+import signature.model.ITypeVariableDefinition;
+import signature.model.ITypeVariableReference;
+import signature.model.IWildcardType;
+import signature.model.Kind;
+import signature.model.Modifier;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes and caches structural hashes of packages and classes.
+ * <p>
+ * The hash of a class covers everything the api comparator looks at when
+ * comparing two classes: its kind, modifiers, type parameters, super types and
+ * members, with their types and annotations. Referenced classes contribute
+ * their name and kind only. The hash of a package covers its annotations and
+ * the hashes of its classes. Members of sets are hashed independently of their
+ * iteration order, so two structurally equal elements have the same hash,
+ * whether they were converted from dex files or read from a signature file.
+ * <p>
+ * The hashes are stable across runs and may be stored. Elements implementing
+ * {@link IStructurallyHashed} provide their hash themselves, all other hashes
+ * are computed on first request and cached by element identity, so the
+ * elements must not change while this cache is in use. This class is thread
+ * safe.
+ */
+public class StructuralHashes {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int NULL = -1;
+    private static final int UNSET = -2;
+
+    private final Map<Object, StructuralHash> hashes = Collections
+            .synchronizedMap(new IdentityHashMap<Object, StructuralHash>());
+
+    public StructuralHash getHash(IPackage aPackage) {
+        if (aPackage instanceof IStructurallyHashed) {
+            return ((IStructurallyHashed) aPackage).getStructuralHash();
+        }
+        StructuralHash hash = hashes.get(aPackage);
+        if (hash == null) {
+            Hasher hasher = new Hasher("package");
+            hasher.putString(aPackage.getName());
+            putAnnotations(hasher, aPackage.getAnnotations());
+            Set<IClassDefinition> classes = aPackage.getClasses();
+            if (putCount(hasher, classes)) {
+                StructuralHash[] classHashes =
+                        new StructuralHash[classes.size()];
+                int i = 0;
+                for (IClassDefinition clazz : classes) {
+                    classHashes[i++] = getHash(clazz);
+                }
+                hasher.putUnordered(classHashes);
+            }
+            hash = hasher.finish();
+            hashes.put(aPackage, hash);
+        }
+        return hash;
+    }
+
+    public StructuralHash getHash(IClassDefinition clazz) {
+        if (clazz instanceof IStructurallyHashed) {
+            return ((IStructurallyHashed) clazz).getStructuralHash();
+        }
+        StructuralHash hash = hashes.get(clazz);
+        if (hash == null) {
+            // computed outside the lock, concurrent computations of the same
+            // hash yield the same value
+            hash = computeHash(clazz);
+            hashes.put(clazz, hash);
+        }
+        return hash;
+    }
+
+    private StructuralHash computeHash(IClassDefinition clazz) {
+        Hasher hasher = new Hasher("class");
+        hasher.putString(clazz.getPackageName());
+        hasher.putString(clazz.getName());
+        putKind(hasher, clazz.getKind());
+        if (!isInitialized(clazz.getKind())) {
+            // a class which is referred to, but not part of the api
+            return hasher.finish();
+        }
+        putModifiers(hasher, clazz.getModifiers());
+        putTypeParameters(hasher, clazz.getTypeParameters());
+        putType(hasher, clazz.getSuperClass());
+        putTypes(hasher, clazz.getInterfaces());
+
+        Set<IConstructor> constructors = clazz.getConstructors();
+        if (putCount(hasher, constructors)) {
+            StructuralHash[] memberHashes =
+                    new StructuralHash[constructors.size()];
+            int i = 0;
+            for (IConstructor constructor : constructors) {
+                memberHashes[i++] = hashExecutableMember("constructor",
+                        constructor).finish();
+            }
+            hasher.putUnordered(memberHashes);
+        }
+        Set<IMethod> methods = clazz.getMethods();
+        if (putCount(hasher, methods)) {
+            StructuralHash[] memberHashes =
+                    new StructuralHash[methods.size()];
+            int i = 0;
+            for (IMethod method : methods) {
+                Hasher methodHasher = hashExecutableMember("method", method);
+                putType(methodHasher, method.getReturnType());
+                memberHashes[i++] = methodHasher.finish();
+            }
+            hasher.putUnordered(memberHashes);
+        }
+        putFields(hasher, clazz.getFields());
+        putFields(hasher, clazz.getEnumConstants());
+        putFields(hasher, clazz.getAnnotationFields());
+        putAnnotations(hasher, clazz.getAnnotations());
+        return hasher.finish();
+    }
+
+    private Hasher hashExecutableMember(String tag, IExecutableMember member) {
+        Hasher hasher = new Hasher(tag);
+        hasher.putString(member.getName());
+        putModifiers(hasher, member.getModifiers());
+        putTypeParameters(hasher, member.getTypeParameters());
+        List<IParameter> parameters = member.getParameters();
+        if (putCount(hasher, parameters)) {
+            for (IParameter parameter : parameters) {
+                putType(hasher, parameter.getType());
+                putAnnotations(hasher, parameter.getAnnotations());
+            }
+        }
+        putTypes(hasher, member.getExceptions());
+        putAnnotations(hasher, member.getAnnotations());
+        return hasher;
+    }
+
+    private void putFields(Hasher hasher, Set<? extends IField> fields) {
+        if (putCount(hasher, fields)) {
+            StructuralHash[] fieldHashes = new StructuralHash[fields.size()];
+            int i = 0;
+            for (IField field : fields) {
+                fieldHashes[i++] = hashField(field);
+            }
+            hasher.putUnordered(fieldHashes);
+        }
+    }
+
+    private StructuralHash hashField(IField field) {
+        Hasher hasher = new Hasher("field");
+        hasher.putString(field.getName());
+        putModifiers(hasher, field.getModifiers());
+        putType(hasher, field.getType());
+        putAnnotations(hasher, field.getAnnotations());
+        if (field instanceof IEnumConstant) {
+            int ordinal;
+            try {
+                ordinal = ((IEnumConstant) field).getOrdinal();
+            } catch (UnsupportedOperationException e) {
+                // not known to converters which do not see the initializer
+                ordinal = NULL;
+            }
+            hasher.putInt(ordinal);
+        }
+        if (field instanceof IAnnotationField) {
+            putValue(hasher, ((IAnnotationField) field).getDefaultValue());
+        }
+        return hasher.finish();
+    }
+
+    private void putAnnotations(Hasher hasher, Set<IAnnotation> annotations) {
+        if (putCount(hasher, annotations)) {
+            StructuralHash[] annotationHashes =
+                    new StructuralHash[annotations.size()];
+            int i = 0;
+            for (IAnnotation annotation : annotations) {
+                annotationHashes[i++] = hashAnnotation(annotation);
+            }
+            hasher.putUnordered(annotationHashes);
+        }
+    }
+
+    private StructuralHash hashAnnotation(IAnnotation annotation) {
+        Hasher hasher = new Hasher("annotation");
+        putType(hasher, annotation.getType());
+        Set<IAnnotationElement> elements = annotation.getElements();
+        if (putCount(hasher, elements)) {
+            StructuralHash[] elementHashes =
+                    new StructuralHash[elements.size()];
+            int i = 0;
+            for (IAnnotationElement element : elements) {
+                Hasher elementHasher = new Hasher("element");
+                IAnnotationField field = element.getDeclaringField();
+                elementHasher.putString(field == null ? null : field
+                        .getName());
+                putValue(elementHasher, element.getValue());
+                elementHashes[i++] = elementHasher.finish();
+            }
+            hasher.putUnordered(elementHashes);
+        }
+        return hasher.finish();
+    }
+
+    private void putValue(Hasher hasher, Object value) {
+        if (value == null) {
+            hasher.putString("null");
+        } else if (!isInitialized(value)) {
+            hasher.putString("unset");
+        } else if (value instanceof Object[]) {
+            Object[] values = (Object[]) value;
+            hasher.putString("array");
+            hasher.putInt(values.length);
+            for (Object element : values) {
+                putValue(hasher, element);
+            }
+        } else if (value instanceof IAnnotation) {
+            hasher.putString("annotation");
+            hasher.putHash(hashAnnotation((IAnnotation) value));
+        } else if (value instanceof IField) {
+            hasher.putString("field");
+            hasher.putHash(hashField((IField) value));
+        } else if (value instanceof ITypeReference) {
+            hasher.putString("type");
+            putType(hasher, (ITypeReference) value);
+        } else {
+            hasher.putString(value.getClass().getName());
+            hasher.putString(value.toString());
+        }
+    }
+
+    private void putTypeParameters(Hasher hasher,
+            List<ITypeVariableDefinition> typeParameters) {
+        if (putCount(hasher, typeParameters)) {
+            for (ITypeVariableDefinition typeParameter : typeParameters) {
+                hasher.putString(typeParameter.getName());
+                List<ITypeReference> bounds = typeParameter.getUpperBounds();
+                if (putCount(hasher, bounds)) {
+                    for (ITypeReference bound : bounds) {
+                        putType(hasher, bound);
+                    }
+                }
+            }
+        }
+    }
+
+    private void putTypes(Hasher hasher, Set<ITypeReference> types) {
+        if (putCount(hasher, types)) {
+            StructuralHash[] typeHashes = new StructuralHash[types.size()];
+            int i = 0;
+            for (ITypeReference type : types) {
+                Hasher typeHasher = new Hasher("type");
+                putType(typeHasher, type);
+                typeHashes[i++] = typeHasher.finish();
+            }
+            hasher.putUnordered(typeHashes);
+        }
+    }
+
+    private void putType(Hasher hasher, ITypeReference type) {
+        if (type == null) {
+            hasher.putString("null");
+        } else if (!isInitialized(type)) {
+            hasher.putString("unset");
+        } else if (type instanceof IPrimitiveType) {
+            hasher.putString("primitive");
+            hasher.putString(((IPrimitiveType) type).getName());
+        } else if (type instanceof IClassReference) {
+            IClassDefinition clazz = ((IClassReference) type)
+                    .getClassDefinition();
+            hasher.putString("class");
+            if (isInitialized(clazz)) {
+                hasher.putString(clazz.getPackageName());
+                hasher.putString(clazz.getName());
+                putKind(hasher, clazz.getKind());
+            } else {
+                hasher.putString("unset");
+            }
+        } else if (type instanceof IParameterizedType) {
+            IParameterizedType parameterizedType = (IParameterizedType) type;
+            hasher.putString("parameterized");
+            putType(hasher, parameterizedType.getOwnerType());
+            putType(hasher, parameterizedType.getRawType());
+            List<ITypeReference> arguments = parameterizedType
+                    .getTypeArguments();
+            if (putCount(hasher, arguments)) {
+                for (ITypeReference argument : arguments) {
+                    putType(hasher, argument);
+                }
+            }
+        } else if (type instanceof IArrayType) {
+            hasher.putString("array");
+            putType(hasher, ((IArrayType) type).getComponentType());
+        } else if (type instanceof IWildcardType) {
+            IWildcardType wildcardType = (IWildcardType) type;
+            hasher.putString("wildcard");
+            putType(hasher, wildcardType.getLowerBound());
+            List<ITypeReference> bounds = wildcardType.getUpperBounds();
+            if (putCount(hasher, bounds)) {
+                for (ITypeReference bound : bounds) {
+                    putType(hasher, bound);
+                }
+            }
+        } else if (type instanceof ITypeVariableReference) {
+            hasher.putString("variable");
+            putTypeVariable(hasher, ((ITypeVariableReference) type)
+                    .getTypeVariableDefinition());
+        } else {
+            throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    /**
+     * Type variables are identified by their name and the position at their
+     * declaration. Their bounds are hashed with the declaration.
+     */
+    private void putTypeVariable(Hasher hasher,
+            ITypeVariableDefinition variable) {
+        if (!isInitialized(variable)) {
+            hasher.putString("unset");
+            return;
+        }
+        hasher.putString(variable.getName());
+        IGenericDeclaration declaration = variable.getGenericDeclaration();
+        if (declaration == null || !isInitialized(declaration)) {
+            hasher.putString("null");
+            return;
+        }
+        IClassDefinition declaringClass;
+        if (declaration instanceof IClassDefinition) {
+            hasher.putString("class");
+            declaringClass = (IClassDefinition) declaration;
+        } else {
+            IExecutableMember member = (IExecutableMember) declaration;
+            hasher.putString(member instanceof IMethod ? "method"
+                    : "constructor");
+            hasher.putString(member.getName());
+            declaringClass = member.getDeclaringClass();
+        }
+        hasher.putString(declaringClass == null ? null : declaringClass
+                .getQualifiedName());
+        List<ITypeVariableDefinition> typeParameters = declaration
+                .getTypeParameters();
+        hasher.putInt(typeParameters != null && isInitialized(typeParameters)
+                ? typeParameters.indexOf(variable) : NULL);
+    }
+
+    private static void putKind(Hasher hasher, Kind kind) {
+        hasher.putString(kind == null ? null : kind.name());
+    }
+
+    private static void putModifiers(Hasher hasher, Set<Modifier> modifiers) {
+        if (putCount(hasher, modifiers)) {
+            String[] names = new String[modifiers.size()];
+            int i = 0;
+            for (Modifier modifier : modifiers) {
+                names[i++] = modifier.name();
+            }
+            Arrays.sort(names);
+            for (String name : names) {
+                hasher.putString(name);
+            }
+        }
+    }
+
+    /**
+     * Puts the size of given collection.
+     * 
+     * @return true if the collection has elements to be hashed
+     */
+    private static boolean putCount(Hasher hasher, Collection<?> collection) {
+        if (collection == null) {
+            hasher.putInt(NULL);
+            return false;
+        }
+        if (!isInitialized(collection)) {
+            hasher.putInt(UNSET);
+            return false;
+        }
+        hasher.putInt(collection.size());
+        return !collection.isEmpty();
+    }
+
+    /** Accumulates the bytes of one element and digests them. */
+    private static class Hasher {
+        private final MessageDigest digest;
+
+        Hasher(String tag) {
+            try {
+                digest = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            putString(tag);
+        }
+
+        void putInt(int value) {
+            digest.update((byte) (value >>> 24));
+            digest.update((byte) (value >>> 16));
+            digest.update((byte) (value >>> 8));
+            digest.update((byte) value);
+        }
+
+        void putLong(long value) {
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(NULL);
+            } else {
+                byte[] bytes = value.getBytes(UTF_8);
+                putInt(bytes.length);
+                digest.update(bytes);
+            }
+        }
+
+        void putHash(StructuralHash hash) {
+            putLong(hash.getHigh());
+            putLong(hash.getLow());
+        }
+
+        /** Puts hashes of set members, independent of their order. */
+        void putUnordered(StructuralHash[] hashes) {
+            Arrays.sort(hashes);
+            for (StructuralHash hash : hashes) {
+                putHash(hash);
+            }
+        }
+
+        StructuralHash finish() {
+            byte[] bytes = digest.digest();
+            return new StructuralHash(toLong(bytes, 0), toLong(bytes, 8));
+        }
+
+        private static long toLong(byte[] bytes, int offset) {
+            long result = 0;
+            for (int i = offset; i < offset + 8; i++) {
+                result = (result << 8) | (bytes[i] & 0xff);
+            }
+            return result;
+        }
+    }
+}
@@ -17,8 +17,10 @@
 package signature.model.util;
 
 import static signature.model.impl.Uninitialized.isInitialized;
+import signature.model.IArrayType;
 import signature.model.IClassReference;
 import signature.model.IGenericDeclaration;
+import signature.model.IPrimitiveType;
 import signature.model.ITypeReference;
 import signature.model.ITypeVariableReference;
 import signature.model.impl.SigArrayType;
@@ -29,27 +31,44 @@ import signature.model.impl.SigTypeVariableDefinition;
 import signature.model.impl.SigTypeVariableReference;
 import signature.model.impl.SigWildcardType;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Pool and factory for all {@link ITypeReference} instances.<br>
- * Note: This class is not thread save
+ * Note: This class is thread safe. For a given key, all threads obtain the
+ * same pooled instance, but the instance itself is not synchronized.
  */
 public class TypePool implements ITypeFactory {
 
     /**
      * Pool for all SigClass objects. Key format: "java.lang.Object", "a.b.C$D
      */
-    private Map<String, SigClassDefinition> classPool;
+    private final ConcurrentMap<String, SigClassDefinition> classPool;
+    /**
+     * Pool for the references to the pooled classes, by package name and
+     * class name, so that looking up a reference needs no temporary key.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, IClassReference>>
+            referencePool;
+    /**
+     * Pool for the array types of primitive types, classes and arrays
+     * thereof. Arrays of parameterized types or type variables are not
+     * pooled.
+     */
+    private final ConcurrentMap<ITypeReference, SigArrayType> arrayPool;
     /** Pool for all SigTypeVariable objects */
-    private Map<TypeVariableKey, SigTypeVariableDefinition> typeVariablePool;
+    private final ConcurrentMap<TypeVariableKey, SigTypeVariableDefinition>
+            typeVariablePool;
 
     public TypePool() {
-        classPool = new HashMap<String, SigClassDefinition>();
-        typeVariablePool =
-                new HashMap<TypeVariableKey, SigTypeVariableDefinition>();
+        classPool = new ConcurrentHashMap<String, SigClassDefinition>();
+        referencePool = new ConcurrentHashMap<String,
+                ConcurrentMap<String, IClassReference>>();
+        arrayPool = new ConcurrentHashMap<ITypeReference, SigArrayType>();
+        typeVariablePool = new ConcurrentHashMap<TypeVariableKey,
+                SigTypeVariableDefinition>();
     }
 
     public SigClassDefinition getClass(String packageName, String className) {
@@ -57,19 +76,67 @@ public class TypePool implements ITypeFactory {
         SigClassDefinition clazz = classPool.get(key);
         if (clazz == null) {
             clazz = new SigClassDefinition(packageName, className);
-            classPool.put(key, clazz);
+            SigClassDefinition pooled = classPool.putIfAbsent(key, clazz);
+            if (pooled != null) {
+                // another thread was faster
+                clazz = pooled;
+            }
         }
         return clazz;
     }
 
     public IClassReference getClassReference(String packageName,
             String className) {
-        return new SigClassReference(getClass(packageName, className));
+        ConcurrentMap<String, IClassReference> references = referencePool
+                .get(packageName);
+        if (references == null) {
+            references = new ConcurrentHashMap<String, IClassReference>();
+            ConcurrentMap<String, IClassReference> pooled = referencePool
+                    .putIfAbsent(packageName, references);
+            if (pooled != null) {
+                references = pooled;
+            }
+        }
+        IClassReference reference = references.get(className);
+        if (reference == null) {
+            reference = new SigClassReference(getClass(packageName,
+                    className));
+            IClassReference pooled = references.putIfAbsent(className,
+                    reference);
+            if (pooled != null) {
+                reference = pooled;
+            }
+        }
+        return reference;
     }
 
     public SigArrayType getArrayType(ITypeReference componentType) {
         assert componentType != null;
-        return new SigArrayType(componentType);
+        if (!isPoolable(componentType)) {
+            return new SigArrayType(componentType);
+        }
+        SigArrayType arrayType = arrayPool.get(componentType);
+        if (arrayType == null) {
+            arrayType = new SigArrayType(componentType);
+            SigArrayType pooled = arrayPool.putIfAbsent(componentType,
+                    arrayType);
+            if (pooled != null) {
+                arrayType = pooled;
+            }
+        }
+        return arrayType;
+    }
+
+    /**
+     * Returns whether the given type is equal to all other types with the
+     * same name, regardless of where it is used.
+     */
+    private static boolean isPoolable(ITypeReference type) {
+        if (type instanceof IArrayType) {
+            return isPoolable(((IArrayType) type).getComponentType());
+        }
+        return type instanceof IPrimitiveType
+                || type instanceof IClassReference;
     }
 
     public SigParameterizedType getParameterizedType(ITypeReference ownerType,
@@ -127,7 +194,11 @@ public class TypePool implements ITypeFactory {
         if (sigTypeVariable == null) {
             sigTypeVariable = new SigTypeVariableDefinition(name,
                     genericDeclaration);
-            typeVariablePool.put(key, sigTypeVariable);
+            SigTypeVariableDefinition pooled = typeVariablePool.putIfAbsent(
+                    key, sigTypeVariable);
+            if (pooled != null) {
+                sigTypeVariable = pooled;
+            }
         }
         return sigTypeVariable;
     }
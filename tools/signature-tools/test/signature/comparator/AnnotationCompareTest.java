@@ -16,12 +16,14 @@
 
 package signature.comparator;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
 import org.junit.Test;
 
 import signature.comparator.util.AbstractComparatorTest;
+import signature.compare.model.IApiDelta;
 import signature.converter.util.CompilationUnit;
 import signature.model.IApi;
 
@@ -69,4 +71,26 @@ public abstract class AnnotationCompareTest extends AbstractComparatorTest {
               IApi toApi = convert(A1);
               assertNotNull(compare(fromApi, toApi));
         }
+
+    @Test
+    public void testAnnotationTypeNotInApi() throws IOException {
+        CompilationUnit fromB = new CompilationUnit("a.B",
+                "package a; " +
+                "public class B {" +
+                "  @Deprecated public void m() {}" +
+                "  @Deprecated public void n() {}" +
+                "}");
+        CompilationUnit toB = new CompilationUnit("a.B",
+                "package a; " +
+                "public class B {" +
+                "  @Deprecated public void m() {}" +
+                "  @Deprecated public int n() { return 0; }" +
+                "}");
+        IApi fromApi = convert(fromB);
+        IApi toApi = convert(toB);
+        assertNull(compare(fromApi, convert(fromB)));
+        IApiDelta delta = compare(fromApi, toApi);
+        assertNotNull(delta);
+        assertEquals(1, delta.getPackageDeltas().size());
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.comparator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import signature.comparator.util.AbstractComparatorTest;
+import signature.compare.ApiEvolution;
+import signature.compare.IApiDeltaListener;
+import signature.compare.model.IClassDefinitionDelta;
+import signature.compare.model.IPackageDelta;
+import signature.compare.model.impl.SigClassDefinitionDelta;
+import signature.compare.model.impl.SigPackageDelta;
+import signature.converter.classfile.ClassFileTestConverter;
+import signature.converter.util.CompilationUnit;
+import signature.converter.util.ITestSourceConverter;
+import signature.io.impl.TimelineWriter;
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+import signature.model.impl.SigClassDefinition;
+import signature.model.impl.SigPackage;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ApiEvolutionTest extends AbstractComparatorTest {
+
+    private static final List<String> VERSIONS = Arrays.asList("v1", "v2",
+            "v3");
+
+    private static final CompilationUnit A = new CompilationUnit("a.A",
+            "package a; " +
+            "public class A {}");
+    private static final CompilationUnit B = new CompilationUnit("a.B",
+            "package a; " +
+            "public class B {}");
+    private static final CompilationUnit C1 = new CompilationUnit("b.C",
+            "package b; " +
+            "public class C { public void m() {} }");
+    private static final CompilationUnit C2 = new CompilationUnit("b.C",
+            "package b; " +
+            "public class C { public int m() { return 0; } }");
+    private static final CompilationUnit D = new CompilationUnit("b.D",
+            "package b; " +
+            "public class D {}");
+
+    @Override
+    public ITestSourceConverter createConverter() {
+        return new ClassFileTestConverter();
+    }
+
+    /**
+     * Returns three versions of an api: v2 removes a.B and changes b.C, v3
+     * adds a.B back and adds b.D.
+     */
+    private List<IApi> convertVersions() throws IOException {
+        return Arrays.asList(convert(A, B, C1), convert(A, C2), convert(A,
+                B, C2, D));
+    }
+
+    private String timeline(List<IApi> apis, int numThreads) {
+        TimelineWriter timeline = new TimelineWriter(VERSIONS);
+        new ApiEvolution(numThreads).compare(apis, timeline.getListeners());
+        StringWriter writer = new StringWriter();
+        try {
+            timeline.write(writer);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return writer.toString();
+    }
+
+    private String getExpectedTimeline() {
+        return "{\"element\":\"a.B\",\"kind\":\"class\",\"timeline\":["
+                + "{\"version\":\"v2\",\"type\":\"removed\"},"
+                + "{\"version\":\"v3\",\"type\":\"added\"}]}\n"
+                + "{\"element\":\"b.C\",\"kind\":\"class\",\"timeline\":["
+                + "{\"version\":\"v2\",\"type\":\"changed\"}]}\n"
+                + "{\"element\":\"b.C#m()\",\"kind\":\"method\","
+                + "\"timeline\":[{\"version\":\"v2\",\"type\":\"changed\"}]}\n"
+                + "{\"element\":\"b.D\",\"kind\":\"class\",\"timeline\":["
+                + "{\"version\":\"v3\",\"type\":\"added\"}]}\n";
+    }
+
+    @Test
+    public void testTimelineOfRemovedAndReaddedClasses() throws IOException {
+        assertEquals(getExpectedTimeline(), timeline(convertVersions(), 1));
+    }
+
+    @Test
+    public void testParallelEvolution() throws IOException {
+        assertEquals(getExpectedTimeline(), timeline(convertVersions(), 8));
+    }
+
+    /**
+     * The package a.b and the class b of package a share their name, but
+     * have separate timelines.
+     */
+    @Test
+    public void testPackageAndClassOfSameName() throws IOException {
+        TimelineWriter timeline = new TimelineWriter(Arrays.asList("v1",
+                "v2"));
+        IApiDeltaListener listener = timeline.getListeners().get(0);
+        listener.packageDelta(new SigPackageDelta(null, new SigPackage(
+                "a.b")));
+        listener.classDelta(new SigClassDefinitionDelta(
+                new SigClassDefinition("a", "b"), null));
+        StringWriter writer = new StringWriter();
+        timeline.write(writer);
+        assertEquals("{\"element\":\"a.b\",\"kind\":\"class\",\"timeline\":["
+                + "{\"version\":\"v2\",\"type\":\"removed\"}]}\n"
+                + "{\"element\":\"a.b\",\"kind\":\"package\",\"timeline\":["
+                + "{\"version\":\"v2\",\"type\":\"added\"}]}\n", writer
+                .toString());
+    }
+
+    @Test
+    public void testEvolutionEqualsPairwiseCompare() throws IOException {
+        List<IApi> apis = convertVersions().subList(0, 2);
+
+        final Set<String> evolved = new HashSet<String>();
+        new ApiEvolution().compare(apis, Arrays
+                .asList(new IApiDeltaListener() {
+                    public void packageDelta(IPackageDelta delta) {
+                    }
+
+                    public void classDelta(IClassDefinitionDelta delta) {
+                        IClassDefinition clazz = delta.getFrom() != null
+                                ? delta.getFrom() : delta.getTo();
+                        evolved.add(clazz.getQualifiedName() + " "
+                                + delta.getType());
+                    }
+                }));
+
+        Set<String> compared = new HashSet<String>();
+        for (IPackageDelta packageDelta : compare(apis.get(0), apis.get(1))
+                .getPackageDeltas()) {
+            if (packageDelta.getClassDeltas() == null) {
+                continue;
+            }
+            for (IClassDefinitionDelta classDelta : packageDelta
+                    .getClassDeltas()) {
+                IClassDefinition clazz = classDelta.getFrom() != null
+                        ? classDelta.getFrom() : classDelta.getTo();
+                compared.add(clazz.getQualifiedName() + " "
+                        + classDelta.getType());
+            }
+        }
+        assertEquals(new HashSet<String>(Arrays.asList("a.B REMOVED",
+                "b.C CHANGED")), compared);
+        assertEquals(compared, evolved);
+    }
+}
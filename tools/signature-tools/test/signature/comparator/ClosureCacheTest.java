@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.comparator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import signature.comparator.util.AbstractComparatorTest;
+import signature.compare.model.subst.ClosureCache;
+import signature.converter.dex.DexTestConverter;
+import signature.converter.util.CompilationUnit;
+import signature.converter.util.ITestSourceConverter;
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+import signature.model.IClassReference;
+import signature.model.IParameterizedType;
+import signature.model.ITypeReference;
+import signature.model.ITypeVariableReference;
+import signature.model.util.ModelUtil;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ClosureCacheTest extends AbstractComparatorTest {
+
+    private static final CompilationUnit COLLECTION = new CompilationUnit(
+            "a.Collection",
+            "package a; " +
+            "public interface Collection<E> {}");
+
+    private static final CompilationUnit LIST = new CompilationUnit("a.List",
+            "package a; " +
+            "public interface List<E> extends Collection<E> {}");
+
+    @Override
+    public ITestSourceConverter createConverter() {
+        return new DexTestConverter();
+    }
+
+    private static String toString(ITypeReference type) {
+        if (type instanceof IClassReference) {
+            return ((IClassReference) type).getClassDefinition()
+                    .getQualifiedName();
+        } else if (type instanceof IParameterizedType) {
+            IParameterizedType parameterizedType = (IParameterizedType) type;
+            StringBuilder builder = new StringBuilder(
+                    toString(parameterizedType.getRawType()));
+            String separator = "<";
+            for (ITypeReference argument : parameterizedType
+                    .getTypeArguments()) {
+                builder.append(separator).append(toString(argument));
+                separator = ", ";
+            }
+            return builder.append(">").toString();
+        } else if (type instanceof ITypeVariableReference) {
+            return ((ITypeVariableReference) type).getTypeVariableDefinition()
+                    .getName();
+        }
+        return type.toString();
+    }
+
+    private static Set<String> getInterfaceClosure(IApi api, String className) {
+        IClassDefinition clazz = ModelUtil.getClass(ModelUtil.getPackage(api,
+                "a"), className);
+        Set<String> closure = new HashSet<String>();
+        for (ITypeReference type : new ClosureCache()
+                .getInterfaceClosure(clazz)) {
+            closure.add(toString(type));
+        }
+        return closure;
+    }
+
+    @Test
+    public void interfaceClosureSubstitutesTypeArguments()
+            throws IOException {
+        CompilationUnit A = new CompilationUnit("a.A",
+                "package a; " +
+                "public abstract class A implements List<String> {}");
+        IApi api = convert(COLLECTION, LIST, A);
+        assertEquals(new HashSet<String>(Arrays.asList(
+                "a.List<java.lang.String>",
+                "a.Collection<java.lang.String>")),
+                getInterfaceClosure(api, "A"));
+    }
+
+    @Test
+    public void interfaceClosureSubstitutesTypeVariables() throws IOException {
+        CompilationUnit B = new CompilationUnit("a.B",
+                "package a; " +
+                "public abstract class B<T> implements List<T> {}");
+        CompilationUnit A = new CompilationUnit("a.A",
+                "package a; " +
+                "public abstract class A<S> extends B<S> {}");
+        IApi api = convert(COLLECTION, LIST, B, A);
+        assertEquals(new HashSet<String>(Arrays.asList("a.List<T>",
+                "a.Collection<T>")), getInterfaceClosure(api, "B"));
+        assertEquals(new HashSet<String>(Arrays.asList("a.List<S>",
+                "a.Collection<S>")), getInterfaceClosure(api, "A"));
+    }
+
+    @Test
+    public void compareInheritedGenericInterface() throws IOException {
+        CompilationUnit A0 = new CompilationUnit("a.A",
+                "package a; " +
+                "public abstract class A implements List<String> {}");
+        CompilationUnit A1 = new CompilationUnit("a.A",
+                "package a; " +
+                "public abstract class A implements List<String>, " +
+                "Collection<String> {}");
+        IApi fromApi = convert(COLLECTION, LIST, A0);
+        IApi toApi = convert(COLLECTION, LIST, A1);
+        assertNull(compare(fromApi, toApi));
+        assertNull(compare(toApi, fromApi));
+    }
+
+    @Test
+    public void compareInheritedGenericInterfaceOfTypeVariable()
+            throws IOException {
+        CompilationUnit B = new CompilationUnit("a.B",
+                "package a; " +
+                "public abstract class B<T> implements List<T> {}");
+        CompilationUnit A0 = new CompilationUnit("a.A",
+                "package a; " +
+                "public abstract class A<S> extends B<S> {}");
+        CompilationUnit A1 = new CompilationUnit("a.A",
+                "package a; " +
+                "public abstract class A<S> extends B<S> " +
+                "implements Collection<S> {}");
+        IApi fromApi = convert(COLLECTION, LIST, B, A0);
+        IApi toApi = convert(COLLECTION, LIST, B, A1);
+        assertNull(compare(fromApi, toApi));
+        assertNull(compare(toApi, fromApi));
+    }
+}
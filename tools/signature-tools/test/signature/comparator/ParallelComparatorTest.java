@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.comparator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import signature.comparator.util.AbstractComparatorTest;
+import signature.compare.ApiComparator;
+import signature.compare.IApiDeltaListener;
+import signature.compare.model.IApiDelta;
+import signature.compare.model.IClassDefinitionDelta;
+import signature.compare.model.IPackageDelta;
+import signature.converter.dex.DexTestConverter;
+import signature.converter.util.CompilationUnit;
+import signature.converter.util.ITestSourceConverter;
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ParallelComparatorTest extends AbstractComparatorTest {
+
+    private static final int NUM_CLASSES = 12;
+
+    @Override
+    public ITestSourceConverter createConverter() {
+        return new DexTestConverter();
+    }
+
+    private CompilationUnit createClass(int i, String methods) {
+        String packageName = "p" + (i % 3);
+        return new CompilationUnit(packageName + ".C" + i,
+                "package " + packageName + "; " +
+                "public class C" + i + " { " + methods + " }");
+    }
+
+    /**
+     * Returns {@link #NUM_CLASSES} classes, C0 to C11, spread over three
+     * packages.
+     */
+    private Set<CompilationUnit> createFromUnits() {
+        Set<CompilationUnit> units = new HashSet<CompilationUnit>();
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            units.add(createClass(i, "public void m" + i + "() {}"));
+        }
+        return units;
+    }
+
+    /**
+     * Returns the units of {@link #createFromUnits()} with C3 and C7
+     * removed, the method of C4 changed and C12 added.
+     */
+    private Set<CompilationUnit> createToUnits() {
+        Set<CompilationUnit> units = new HashSet<CompilationUnit>();
+        for (int i = 0; i <= NUM_CLASSES; i++) {
+            if (i == 3 || i == 7) {
+                continue;
+            } else if (i == 4) {
+                units.add(createClass(i, "public int m" + i + "() { " +
+                        "return 0; }"));
+            } else {
+                units.add(createClass(i, "public void m" + i + "() {}"));
+            }
+        }
+        return units;
+    }
+
+    private Set<String> getExpectedClassDeltas() {
+        return new HashSet<String>(Arrays.asList("p0.C3 REMOVED",
+                "p1.C7 REMOVED", "p1.C4 CHANGED", "p0.C12 ADDED"));
+    }
+
+    private String describe(IClassDefinitionDelta delta) {
+        IClassDefinition clazz = delta.getFrom() != null ? delta.getFrom()
+                : delta.getTo();
+        return clazz.getQualifiedName() + " " + delta.getType();
+    }
+
+    private Set<String> getClassDeltas(IApiDelta delta) {
+        Set<String> classDeltas = new HashSet<String>();
+        for (IPackageDelta packageDelta : delta.getPackageDeltas()) {
+            if (packageDelta.getClassDeltas() == null) {
+                continue;
+            }
+            for (IClassDefinitionDelta classDelta : packageDelta
+                    .getClassDeltas()) {
+                classDeltas.add(describe(classDelta));
+            }
+        }
+        return classDeltas;
+    }
+
+    @Test
+    public void testParallelCompareEqualApis() throws IOException {
+        IApi from = convert(createFromUnits());
+        IApi to = convert(createFromUnits());
+        assertNull(new ApiComparator(8).compare(from, to));
+    }
+
+    @Test
+    public void testParallelCompare() throws IOException {
+        IApi from = convert(createFromUnits());
+        IApi to = convert(createToUnits());
+
+        for (int numThreads : new int[] {1, 8}) {
+            IApiDelta delta = new ApiComparator(numThreads).compare(from, to);
+            assertEquals(getExpectedClassDeltas(), getClassDeltas(delta));
+        }
+    }
+
+    @Test
+    public void testStreamingCompareEqualsCompare() throws IOException {
+        IApi from = convert(createFromUnits());
+        IApi to = convert(createToUnits());
+
+        for (int numThreads : new int[] {1, 8}) {
+            final Set<String> streamed = new HashSet<String>();
+            boolean reported = new ApiComparator(numThreads).compare(from,
+                    to, new IApiDeltaListener() {
+                        public void packageDelta(IPackageDelta delta) {
+                        }
+
+                        public void classDelta(IClassDefinitionDelta delta) {
+                            streamed.add(describe(delta));
+                        }
+                    });
+            assertTrue(reported);
+            assertEquals(getExpectedClassDeltas(), streamed);
+        }
+    }
+
+    /**
+     * Returns {@link #NUM_CLASSES} classes of package p0, with a method
+     * returning the given type.
+     */
+    private Set<CompilationUnit> createChangedUnits(String returnType) {
+        Set<CompilationUnit> units = new HashSet<CompilationUnit>();
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            String defaultValue = "void".equals(returnType) ? "" : "0";
+            units.add(createClass(i * 3, "public " + returnType + " m() { " +
+                    "return " + defaultValue + "; }"));
+        }
+        return units;
+    }
+
+    private List<String> streamClassDeltas(IApi from, IApi to,
+            int numThreads) {
+        final List<String> streamed = new ArrayList<String>();
+        new ApiComparator(numThreads).compare(from, to,
+                new IApiDeltaListener() {
+                    public void packageDelta(IPackageDelta delta) {
+                    }
+
+                    public void classDelta(IClassDefinitionDelta delta) {
+                        streamed.add(describe(delta));
+                    }
+                });
+        return streamed;
+    }
+
+    @Test
+    public void testStreamingOrderDoesNotDependOnThreads() throws IOException {
+        IApi from = convert(createChangedUnits("void"));
+        IApi to = convert(createChangedUnits("int"));
+
+        List<String> sequential = streamClassDeltas(from, to, 1);
+        assertEquals(NUM_CLASSES, sequential.size());
+        assertEquals(sequential, streamClassDeltas(from, to, 2));
+        assertEquals(sequential, streamClassDeltas(from, to, 8));
+    }
+
+    @Test
+    public void testStreamingStopsWhenListenerThrows() throws IOException {
+        IApi from = convert(createChangedUnits("void"));
+        IApi to = convert(createChangedUnits("int"));
+
+        for (int numThreads : new int[] {1, 2}) {
+            final List<String> streamed = new ArrayList<String>();
+            try {
+                new ApiComparator(numThreads).compare(from, to,
+                        new IApiDeltaListener() {
+                            public void packageDelta(IPackageDelta delta) {
+                            }
+
+                            public void classDelta(
+                                    IClassDefinitionDelta delta) {
+                                streamed.add(describe(delta));
+                                throw new IllegalStateException("stop");
+                            }
+                        });
+                fail("listener exception not propagated");
+            } catch (IllegalStateException e) {
+                assertEquals("stop", e.getMessage());
+            }
+            assertEquals(1, streamed.size());
+        }
+    }
+}
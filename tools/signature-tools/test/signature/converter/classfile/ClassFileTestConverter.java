@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.converter.classfile;
+
+import dex.reader.util.JavaSource;
+import dex.reader.util.JavaSourceToDexUtil;
+import dex.reader.util.MemoryByteCode;
+import dex.structure.DexClass;
+import dex.structure.DexFile;
+import signature.converter.Visibility;
+import signature.converter.dex.DexToSigConverter;
+import signature.converter.util.AbstractTestSourceConverter;
+import signature.converter.util.CompilationUnit;
+import signature.model.IApi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ClassFileTestConverter extends AbstractTestSourceConverter {
+
+    private final int numThreads;
+
+    public ClassFileTestConverter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param numThreads
+     *            the number of threads the {@link DexToSigConverter} converts
+     *            classes with
+     */
+    public ClassFileTestConverter(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public IApi convert(Visibility visibility, Set<CompilationUnit> units) throws IOException {
+        JavaSourceToDexUtil toDexUtil = new JavaSourceToDexUtil();
+        Set<JavaSource> sources = new HashSet<JavaSource>();
+        for (CompilationUnit unit : units) {
+            sources.add(new JavaSource(unit.getName(), unit.getSource()));
+        }
+        List<DexClass> classes = new ArrayList<DexClass>();
+        for (MemoryByteCode byteCode : toDexUtil.compileToByteCode(sources)) {
+            classes.add(new ClassFileReader().read(byteCode.getBytes()));
+        }
+        DexFile file = new ClassFileArchive("Class File Tests", classes);
+        DexToSigConverter converter = new DexToSigConverter(numThreads);
+        return converter.convertApi("Class File Tests", Collections.singleton(file), visibility);
+    }
+}
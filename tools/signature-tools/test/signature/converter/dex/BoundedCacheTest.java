@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static signature.model.util.ConcurrentCalls.callConcurrently;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void getAndPut() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(
+                4);
+        assertNull(cache.get("a"));
+        assertEquals("1", cache.put("a", "1"));
+        assertEquals("1", cache.get("a"));
+    }
+
+    @Test
+    public void putKeepsCachedValue() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(
+                4);
+        String first = cache.put("a", "1");
+        assertSame(first, cache.put("a", "2"));
+        assertEquals("1", cache.get("a"));
+    }
+
+    @Test
+    public void clearedWhenFull() {
+        BoundedCache<String, String> cache = new BoundedCache<String, String>(
+                3);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        assertEquals("3", cache.get("c"));
+
+        // the cache is full, putting a fourth entry drops all others
+        assertEquals("4", cache.put("d", "4"));
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNull(cache.get("c"));
+        assertEquals("4", cache.get("d"));
+
+        // dropped keys may be cached again, with a new value
+        assertEquals("5", cache.put("a", "5"));
+        assertEquals("5", cache.get("a"));
+        assertEquals("4", cache.get("d"));
+    }
+
+    @Test
+    public void concurrentPuts() throws Exception {
+        final BoundedCache<String, Object> cache =
+                new BoundedCache<String, Object>(4);
+        List<Object> values = callConcurrently(new Callable<Object>() {
+            public Object call() {
+                Object value = cache.get("a");
+                return value != null ? value : cache.put("a", new Object());
+            }
+        });
+        for (Object value : values) {
+            assertSame(cache.get("a"), value);
+        }
+    }
+}
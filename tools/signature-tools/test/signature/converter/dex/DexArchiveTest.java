@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.converter.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import signature.converter.Visibility;
+import signature.converter.util.ApiDump;
+import signature.model.IApi;
+import signature.model.IPackage;
+import signature.model.util.ModelUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import dex.reader.util.JavaSource;
+import dex.reader.util.JavaSourceToDexUtil;
+import dex.structure.DexFile;
+
+public class DexArchiveTest {
+
+    /**
+     * Returns the dex code of the given public classes in package a.
+     */
+    private byte[] createDexCode(String... classNames) throws IOException {
+        Set<JavaSource> sources = new HashSet<JavaSource>();
+        for (String className : classNames) {
+            sources.add(new JavaSource("a." + className,
+                    "package a; " +
+                    "public class " + className + " { " +
+                    "  public void m" + className + "() {} " +
+                    "}"));
+        }
+        return new JavaSourceToDexUtil().getDexCode(sources);
+    }
+
+    private String createDex(byte[] dexCode) throws IOException {
+        File dex = File.createTempFile("dex-archive", ".dex");
+        dex.deleteOnExit();
+        OutputStream out = new FileOutputStream(dex);
+        try {
+            out.write(dexCode);
+        } finally {
+            out.close();
+        }
+        return dex.getPath();
+    }
+
+    /**
+     * Creates an apk holding the given dex code under the given entry names,
+     * which alternate with the dex code.
+     */
+    private String createApk(Object... entries) throws IOException {
+        File apk = File.createTempFile("dex-archive", ".apk");
+        apk.deleteOnExit();
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(apk));
+        try {
+            out.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+            out.closeEntry();
+            for (int i = 0; i < entries.length; i += 2) {
+                out.putNextEntry(new ZipEntry((String) entries[i]));
+                out.write((byte[]) entries[i + 1]);
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return apk.getPath();
+    }
+
+    private IApi convert(String... fileNames) throws IOException {
+        Set<DexFile> dexFiles = DexUtil.getDexFiles(new HashSet<String>(
+                Arrays.asList(fileNames)));
+        return new DexToSigConverter().convertApi("Dex Tests", dexFiles,
+                Visibility.PRIVATE);
+    }
+
+    @Test
+    public void testApkEqualsDex() throws IOException {
+        byte[] dexCode = createDexCode("A", "B");
+        IApi fromDex = convert(createDex(dexCode));
+        IApi fromApk = convert(createApk("classes.dex", dexCode));
+        assertEquals(ApiDump.dump(fromDex), ApiDump.dump(fromApk));
+        IPackage aPackage = ModelUtil.getPackage(fromApk, "a");
+        assertEquals(2, aPackage.getClasses().size());
+        assertNotNull(ModelUtil.getClass(aPackage, "A"));
+        assertNotNull(ModelUtil.getClass(aPackage, "B"));
+    }
+
+    @Test
+    public void testMultidexApk() throws IOException {
+        String apk = createApk("classes.dex", createDexCode("A"),
+                "classes2.dex", createDexCode("B"),
+                "classes4.dex", createDexCode("D"));
+        // classes4.dex is not read without classes3.dex
+        assertEquals(2, DexUtil.getDexFiles(new HashSet<String>(Arrays
+                .asList(apk))).size());
+        IPackage aPackage = ModelUtil.getPackage(convert(apk), "a");
+        assertEquals(2, aPackage.getClasses().size());
+        assertNotNull(ModelUtil.getClass(aPackage, "A"));
+        assertNotNull(ModelUtil.getClass(aPackage, "B"));
+        assertNull(ModelUtil.getClass(aPackage, "D"));
+    }
+
+    @Test
+    public void testApkAndDexCombined() throws IOException {
+        IApi api = convert(createDex(createDexCode("A")), createApk(
+                "classes.dex", createDexCode("B")));
+        IPackage aPackage = ModelUtil.getPackage(api, "a");
+        assertEquals(2, aPackage.getClasses().size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testApkWithoutDex() throws IOException {
+        convert(createApk());
+    }
+}
@@ -32,9 +32,24 @@ import java.util.Set;
 
 public class DexTestConverter extends AbstractTestSourceConverter {
 
+    private final int numThreads;
+
+    public DexTestConverter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param numThreads
+     *            the number of threads the {@link DexToSigConverter} converts
+     *            classes with
+     */
+    public DexTestConverter(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
     public IApi convert(Visibility visibility, Set<CompilationUnit> units) throws IOException {
         JavaSourceToDexUtil toDexUtil = new JavaSourceToDexUtil();
-        DexToSigConverter converter = new DexToSigConverter();
+        DexToSigConverter converter = new DexToSigConverter(numThreads);
         Set<JavaSource> sources = new HashSet<JavaSource>();
         for (CompilationUnit unit : units) {
             sources.add(new JavaSource(unit.getName(), unit.getSource()));
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.converter.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import signature.converter.Visibility;
+import signature.converter.util.ApiDump;
+import signature.converter.util.CompilationUnit;
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+import signature.model.IClassReference;
+import signature.model.IField;
+import signature.model.IMethod;
+import signature.model.IParameterizedType;
+import signature.model.ITypeVariableDefinition;
+import signature.model.Kind;
+import signature.model.util.ModelUtil;
+import signature.model.impl.SigPrimitiveType;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ParallelConverterTest {
+
+    private static final int NUM_CLASSES = 24;
+
+    /**
+     * Creates a chain of classes spread over three packages, where each class
+     * extends the previous one and implements a generic interface, so the
+     * classes converted on different threads refer to each other.
+     */
+    private Set<CompilationUnit> createUnits() {
+        Set<CompilationUnit> units = new HashSet<CompilationUnit>();
+        units.add(new CompilationUnit("a.I",
+                "package a; " +
+                "public interface I<T> { T get(); }"));
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            String superClass = i == 0 ? "Object" : getClassName(i - 1);
+            String superCall = i == 0 ? "" : "super(s);";
+            units.add(new CompilationUnit(getClassName(i),
+                    "package " + getPackageName(i) + "; " +
+                    "public class C" + i + " extends " + superClass +
+                    " implements a.I<String> { " +
+                    "  public int f" + i + "; " +
+                    "  public C" + i + "(String s) {" + superCall + "} " +
+                    "  public String get() { return null; } " +
+                    "  public <T extends Number> T m" + i +
+                    "(java.util.List<? super T> list) " +
+                    "      throws java.io.IOException { return null; } " +
+                    "}"));
+        }
+        return units;
+    }
+
+    private String getPackageName(int i) {
+        return "p" + (i % 3);
+    }
+
+    private String getClassName(int i) {
+        return getPackageName(i) + ".C" + i;
+    }
+
+    private IApi convert(int numThreads) throws IOException {
+        return new DexTestConverter(numThreads).convert(
+                Visibility.PRIVATE, createUnits());
+    }
+
+    @Test
+    public void testParallelConversionEqualsSequential() throws IOException {
+        List<String> sequential = ApiDump.dump(convert(1));
+        List<String> parallel = ApiDump.dump(convert(8));
+        // a, p0, p1, p2 and a line per class and member
+        assertTrue(sequential.size() > 4 + 5 * NUM_CLASSES);
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testParallelConversion() throws IOException {
+        IApi api = convert(8);
+        assertEquals(4, api.getPackages().size());
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            IClassDefinition clazz = ModelUtil.getClass(ModelUtil.getPackage(
+                    api, getPackageName(i)), "C" + i);
+            String superClass = i == 0 ? "java.lang.Object"
+                    : getClassName(i - 1);
+            assertEquals(superClass, ((IClassReference) clazz.getSuperClass())
+                    .getClassDefinition().getQualifiedName());
+
+            assertEquals(1, clazz.getInterfaces().size());
+            IParameterizedType anInterface = (IParameterizedType) clazz
+                    .getInterfaces().iterator().next();
+            assertEquals("a.I", anInterface.getRawType().getClassDefinition()
+                    .getQualifiedName());
+
+            IField field = ModelUtil.getField(clazz, "f" + i);
+            assertEquals(SigPrimitiveType.INT_TYPE, field.getType());
+
+            assertEquals(1, clazz.getConstructors().size());
+            IMethod method = getMethod(clazz, "m" + i);
+            assertEquals(1, method.getTypeParameters().size());
+            ITypeVariableDefinition typeParameter = method.getTypeParameters()
+                    .get(0);
+            assertEquals("java.lang.Number", ((IClassReference) typeParameter
+                    .getUpperBounds().get(0)).getClassDefinition()
+                    .getQualifiedName());
+            assertEquals(1, method.getParameters().size());
+            assertEquals(1, method.getExceptions().size());
+        }
+    }
+
+    /**
+     * Classes implementing an annotation type must not turn it into an
+     * interface, whichever of them is converted first.
+     */
+    @Test
+    public void testImplementedAnnotationKeepsKind() throws IOException {
+        Set<CompilationUnit> units = new HashSet<CompilationUnit>();
+        units.add(new CompilationUnit("a.A",
+                "package a; " +
+                "public @interface A {}"));
+        for (int i = 0; i < NUM_CLASSES; i++) {
+            units.add(new CompilationUnit("a.Impl" + i,
+                    "package a; " +
+                    "public abstract class Impl" + i + " implements A {}"));
+        }
+        for (int numThreads : new int[] {1, 8}) {
+            IApi api = new DexTestConverter(numThreads).convert(
+                    Visibility.PRIVATE, units);
+            IClassDefinition annotation = ModelUtil.getClass(ModelUtil
+                    .getPackage(api, "a"), "A");
+            assertEquals(Kind.ANNOTATION, annotation.getKind());
+            IClassDefinition impl = ModelUtil.getClass(ModelUtil.getPackage(
+                    api, "a"), "Impl0");
+            assertEquals(Kind.CLASS, impl.getKind());
+        }
+    }
+
+    private IMethod getMethod(IClassDefinition clazz, String name) {
+        for (IMethod method : clazz.getMethods()) {
+            if (name.equals(method.getName())) {
+                return method;
+            }
+        }
+        throw new AssertionError("no method " + name + " in " + clazz);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.converter.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static signature.model.util.ConcurrentCalls.callConcurrently;
+
+import org.junit.Test;
+
+import signature.model.ITypeReference;
+import signature.model.util.TypePool;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class SignatureCacheTest {
+
+    private final SignatureCache cache = new SignatureCache();
+
+    @Test
+    public void typeNames() {
+        assertEquals("a.b", cache.getPackageName("La/b/C$D;"));
+        assertEquals("C.D", cache.getClassName("La/b/C$D;"));
+        assertEquals("a.b.C$D", cache.getQualifiedName("La/b/C$D;"));
+        assertEquals("", cache.getPackageName("LC;"));
+        assertEquals("C", cache.getClassName("LC;"));
+    }
+
+    @Test
+    public void sharedNames() {
+        // equal names of different descriptors are the same instance
+        assertSame(cache.getPackageName("La/b/C;"), cache
+                .getPackageName("La/b/D;"));
+        assertSame(cache.getClassName("La/C;"), cache.getClassName("Lb/C;"));
+    }
+
+    @Test
+    public void namesAreScopedToCache() {
+        SignatureCache other = new SignatureCache();
+        String packageName = cache.getPackageName("La/b/C;");
+        assertEquals(packageName, other.getPackageName("La/b/C;"));
+        assertNotSame(packageName, other.getPackageName("La/b/C;"));
+    }
+
+    @Test
+    public void concurrentTypeNames() throws Exception {
+        List<String> packageNames = callConcurrently(new Callable<String>() {
+            public String call() {
+                // a new descriptor instance per thread
+                return cache.getPackageName(new String("La/b/C;"));
+            }
+        });
+        List<String> classNames = callConcurrently(new Callable<String>() {
+            public String call() {
+                return cache.getClassName(new String("La/b/C;"));
+            }
+        });
+        for (int i = 0; i < packageNames.size(); i++) {
+            assertSame(cache.getPackageName("La/b/C;"), packageNames.get(i));
+            assertSame(cache.getClassName("La/b/C;"), classNames.get(i));
+        }
+    }
+
+    @Test
+    public void concurrentTypes() throws Exception {
+        final TypePool pool = new TypePool();
+        assertNull(cache.getType("[La/A;"));
+        List<ITypeReference> types = callConcurrently(
+                new Callable<ITypeReference>() {
+                    public ITypeReference call() {
+                        ITypeReference type = cache.getType("[La/A;");
+                        return type != null ? type : cache.putType("[La/A;",
+                                pool.getArrayType(pool.getClassReference(
+                                        "a", "A")));
+                    }
+                });
+        for (ITypeReference type : types) {
+            assertSame(cache.getType("[La/A;"), type);
+        }
+    }
+}
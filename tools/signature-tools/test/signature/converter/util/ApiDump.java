@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.converter.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import signature.model.IAnnotatableElement;
+import signature.model.IAnnotationField;
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+import signature.model.IConstructor;
+import signature.model.IEnumConstant;
+import signature.model.IExecutableMember;
+import signature.model.IField;
+import signature.model.IMethod;
+import signature.model.IPackage;
+import signature.model.IParameter;
+
+/**
+ * Flattens an api into sorted lines, one per package, class and member, so
+ * that two models can be checked for equality without going through the
+ * comparator, which may skip classes whose structural hashes match.
+ */
+public class ApiDump {
+
+    public static List<String> dump(IApi api) {
+        List<String> lines = new ArrayList<String>();
+        for (IPackage aPackage : api.getPackages()) {
+            lines.add(aPackage.getName() + annotations(aPackage));
+            for (IClassDefinition clazz : aPackage.getClasses()) {
+                dump(clazz, lines);
+            }
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    private static void dump(IClassDefinition clazz, List<String> lines) {
+        String prefix = clazz.getQualifiedName() + " ";
+        lines.add(prefix + clazz.getKind() + " " + sorted(clazz.getModifiers())
+                + " " + clazz.getTypeParameters() + " extends "
+                + clazz.getSuperClass() + " implements "
+                + sorted(clazz.getInterfaces()) + annotations(clazz));
+        for (IField field : clazz.getFields()) {
+            lines.add(prefix + "field " + sorted(field.getModifiers()) + " "
+                    + field.getType() + " " + field.getName()
+                    + annotations(field));
+        }
+        for (IConstructor constructor : clazz.getConstructors()) {
+            lines.add(prefix + "constructor " + executable(constructor));
+        }
+        for (IMethod method : clazz.getMethods()) {
+            lines.add(prefix + "method " + method.getReturnType() + " "
+                    + executable(method));
+        }
+        for (IEnumConstant constant : clazz.getEnumConstants()) {
+            lines.add(prefix + "enum constant " + constant.getName()
+                    + annotations(constant));
+        }
+        for (IAnnotationField field : clazz.getAnnotationFields()) {
+            lines.add(prefix + "annotation field " + field.getType() + " "
+                    + field.getName() + " default "
+                    + value(field.getDefaultValue()) + annotations(field));
+        }
+    }
+
+    private static String executable(IExecutableMember member) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(sorted(member.getModifiers()));
+        builder.append(" ");
+        builder.append(member.getTypeParameters());
+        builder.append(" ");
+        builder.append(member.getName());
+        builder.append("(");
+        for (IParameter parameter : member.getParameters()) {
+            if (builder.charAt(builder.length() - 1) != '(') {
+                builder.append(", ");
+            }
+            builder.append(parameter.getType());
+            builder.append(annotations(parameter));
+        }
+        builder.append(") throws ");
+        builder.append(sorted(member.getExceptions()));
+        builder.append(annotations(member));
+        return builder.toString();
+    }
+
+    private static String value(Object value) {
+        if (value instanceof Object[]) {
+            return Arrays.deepToString((Object[]) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static String annotations(IAnnotatableElement element) {
+        if (element.getAnnotations() == null
+                || element.getAnnotations().isEmpty()) {
+            return "";
+        }
+        return " " + sorted(element.getAnnotations());
+    }
+
+    private static List<String> sorted(Collection<?> elements) {
+        List<String> strings = new ArrayList<String>();
+        if (elements != null) {
+            for (Object element : elements) {
+                strings.add(String.valueOf(element));
+            }
+        }
+        Collections.sort(strings);
+        return strings;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.io.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import signature.converter.Visibility;
+import signature.converter.dex.DexTestConverter;
+import signature.converter.util.AbstractConvertTest;
+import signature.converter.util.ApiDump;
+import signature.converter.util.CompilationUnit;
+import signature.converter.util.ITestSourceConverter;
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+import signature.model.IClassReference;
+import signature.model.IEnumConstant;
+import signature.model.IMethod;
+import signature.model.IPackage;
+import signature.model.IParameterizedType;
+import signature.model.Kind;
+import signature.model.util.ModelUtil;
+import signature.model.util.StructuralHashes;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+public class BinaryApiTest extends AbstractConvertTest {
+
+    private IApi api;
+    private String sigFile;
+
+    @Override
+    public ITestSourceConverter createConverter() {
+        return new DexTestConverter();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        CompilationUnit A = new CompilationUnit("a.A",
+                "package a; " +
+                "public class A<T extends Number> { " +
+                "  public T value; " +
+                "  @Deprecated public <S> S convert(T t, Class<S> type) " +
+                "      throws java.io.IOException { return null; } " +
+                "}");
+        CompilationUnit E = new CompilationUnit("a.E",
+                "package a; " +
+                "public enum E { ONE, TWO }");
+        CompilationUnit B = new CompilationUnit("b.B",
+                "package b; " +
+                "public class B extends a.A<Integer> implements Runnable { " +
+                "  protected static final String NAME = \"b\"; " +
+                "  public void run() {} " +
+                "}");
+        api = convert(Visibility.PROTECTED, A, E, B);
+        File directory = File.createTempFile("binary-api", "");
+        directory.delete();
+        new BinaryApi().externalizeApi(directory.getPath(), api);
+        sigFile = new File(directory, "Dex_Tests.sig").getPath();
+    }
+
+    private IApi load(Set<String> packageNames) throws IOException {
+        return new BinaryApi().loadApi(null, Visibility.PROTECTED,
+                Collections.singleton(sigFile), packageNames);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        IApi loaded = load(Collections.<String> emptySet());
+        assertEquals(api.getName(), loaded.getName());
+        assertEquals(ApiDump.dump(api), ApiDump.dump(loaded));
+
+        IPackage a = ModelUtil.getPackage(loaded, "a");
+        IClassDefinition A = ModelUtil.getClass(a, "A");
+        assertEquals(1, A.getTypeParameters().size());
+        IMethod convert = A.getMethods().iterator().next();
+        assertEquals("convert", convert.getName());
+        assertEquals(1, convert.getTypeParameters().size());
+        assertEquals(2, convert.getParameters().size());
+        assertEquals(1, convert.getExceptions().size());
+        assertNotNull(ModelUtil.getAnnotation(convert, "java.lang.Deprecated"));
+
+        IClassDefinition E = ModelUtil.getClass(a, "E");
+        assertSame(Kind.ENUM, E.getKind());
+        assertEquals(2, E.getEnumConstants().size());
+        for (IEnumConstant constant : E.getEnumConstants()) {
+            assertSame(E, ((IClassReference) constant.getType())
+                    .getClassDefinition());
+        }
+
+        IClassDefinition B = ModelUtil.getClass(ModelUtil.getPackage(loaded,
+                "b"), "B");
+        IParameterizedType superClass = (IParameterizedType) B
+                .getSuperClass();
+        assertSame(A, superClass.getRawType().getClassDefinition());
+        assertEquals("java.lang.Integer", ((IClassReference) superClass
+                .getTypeArguments().get(0)).getClassDefinition()
+                .getQualifiedName());
+        assertNotNull(ModelUtil.getField(B, "NAME"));
+    }
+
+    @Test
+    public void testLoadPackages() throws IOException {
+        IApi loaded = load(Collections.singleton("b"));
+        assertEquals(1, loaded.getPackages().size());
+        IPackage loadedPackage = loaded.getPackages().iterator().next();
+        assertEquals("b", loadedPackage.getName());
+        assertEquals(1, loadedPackage.getClasses().size());
+        IClassDefinition B = loadedPackage.getClasses().iterator().next();
+        assertEquals("b.B", B.getQualifiedName());
+        // the super class is still resolved from the unloaded package a
+        IParameterizedType superClass = (IParameterizedType) B
+                .getSuperClass();
+        assertEquals("a.A", superClass.getRawType().getClassDefinition()
+                .getQualifiedName());
+    }
+
+    @Test
+    public void testStoredHashes() throws IOException {
+        IApi loaded = load(Collections.<String> emptySet());
+        StructuralHashes hashes = new StructuralHashes();
+        assertEquals(2, loaded.getPackages().size());
+        for (IPackage loadedPackage : loaded.getPackages()) {
+            IPackage aPackage = ModelUtil.getPackage(api, loadedPackage
+                    .getName());
+            assertEquals(hashes.getHash(aPackage), hashes
+                    .getHash(loadedPackage));
+            for (IClassDefinition loadedClass : loadedPackage.getClasses()) {
+                IClassDefinition clazz = ModelUtil.getClass(aPackage,
+                        loadedClass.getName());
+                assertEquals(hashes.getHash(clazz), hashes
+                        .getHash(loadedClass));
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.io.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import signature.compare.ApiComparator;
+import signature.converter.dex.DexTestConverter;
+import signature.converter.util.AbstractConvertTest;
+import signature.converter.util.CompilationUnit;
+import signature.converter.util.ITestSourceConverter;
+import signature.model.IApi;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JsonLinesDeltaWriterTest extends AbstractConvertTest {
+
+    @Override
+    public ITestSourceConverter createConverter() {
+        return new DexTestConverter();
+    }
+
+    /**
+     * Compares the two APIs and returns the written lines, sorted.
+     */
+    private List<String> writeDeltas(IApi from, IApi to) {
+        StringWriter out = new StringWriter();
+        JsonLinesDeltaWriter writer = new JsonLinesDeltaWriter(out);
+        new ApiComparator(1).compare(from, to, writer);
+        assertFalse(writer.checkError());
+        String text = out.toString();
+        assertTrue(text.endsWith("\n"));
+        List<String> lines = Arrays.asList(text.split("\n"));
+        Collections.sort(lines);
+        return lines;
+    }
+
+    private static String escape(String value) {
+        StringBuilder line = new StringBuilder();
+        JsonLinesDeltaWriter.appendString(line, value);
+        return line.toString();
+    }
+
+    @Test
+    public void writeDeltaLines() throws IOException {
+        CompilationUnit A0 = new CompilationUnit("a.A",
+                "package a; " +
+                "public class A { " +
+                "  public int f; " +
+                "  public void m(int i) {} " +
+                "  public void n() {} " +
+                "}");
+        CompilationUnit A1 = new CompilationUnit("a.A",
+                "package a; " +
+                "public class A { " +
+                "  public long f; " +
+                "  public void m(int i) throws java.io.IOException {} " +
+                "}");
+        CompilationUnit B = new CompilationUnit("a.B",
+                "package a; " +
+                "public class B {}");
+        CompilationUnit C = new CompilationUnit("b.C",
+                "package b; " +
+                "public class C {}");
+        IApi fromApi = convert(A0, B);
+        IApi toApi = convert(A1, C);
+        List<String> lines = writeDeltas(fromApi, toApi);
+        assertEquals(3, lines.size());
+
+        // the order of the changes of a class is not specified
+        String prefix = "{\"delta\":\"class\",\"type\":\"changed\"," +
+                "\"package\":\"a\",\"class\":\"A\",\"changes\":[";
+        String line = lines.get(0);
+        assertTrue(line, line.startsWith(prefix) && line.endsWith("]}"));
+        List<String> changes = Arrays.asList(line.substring(prefix.length(),
+                line.length() - 2).split(",(?=\\{)"));
+        Collections.sort(changes);
+        assertEquals(Arrays.asList(
+                "{\"element\":\"field\",\"type\":\"changed\"," +
+                "\"from\":\"public int f\",\"to\":\"public long f\"}",
+                "{\"element\":\"method\",\"type\":\"changed\"," +
+                "\"from\":\"public void m(int)\"," +
+                "\"to\":\"public void m(int) throws java.io.IOException\"}",
+                "{\"element\":\"method\",\"type\":\"removed\"," +
+                "\"from\":\"public void n()\",\"to\":null}"), changes);
+
+        assertEquals("{\"delta\":\"class\",\"type\":\"removed\"," +
+                "\"package\":\"a\",\"class\":\"B\"}", lines.get(1));
+        assertEquals("{\"delta\":\"package\",\"type\":\"added\"," +
+                "\"package\":\"b\"}", lines.get(2));
+    }
+
+    @Test
+    public void writeChangedAnnotationValue() throws IOException {
+        CompilationUnit Note = new CompilationUnit("a.Note",
+                "package a; " +
+                "@java.lang.annotation.Retention(" +
+                "    java.lang.annotation.RetentionPolicy.RUNTIME) " +
+                "public @interface Note { String value(); }");
+        CompilationUnit A0 = new CompilationUnit("a.A",
+                "package a; " +
+                "@Note(\"plain\") public class A {}");
+        CompilationUnit A1 = new CompilationUnit("a.A",
+                "package a; " +
+                "@Note(\"say \\\"hi\\\" \\\\ \\u00e9\") public class A {}");
+        IApi fromApi = convert(Note, A0);
+        IApi toApi = convert(Note, A1);
+        List<String> lines = writeDeltas(fromApi, toApi);
+        assertEquals(1, lines.size());
+        String line = lines.get(0);
+        assertTrue(line, line.contains(
+                "\"from\":\"@a.Note(value=\\\"plain\\\")\""));
+        assertTrue(line, line.contains(
+                "\"to\":\"@a.Note(value=\\\"say \\\\\\\"hi\\\\\\\" " +
+                "\\\\\\\\ \u00e9\\\")\""));
+    }
+
+    @Test
+    public void escapeQuotesAndBackslashes() {
+        assertEquals("\"a\\\"b\\\\c\"", escape("a\"b\\c"));
+        assertEquals("\"\\\\\\\"\"", escape("\\\""));
+    }
+
+    @Test
+    public void escapeControlCharacters() {
+        assertEquals("\"\\n\\r\\t\"", escape("\n\r\t"));
+        assertEquals("\"\\u0000\\u0001\\u001f\\u0008\\u000c\"",
+                escape("\u0000\u0001\u001f\b\f"));
+        // DEL is not a control character in JSON
+        assertEquals("\"\u007f\"", escape("\u007f"));
+    }
+
+    @Test
+    public void keepNonAscii() {
+        // the lines are written as UTF-8, no escapes needed
+        assertEquals("\"\u00e9\u20ac\ud83d\ude00\"",
+                escape("\u00e9\u20ac\ud83d\ude00"));
+        assertEquals("\"\u2028\"", escape("\u2028"));
+    }
+
+    @Test
+    public void escapeNull() {
+        assertEquals("null", escape(null));
+        assertEquals("\"\"", escape(""));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.model.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a call on several threads at once, to test that concurrent lookups in
+ * a cache or pool return the same instance.
+ */
+public class ConcurrentCalls {
+
+    public static final int NUM_THREADS = 16;
+
+    /**
+     * Calls <code>call</code> once on each of {@link #NUM_THREADS} threads.
+     * The threads wait for each other before the call, so that the calls
+     * overlap as much as possible.
+     * 
+     * @return the results of the calls
+     */
+    public static <T> List<T> callConcurrently(final Callable<T> call)
+            throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(NUM_THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            for (int i = 0; i < NUM_THREADS; i++) {
+                futures.add(executor.submit(new Callable<T>() {
+                    public T call() throws Exception {
+                        barrier.await();
+                        return call.call();
+                    }
+                }));
+            }
+            List<T> results = new ArrayList<T>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
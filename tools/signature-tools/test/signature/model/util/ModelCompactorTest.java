@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package signature.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import signature.compare.ApiComparator;
+import signature.converter.Visibility;
+import signature.converter.classfile.ClassFileTestConverter;
+import signature.converter.util.AbstractConvertTest;
+import signature.converter.util.ApiDump;
+import signature.converter.util.CompilationUnit;
+import signature.converter.util.ITestSourceConverter;
+import signature.model.IApi;
+import signature.model.IClassDefinition;
+import signature.model.IMethod;
+import signature.model.IPackage;
+import signature.model.Modifier;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+public class ModelCompactorTest extends AbstractConvertTest {
+
+    @Override
+    public ITestSourceConverter createConverter() {
+        return new ClassFileTestConverter();
+    }
+
+    private IApi convert() throws IOException {
+        CompilationUnit A = new CompilationUnit("a.A",
+                "package a; " +
+                "public class A<T> implements Comparable<A<T>> { " +
+                "  public static final int MAX = 1; " +
+                "  private T value; " +
+                "  public A(T value) {} " +
+                "  public int compareTo(A<T> other) { return 0; } " +
+                "  @Deprecated public final <S extends T> void set(S s) {} " +
+                "  private static void helper(int[] values, String s) {} " +
+                "}");
+        CompilationUnit B = new CompilationUnit("a.B",
+                "package a; " +
+                "public abstract class B { " +
+                "  public abstract void run() throws Exception; " +
+                "  public static final int MIN = 0; " +
+                "}");
+        return convert(Visibility.PRIVATE, A, B);
+    }
+
+    @Test
+    public void testCompactedApiEqualsOriginal() throws IOException {
+        IApi original = convert();
+        IApi compacted = ModelCompactor.compact(convert());
+        assertEquals(ApiDump.dump(original), ApiDump.dump(compacted));
+        assertNull(new ApiComparator().compare(original, compacted));
+        assertNull(new ApiComparator().compare(compacted, original));
+    }
+
+    @Test
+    public void testCompactedCollectionsAreShared() throws IOException {
+        IApi first = ModelCompactor.compact(convert());
+        IApi second = ModelCompactor.compact(convert());
+        IPackage firstPackage = ModelUtil.getPackage(first, "a");
+        IPackage secondPackage = ModelUtil.getPackage(second, "a");
+        assertSame(firstPackage.getName(), secondPackage.getName());
+
+        IClassDefinition A = ModelUtil.getClass(firstPackage, "A");
+        IClassDefinition otherA = ModelUtil.getClass(secondPackage, "A");
+        IClassDefinition B = ModelUtil.getClass(firstPackage, "B");
+        // public static final modifiers are shared across classes and apis
+        Set<Modifier> constantModifiers = ModelUtil.getField(A, "MAX")
+                .getModifiers();
+        assertEquals(EnumSet.of(Modifier.PUBLIC, Modifier.STATIC,
+                Modifier.FINAL), constantModifiers);
+        assertSame(constantModifiers, ModelUtil.getField(otherA, "MAX")
+                .getModifiers());
+        assertSame(constantModifiers, ModelUtil.getField(B, "MIN")
+                .getModifiers());
+        assertSame(A.getModifiers(), otherA.getModifiers());
+        // empty collections are shared
+        assertTrue(B.getTypeParameters().isEmpty());
+        assertSame(B.getTypeParameters(), ModelUtil.getClass(secondPackage,
+                "B").getTypeParameters());
+
+        assertEquals(3, A.getMethods().size());
+        for (IMethod method : A.getMethods()) {
+            assertTrue(A.getMethods().contains(method));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCompactedApiIsImmutable() throws IOException {
+        IApi api = ModelCompactor.compact(convert());
+        Set<IPackage> packages = api.getPackages();
+        packages.remove(packages.iterator().next());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCompactedClassIsImmutable() throws IOException {
+        IApi api = ModelCompactor.compact(convert());
+        IClassDefinition A = ModelUtil.getClass(ModelUtil.getPackage(api,
+                "a"), "A");
+        A.getMethods().clear();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2009 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package signature.model.util;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static signature.model.util.ConcurrentCalls.callConcurrently;
+
+import org.junit.Test;
+
+import signature.model.IClassReference;
+import signature.model.ITypeReference;
+import signature.model.impl.SigArrayType;
+import signature.model.impl.SigClassDefinition;
+import signature.model.impl.SigPrimitiveType;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class TypePoolTest {
+
+    private final TypePool pool = new TypePool();
+
+    private static <T> void assertAllSame(T expected, List<T> actual) {
+        for (T element : actual) {
+            assertSame(expected, element);
+        }
+    }
+
+    @Test
+    public void pooledInstances() {
+        SigClassDefinition clazz = pool.getClass("a", "A");
+        assertSame(clazz, pool.getClass("a", "A"));
+        assertNotSame(clazz, pool.getClass("a", "B"));
+
+        IClassReference reference = pool.getClassReference("a", "A");
+        assertSame(reference, pool.getClassReference("a", "A"));
+        assertSame(clazz, reference.getClassDefinition());
+
+        SigArrayType array = pool.getArrayType(reference);
+        assertSame(array, pool.getArrayType(reference));
+        assertSame(pool.getArrayType(array), pool.getArrayType(array));
+    }
+
+    @Test
+    public void concurrentClasses() throws Exception {
+        List<SigClassDefinition> classes = callConcurrently(
+                new Callable<SigClassDefinition>() {
+                    public SigClassDefinition call() {
+                        return pool.getClass("a", "A");
+                    }
+                });
+        assertAllSame(pool.getClass("a", "A"), classes);
+    }
+
+    @Test
+    public void concurrentClassReferences() throws Exception {
+        List<IClassReference> references = callConcurrently(
+                new Callable<IClassReference>() {
+                    public IClassReference call() {
+                        return pool.getClassReference("a", "A");
+                    }
+                });
+        assertAllSame(pool.getClassReference("a", "A"), references);
+        assertSame(pool.getClass("a", "A"), references.get(0)
+                .getClassDefinition());
+    }
+
+    @Test
+    public void concurrentArrayTypes() throws Exception {
+        final ITypeReference intType = SigPrimitiveType.valueOfTypeName("int");
+        List<SigArrayType> intArrays = callConcurrently(
+                new Callable<SigArrayType>() {
+                    public SigArrayType call() {
+                        return pool.getArrayType(intType);
+                    }
+                });
+        assertAllSame(pool.getArrayType(intType), intArrays);
+
+        List<SigArrayType> classArrays = callConcurrently(
+                new Callable<SigArrayType>() {
+                    public SigArrayType call() {
+                        return pool.getArrayType(pool.getArrayType(pool
+                                .getClassReference("a", "A")));
+                    }
+                });
+        assertAllSame(pool.getArrayType(pool.getArrayType(pool
+                .getClassReference("a", "A"))), classArrays);
+    }
+}
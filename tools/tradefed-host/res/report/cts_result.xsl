@@ -18,6 +18,9 @@
 <xsl:stylesheet version="2.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
     <xsl:output method="html" version="1.0" encoding="UTF-8" indent="yes"/>
 
+    <!-- stack traces shared by multiple tests, referred to by their id -->
+    <xsl:key name="stackTraces" match="StackTrace[@id]" use="@id"/>
+
     <xsl:template match="/">
 
         <html>
@@ -520,6 +523,17 @@
                                                     </TD>
                                                     <TD class="failuredetails">
                                                         <div id="details">
+                                                            <!-- show the full stack trace on hover -->
+                                                            <xsl:attribute name="title">
+                                                                <xsl:choose>
+                                                                    <xsl:when test="FailedScene/StackTrace/@ref">
+                                                                        <xsl:value-of select="key('stackTraces', FailedScene/StackTrace/@ref)"/>
+                                                                    </xsl:when>
+                                                                    <xsl:otherwise>
+                                                                        <xsl:value-of select="FailedScene/StackTrace"/>
+                                                                    </xsl:otherwise>
+                                                                </xsl:choose>
+                                                            </xsl:attribute>
                                                             <xsl:value-of select="FailedScene/@message"/>
                                                         </div>
                                                     </TD>
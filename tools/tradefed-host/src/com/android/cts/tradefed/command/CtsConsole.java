@@ -19,7 +19,11 @@ import com.android.cts.tradefed.build.CtsBuildHelper;
 import com.android.cts.tradefed.build.CtsBuildProvider;
 import com.android.cts.tradefed.result.ITestResultRepo;
 import com.android.cts.tradefed.result.ITestSummary;
+import com.android.cts.tradefed.result.InvocationProgress;
 import com.android.cts.tradefed.result.PlanCreator;
+import com.android.cts.tradefed.result.ProgressTracker;
+import com.android.cts.tradefed.result.ResultHistory;
+import com.android.cts.tradefed.result.ShardProgress;
 import com.android.cts.tradefed.result.TestResultRepo;
 import com.android.cts.tradefed.testtype.ITestPackageRepo;
 import com.android.cts.tradefed.testtype.TestPackageRepo;
@@ -38,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Specialization of trade federation console that adds CTS commands to list plans and packages.
@@ -48,6 +53,13 @@ public class CtsConsole extends Console {
 
     private CtsBuildHelper mCtsBuild = null;
 
+    /**
+     * cached history used to estimate remaining time, and the modification time of the results
+     * directory it was loaded at
+     */
+    private ResultHistory mResultHistory = null;
+    private long mResultHistoryTime = 0;
+
     CtsConsole() {
         super();
     }
@@ -91,6 +103,15 @@ public class CtsConsole extends Console {
                 }
             }
         }, LIST_PATTERN, "r(?:esults)?");
+        trie.put(new Runnable() {
+            @Override
+            public void run() {
+                CtsBuildHelper ctsBuild = getCtsBuild();
+                if (ctsBuild != null) {
+                    listProgress(ctsBuild);
+                }
+            }
+        }, LIST_PATTERN, "pr(?:ogress)?");
 
         // find existing help for 'LIST_PATTERN' commands, and append these commands help
         String listHelp = commandHelp.get(LIST_PATTERN);
@@ -101,7 +122,8 @@ public class CtsConsole extends Console {
         String combinedHelp = listHelp +
                 "\tp[lans]\t\tList all CTS test plans" + LINE_SEPARATOR +
                 "\tpackages\tList all CTS packages" + LINE_SEPARATOR +
-                "\tr[esults]\tList all CTS results" + LINE_SEPARATOR;
+                "\tr[esults]\tList all CTS results" + LINE_SEPARATOR +
+                "\tpr[ogress]\tList progress and ETA of CTS runs in progress" + LINE_SEPARATOR;
         commandHelp.put(LIST_PATTERN, combinedHelp);
 
         ArgRunnable<CaptureList> addDerivedCommand = new ArgRunnable<CaptureList>() {
@@ -167,6 +189,8 @@ public class CtsConsole extends Console {
         helpBuilder.append("currently in the queue waiting to be allocated devices\n");
         helpBuilder.append("  l/list r/results: list CTS results currently present in the ");
         helpBuilder.append("repository\n");
+        helpBuilder.append("  l/list pr/progress: list completion of CTS test runs currently in ");
+        helpBuilder.append("progress, with an ETA estimated from previous results\n");
         helpBuilder.append("Add:\n");
         helpBuilder.append("  add derivedplan --plan plane_name --session/-s session_id -r ");
         helpBuilder.append("[pass/fail/notExecuted/timeout]: derive a plan from the given ");
@@ -216,6 +240,81 @@ public class CtsConsole extends Console {
         tableFormatter.displayTable(table, new PrintWriter(System.out, true));
     }
 
+    private void listProgress(CtsBuildHelper ctsBuild) {
+        List<InvocationProgress> invocations = ProgressTracker.getInstance().getInvocations();
+        if (invocations.isEmpty()) {
+            printLine("No CTS runs in progress");
+            return;
+        }
+        ResultHistory history = getResultHistory(ctsBuild);
+        long currentTime = System.currentTimeMillis();
+        TableFormatter tableFormatter = new TableFormatter();
+        List<List<String>> table = new ArrayList<List<String>>();
+        table.add(Arrays.asList("Run", "Device", "Completed", "Elapsed", "ETA", "Current package"));
+        for (InvocationProgress invocation : invocations) {
+            table.add(Arrays.asList(String.format("%d: %s", invocation.getId(),
+                    invocation.getDescription()), "",
+                    formatCompletion(invocation.getNumCompletedTests(), invocation.getNumTests()),
+                    "",
+                    formatEta(invocation.estimateRemainingTime(history, currentTime), currentTime),
+                    ""));
+            List<ShardProgress> shards = invocation.getShards();
+            for (int i = 0; i < shards.size(); i++) {
+                ShardProgress shard = shards.get(i);
+                String device = shard.getDeviceSerial() == null ? "waiting for device" :
+                        shard.getDeviceSerial();
+                if (shard.isAborted()) {
+                    device = String.format("%s (aborted)", device);
+                }
+                String currentPkg = shard.getCurrentPackage() == null ? "" :
+                        shard.getCurrentPackage();
+                table.add(Arrays.asList(String.format("  shard %d", i), device,
+                        formatCompletion(shard.getNumCompletedTests(), shard.getNumTests()),
+                        formatDuration(shard.getElapsedTime(currentTime)),
+                        formatEta(shard.estimateRemainingTime(history, currentTime), currentTime),
+                        currentPkg));
+            }
+        }
+        tableFormatter.displayTable(table, new PrintWriter(System.out, true));
+        if (history.isEmpty()) {
+            printLine("No previous results found, ETA is based on the current run only");
+        }
+    }
+
+    /**
+     * Get the {@link ResultHistory} from the most recent results. Reloaded only when the results
+     * directory has been modified, since parsing results is expensive. A session adds its zipped
+     * results to the directory when it completes.
+     */
+    private ResultHistory getResultHistory(CtsBuildHelper ctsBuild) {
+        File resultsDir = ctsBuild.getResultsDir();
+        long modifiedTime = resultsDir.lastModified();
+        if (mResultHistory == null || modifiedTime != mResultHistoryTime) {
+            mResultHistory = ResultHistory.createFromRepo(new TestResultRepo(resultsDir),
+                    ResultHistory.DEFAULT_NUM_SESSIONS);
+            mResultHistoryTime = modifiedTime;
+        }
+        return mResultHistory;
+    }
+
+    private static String formatCompletion(int numCompleted, int numTotal) {
+        int percent = numTotal == 0 ? 100 : (int)(100L * numCompleted / numTotal);
+        return String.format("%d/%d (%d%%)", numCompleted, numTotal, percent);
+    }
+
+    private static String formatEta(long remainingTime, long currentTime) {
+        if (remainingTime == ShardProgress.UNKNOWN_TIME) {
+            return "unknown";
+        }
+        return String.format("%s (%tR)", formatDuration(remainingTime),
+                currentTime + remainingTime);
+    }
+
+    private static String formatDuration(long timeMs) {
+        long minutes = TimeUnit.MILLISECONDS.toMinutes(timeMs);
+        return String.format("%dh %02dm", minutes / 60, minutes % 60);
+    }
+
     private void addDerivedPlan(CtsBuildHelper ctsBuild, String[] flatArgs) {
         PlanCreator creator = new PlanCreator();
         try {
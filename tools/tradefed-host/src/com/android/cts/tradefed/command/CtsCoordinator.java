@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.command;
+
+import com.android.cts.tradefed.build.CtsBuildHelper;
+import com.android.cts.tradefed.build.CtsBuildProvider;
+import com.android.cts.tradefed.distributed.Coordinator;
+import com.android.cts.tradefed.distributed.WorkItem;
+import com.android.cts.tradefed.result.CtsXmlResultReporter;
+import com.android.cts.tradefed.result.ResultHistory;
+import com.android.cts.tradefed.result.TestResultRepo;
+import com.android.cts.tradefed.testtype.CtsTest;
+import com.android.cts.tradefed.testtype.ITestPackageDef;
+import com.android.cts.tradefed.testtype.ITestPackageRepo;
+import com.android.cts.tradefed.testtype.ITestPlan;
+import com.android.cts.tradefed.testtype.TestPackageOrderer;
+import com.android.cts.tradefed.testtype.TestPackageRepo;
+import com.android.cts.tradefed.testtype.TestPlan;
+import com.android.tradefed.build.FolderBuildInfo;
+import com.android.tradefed.build.IFolderBuildInfo;
+import com.android.tradefed.config.ArgsOptionParser;
+import com.android.tradefed.config.ConfigurationException;
+import com.android.tradefed.config.Option;
+import com.android.tradefed.util.xml.AbstractXmlParser.ParseException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a CTS test plan by handing out its test packages to cts-tradefed workers on demand, and
+ * merging the results they stream back into a single session in the local result repository.
+ * <p/>
+ * Workers are started with 'run cts --coordinator host:port', and keep fetching packages until
+ * the plan is complete. A package whose worker disconnects before completing it is handed out
+ * again, up to a few times. The coordinator gives up on the remaining packages once no worker has
+ * been connected for --worker-timeout minutes.
+ */
+public class CtsCoordinator {
+
+    @Option(name = CtsTest.PLAN_OPTION, description = "the test plan to run.")
+    private String mPlanName = null;
+
+    @Option(name = "port", description = "the port to listen for workers on.")
+    private int mPort = 9876;
+
+    @Option(name = "worker-timeout", description =
+        "the time in minutes to wait for a worker to connect while none is connected, before " +
+        "giving up on the remaining packages.")
+    private int mWorkerTimeoutMin = 30;
+
+    @Option(name = "cts-install-path", description = "the path to the cts installation to use")
+    private String mCtsRootDirPath = System.getProperty("CTS_ROOT");
+
+    /**
+     * Run the coordinator until all packages of the plan are complete.
+     */
+    void run() throws IOException, ParseException, InterruptedException {
+        if (mPlanName == null) {
+            throw new IllegalArgumentException("Missing --" + CtsTest.PLAN_OPTION);
+        }
+        if (mCtsRootDirPath == null) {
+            throw new IllegalArgumentException("Missing --cts-install-path");
+        }
+        IFolderBuildInfo buildInfo = new FolderBuildInfo(CtsBuildProvider.CTS_BUILD_VERSION,
+                "cts", "cts");
+        buildInfo.setRootDir(new File(mCtsRootDirPath));
+        CtsBuildHelper ctsBuild = new CtsBuildHelper(buildInfo);
+
+        List<WorkItem> items = buildWorkItems(ctsBuild);
+        CtsXmlResultReporter reporter = new CtsXmlResultReporter();
+        try {
+            new ArgsOptionParser(reporter).parse(Arrays.asList("--" + CtsTest.PLAN_OPTION,
+                    mPlanName));
+        } catch (ConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+
+        long startTime = System.currentTimeMillis();
+        reporter.invocationStarted(buildInfo);
+        Coordinator coordinator = new Coordinator(items, reporter);
+        int port = coordinator.start(mPort);
+        System.out.println(String.format("Coordinating %d packages of plan %s on port %d",
+                items.size(), mPlanName, port));
+        try {
+            if (!coordinator.waitForCompletion(mWorkerTimeoutMin * 60 * 1000L)) {
+                System.err.println(String.format("No worker connected for %d minutes. " +
+                        "Giving up on the remaining packages", mWorkerTimeoutMin));
+            }
+        } finally {
+            coordinator.stop();
+            reporter.invocationEnded(System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Build the {@link WorkItem}s for the plan's packages, in the same order a local run would
+     * execute them.
+     */
+    private List<WorkItem> buildWorkItems(CtsBuildHelper ctsBuild) throws IOException,
+            ParseException {
+        File planFile = ctsBuild.getTestPlanFile(mPlanName);
+        ITestPlan plan = new TestPlan(mPlanName);
+        InputStream planStream = new BufferedInputStream(new FileInputStream(planFile));
+        try {
+            plan.parse(planStream);
+        } finally {
+            planStream.close();
+        }
+
+        ITestPackageRepo testRepo = new TestPackageRepo(ctsBuild.getTestCasesDir());
+        List<ITestPackageDef> pkgDefs = new ArrayList<ITestPackageDef>();
+        for (String uri : plan.getTestUris()) {
+            ITestPackageDef pkgDef = testRepo.getTestPackage(uri);
+            if (pkgDef != null) {
+                pkgDefs.add(pkgDef);
+            } else {
+                System.err.println(String.format("Could not find test package %s referenced " +
+                        "in plan %s", uri, mPlanName));
+            }
+        }
+        ResultHistory history = ResultHistory.createFromRepo(
+                new TestResultRepo(ctsBuild.getResultsDir()), ResultHistory.DEFAULT_NUM_SESSIONS);
+
+        List<WorkItem> items = new ArrayList<WorkItem>();
+        for (ITestPackageDef pkgDef : new TestPackageOrderer(history).order(pkgDefs)) {
+            items.add(new WorkItem(pkgDef.getUri(),
+                    plan.getExcludedTestFilter(pkgDef.getUri()).getExclusionString()));
+        }
+        return items;
+    }
+
+    public static void main(String[] args) {
+        CtsCoordinator coordinator = new CtsCoordinator();
+        try {
+            ArgsOptionParser optionParser = new ArgsOptionParser(coordinator);
+            optionParser.parse(Arrays.asList(args));
+            coordinator.run();
+        } catch (ConfigurationException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(ArgsOptionParser.getOptionHelp(false, coordinator));
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(ArgsOptionParser.getOptionHelp(false, coordinator));
+            System.exit(1);
+        } catch (FileNotFoundException e) {
+            System.err.println(String.format("Invalid cts install: %s", e.getMessage()));
+            System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (ParseException e) {
+            System.err.println(String.format("Failed to parse plan %s: %s",
+                    coordinator.mPlanName, e.getMessage()));
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.err.println("Interrupted while waiting for workers");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.distributed;
+
+import com.android.ddmlib.testrunner.ITestRunListener.TestFailure;
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.android.tradefed.log.LogUtil.CLog;
+import com.android.tradefed.result.ITestInvocationListener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out test packages to remote cts-tradefed workers, and merges the results they stream back
+ * into a single {@link ITestInvocationListener}.
+ * <p/>
+ * Each worker is served by its own thread. The test events of a work item are buffered until the
+ * worker completes it, then forwarded to the listener as a whole, so results from concurrent
+ * workers never interleave. If a worker disconnects before completing its item, its buffered
+ * events are dropped and the item is handed to the next worker that asks. After
+ * {@link WorkQueue#MAX_ATTEMPTS} attempts the item is given up on: the events of its last attempt
+ * are merged, and its test run is reported as failed.
+ *
+ * @see CoordinatorProtocol
+ */
+public class Coordinator {
+
+    private final WorkQueue mQueue;
+    private final ITestInvocationListener mListener;
+    private ServerSocket mServerSocket = null;
+
+    /**
+     * Create a {@link Coordinator}.
+     *
+     * @param items the {@link WorkItem}s to hand out, in order
+     * @param listener the {@link ITestInvocationListener} to merge results into. Its invocation
+     *            level methods are not called.
+     */
+    public Coordinator(Collection<WorkItem> items, ITestInvocationListener listener) {
+        mQueue = new WorkQueue(items);
+        mListener = listener;
+    }
+
+    /**
+     * Start accepting worker connections.
+     *
+     * @param port the port to listen on, or 0 to pick a free one
+     * @return the port being listened on
+     * @throws IOException if the server socket could not be created
+     */
+    public int start(int port) throws IOException {
+        mServerSocket = new ServerSocket(port);
+        Thread acceptThread = new Thread("CtsCoordinator") {
+            @Override
+            public void run() {
+                acceptWorkers();
+            }
+        };
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        return mServerSocket.getLocalPort();
+    }
+
+    /**
+     * Block until all work items have been completed, or no worker has been connected for given
+     * time. On time out, the test runs of the work items that were not handed out are reported
+     * as failed.
+     *
+     * @param idleTimeout the time in ms to wait while no worker is connected
+     * @return <code>true</code> if all work items have been completed, <code>false</code> if
+     *         the wait timed out
+     * @throws InterruptedException
+     */
+    public boolean waitForCompletion(long idleTimeout) throws InterruptedException {
+        if (mQueue.waitForCompletion(idleTimeout)) {
+            return true;
+        }
+        for (WorkItem item : mQueue.removePending()) {
+            CLog.e("No worker available to run %s", item);
+            reportIncomplete(null, item, new ArrayList<List<String>>(), "no worker available");
+        }
+        return false;
+    }
+
+    /**
+     * Stop accepting worker connections.
+     */
+    public void stop() {
+        if (mServerSocket != null) {
+            try {
+                mServerSocket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void acceptWorkers() {
+        try {
+            while (!mServerSocket.isClosed()) {
+                Socket socket = mServerSocket.accept();
+                WorkerHandler handler = new WorkerHandler(socket);
+                handler.setDaemon(true);
+                handler.start();
+            }
+        } catch (IOException e) {
+            if (!mServerSocket.isClosed()) {
+                CLog.e("Failed to accept worker connection");
+                CLog.e(e);
+            }
+        }
+    }
+
+    /**
+     * Serves a single worker connection.
+     */
+    private class WorkerHandler extends Thread {
+        private final Socket mSocket;
+        private String mWorkerName;
+
+        WorkerHandler(Socket socket) {
+            super(String.format("CtsCoordinator-%s", socket.getRemoteSocketAddress()));
+            mSocket = socket;
+            mWorkerName = socket.getRemoteSocketAddress().toString();
+        }
+
+        @Override
+        public void run() {
+            WorkItem currentItem = null;
+            List<List<String>> events = new ArrayList<List<String>>();
+            mQueue.workerConnected();
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        mSocket.getInputStream(), "UTF-8"));
+                PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                        mSocket.getOutputStream(), "UTF-8"));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    List<String> fields = CoordinatorProtocol.decode(line);
+                    String command = fields.get(0);
+                    if (CoordinatorProtocol.HELLO.equals(command) && fields.size() > 1) {
+                        mWorkerName = fields.get(1);
+                        CLog.i("Worker %s connected", mWorkerName);
+                    } else if (CoordinatorProtocol.NEXT.equals(command)) {
+                        mergeEvents(mWorkerName, events);
+                        events.clear();
+                        if (currentItem != null) {
+                            CLog.i("Worker %s completed %s", mWorkerName, currentItem);
+                            mQueue.complete(currentItem);
+                            currentItem = null;
+                        }
+                        currentItem = mQueue.take();
+                        if (currentItem == null) {
+                            out.println(CoordinatorProtocol.encode(CoordinatorProtocol.DONE));
+                            out.flush();
+                            break;
+                        }
+                        CLog.i("Sending %s to worker %s", currentItem, mWorkerName);
+                        out.println(CoordinatorProtocol.encode(CoordinatorProtocol.RUN,
+                                currentItem.getUri(), currentItem.getExclusionString()));
+                        out.flush();
+                    } else {
+                        events.add(fields);
+                    }
+                }
+            } catch (IOException e) {
+                CLog.w("Lost connection to worker %s: %s", mWorkerName, e.getMessage());
+            } catch (InterruptedException e) {
+                CLog.w("Interrupted while serving worker %s", mWorkerName);
+            } finally {
+                if (currentItem != null) {
+                    if (mQueue.requeue(currentItem)) {
+                        CLog.w("Worker %s did not complete %s. Returning it to the queue",
+                                mWorkerName, currentItem);
+                    } else {
+                        CLog.e("Worker %s did not complete %s. Giving up after %d attempts",
+                                mWorkerName, currentItem, WorkQueue.MAX_ATTEMPTS);
+                        reportIncomplete(mWorkerName, currentItem, events, String.format(
+                                "not completed after %d attempts", WorkQueue.MAX_ATTEMPTS));
+                    }
+                }
+                mQueue.workerDisconnected();
+                try {
+                    mSocket.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Merge the buffered events of a work item that will not be completed, and report its test
+     * run as failed.
+     *
+     * @param workerName the name of the worker of its last attempt, or <code>null</code>
+     * @param item the {@link WorkItem} given up on
+     * @param events the buffered events of its last attempt
+     * @param reason the reason the item was not completed
+     */
+    private void reportIncomplete(String workerName, WorkItem item, List<List<String>> events,
+            String reason) {
+        boolean runStarted = false;
+        for (List<String> event : events) {
+            if (CoordinatorProtocol.RUN_STARTED.equals(event.get(0))) {
+                runStarted = true;
+            } else if (CoordinatorProtocol.RUN_ENDED.equals(event.get(0))) {
+                runStarted = false;
+            }
+        }
+        synchronized (mListener) {
+            mergeEvents(workerName, events);
+            if (!runStarted) {
+                mListener.testRunStarted(item.getUri(), 0);
+            }
+            mListener.testRunFailed(String.format("%s: %s", item.getUri(), reason));
+            mListener.testRunEnded(0, new HashMap<String, String>());
+        }
+    }
+
+    /**
+     * Forward the given buffered events to the listener.
+     */
+    private void mergeEvents(String workerName, List<List<String>> events) {
+        synchronized (mListener) {
+            for (List<String> event : events) {
+                try {
+                    forwardEvent(event);
+                } catch (IndexOutOfBoundsException e) {
+                    CLog.e("Malformed event %s from worker %s", event, workerName);
+                } catch (IllegalArgumentException e) {
+                    // includes NumberFormatException
+                    CLog.e("Malformed event %s from worker %s", event, workerName);
+                }
+            }
+        }
+    }
+
+    private void forwardEvent(List<String> event) {
+        String command = event.get(0);
+        if (CoordinatorProtocol.RUN_STARTED.equals(command)) {
+            mListener.testRunStarted(event.get(1), Integer.parseInt(event.get(2)));
+        } else if (CoordinatorProtocol.TEST_STARTED.equals(command)) {
+            mListener.testStarted(new TestIdentifier(event.get(1), event.get(2)));
+        } else if (CoordinatorProtocol.TEST_FAILED.equals(command)) {
+            mListener.testFailed(TestFailure.valueOf(event.get(1)),
+                    new TestIdentifier(event.get(2), event.get(3)), event.get(4));
+        } else if (CoordinatorProtocol.TEST_ENDED.equals(command)) {
+            mListener.testEnded(new TestIdentifier(event.get(1), event.get(2)),
+                    decodeMetrics(event, 3));
+        } else if (CoordinatorProtocol.RUN_FAILED.equals(command)) {
+            mListener.testRunFailed(event.get(1));
+        } else if (CoordinatorProtocol.RUN_STOPPED.equals(command)) {
+            mListener.testRunStopped(Long.parseLong(event.get(1)));
+        } else if (CoordinatorProtocol.RUN_ENDED.equals(command)) {
+            mListener.testRunEnded(Long.parseLong(event.get(1)), decodeMetrics(event, 2));
+        } else {
+            CLog.w("Ignoring unknown event %s", command);
+        }
+    }
+
+    /**
+     * Decode the metrics stored as alternating key and value fields, starting at given index.
+     */
+    private Map<String, String> decodeMetrics(List<String> event, int startIndex) {
+        Map<String, String> metrics = new HashMap<String, String>();
+        for (int i = startIndex; i + 1 < event.size(); i += 2) {
+            metrics.put(event.get(i), event.get(i + 1));
+        }
+        return metrics;
+    }
+}
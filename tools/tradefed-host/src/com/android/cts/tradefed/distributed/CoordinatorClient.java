@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.distributed;
+
+import com.android.tradefed.log.LogUtil.CLog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * The worker side of a connection to a {@link Coordinator}.
+ */
+public class CoordinatorClient {
+
+    private final Socket mSocket;
+    private final BufferedReader mIn;
+    private final PrintWriter mOut;
+
+    /**
+     * Connect to the coordinator listening at given address.
+     *
+     * @param host the coordinator host name
+     * @param port the coordinator port
+     * @param workerName the name to identify this worker with
+     * @throws IOException if connection failed
+     */
+    public CoordinatorClient(String host, int port, String workerName) throws IOException {
+        mSocket = new Socket(host, port);
+        mIn = new BufferedReader(new InputStreamReader(mSocket.getInputStream(), "UTF-8"));
+        mOut = new PrintWriter(new OutputStreamWriter(mSocket.getOutputStream(), "UTF-8"));
+        send(CoordinatorProtocol.HELLO, workerName);
+    }
+
+    /**
+     * Connect to the coordinator listening at given host:port address.
+     *
+     * @see #CoordinatorClient(String, int, String)
+     * @throws IllegalArgumentException if <var>address</var> is not in host:port format
+     */
+    public static CoordinatorClient connect(String address, String workerName)
+            throws IOException {
+        int portIndex = address.lastIndexOf(':');
+        if (portIndex <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid coordinator address %s. Expected host:port", address));
+        }
+        try {
+            int port = Integer.parseInt(address.substring(portIndex + 1));
+            return new CoordinatorClient(address.substring(0, portIndex), port, workerName);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid coordinator address %s. Expected host:port", address));
+        }
+    }
+
+    /**
+     * Complete the current work item, if any, and request the next one.
+     *
+     * @return the next {@link WorkItem} or <code>null</code> if there is no more work
+     * @throws IOException if the connection to the coordinator was lost
+     */
+    public synchronized WorkItem requestWork() throws IOException {
+        send(CoordinatorProtocol.NEXT);
+        String line = mIn.readLine();
+        if (line == null) {
+            throw new IOException("Connection closed by coordinator");
+        }
+        List<String> fields = CoordinatorProtocol.decode(line);
+        if (CoordinatorProtocol.RUN.equals(fields.get(0)) && fields.size() > 1) {
+            return new WorkItem(fields.get(1), fields.size() > 2 ? fields.get(2) : null);
+        } else if (!CoordinatorProtocol.DONE.equals(fields.get(0))) {
+            CLog.e("Unexpected response '%s' from coordinator", line);
+        }
+        return null;
+    }
+
+    /**
+     * Send a message to the coordinator.
+     * <p/>
+     * Write errors are not reported here since test events are sent from listener callbacks. A
+     * lost connection will be detected on the next {@link #requestWork()}.
+     */
+    synchronized void send(String... fields) {
+        mOut.println(CoordinatorProtocol.encode(fields));
+        mOut.flush();
+    }
+
+    /**
+     * Close the connection. Any work item in progress will be handed to another worker.
+     */
+    public synchronized void close() {
+        mOut.close();
+        try {
+            mSocket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.distributed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Definition of the line based protocol spoken between a {@link Coordinator} and its workers.
+ * <p/>
+ * Each message is a single line of tab separated fields, the first of which is the command.
+ * Tabs, newlines and backslashes inside fields are escaped with a backslash.
+ * <p/>
+ * A worker connects and sends {@link #HELLO}, then repeatedly sends {@link #NEXT} to complete its
+ * previous work item and request a new one. The coordinator answers with either {@link #RUN} or
+ * {@link #DONE}. In between, the worker streams the test events of the current work item, which
+ * the coordinator only merges into the session once the item is completed.
+ */
+class CoordinatorProtocol {
+
+    /** worker to coordinator: HELLO worker_name */
+    static final String HELLO = "HELLO";
+    /** worker to coordinator: complete the current work item and request a new one */
+    static final String NEXT = "NEXT";
+    /** coordinator to worker: RUN package_uri exclusion_string */
+    static final String RUN = "RUN";
+    /** coordinator to worker: there is no more work */
+    static final String DONE = "DONE";
+
+    // test events, streamed from worker to coordinator
+    static final String RUN_STARTED = "RUN_STARTED";
+    static final String TEST_STARTED = "TEST_STARTED";
+    static final String TEST_FAILED = "TEST_FAILED";
+    static final String TEST_ENDED = "TEST_ENDED";
+    static final String RUN_FAILED = "RUN_FAILED";
+    static final String RUN_STOPPED = "RUN_STOPPED";
+    static final String RUN_ENDED = "RUN_ENDED";
+
+    private static final char FIELD_DELIM = '\t';
+    private static final char ESCAPE = '\\';
+
+    private CoordinatorProtocol() {
+    }
+
+    /**
+     * Encode the given fields into a single message line, without the line terminator.
+     */
+    static String encode(String... fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(FIELD_DELIM);
+            }
+            String field = fields[i] == null ? "" : fields[i];
+            for (int j = 0; j < field.length(); j++) {
+                char c = field.charAt(j);
+                switch (c) {
+                    case ESCAPE:
+                        line.append(ESCAPE).append(ESCAPE);
+                        break;
+                    case FIELD_DELIM:
+                        line.append(ESCAPE).append('t');
+                        break;
+                    case '\n':
+                        line.append(ESCAPE).append('n');
+                        break;
+                    case '\r':
+                        line.append(ESCAPE).append('r');
+                        break;
+                    default:
+                        line.append(c);
+                }
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Decode a message line produced by {@link #encode(String...)} into its fields.
+     */
+    static List<String> decode(String line) {
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == FIELD_DELIM) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == ESCAPE && i + 1 < line.length()) {
+                char escaped = line.charAt(++i);
+                switch (escaped) {
+                    case 't':
+                        field.append(FIELD_DELIM);
+                        break;
+                    case 'n':
+                        field.append('\n');
+                        break;
+                    case 'r':
+                        field.append('\r');
+                        break;
+                    default:
+                        field.append(escaped);
+                }
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.distributed;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.android.tradefed.result.ITestInvocationListener;
+import com.android.tradefed.result.ResultForwarder;
+
+import java.util.Map;
+
+/**
+ * A {@link ResultForwarder} that also streams test events to a {@link Coordinator}.
+ * <p/>
+ * Logs are kept locally and are not streamed.
+ */
+public class RemoteResultForwarder extends ResultForwarder {
+
+    private final CoordinatorClient mClient;
+
+    public RemoteResultForwarder(ITestInvocationListener listener, CoordinatorClient client) {
+        super(listener);
+        mClient = client;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void testRunStarted(String runName, int testCount) {
+        super.testRunStarted(runName, testCount);
+        mClient.send(CoordinatorProtocol.RUN_STARTED, runName, Integer.toString(testCount));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void testStarted(TestIdentifier test) {
+        super.testStarted(test);
+        mClient.send(CoordinatorProtocol.TEST_STARTED, test.getClassName(), test.getTestName());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void testFailed(TestFailure status, TestIdentifier test, String trace) {
+        super.testFailed(status, test, trace);
+        mClient.send(CoordinatorProtocol.TEST_FAILED, status.name(), test.getClassName(),
+                test.getTestName(), trace);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+        super.testEnded(test, testMetrics);
+        mClient.send(encodeMetrics(testMetrics, CoordinatorProtocol.TEST_ENDED,
+                test.getClassName(), test.getTestName()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void testRunFailed(String errorMessage) {
+        super.testRunFailed(errorMessage);
+        mClient.send(CoordinatorProtocol.RUN_FAILED, errorMessage);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void testRunStopped(long elapsedTime) {
+        super.testRunStopped(elapsedTime);
+        mClient.send(CoordinatorProtocol.RUN_STOPPED, Long.toString(elapsedTime));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void testRunEnded(long elapsedTime, Map<String, String> runMetrics) {
+        super.testRunEnded(elapsedTime, runMetrics);
+        mClient.send(encodeMetrics(runMetrics, CoordinatorProtocol.RUN_ENDED,
+                Long.toString(elapsedTime)));
+    }
+
+    /**
+     * Build the fields of a message consisting of the given leading fields followed by the
+     * metrics as alternating key and value fields.
+     */
+    private String[] encodeMetrics(Map<String, String> metrics, String... leadingFields) {
+        int size = leadingFields.length + (metrics == null ? 0 : metrics.size() * 2);
+        String[] fields = new String[size];
+        System.arraycopy(leadingFields, 0, fields, 0, leadingFields.length);
+        if (metrics != null) {
+            int i = leadingFields.length;
+            for (Map.Entry<String, String> metric : metrics.entrySet()) {
+                fields[i++] = metric.getKey();
+                fields[i++] = metric.getValue();
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.distributed;
+
+/**
+ * A unit of work handed out by a {@link Coordinator}: a test package, minus excluded tests.
+ */
+public class WorkItem {
+
+    private final String mUri;
+    private final String mExclusionString;
+
+    /**
+     * Create a {@link WorkItem}.
+     *
+     * @param uri the test package uri
+     * @param exclusionString the tests to exclude, in the format of
+     *            {@link com.android.cts.tradefed.testtype.TestFilter#getExclusionString()}
+     */
+    public WorkItem(String uri, String exclusionString) {
+        mUri = uri;
+        mExclusionString = exclusionString == null ? "" : exclusionString;
+    }
+
+    public String getUri() {
+        return mUri;
+    }
+
+    public String getExclusionString() {
+        return mExclusionString;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return mUri;
+    }
+}
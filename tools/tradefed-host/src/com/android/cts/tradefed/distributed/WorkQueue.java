@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.distributed;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A thread-safe queue of {@link WorkItem}s that tracks items that have been handed out but not
+ * yet completed, so they can be handed out again if their worker goes away.
+ * <p/>
+ * An item is handed out at most {@link #MAX_ATTEMPTS} times, so a package that reliably takes
+ * down its device does not keep every other package waiting.
+ */
+class WorkQueue {
+
+    /** the number of times a work item is handed out before giving up on it */
+    static final int MAX_ATTEMPTS = 3;
+
+    private final LinkedList<WorkItem> mPendingItems = new LinkedList<WorkItem>();
+    private final Map<WorkItem, Integer> mNumAttempts = new HashMap<WorkItem, Integer>();
+    private int mNumInProgress = 0;
+    private int mNumWorkers = 0;
+    /** the time the last worker disconnected, or the queue was created */
+    private long mIdleSinceTime = System.currentTimeMillis();
+
+    WorkQueue(Collection<WorkItem> items) {
+        mPendingItems.addAll(items);
+    }
+
+    /**
+     * Record that a worker connected.
+     */
+    synchronized void workerConnected() {
+        mNumWorkers++;
+    }
+
+    /**
+     * Record that a worker disconnected.
+     */
+    synchronized void workerDisconnected() {
+        mNumWorkers--;
+        if (mNumWorkers == 0) {
+            mIdleSinceTime = System.currentTimeMillis();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Take the next work item, waiting while there is none available but work is still in
+     * progress on other workers, since that work may be returned to the queue.
+     *
+     * @return the {@link WorkItem} or <code>null</code> if all work is complete
+     * @throws InterruptedException
+     */
+    synchronized WorkItem take() throws InterruptedException {
+        while (mPendingItems.isEmpty() && mNumInProgress > 0) {
+            wait();
+        }
+        if (mPendingItems.isEmpty()) {
+            return null;
+        }
+        mNumInProgress++;
+        WorkItem item = mPendingItems.removeFirst();
+        mNumAttempts.put(item, getNumAttempts(item) + 1);
+        return item;
+    }
+
+    /**
+     * @return the number of times given item has been handed out
+     */
+    synchronized int getNumAttempts(WorkItem item) {
+        Integer numAttempts = mNumAttempts.get(item);
+        return numAttempts == null ? 0 : numAttempts;
+    }
+
+    /**
+     * Mark a previously taken item as complete.
+     */
+    synchronized void complete(WorkItem item) {
+        mNumInProgress--;
+        notifyAll();
+    }
+
+    /**
+     * Return a previously taken item to the front of the queue, so it is run next. An item that
+     * has been handed out {@link #MAX_ATTEMPTS} times is marked as complete instead.
+     *
+     * @return <code>true</code> if the item was returned to the queue, <code>false</code> if
+     *         the item should be given up on
+     */
+    synchronized boolean requeue(WorkItem item) {
+        mNumInProgress--;
+        notifyAll();
+        if (getNumAttempts(item) >= MAX_ATTEMPTS) {
+            return false;
+        }
+        mPendingItems.addFirst(item);
+        return true;
+    }
+
+    /**
+     * Wait until all work is complete, or no worker has been connected for given time.
+     *
+     * @param idleTimeout the time in ms to wait while no worker is connected
+     * @return <code>true</code> if all work is complete, <code>false</code> if the wait timed
+     *         out
+     * @throws InterruptedException
+     */
+    synchronized boolean waitForCompletion(long idleTimeout) throws InterruptedException {
+        while (!isComplete()) {
+            if (mNumWorkers > 0) {
+                wait();
+            } else {
+                long remainingTime = mIdleSinceTime + idleTimeout - System.currentTimeMillis();
+                if (remainingTime <= 0) {
+                    return false;
+                }
+                wait(remainingTime);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove all items that have not been handed out yet.
+     *
+     * @return the removed {@link WorkItem}s, in order
+     */
+    synchronized List<WorkItem> removePending() {
+        List<WorkItem> items = new ArrayList<WorkItem>(mPendingItems);
+        mPendingItems.clear();
+        notifyAll();
+        return items;
+    }
+
+    /**
+     * @return <code>true</code> if all work is complete
+     */
+    synchronized boolean isComplete() {
+        return mPendingItems.isEmpty() && mNumInProgress == 0;
+    }
+}
@@ -37,13 +37,20 @@ import com.android.tradefed.util.StreamUtil;
 
 import org.kxml2.io.KXmlSerializer;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Writes results to an XML files in the CTS format.
@@ -84,6 +91,15 @@ public class CtsXmlResultReporter implements ITestInvocationListener {
     @Option(name = "quiet-output", description = "Mute display of test results.")
     private boolean mQuietOutput = false;
 
+    @Option(name = "log-compression-threads", description =
+        "the maximum number of test logs to compress in parallel in the background.")
+    private int mNumLogCompressionThreads = 2;
+
+    /** the maximum number of logs waiting to be compressed before testLog blocks */
+    private static final int MAX_PENDING_LOGS = 16;
+    /** the maximum time in minutes to wait for pending logs at the end of the invocation */
+    private static final long LOG_COMPRESSION_TIMEOUT_MIN = 30;
+
     protected IBuildInfo mBuildInfo;
     private String mStartTime;
     private String mDeviceSerial;
@@ -92,6 +108,9 @@ public class CtsXmlResultReporter implements ITestInvocationListener {
     private boolean mIsDeviceInfoRun = false;
 
     private File mLogDir;
+    private ExecutorService mLogCompressor = null;
+    /** set once the invocation waits for its logs, later logs are rejected */
+    private boolean mLogsClosed = false;
 
     public void setReportDir(File reportDir) {
         mReportDir = reportDir;
@@ -156,16 +175,100 @@ public class CtsXmlResultReporter implements ITestInvocationListener {
 
     /**
      * {@inheritDoc}
+     * <p/>
+     * The log data is copied to a temporary file right away, since the source may be cancelled
+     * once this method returns, then compressed into the log directory in the background. Logs
+     * received after {@link #invocationEnded(long)} has started are discarded.
      */
     @Override
-    public void testLog(String dataName, LogDataType dataType, InputStreamSource dataStream) {
+    public void testLog(final String dataName, final LogDataType dataType,
+            InputStreamSource dataStream) {
+        final File rawFile;
+        try {
+            rawFile = File.createTempFile(String.format("%s_raw_", dataName),
+                    String.format(".%s", dataType.getFileExt()));
+            FileUtil.writeToFile(dataStream.createInputStream(), rawFile);
+        } catch (IOException e) {
+            CLog.e("Failed to write log for %s", dataName);
+            return;
+        }
+        boolean submitted = submitLog(new Runnable() {
+            @Override
+            public void run() {
+                saveLog(dataName, dataType, rawFile);
+            }
+        });
+        if (!submitted) {
+            CLog.w("Discarding log %s received after the invocation ended", dataName);
+            rawFile.delete();
+        }
+    }
+
+    /**
+     * Compress the given raw log data into the log directory, and delete the raw file.
+     */
+    private void saveLog(String dataName, LogDataType dataType, File rawFile) {
+        InputStream rawStream = null;
         try {
-            File logFile = getLogFileSaver().saveAndZipLogData(dataName, dataType,
-                    dataStream.createInputStream());
+            rawStream = new BufferedInputStream(new FileInputStream(rawFile));
+            File logFile = getLogFileSaver().saveAndZipLogData(dataName, dataType, rawStream);
             logResult(String.format("Saved log %s", logFile.getName()));
         } catch (IOException e) {
             CLog.e("Failed to write log for %s", dataName);
+        } finally {
+            StreamUtil.closeStream(rawStream);
+            rawFile.delete();
+        }
+    }
+
+    /**
+     * Submit a task to the bounded pool used to compress logs, creating the pool if necessary.
+     * <p/>
+     * If the queue of pending logs is full, the log is compressed on the calling thread, to
+     * throttle the invocation rather than fill up the disk with raw data.
+     *
+     * @return <code>false</code> if the task was rejected since the invocation has ended
+     */
+    private synchronized boolean submitLog(Runnable task) {
+        if (mLogsClosed) {
+            return false;
+        }
+        if (mLogCompressor == null) {
+            int numThreads = Math.max(1, mNumLogCompressionThreads);
+            mLogCompressor = new ThreadPoolExecutor(numThreads, numThreads, 0L,
+                    TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(MAX_PENDING_LOGS),
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "CtsLogCompressor");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        mLogCompressor.execute(task);
+        return true;
+    }
+
+    /**
+     * Block until all pending logs have been saved. Logs received afterwards are rejected.
+     */
+    private synchronized void waitForLogs() {
+        mLogsClosed = true;
+        if (mLogCompressor == null) {
+            return;
+        }
+        mLogCompressor.shutdown();
+        try {
+            if (!mLogCompressor.awaitTermination(LOG_COMPRESSION_TIMEOUT_MIN, TimeUnit.MINUTES)) {
+                CLog.w("Timed out waiting for test logs to be saved");
+            }
+        } catch (InterruptedException e) {
+            CLog.w("Interrupted while waiting for test logs to be saved");
+            Thread.currentThread().interrupt();
         }
+        mLogCompressor = null;
     }
 
     /**
@@ -245,6 +348,7 @@ public class CtsXmlResultReporter implements ITestInvocationListener {
      */
     @Override
     public void invocationEnded(long elapsedTime) {
+        waitForLogs();
         // display the results of the last completed run
         if (mCurrentPkgResult != null) {
             logCompleteRun(mCurrentPkgResult);
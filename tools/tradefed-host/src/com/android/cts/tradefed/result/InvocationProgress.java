@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks the completion of a CTS invocation, made up of one or more {@link ShardProgress}es.
+ */
+public class InvocationProgress {
+
+    private final int mId;
+    private final String mDescription;
+    private final int mNumShards;
+    private final boolean mResumable;
+    private final List<ShardProgress> mShards = new ArrayList<ShardProgress>();
+
+    /**
+     * Create a {@link InvocationProgress}.
+     *
+     * @param id the unique id of the invocation
+     * @param description a user-friendly description of what is being run
+     * @param numShards the number of shards the invocation has been split into
+     * @param resumable whether aborted shards of the invocation may be resumed
+     */
+    InvocationProgress(int id, String description, int numShards, boolean resumable) {
+        mId = id;
+        mDescription = description;
+        mNumShards = numShards;
+        mResumable = resumable;
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    public String getDescription() {
+        return mDescription;
+    }
+
+    public boolean isResumable() {
+        return mResumable;
+    }
+
+    /**
+     * Create and add a new {@link ShardProgress} to this invocation.
+     */
+    public synchronized ShardProgress addShard() {
+        ShardProgress shard = new ShardProgress();
+        mShards.add(shard);
+        return shard;
+    }
+
+    /**
+     * @return a copy of the list of {@link ShardProgress}es
+     */
+    public synchronized List<ShardProgress> getShards() {
+        return new ArrayList<ShardProgress>(mShards);
+    }
+
+    /**
+     * @return <code>true</code> if all shards of this invocation have finished
+     */
+    public synchronized boolean isFinished() {
+        if (mShards.size() < mNumShards) {
+            return false;
+        }
+        for (ShardProgress shard : mShards) {
+            if (!shard.isFinished()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if any shard of this invocation is still running or waiting for
+     *         a device, ie not all shards have either finished or been aborted
+     */
+    public synchronized boolean isRunning() {
+        if (mShards.size() < mNumShards) {
+            return true;
+        }
+        for (ShardProgress shard : mShards) {
+            if (!shard.isFinished() && !shard.isAborted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the total number of known tests in this invocation
+     */
+    public synchronized int getNumTests() {
+        int total = 0;
+        for (ShardProgress shard : mShards) {
+            total += shard.getNumTests();
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of completed tests in this invocation
+     */
+    public synchronized int getNumCompletedTests() {
+        int total = 0;
+        for (ShardProgress shard : mShards) {
+            total += shard.getNumCompletedTests();
+        }
+        return total;
+    }
+
+    /**
+     * Estimate the time remaining until this invocation is complete, ie until its slowest shard
+     * is complete.
+     *
+     * @see ShardProgress#estimateRemainingTime(ResultHistory, long)
+     */
+    public synchronized long estimateRemainingTime(ResultHistory history, long currentTime) {
+        long remainingTime = 0;
+        for (ShardProgress shard : mShards) {
+            long shardTime = shard.estimateRemainingTime(history, currentTime);
+            if (shardTime == ShardProgress.UNKNOWN_TIME) {
+                return ShardProgress.UNKNOWN_TIME;
+            }
+            remainingTime = Math.max(remainingTime, shardTime);
+        }
+        return remainingTime;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.result;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide registry of the {@link InvocationProgress} of currently running CTS invocations.
+ * <p/>
+ * Written to by {@link com.android.cts.tradefed.testtype.CtsTest}, read by the console.
+ */
+public class ProgressTracker {
+
+    /** the time an idle invocation is kept for, waiting for its aborted shards to be resumed */
+    static final long RESUME_TIMEOUT_MS = 60 * 60 * 1000;
+
+    private static final ProgressTracker sInstance = new ProgressTracker();
+
+    private final List<InvocationProgress> mInvocations = new ArrayList<InvocationProgress>();
+    /** the resumable invocations and the time they were first seen idle */
+    private final Map<InvocationProgress, Long> mIdleSinceTimes =
+            new HashMap<InvocationProgress, Long>();
+    private int mNextId = 0;
+
+    /**
+     * Exposed for unit testing. Use {@link #getInstance()} instead.
+     */
+    ProgressTracker() {
+    }
+
+    /**
+     * @return the singleton {@link ProgressTracker}
+     */
+    public static ProgressTracker getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Register a new invocation.
+     *
+     * @param description a user-friendly description of what is being run
+     * @param numShards the number of shards the invocation has been split into
+     * @param resumable whether aborted shards of the invocation may be resumed
+     * @return the {@link InvocationProgress} to add shards to
+     */
+    public synchronized InvocationProgress createInvocation(String description, int numShards,
+            boolean resumable) {
+        InvocationProgress invocation = new InvocationProgress(mNextId++, description, numShards,
+                resumable);
+        mInvocations.add(invocation);
+        return invocation;
+    }
+
+    /**
+     * Get the currently running invocations.
+     * <p/>
+     * Invocations whose shards have all finished or been aborted are not returned. They are
+     * discarded, unless they are resumable and have an aborted shard, in which case they are
+     * kept for {@link #RESUME_TIMEOUT_MS} in case the shard is resumed.
+     */
+    public List<InvocationProgress> getInvocations() {
+        return getInvocations(System.currentTimeMillis());
+    }
+
+    /**
+     * Exposed for unit testing. Use {@link #getInvocations()} instead.
+     */
+    synchronized List<InvocationProgress> getInvocations(long currentTime) {
+        List<InvocationProgress> running = new ArrayList<InvocationProgress>();
+        Iterator<InvocationProgress> iter = mInvocations.iterator();
+        while (iter.hasNext()) {
+            InvocationProgress invocation = iter.next();
+            if (invocation.isRunning()) {
+                mIdleSinceTimes.remove(invocation);
+                running.add(invocation);
+            } else if (invocation.isFinished() || !invocation.isResumable()) {
+                mIdleSinceTimes.remove(invocation);
+                iter.remove();
+            } else {
+                Long idleSinceTime = mIdleSinceTimes.get(invocation);
+                if (idleSinceTime == null) {
+                    mIdleSinceTimes.put(invocation, currentTime);
+                } else if (currentTime - idleSinceTime >= RESUME_TIMEOUT_MS) {
+                    mIdleSinceTimes.remove(invocation);
+                    iter.remove();
+                }
+            }
+        }
+        return running;
+    }
+}
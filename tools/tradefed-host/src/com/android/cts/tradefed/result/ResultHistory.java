@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.result;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per test package statistics gathered from the previous sessions stored in a
+ * {@link ITestResultRepo}.
+ * <p/>
+ * Used to predict how long a test package will take to execute, and how likely it is to fail.
+ */
+public class ResultHistory {
+
+    /** the default number of most recent sessions to gather statistics from */
+    public static final int DEFAULT_NUM_SESSIONS = 5;
+
+    /** data structure for the accumulated statistics of one test package */
+    private static class PackageStats {
+        long mTotalTimeMs = 0;
+        int mNumTests = 0;
+        int mNumSessions = 0;
+        int mNumFailedSessions = 0;
+    }
+
+    private final Map<String, PackageStats> mPkgStatsMap = new HashMap<String, PackageStats>();
+    private long mTotalTimeMs = 0;
+    private int mNumTests = 0;
+
+    /**
+     * Create an empty {@link ResultHistory}.
+     */
+    public ResultHistory() {
+    }
+
+    /**
+     * Create a {@link ResultHistory} from the most recent sessions in given repository.
+     *
+     * @param repo the {@link ITestResultRepo} to load results from
+     * @param numSessions the maximum number of sessions to load
+     */
+    public static ResultHistory createFromRepo(ITestResultRepo repo, int numSessions) {
+        ResultHistory history = new ResultHistory();
+        int numResults = repo.getSummaries().size();
+        for (int i = Math.max(0, numResults - numSessions); i < numResults; i++) {
+            TestResults results = repo.getResult(i);
+            if (results != null) {
+                history.addResults(results);
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Add the statistics for all packages of given session.
+     */
+    void addResults(TestResults results) {
+        for (TestPackageResult pkgResult : results.getPackages()) {
+            addPackageResult(pkgResult);
+        }
+    }
+
+    /**
+     * Add the statistics for given package result.
+     * <p/>
+     * The package's execution time is measured from the start of its first executed test to the
+     * end of its last, so per-test overhead such as instrumentation startup is accounted for.
+     */
+    void addPackageResult(TestPackageResult pkgResult) {
+        PackageStats stats = mPkgStatsMap.get(pkgResult.getAppPackageName());
+        if (stats == null) {
+            stats = new PackageStats();
+            mPkgStatsMap.put(pkgResult.getAppPackageName(), stats);
+        }
+        int numFailed = pkgResult.countTests(CtsTestStatus.FAIL);
+        if (numFailed + pkgResult.countTests(CtsTestStatus.PASS) > 0) {
+            // only count sessions in which the package actually ran
+            stats.mNumSessions++;
+            if (numFailed > 0) {
+                stats.mNumFailedSessions++;
+            }
+        }
+
+        long[] timeRange = new long[] {Long.MAX_VALUE, Long.MIN_VALUE};
+        int numTests = 0;
+        for (TestSuite suite : pkgResult.getTestSuites()) {
+            numTests += addSuiteTimes(suite, timeRange);
+        }
+        if (numTests == 0 || timeRange[1] < timeRange[0]) {
+            return;
+        }
+        long elapsedTime = timeRange[1] - timeRange[0];
+        stats.mTotalTimeMs += elapsedTime;
+        stats.mNumTests += numTests;
+        mTotalTimeMs += elapsedTime;
+        mNumTests += numTests;
+    }
+
+    /**
+     * Recursively expand <var>timeRange</var> to cover all executed tests in <var>suite</var>.
+     *
+     * @return the number of executed tests found
+     */
+    private int addSuiteTimes(TestSuite suite, long[] timeRange) {
+        int numTests = 0;
+        for (TestSuite childSuite : suite.getTestSuites()) {
+            numTests += addSuiteTimes(childSuite, timeRange);
+        }
+        for (TestCase testCase : suite.getTestCases()) {
+            for (Test test : testCase.getTests()) {
+                if (CtsTestStatus.NOT_EXECUTED.equals(test.getResult())) {
+                    continue;
+                }
+                long startTime = TimeUtil.parseTimestamp(test.getStartTime());
+                long endTime = TimeUtil.parseTimestamp(test.getEndTime());
+                if (startTime < 0 || endTime < startTime) {
+                    continue;
+                }
+                timeRange[0] = Math.min(timeRange[0], startTime);
+                timeRange[1] = Math.max(timeRange[1], endTime);
+                numTests++;
+            }
+        }
+        return numTests;
+    }
+
+    /**
+     * @return <code>true</code> if no timing data is available at all
+     */
+    public boolean isEmpty() {
+        return mNumTests == 0;
+    }
+
+    /**
+     * Get the mean execution time of a single test in given package.
+     *
+     * @param appPackageName the test package's app package name aka uri
+     * @return the mean time in ms. Falls back to the mean over all packages if the package has no
+     *         history, and <code>0</code> if there is no history at all.
+     */
+    public double getMeanTestTime(String appPackageName) {
+        PackageStats stats = mPkgStatsMap.get(appPackageName);
+        if (stats != null && stats.mNumTests > 0) {
+            return (double)stats.mTotalTimeMs / stats.mNumTests;
+        }
+        if (mNumTests > 0) {
+            return (double)mTotalTimeMs / mNumTests;
+        }
+        return 0;
+    }
+
+    /**
+     * Get the predicted time to execute <var>numTests</var> tests of given package.
+     *
+     * @param appPackageName the test package's app package name aka uri
+     * @param numTests the number of tests
+     * @return the predicted time in ms
+     */
+    public long predictTime(String appPackageName, int numTests) {
+        return Math.round(getMeanTestTime(appPackageName) * numTests);
+    }
+
+    /**
+     * Get the probability that given package will have at least one failed test, measured as the
+     * fraction of loaded sessions in which it did.
+     *
+     * @param appPackageName the test package's app package name aka uri
+     * @return the probability, or <code>0</code> if the package has no history
+     */
+    public double getFailureProbability(String appPackageName) {
+        PackageStats stats = mPkgStatsMap.get(appPackageName);
+        if (stats == null || stats.mNumSessions == 0) {
+            return 0;
+        }
+        return (double)stats.mNumFailedSessions / stats.mNumSessions;
+    }
+}
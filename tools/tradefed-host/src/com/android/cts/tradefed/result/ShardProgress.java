@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.result;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks the completion of a single CTS shard, ie the set of test packages run on one device.
+ * <p/>
+ * Updated from the invocation thread and read from the console thread, so all access is
+ * synchronized.
+ */
+public class ShardProgress {
+
+    /** value returned by {@link #estimateRemainingTime} when no estimate can be made */
+    public static final long UNKNOWN_TIME = -1;
+
+    /** the planned test packages, mapped to their number of known tests */
+    private final Map<String, Integer> mPackageTestCounts = new LinkedHashMap<String, Integer>();
+    /** the completed test packages, mapped to their number of known tests */
+    private final Map<String, Integer> mCompletedPackages = new LinkedHashMap<String, Integer>();
+    private String mCurrentPackage = null;
+    private int mCurrentPackageCompletedTests = 0;
+    private String mDeviceSerial = null;
+    private long mStartTime = 0;
+    private boolean mIsFinished = false;
+    private boolean mIsAborted = false;
+
+    /**
+     * Add a test package to be run by this shard.
+     *
+     * @param appPackageName the test package's app package name aka uri
+     * @param numTests the number of known tests in the package
+     */
+    public synchronized void addPackage(String appPackageName, int numTests) {
+        mPackageTestCounts.put(appPackageName, numTests);
+    }
+
+    /**
+     * Mark this shard as started on given device. Has no effect on the start time if the shard
+     * is being resumed.
+     */
+    public synchronized void setStarted(String deviceSerial, long currentTime) {
+        mDeviceSerial = deviceSerial;
+        mIsAborted = false;
+        if (mStartTime == 0) {
+            mStartTime = currentTime;
+        }
+    }
+
+    /**
+     * Mark the given test package as currently executing.
+     */
+    public synchronized void setPackageStarted(String appPackageName) {
+        if (!appPackageName.equals(mCurrentPackage)) {
+            mCurrentPackage = appPackageName;
+            mCurrentPackageCompletedTests = 0;
+        }
+    }
+
+    /**
+     * Report that a test in the currently executing package has completed.
+     */
+    public synchronized void testCompleted() {
+        if (mCurrentPackage != null) {
+            mCurrentPackageCompletedTests++;
+        }
+    }
+
+    /**
+     * Mark the given test package as complete. All its known tests are counted as done, whether
+     * or not they were executed.
+     */
+    public synchronized void setPackageCompleted(String appPackageName) {
+        Integer numTests = mPackageTestCounts.get(appPackageName);
+        mCompletedPackages.put(appPackageName, numTests == null ? 0 : numTests);
+        if (appPackageName.equals(mCurrentPackage)) {
+            mCurrentPackage = null;
+            mCurrentPackageCompletedTests = 0;
+        }
+    }
+
+    /**
+     * Mark this shard as finished.
+     */
+    public synchronized void setFinished() {
+        mIsFinished = true;
+        mCurrentPackage = null;
+    }
+
+    /**
+     * Mark this shard as aborted, eg because its device became unavailable. The shard may still
+     * be resumed on another device, which clears the aborted state.
+     */
+    public synchronized void setAborted() {
+        mIsAborted = true;
+        mCurrentPackage = null;
+    }
+
+    public synchronized boolean isStarted() {
+        return mStartTime != 0;
+    }
+
+    public synchronized boolean isFinished() {
+        return mIsFinished;
+    }
+
+    public synchronized boolean isAborted() {
+        return mIsAborted;
+    }
+
+    /**
+     * @return the serial of the device this shard is running on, or <code>null</code> if it has
+     *         not started yet
+     */
+    public synchronized String getDeviceSerial() {
+        return mDeviceSerial;
+    }
+
+    /**
+     * @return the app package name of the currently executing test package or <code>null</code>
+     */
+    public synchronized String getCurrentPackage() {
+        return mCurrentPackage;
+    }
+
+    /**
+     * @return the total number of known tests in this shard
+     */
+    public synchronized int getNumTests() {
+        int total = 0;
+        for (Integer numTests : mPackageTestCounts.values()) {
+            total += numTests;
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of completed tests in this shard
+     */
+    public synchronized int getNumCompletedTests() {
+        if (mIsFinished) {
+            return getNumTests();
+        }
+        int total = getCurrentPackageCompletedTests();
+        for (Integer numTests : mCompletedPackages.values()) {
+            total += numTests;
+        }
+        return total;
+    }
+
+    /**
+     * @return the time in ms this shard has been running, or <code>0</code> if not started
+     */
+    public synchronized long getElapsedTime(long currentTime) {
+        return mStartTime == 0 ? 0 : currentTime - mStartTime;
+    }
+
+    /**
+     * Estimate the time remaining until this shard is complete.
+     * <p/>
+     * The remaining packages are predicted using <var>history</var>. The prediction is then
+     * scaled by how fast the live run is progressing relative to the prediction for the work
+     * already done, to account for slower or faster devices. If there is no history, the live
+     * test throughput alone is used.
+     *
+     * @param history the {@link ResultHistory} to predict package execution times from
+     * @param currentTime the current time in ms
+     * @return the estimated remaining time in ms, or {@link #UNKNOWN_TIME}
+     */
+    public synchronized long estimateRemainingTime(ResultHistory history, long currentTime) {
+        if (mIsFinished) {
+            return 0;
+        }
+        long predictedDone = 0;
+        long predictedRemaining = 0;
+        int numRemainingTests = 0;
+        for (Map.Entry<String, Integer> pkgEntry : mPackageTestCounts.entrySet()) {
+            String pkgName = pkgEntry.getKey();
+            int numTests = pkgEntry.getValue();
+            if (mCompletedPackages.containsKey(pkgName)) {
+                predictedDone += history.predictTime(pkgName, numTests);
+            } else if (pkgName.equals(mCurrentPackage)) {
+                int numDone = getCurrentPackageCompletedTests();
+                predictedDone += history.predictTime(pkgName, numDone);
+                predictedRemaining += history.predictTime(pkgName, numTests - numDone);
+                numRemainingTests += numTests - numDone;
+            } else {
+                predictedRemaining += history.predictTime(pkgName, numTests);
+                numRemainingTests += numTests;
+            }
+        }
+        long elapsedTime = getElapsedTime(currentTime);
+        if (history.isEmpty()) {
+            int numDoneTests = getNumCompletedTests();
+            if (numDoneTests == 0) {
+                return numRemainingTests == 0 ? 0 : UNKNOWN_TIME;
+            }
+            return Math.round((double)elapsedTime * numRemainingTests / numDoneTests);
+        }
+        if (predictedDone == 0 || elapsedTime == 0) {
+            // nothing measured on the live run yet, trust the history as is
+            return predictedRemaining;
+        }
+        return Math.round((double)predictedRemaining * elapsedTime / predictedDone);
+    }
+
+    /**
+     * Get the number of completed tests in the current package, capped at its known test count.
+     */
+    private int getCurrentPackageCompletedTests() {
+        if (mCurrentPackage == null) {
+            return 0;
+        }
+        Integer numTests = mPackageTestCounts.get(mCurrentPackage);
+        if (numTests == null) {
+            return 0;
+        }
+        return Math.min(numTests, mCurrentPackageCompletedTests);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.result;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns the stack traces of a test session, so tests that fail the same way share a single
+ * copy of the trace.
+ * <p/>
+ * A trace shared by multiple tests is written to XML in full only for the first of them, with an
+ * id attribute. The others refer to it with a ref attribute.
+ */
+class StackTraceTable {
+
+    /**
+     * A single interned stack trace.
+     */
+    static class Entry {
+        private final int mId;
+        private final String mTrace;
+        private final String mMessage;
+        private int mNumRefs = 0;
+        private boolean mIsSerialized = false;
+
+        private Entry(int id, String trace) {
+            mId = id;
+            mTrace = trace;
+            mMessage = Test.getFailureMessageFromStackTrace(trace);
+        }
+
+        String getId() {
+            return Integer.toString(mId);
+        }
+
+        String getTrace() {
+            return mTrace;
+        }
+
+        String getMessage() {
+            return mMessage;
+        }
+
+        /**
+         * @return <code>true</code> if more than one test refers to this trace
+         */
+        boolean isShared() {
+            return mNumRefs > 1;
+        }
+
+        /**
+         * Mark this trace as written to XML.
+         *
+         * @return <code>true</code> if the trace was not written yet
+         */
+        boolean markSerialized() {
+            if (mIsSerialized) {
+                return false;
+            }
+            mIsSerialized = true;
+            return true;
+        }
+    }
+
+    private final Map<String, Entry> mEntryMap = new HashMap<String, Entry>();
+    /** the entries parsed from XML, mapped by their id attribute */
+    private final Map<String, Entry> mParsedEntryMap = new HashMap<String, Entry>();
+
+    /**
+     * Get the shared {@link Entry} for given stack trace, adding one if necessary.
+     *
+     * @param trace the raw stack trace. Invalid XML characters are stripped before interning.
+     * @return the {@link Entry} or <code>null</code> if <var>trace</var> is <code>null</code>
+     */
+    Entry intern(String trace) {
+        if (trace == null) {
+            return null;
+        }
+        String sanitizedTrace = sanitizeStackTrace(trace);
+        Entry entry = mEntryMap.get(sanitizedTrace);
+        if (entry == null) {
+            entry = new Entry(mEntryMap.size(), sanitizedTrace);
+            mEntryMap.put(sanitizedTrace, entry);
+        }
+        entry.mNumRefs++;
+        return entry;
+    }
+
+    /**
+     * Intern a stack trace parsed from XML.
+     *
+     * @param id the value of the trace's id attribute, or <code>null</code> if it had none
+     * @param trace the stack trace
+     */
+    Entry internParsed(String id, String trace) {
+        Entry entry = intern(trace);
+        if (id != null && entry != null) {
+            mParsedEntryMap.put(id, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Get a stack trace referred to from XML.
+     *
+     * @param ref the value of the trace's ref attribute
+     * @return the {@link Entry} or <code>null</code> if no trace with given id was parsed
+     */
+    Entry getParsed(String ref) {
+        Entry entry = mParsedEntryMap.get(ref);
+        if (entry != null) {
+            entry.mNumRefs++;
+        }
+        return entry;
+    }
+
+    /**
+     * Prepare for writing all traces to XML again.
+     */
+    void resetSerialization() {
+        for (Entry entry : mEntryMap.values()) {
+            entry.mIsSerialized = false;
+        }
+    }
+
+    /**
+     * Strip out any invalid XML characters that might cause the report to be unviewable.
+     * http://www.w3.org/TR/REC-xml/#dt-character
+     */
+    private static String sanitizeStackTrace(String trace) {
+        return trace.replaceAll("[^\\u0009\\u000A\\u000D\\u0020-\\uD7FF\\uE000-\\uFFFD]", "");
+    }
+}
@@ -36,13 +36,15 @@ class Test extends AbstractXmlPullParser {
     private static final String RESULT_ATTR = "result";
     private static final String SCENE_TAG = "FailedScene";
     private static final String STACK_TAG = "StackTrace";
+    private static final String ID_ATTR = "id";
+    private static final String REF_ATTR = "ref";
 
     private String mName;
     private CtsTestStatus mResult;
     private String mStartTime;
     private String mEndTime;
     private String mMessage;
-    private String mStackTrace;
+    private StackTraceTable.Entry mStackTrace;
 
     /**
      * Create an empty {@link Test}
@@ -93,13 +95,17 @@ class Test extends AbstractXmlPullParser {
     }
 
     public String getStackTrace() {
-        return mStackTrace;
+        return mStackTrace == null ? null : mStackTrace.getTrace();
     }
 
-    public void setStackTrace(String stackTrace) {
-
-        mStackTrace = sanitizeStackTrace(stackTrace);
-        mMessage = getFailureMessageFromStackTrace(mStackTrace);
+    /**
+     * Set the stack trace of this test's failure.
+     *
+     * @param stackTrace the interned {@link StackTraceTable.Entry}
+     */
+    public void setStackTrace(StackTraceTable.Entry stackTrace) {
+        mStackTrace = stackTrace;
+        mMessage = stackTrace == null ? null : stackTrace.getMessage();
     }
 
     public void updateEndTime() {
@@ -129,7 +135,15 @@ class Test extends AbstractXmlPullParser {
             serializer.attribute(CtsXmlResultReporter.ns, MESSAGE_ATTR, mMessage);
             if (mStackTrace != null) {
                 serializer.startTag(CtsXmlResultReporter.ns, STACK_TAG);
-                serializer.text(mStackTrace);
+                if (!mStackTrace.isShared()) {
+                    serializer.text(mStackTrace.getTrace());
+                } else if (mStackTrace.markSerialized()) {
+                    // first test with this trace, write it in full
+                    serializer.attribute(CtsXmlResultReporter.ns, ID_ATTR, mStackTrace.getId());
+                    serializer.text(mStackTrace.getTrace());
+                } else {
+                    serializer.attribute(CtsXmlResultReporter.ns, REF_ATTR, mStackTrace.getId());
+                }
                 serializer.endTag(CtsXmlResultReporter.ns, STACK_TAG);
             }
             serializer.endTag(CtsXmlResultReporter.ns, SCENE_TAG);
@@ -137,18 +151,6 @@ class Test extends AbstractXmlPullParser {
         serializer.endTag(CtsXmlResultReporter.ns, TAG);
     }
 
-    /**
-     * Strip out any invalid XML characters that might cause the report to be unviewable.
-     * http://www.w3.org/TR/REC-xml/#dt-character
-     */
-    private static String sanitizeStackTrace(String trace) {
-        if (trace != null) {
-            return trace.replaceAll("[^\\u0009\\u000A\\u000D\\u0020-\\uD7FF\\uE000-\\uFFFD]", "");
-        } else {
-            return null;
-        }
-    }
-
     /**
      * Gets the failure message to show from the stack trace.
      * <p/>
@@ -177,6 +179,19 @@ class Test extends AbstractXmlPullParser {
      */
     @Override
     void parse(XmlPullParser parser) throws XmlPullParserException, IOException {
+        parse(parser, new StackTraceTable());
+    }
+
+    /**
+     * Populates this class with test result data parsed from XML, interning stack traces in
+     * given table.
+     *
+     * @param parser the {@link XmlPullParser}. Expected to be pointing at start
+     *            of a Test tag
+     * @param stackTraces the {@link StackTraceTable} of the session being parsed
+     */
+    void parse(XmlPullParser parser, StackTraceTable stackTraces)
+            throws XmlPullParserException, IOException {
         if (!parser.getName().equals(TAG)) {
             throw new XmlPullParserException(String.format(
                     "invalid XML: Expected %s tag but received %s", TAG, parser.getName()));
@@ -191,7 +206,13 @@ class Test extends AbstractXmlPullParser {
             if (eventType == XmlPullParser.START_TAG && parser.getName().equals(SCENE_TAG)) {
                 mMessage = getAttribute(parser, MESSAGE_ATTR);
             } else if (eventType == XmlPullParser.START_TAG && parser.getName().equals(STACK_TAG)) {
-                mStackTrace = parser.nextText();
+                String ref = getAttribute(parser, REF_ATTR);
+                if (ref != null) {
+                    mStackTrace = stackTraces.getParsed(ref);
+                } else {
+                    String id = getAttribute(parser, ID_ATTR);
+                    mStackTrace = stackTraces.internParsed(id, parser.nextText());
+                }
             } else if (eventType == XmlPullParser.END_TAG && parser.getName().equals(TAG)) {
                 return;
             }
@@ -104,6 +104,19 @@ class TestCase extends AbstractXmlPullParser {
      */
     @Override
     void parse(XmlPullParser parser) throws XmlPullParserException, IOException {
+        parse(parser, new StackTraceTable());
+    }
+
+    /**
+     * Populates this class with test case result data parsed from XML, interning stack traces in
+     * given table.
+     *
+     * @param parser the {@link XmlPullParser}. Expected to be pointing at start
+     *            of a TestCase tag
+     * @param stackTraces the {@link StackTraceTable} of the session being parsed
+     */
+    void parse(XmlPullParser parser, StackTraceTable stackTraces)
+            throws XmlPullParserException, IOException {
         if (!parser.getName().equals(TAG)) {
             throw new XmlPullParserException(String.format(
                     "invalid XML: Expected %s tag but received %s", TAG, parser.getName()));
@@ -113,7 +126,7 @@ class TestCase extends AbstractXmlPullParser {
         while (eventType != XmlPullParser.END_DOCUMENT) {
             if (eventType == XmlPullParser.START_TAG && parser.getName().equals(Test.TAG)) {
                 Test test = new Test();
-                test.parse(parser);
+                test.parse(parser, stackTraces);
                 mChildTestMap.put(test.getName(), test);
             } else if (eventType == XmlPullParser.END_TAG && parser.getName().equals(TAG)) {
                 return;
@@ -58,6 +58,7 @@ class TestPackageResult  extends AbstractXmlPullParser {
     private Map<String, String> mMetrics = new HashMap<String, String>();
 
     private TestSuite mSuiteRoot = new TestSuite(null);
+    private StackTraceTable mStackTraces = new StackTraceTable();
 
     public void setAppPackageName(String appPackageName) {
         mAppPackageName = appPackageName;
@@ -83,6 +84,14 @@ class TestPackageResult  extends AbstractXmlPullParser {
         return mDigest;
     }
 
+    /**
+     * Set the {@link StackTraceTable} to intern failure stack traces in, so they can be shared
+     * with the other packages of the session.
+     */
+    void setStackTraceTable(StackTraceTable stackTraces) {
+        mStackTraces = stackTraces;
+    }
+
     /**
      * Return the {@link TestSuite}s
      */
@@ -175,7 +184,7 @@ class TestPackageResult  extends AbstractXmlPullParser {
         while (eventType != XmlPullParser.END_DOCUMENT) {
             if (eventType == XmlPullParser.START_TAG && parser.getName().equals(TestSuite.TAG)) {
                 TestSuite suite = new TestSuite();
-                suite.parse(parser);
+                suite.parse(parser, mStackTraces);
                 mSuiteRoot.insertSuite(suite);
             }
             if (eventType == XmlPullParser.END_TAG && parser.getName().equals(TAG)) {
@@ -271,7 +280,7 @@ class TestPackageResult  extends AbstractXmlPullParser {
     public void reportTestFailure(TestIdentifier test, CtsTestStatus status, String trace) {
         Test result = findTest(test);
         result.setResultStatus(status);
-        result.setStackTrace(trace);
+        result.setStackTrace(mStackTraces.intern(trace));
     }
 
     /**
@@ -52,6 +52,7 @@ class TestResults extends AbstractXmlPullParser {
     private Map<String, TestPackageResult> mPackageMap =
             new LinkedHashMap<String, TestPackageResult>();
     private DeviceInfoResult mDeviceInfo = new DeviceInfoResult();
+    private StackTraceTable mStackTraces = new StackTraceTable();
 
     /**
      * {@inheritDoc}
@@ -67,6 +68,7 @@ class TestResults extends AbstractXmlPullParser {
             if (eventType == XmlPullParser.START_TAG && parser.getName().equals(
                     TestPackageResult.TAG)) {
                 TestPackageResult pkg = new TestPackageResult();
+                pkg.setStackTraceTable(mStackTraces);
                 pkg.parse(parser);
                 if (pkg.getAppPackageName() != null) {
                     mPackageMap.put(pkg.getAppPackageName(), pkg);
@@ -108,6 +110,7 @@ class TestResults extends AbstractXmlPullParser {
         mDeviceInfo.serialize(serializer);
         serializeHostInfo(serializer);
         serializeTestSummary(serializer);
+        mStackTraces.resetSerialization();
         // sort before serializing
         List<TestPackageResult> pkgs = new ArrayList<TestPackageResult>(mPackageMap.values());
         Collections.sort(pkgs, new PkgComparator());
@@ -194,6 +197,7 @@ class TestResults extends AbstractXmlPullParser {
         if (pkgResult == null) {
             pkgResult = new TestPackageResult();
             pkgResult.setAppPackageName(appPackageName);
+            pkgResult.setStackTraceTable(mStackTraces);
             mPackageMap.put(appPackageName, pkgResult);
         }
         return pkgResult;
@@ -160,6 +160,19 @@ class TestSuite extends AbstractXmlPullParser {
      */
     @Override
     void parse(XmlPullParser parser) throws XmlPullParserException, IOException {
+        parse(parser, new StackTraceTable());
+    }
+
+    /**
+     * Populates this class with suite result data parsed from XML, interning stack traces in
+     * given table.
+     *
+     * @param parser the {@link XmlPullParser}. Expected to be pointing at start
+     *            of a TestSuite tag
+     * @param stackTraces the {@link StackTraceTable} of the session being parsed
+     */
+    void parse(XmlPullParser parser, StackTraceTable stackTraces)
+            throws XmlPullParserException, IOException {
         if (!parser.getName().equals(TAG)) {
             throw new XmlPullParserException(String.format(
                     "invalid XML: Expected %s tag but received %s", TAG, parser.getName()));
@@ -169,12 +182,12 @@ class TestSuite extends AbstractXmlPullParser {
         while (eventType != XmlPullParser.END_DOCUMENT) {
             if (eventType == XmlPullParser.START_TAG && parser.getName().equals(TestSuite.TAG)) {
                 TestSuite suite = new TestSuite();
-                suite.parse(parser);
+                suite.parse(parser, stackTraces);
                 insertSuite(suite);
             } else if (eventType == XmlPullParser.START_TAG && parser.getName().equals(
                     TestCase.TAG)) {
                 TestCase testCase = new TestCase();
-                testCase.parse(parser);
+                testCase.parse(parser, stackTraces);
                 insertTestCase(testCase);
             } else if (eventType == XmlPullParser.END_TAG && parser.getName().equals(TAG)) {
                 return;
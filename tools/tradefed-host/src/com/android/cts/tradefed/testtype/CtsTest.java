@@ -18,8 +18,16 @@ package com.android.cts.tradefed.testtype;
 
 import com.android.cts.tradefed.build.CtsBuildHelper;
 import com.android.cts.tradefed.device.DeviceInfoCollector;
+import com.android.cts.tradefed.distributed.CoordinatorClient;
+import com.android.cts.tradefed.distributed.RemoteResultForwarder;
+import com.android.cts.tradefed.distributed.WorkItem;
 import com.android.cts.tradefed.result.CtsTestStatus;
+import com.android.cts.tradefed.result.InvocationProgress;
 import com.android.cts.tradefed.result.PlanCreator;
+import com.android.cts.tradefed.result.ProgressTracker;
+import com.android.cts.tradefed.result.ResultHistory;
+import com.android.cts.tradefed.result.ShardProgress;
+import com.android.cts.tradefed.result.TestResultRepo;
 import com.android.ddmlib.Log;
 import com.android.ddmlib.Log.LogLevel;
 import com.android.ddmlib.testrunner.TestIdentifier;
@@ -47,16 +55,19 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 
 /**
@@ -72,6 +83,7 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
     private static final String CLASS_OPTION = "class";
     private static final String METHOD_OPTION = "method";
     public static final String CONTINUE_OPTION = "continue-session";
+    private static final String COORDINATOR_OPTION = "coordinator";
 
     public static final String PACKAGE_NAME_METRIC = "packageName";
     public static final String PACKAGE_DIGEST_METRIC = "packageDigest";
@@ -103,6 +115,12 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
             importance = Importance.IF_UNSET)
     private Integer mContinueSessionId = null;
 
+    @Option(name = COORDINATOR_OPTION, description =
+        "the host:port of a CTS coordinator to fetch test packages to run from. Results are " +
+        "streamed back to the coordinator, which merges them into a single session.",
+        importance = Importance.IF_UNSET)
+    private String mCoordinatorAddress = null;
+
     @Option(name = "skip-device-info", shortName = 'd', description =
         "flag to control whether to collect info from device. Providing this flag will speed up " +
         "test execution for short test runs but will result in required data being omitted from " +
@@ -122,6 +140,12 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
         "flag for taking a screenshot of the device when test execution is complete.")
     private boolean mScreenshot = false;
 
+    @Option(name = "reorder-packages", description =
+        "group test packages that share a prerequisite apk, and run the packages that failed " +
+        "most often in recent sessions first. Off by default, since it reads the results of " +
+        "recent sessions and a plan is expected to run in plan order.")
+    private boolean mReorderPackages = false;
+
     @Option(name = "bugreport", shortName = 'b', description =
         "take a bugreport after each failed test. " +
         "Warning: can potentially use a lot of disk space.")
@@ -182,9 +206,30 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
         }
     }
 
+    /**
+     * A {@link ResultForwarder} that records each completed test in a {@link ShardProgress}.
+     */
+    private static class ProgressForwarder extends ResultForwarder {
+        private final ShardProgress mProgress;
+
+        public ProgressForwarder(ITestInvocationListener listener, ShardProgress progress) {
+            super(listener);
+            mProgress = progress;
+        }
+
+        @Override
+        public void testEnded(TestIdentifier test, Map<String, String> testMetrics) {
+            super.testEnded(test, testMetrics);
+            mProgress.testCompleted();
+        }
+    }
+
     /** list of remaining tests to execute */
     private List<TestPackage> mRemainingTestPkgs = null;
 
+    /** the progress of this run, reported via {@link ProgressTracker} */
+    private ShardProgress mShardProgress = null;
+
     private CtsBuildHelper mCtsBuild = null;
     private IBuildInfo mBuildInfo = null;
 
@@ -265,6 +310,57 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
         mContinueSessionId = sessionId;
     }
 
+    /**
+     * Sets the host:port address of the coordinator to fetch work from.
+     * <p/>
+     * Exposed for unit testing
+     */
+    void setCoordinatorAddress(String address) {
+        mCoordinatorAddress = address;
+    }
+
+    /**
+     * Sets the number of shards to split the tests into.
+     * <p/>
+     * Exposed for unit testing
+     */
+    void setShards(int shards) {
+        mShards = shards;
+    }
+
+    /**
+     * Sets whether to reorder test packages according to their result history.
+     * <p/>
+     * Exposed for unit testing
+     */
+    void setReorderPackages(boolean reorderPackages) {
+        mReorderPackages = reorderPackages;
+    }
+
+    /**
+     * Get the uris of the test packages this run has left to execute.
+     * <p/>
+     * Exposed for unit testing
+     */
+    List<String> getRemainingTestUris() {
+        List<String> uris = new ArrayList<String>();
+        if (mRemainingTestPkgs != null) {
+            for (TestPackage testPkg : mRemainingTestPkgs) {
+                uris.add(testPkg.getTestRunName());
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * Get the progress of this run.
+     * <p/>
+     * Exposed for unit testing
+     */
+    ShardProgress getShardProgress() {
+        return mShardProgress;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -304,41 +400,52 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
 
         if (mRemainingTestPkgs == null) {
             checkFields();
-            mRemainingTestPkgs = buildTestsToRun();
+            if (mCoordinatorAddress != null) {
+                // packages will be fetched from the coordinator one at a time
+                mRemainingTestPkgs = new LinkedList<TestPackage>();
+            } else {
+                mRemainingTestPkgs = buildTestsToRun();
+            }
         }
+        if (mShardProgress == null) {
+            InvocationProgress invocation = ProgressTracker.getInstance().createInvocation(
+                    getRunDescription(), 1, mResume);
+            mShardProgress = createShardProgress(invocation, mRemainingTestPkgs);
+        }
+        mShardProgress.setStarted(getDevice().getSerialNumber(), System.currentTimeMillis());
+        listener = new ProgressForwarder(listener, mShardProgress);
         if (mBugreport) {
             FailedTestBugreportGenerator bugListener = new FailedTestBugreportGenerator(listener,
                     getDevice());
             listener = bugListener;
         }
+        CoordinatorClient coordinator = null;
+        if (mCoordinatorAddress != null) {
+            try {
+                coordinator = createCoordinatorClient();
+            } catch (IOException e) {
+                throw new IllegalArgumentException(String.format(
+                        "failed to connect to coordinator %s", mCoordinatorAddress), e);
+            }
+            // a package left over from an aborted run has been returned to the coordinator's
+            // queue on disconnect
+            mRemainingTestPkgs.clear();
+            listener = new RemoteResultForwarder(listener, coordinator);
+        }
 
-        // collect and install the prerequisiteApks first, to save time when multiple test
-        // packages are using the same prerequisite apk (I'm looking at you, CtsTestStubs!)
-        Collection<String> prerequisiteApks = getPrerequisiteApks(mRemainingTestPkgs);
-        Collection<String> uninstallPackages = getPrerequisitePackageNames(mRemainingTestPkgs);
+        // track the prerequisite apks installed by this run, so each is only installed once when
+        // multiple test packages are using it (I'm looking at you, CtsTestStubs!)
+        Set<String> installedApks = new HashSet<String>();
         ResultFilter filter = new ResultFilter(listener, mRemainingTestPkgs);
 
         try {
-            installPrerequisiteApks(prerequisiteApks);
-
             // always collect the device info, even for resumed runs, since test will likely be
             // running on a different device
             collectDeviceInfo(getDevice(), mCtsBuild, listener);
 
-            while (!mRemainingTestPkgs.isEmpty()) {
-                TestPackage knownTests = mRemainingTestPkgs.get(0);
-
-                IRemoteTest test = knownTests.getTestForPackage();
-                if (test instanceof IDeviceTest) {
-                    ((IDeviceTest)test).setDevice(getDevice());
-                }
-                if (test instanceof IBuildReceiver) {
-                    ((IBuildReceiver)test).setBuild(mBuildInfo);
-                }
-
-                forwardPackageDetails(knownTests.getPackageDef(), listener);
-                test.run(filter);
-                mRemainingTestPkgs.remove(0);
+            runRemainingTestPackages(filter, listener, installedApks);
+            if (coordinator != null) {
+                runCoordinatorWork(coordinator, listener, installedApks);
             }
 
             if (mScreenshot) {
@@ -350,10 +457,120 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
                 }
             }
 
-            uninstallPrequisiteApks(uninstallPackages);
+            mShardProgress.setFinished();
 
         } finally {
+            if (!mShardProgress.isFinished()) {
+                // the run may still be resumed on another device
+                mShardProgress.setAborted();
+            }
             filter.reportUnexecutedTests();
+            if (coordinator != null) {
+                coordinator.close();
+            }
+        }
+    }
+
+    /**
+     * Run all the packages in {@link #mRemainingTestPkgs}, removing each once it is complete.
+     *
+     * @param filter the {@link ResultFilter} to report results to
+     * @param listener the {@link ITestInvocationListener} to report package details to
+     * @param installedApks the set of prerequisite apks installed on device
+     * @throws DeviceNotAvailableException
+     */
+    private void runRemainingTestPackages(ResultFilter filter, ITestInvocationListener listener,
+            Set<String> installedApks) throws DeviceNotAvailableException {
+        while (!mRemainingTestPkgs.isEmpty()) {
+            TestPackage knownTests = mRemainingTestPkgs.get(0);
+
+            IRemoteTest test = knownTests.getTestForPackage();
+            if (test instanceof IDeviceTest) {
+                ((IDeviceTest)test).setDevice(getDevice());
+            }
+            if (test instanceof IBuildReceiver) {
+                ((IBuildReceiver)test).setBuild(mBuildInfo);
+            }
+
+            installPrerequisiteApk(knownTests.getPackageDef(), installedApks);
+            forwardPackageDetails(knownTests.getPackageDef(), listener);
+            mShardProgress.setPackageStarted(knownTests.getTestRunName());
+            test.run(filter);
+            mRemainingTestPkgs.remove(0);
+            mShardProgress.setPackageCompleted(knownTests.getTestRunName());
+            if (mCoordinatorAddress == null) {
+                // the coordinator's remaining work is unknown, so in coordinator mode apks are
+                // only uninstalled once it has no more work
+                uninstallUnusedPrerequisiteApk(knownTests.getPackageDef(), installedApks);
+            }
+        }
+    }
+
+    /**
+     * Repeatedly fetch a test package from the coordinator and run it, until the coordinator has
+     * no more work.
+     * <p/>
+     * Unexecuted tests are reported per package, so they reach the coordinator before the package
+     * is completed. Prerequisite apks stay installed until the coordinator has no more work,
+     * since the packages still to come are not known.
+     *
+     * @param coordinator the {@link CoordinatorClient} to fetch work from
+     * @param listener the {@link ITestInvocationListener} to report results to
+     * @param installedApks the set of prerequisite apks installed on device
+     * @throws DeviceNotAvailableException
+     */
+    private void runCoordinatorWork(CoordinatorClient coordinator,
+            ITestInvocationListener listener, Set<String> installedApks)
+            throws DeviceNotAvailableException {
+        ITestPackageRepo testRepo = createTestCaseRepo();
+        // the target package of each prerequisite apk, to uninstall them once all work is done
+        Map<String, String> targetPkgNames = new HashMap<String, String>();
+        WorkItem item;
+        while ((item = requestWork(coordinator)) != null) {
+            ITestPackageDef testPkgDef = testRepo.getTestPackage(item.getUri());
+            if (testPkgDef == null) {
+                CLog.e("Could not find test package %s requested by coordinator", item.getUri());
+                continue;
+            }
+            if (testPkgDef.getTargetApkName() != null) {
+                targetPkgNames.put(testPkgDef.getTargetApkName(),
+                        testPkgDef.getTargetPackageName());
+            }
+            testPkgDef.setExcludedTestFilter(TestFilter.createFromExclusionString(
+                    item.getExclusionString()));
+            addTestPackage(mRemainingTestPkgs, testPkgDef);
+            for (TestPackage testPkg : mRemainingTestPkgs) {
+                mShardProgress.addPackage(testPkg.getTestRunName(),
+                        testPkg.getKnownTests().size());
+            }
+            ResultFilter filter = new ResultFilter(listener, mRemainingTestPkgs);
+            try {
+                runRemainingTestPackages(filter, listener, installedApks);
+            } finally {
+                filter.reportUnexecutedTests();
+            }
+        }
+        for (String apkName : installedApks) {
+            String pkgName = targetPkgNames.get(apkName);
+            if (pkgName != null) {
+                getDevice().uninstallPackage(pkgName);
+            }
+        }
+        installedApks.clear();
+    }
+
+    /**
+     * Request the next work item from the coordinator.
+     *
+     * @return the {@link WorkItem} or <code>null</code> if there is no more work, or the
+     *         coordinator could not be reached
+     */
+    private WorkItem requestWork(CoordinatorClient coordinator) {
+        try {
+            return coordinator.requestWork();
+        } catch (IOException e) {
+            CLog.e("Lost connection to coordinator %s: %s", mCoordinatorAddress, e.getMessage());
+            return null;
         }
     }
 
@@ -367,6 +584,9 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
         try {
             ITestPackageRepo testRepo = createTestCaseRepo();
             Collection<ITestPackageDef> testPkgDefs = getTestPackagesToRun(testRepo);
+            if (mReorderPackages) {
+                testPkgDefs = new TestPackageOrderer(createResultHistory()).order(testPkgDefs);
+            }
 
             for (ITestPackageDef testPkgDef : testPkgDefs) {
                 addTestPackage(testPkgList, testPkgDef);
@@ -469,72 +689,69 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
     }
 
     /**
-     * Return the list of unique prerequisite Android package names
-     * @param testPackages
-     * @return
+     * Install the prerequisite apk of given test package, if it has one that has not been
+     * installed yet.
+     *
+     * @param pkgDef the {@link ITestPackageDef} about to be run
+     * @param installedApks the set of already installed apk file names. Will be updated.
+     * @throws DeviceNotAvailableException
      */
-    private Collection<String> getPrerequisitePackageNames(List<TestPackage> testPackages) {
-        Set<String> pkgNames = new HashSet<String>();
-        for (TestPackage testPkg : testPackages) {
-            String pkgName = testPkg.mPackageDef.getTargetPackageName();
-            if (pkgName != null) {
-                pkgNames.add(pkgName);
-            }
+    private void installPrerequisiteApk(ITestPackageDef pkgDef, Set<String> installedApks)
+            throws DeviceNotAvailableException {
+        String apkName = pkgDef.getTargetApkName();
+        if (apkName == null || installedApks.contains(apkName)) {
+            return;
         }
-        return pkgNames;
-    }
-
-    /**
-     * Return the list of unique prerequisite apks to install
-     * @param testPackages
-     * @return
-     */
-    private Collection<String> getPrerequisiteApks(List<TestPackage> testPackages) {
-        Set<String> apkNames = new HashSet<String>();
-        for (TestPackage testPkg : testPackages) {
-            String apkName = testPkg.mPackageDef.getTargetApkName();
-            if (apkName != null) {
-                apkNames.add(apkName);
+        try {
+            File apkFile = mCtsBuild.getTestApp(apkName);
+            String errorCode = getDevice().installPackage(apkFile, true);
+            if (errorCode != null) {
+                CLog.e("Failed to install %s. Reason: %s", apkName, errorCode);
             }
+        } catch (FileNotFoundException e) {
+            CLog.e("Could not find test apk %s", apkName);
         }
-        return apkNames;
+        // don't retry failed installs for every package sharing the apk
+        installedApks.add(apkName);
     }
 
     /**
-     * Install the collection of test apk file names
+     * Uninstall the prerequisite apk of given, just completed, test package if none of the
+     * remaining test packages need it.
      *
-     * @param prerequisiteApks
+     * @param pkgDef the {@link ITestPackageDef} that completed
+     * @param installedApks the set of already installed apk file names. Will be updated.
      * @throws DeviceNotAvailableException
      */
-    private void installPrerequisiteApks(Collection<String> prerequisiteApks)
+    private void uninstallUnusedPrerequisiteApk(ITestPackageDef pkgDef, Set<String> installedApks)
             throws DeviceNotAvailableException {
-        for (String apkName : prerequisiteApks) {
-            try {
-                File apkFile = mCtsBuild.getTestApp(apkName);
-                String errorCode = getDevice().installPackage(apkFile, true);
-                if (errorCode != null) {
-                    CLog.e("Failed to install %s. Reason: %s", apkName, errorCode);
-                }
-            } catch (FileNotFoundException e) {
-                CLog.e("Could not find test apk %s", apkName);
+        String apkName = pkgDef.getTargetApkName();
+        if (apkName == null || !installedApks.contains(apkName)) {
+            return;
+        }
+        for (TestPackage testPkg : mRemainingTestPkgs) {
+            if (apkName.equals(testPkg.getPackageDef().getTargetApkName())) {
+                return;
             }
         }
-    }
-
-    /**
-     * Uninstalls the collection of android package names from device.
-     *
-     * @param uninstallPackages
-     */
-    private void uninstallPrequisiteApks(Collection<String> uninstallPackages)
-            throws DeviceNotAvailableException {
-        for (String pkgName : uninstallPackages) {
+        String pkgName = pkgDef.getTargetPackageName();
+        if (pkgName != null) {
             getDevice().uninstallPackage(pkgName);
         }
+        installedApks.remove(apkName);
     }
 
     /**
      * {@inheritDoc}
+     * <p/>
+     * Test packages that share a prerequisite apk are kept in the same shard, so the apk only
+     * needs to be installed on one device. Each group is assigned to the shard with the fewest
+     * known tests, largest groups first. A group with more tests than an evenly balanced shard
+     * is spread over the shards package by package instead, since keeping it together would
+     * leave the other devices idle. Each shard runs its packages in their original order.
+     * <p/>
+     * When fetching work from a coordinator, the shards are workers that each fetch their own
+     * test packages from it.
      */
     @Override
     public Collection<IRemoteTest> split() {
@@ -542,6 +759,9 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
             return null;
         }
         checkFields();
+        if (mCoordinatorAddress != null) {
+            return createCoordinatorWorkers();
+        }
         List<TestPackage> allTests = buildTestsToRun();
 
         if (allTests.size() <= 1) {
@@ -549,21 +769,142 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
             return null;
         }
 
-        // treat shardQueue as a circular queue, to sequentially distribute tests among shards
-        Queue<IRemoteTest> shardQueue = new LinkedList<IRemoteTest>();
-        // don't create more shards than the number of tests we have!
-        for (int i = 0; i < mShards && i < allTests.size(); i++) {
+        // use LinkedHashMap so groups are assigned in plan order when equally large
+        Map<String, List<TestPackage>> groupMap = new LinkedHashMap<String, List<TestPackage>>();
+        int numTotalTests = 0;
+        for (TestPackage testPkg : allTests) {
+            String groupKey = testPkg.getPackageDef().getTargetApkName() != null ?
+                    testPkg.getPackageDef().getTargetApkName() : testPkg.getTestRunName();
+            List<TestPackage> group = groupMap.get(groupKey);
+            if (group == null) {
+                group = new ArrayList<TestPackage>();
+                groupMap.put(groupKey, group);
+            }
+            group.add(testPkg);
+            numTotalTests += getShardWeight(testPkg);
+        }
+        int numShards = Math.min(mShards, allTests.size());
+        int maxGroupTests = (numTotalTests + numShards - 1) / numShards;
+        List<List<TestPackage>> units = new ArrayList<List<TestPackage>>();
+        for (List<TestPackage> group : groupMap.values()) {
+            if (getShardWeight(group) <= maxGroupTests) {
+                units.add(group);
+            } else {
+                for (TestPackage testPkg : group) {
+                    units.add(Collections.singletonList(testPkg));
+                }
+            }
+        }
+        // sort is stable, so equally large units stay in plan order
+        Collections.sort(units, new Comparator<List<TestPackage>>() {
+            @Override
+            public int compare(List<TestPackage> unit0, List<TestPackage> unit1) {
+                return getShardWeight(unit1) - getShardWeight(unit0);
+            }
+        });
+        // don't create more shards than the number of units we have!
+        numShards = Math.min(numShards, units.size());
+        List<CtsTest> shards = new ArrayList<CtsTest>(numShards);
+        int[] shardWeights = new int[numShards];
+        for (int i = 0; i < numShards; i++) {
             CtsTest shard = new CtsTest();
             shard.mRemainingTestPkgs = new LinkedList<TestPackage>();
-            shardQueue.add(shard);
+            shards.add(shard);
+        }
+        for (List<TestPackage> unit : units) {
+            int shardIndex = 0;
+            for (int i = 1; i < numShards; i++) {
+                if (shardWeights[i] < shardWeights[shardIndex]) {
+                    shardIndex = i;
+                }
+            }
+            shards.get(shardIndex).mRemainingTestPkgs.addAll(unit);
+            shardWeights[shardIndex] += getShardWeight(unit);
+        }
+
+        final Map<TestPackage, Integer> planIndexes = new HashMap<TestPackage, Integer>();
+        for (TestPackage testPkg : allTests) {
+            planIndexes.put(testPkg, planIndexes.size());
+        }
+        Comparator<TestPackage> planOrder = new Comparator<TestPackage>() {
+            @Override
+            public int compare(TestPackage pkg0, TestPackage pkg1) {
+                return planIndexes.get(pkg0) - planIndexes.get(pkg1);
+            }
+        };
+        InvocationProgress invocation = ProgressTracker.getInstance().createInvocation(
+                getRunDescription(), numShards, mResume);
+        Collection<IRemoteTest> shardTests = new ArrayList<IRemoteTest>(numShards);
+        for (CtsTest shard : shards) {
+            Collections.sort(shard.mRemainingTestPkgs, planOrder);
+            shard.mShardProgress = createShardProgress(invocation, shard.mRemainingTestPkgs);
+            shardTests.add(shard);
+        }
+        return shardTests;
+    }
+
+    /**
+     * Create {@link #mShards} workers that fetch test packages from the coordinator, so one host
+     * can run the coordinator's work on several devices.
+     */
+    private Collection<IRemoteTest> createCoordinatorWorkers() {
+        InvocationProgress invocation = ProgressTracker.getInstance().createInvocation(
+                getRunDescription(), mShards, mResume);
+        Collection<IRemoteTest> workers = new ArrayList<IRemoteTest>(mShards);
+        for (int i = 0; i < mShards; i++) {
+            CtsTest worker = new CtsTest();
+            worker.mCoordinatorAddress = mCoordinatorAddress;
+            worker.mRemainingTestPkgs = new LinkedList<TestPackage>();
+            worker.mShardProgress = invocation.addShard();
+            workers.add(worker);
         }
-        while (!allTests.isEmpty()) {
-            TestPackage testPair = allTests.remove(0);
-            CtsTest shard = (CtsTest)shardQueue.poll();
-            shard.mRemainingTestPkgs.add(testPair);
-            shardQueue.add(shard);
+        return workers;
+    }
+
+    /**
+     * Get the weight of given test packages when balancing shards, ie their number of known
+     * tests. Each package counts as at least one test.
+     */
+    private static int getShardWeight(List<TestPackage> testPkgs) {
+        int weight = 0;
+        for (TestPackage testPkg : testPkgs) {
+            weight += getShardWeight(testPkg);
         }
-        return shardQueue;
+        return weight;
+    }
+
+    private static int getShardWeight(TestPackage testPkg) {
+        return Math.max(1, testPkg.getKnownTests().size());
+    }
+
+    /**
+     * Create a {@link ShardProgress} in given invocation for the given test packages.
+     */
+    private ShardProgress createShardProgress(InvocationProgress invocation,
+            List<TestPackage> testPackages) {
+        ShardProgress progress = invocation.addShard();
+        for (TestPackage testPkg : testPackages) {
+            progress.addPackage(testPkg.getTestRunName(), testPkg.getKnownTests().size());
+        }
+        return progress;
+    }
+
+    /**
+     * Return a user-friendly description of what this test is running.
+     */
+    private String getRunDescription() {
+        if (mPlanName != null) {
+            return String.format("plan %s", mPlanName);
+        } else if (mPackageNames.size() > 0) {
+            return String.format("packages %s", mPackageNames);
+        } else if (mClassName != null) {
+            return String.format("class %s", mClassName);
+        } else if (mContinueSessionId != null) {
+            return String.format("session %d", mContinueSessionId);
+        } else if (mCoordinatorAddress != null) {
+            return String.format("coordinator %s", mCoordinatorAddress);
+        }
+        return "unknown";
     }
 
     /**
@@ -592,6 +933,25 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
         return new TestPackageRepo(mCtsBuild.getTestCasesDir());
     }
 
+    /**
+     * Factory method for connecting to the coordinator.
+     * <p/>
+     * Exposed for unit testing
+     */
+    CoordinatorClient createCoordinatorClient() throws IOException {
+        return CoordinatorClient.connect(mCoordinatorAddress, getDevice().getSerialNumber());
+    }
+
+    /**
+     * Factory method for creating the {@link ResultHistory} used to order test packages.
+     * <p/>
+     * Exposed for unit testing
+     */
+    ResultHistory createResultHistory() {
+        return ResultHistory.createFromRepo(new TestResultRepo(mCtsBuild.getResultsDir()),
+                ResultHistory.DEFAULT_NUM_SESSIONS);
+    }
+
     /**
      * Factory method for creating a {@link TestPlan}.
      * <p/>
@@ -624,13 +984,14 @@ public class CtsTest implements IDeviceTest, IResumableTest, IShardableTest, IBu
         // for simplicity of command line usage, make --plan, --package, and --class mutually
         // exclusive
         boolean mutualExclusiveArgs = xor(mPlanName != null, mPackageNames.size() > 0,
-                mClassName != null, mContinueSessionId != null);
+                mClassName != null, mContinueSessionId != null, mCoordinatorAddress != null);
 
         if (!mutualExclusiveArgs) {
             throw new IllegalArgumentException(String.format(
                     "Ambiguous or missing arguments. " +
-                    "One and only one of --%s --%s(s), --%s or --%s to run can be specified",
-                    PLAN_OPTION, PACKAGE_OPTION, CLASS_OPTION, CONTINUE_OPTION));
+                    "One and only one of --%s --%s(s), --%s, --%s or --%s to run can be specified",
+                    PLAN_OPTION, PACKAGE_OPTION, CLASS_OPTION, CONTINUE_OPTION,
+                    COORDINATOR_OPTION));
         }
         if (mMethodName != null && mClassName == null) {
             throw new IllegalArgumentException(String.format(
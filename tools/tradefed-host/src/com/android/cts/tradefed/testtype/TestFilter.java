@@ -17,6 +17,7 @@
 package com.android.cts.tradefed.testtype;
 
 import com.android.ddmlib.testrunner.TestIdentifier;
+import com.android.tradefed.util.ArrayUtil;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -31,6 +32,9 @@ import java.util.Set;
  */
 public class TestFilter {
 
+    private static final String TEST_DELIM = ";";
+    private static final String METHOD_DELIM = "#";
+
     private final Set<String> mExcludedClasses;
     private final Set<TestIdentifier> mExcludedTests;
     private String mIncludedClass = null;
@@ -128,6 +132,46 @@ public class TestFilter {
         return !mExcludedClasses.isEmpty() || !mExcludedTests.isEmpty();
     }
 
+    /**
+     * Create a {@link TestFilter} from a semi colon separated list of tests to exclude.
+     * <p/>
+     * Expected format:
+     * testClassName[#testMethodName][;testClassName2...]
+     *
+     * @param exclusionString the excluded test list. Can be <code>null</code>
+     * @return the {@link TestFilter}
+     */
+    public static TestFilter createFromExclusionString(String exclusionString) {
+        TestFilter filter = new TestFilter();
+        if (exclusionString != null && !exclusionString.isEmpty()) {
+            String[] testStrings = exclusionString.split(TEST_DELIM);
+            for (String testString : testStrings) {
+                String[] classMethodPair = testString.split(METHOD_DELIM);
+                if (classMethodPair.length == 2) {
+                    filter.addExcludedTest(new TestIdentifier(classMethodPair[0],
+                            classMethodPair[1]));
+                } else {
+                    filter.addExcludedClass(testString);
+                }
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Return the exclusion rules of this filter in the format accepted by
+     * {@link #createFromExclusionString(String)}.
+     */
+    public String getExclusionString() {
+        List<String> exclusionStrings = new ArrayList<String>();
+        exclusionStrings.addAll(mExcludedClasses);
+        for (TestIdentifier test : mExcludedTests) {
+            // TODO: this relies on TestIdentifier.toString() using METHOD_DELIM.
+            exclusionStrings.add(test.toString());
+        }
+        return ArrayUtil.join(TEST_DELIM, exclusionStrings);
+    }
+
     /**
      * A {@link Comparator} for {@link TestIdentifier} that compares using
      * {@link TestIdentifier#toString()}
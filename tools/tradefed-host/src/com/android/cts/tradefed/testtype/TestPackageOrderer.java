@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.testtype;
+
+import com.android.cts.tradefed.result.ResultHistory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders test packages to reduce prerequisite apk installs and to surface failures early.
+ * <p/>
+ * Packages that share a target apk are grouped together, so each target apk is installed once
+ * and can be uninstalled as soon as the last package using it completes. The groups, and the
+ * packages within each group, are then sorted so the ones most likely to fail according to the
+ * {@link ResultHistory} run first. Ties keep their original plan order.
+ */
+public class TestPackageOrderer {
+
+    private final ResultHistory mHistory;
+
+    /**
+     * Create a {@link TestPackageOrderer}.
+     *
+     * @param history the {@link ResultHistory} to obtain failure probabilities from
+     */
+    public TestPackageOrderer(ResultHistory history) {
+        mHistory = history;
+    }
+
+    /**
+     * Return the given test packages in execution order.
+     *
+     * @param pkgDefs the {@link ITestPackageDef}s in plan order
+     * @return the reordered {@link ITestPackageDef}s
+     */
+    public List<ITestPackageDef> order(Collection<ITestPackageDef> pkgDefs) {
+        // use LinkedHashMap so groups start out in plan order
+        Map<String, List<ITestPackageDef>> groupMap =
+                new LinkedHashMap<String, List<ITestPackageDef>>();
+        for (ITestPackageDef pkgDef : pkgDefs) {
+            // packages without a target apk each form a group of their own
+            String groupKey = pkgDef.getTargetApkName() != null ? pkgDef.getTargetApkName() :
+                    pkgDef.getUri();
+            List<ITestPackageDef> group = groupMap.get(groupKey);
+            if (group == null) {
+                group = new ArrayList<ITestPackageDef>();
+                groupMap.put(groupKey, group);
+            }
+            group.add(pkgDef);
+        }
+        final PkgFailureComparator pkgComparator = new PkgFailureComparator();
+        List<List<ITestPackageDef>> groups = new ArrayList<List<ITestPackageDef>>(
+                groupMap.values());
+        for (List<ITestPackageDef> group : groups) {
+            // sort is stable, so equally likely packages stay in plan order
+            Collections.sort(group, pkgComparator);
+        }
+        // the first package of each group is now its most likely to fail
+        Collections.sort(groups, new Comparator<List<ITestPackageDef>>() {
+            @Override
+            public int compare(List<ITestPackageDef> group0, List<ITestPackageDef> group1) {
+                return pkgComparator.compare(group0.get(0), group1.get(0));
+            }
+        });
+        List<ITestPackageDef> orderedDefs = new ArrayList<ITestPackageDef>(pkgDefs.size());
+        for (List<ITestPackageDef> group : groups) {
+            orderedDefs.addAll(group);
+        }
+        return orderedDefs;
+    }
+
+    /**
+     * A {@link Comparator} that orders packages by descending failure probability.
+     */
+    private class PkgFailureComparator implements Comparator<ITestPackageDef> {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int compare(ITestPackageDef def0, ITestPackageDef def1) {
+            return Double.compare(mHistory.getFailureProbability(def1.getUri()),
+                    mHistory.getFailureProbability(def0.getUri()));
+        }
+    }
+}
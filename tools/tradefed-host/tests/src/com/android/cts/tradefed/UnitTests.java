@@ -15,11 +15,14 @@
  */
 package com.android.cts.tradefed;
 
+import com.android.cts.tradefed.distributed.CoordinatorTest;
 import com.android.cts.tradefed.result.CtsXmlResultReporterTest;
+import com.android.cts.tradefed.result.ShardProgressTest;
 import com.android.cts.tradefed.result.TestTest;
 import com.android.cts.tradefed.testtype.CtsTestTest;
 import com.android.cts.tradefed.testtype.JarHostTestTest;
 import com.android.cts.tradefed.testtype.TestPackageDefTest;
+import com.android.cts.tradefed.testtype.TestPackageOrdererTest;
 import com.android.cts.tradefed.testtype.TestPackageXmlParserTest;
 import com.android.cts.tradefed.testtype.TestPlanTest;
 
@@ -43,6 +46,9 @@ public class UnitTests extends TestSuite {
         addTestSuite(TestPackageXmlParserTest.class);
         addTestSuite(TestPackageDefTest.class);
         addTestSuite(TestTest.class);
+        addTestSuite(ShardProgressTest.class);
+        addTestSuite(TestPackageOrdererTest.class);
+        addTestSuite(CoordinatorTest.class);
     }
 
     public static Test suite() {
@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.distributed;
+
+import com.android.ddmlib.testrunner.TestIdentifier;
+import com.android.tradefed.result.ITestInvocationListener;
+
+import org.easymock.EasyMock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link Coordinator} and {@link CoordinatorClient}.
+ */
+public class CoordinatorTest extends TestCase {
+
+    private static final String[] PKGS = {"com.example.a", "com.example.b", "com.example.c"};
+    private static final String CLASS_NAME = "com.example.FooTest";
+    private static final long IDLE_TIMEOUT = 60 * 1000;
+
+    private ITestInvocationListener mMockListener;
+    private Coordinator mCoordinator;
+    private int mPort;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mMockListener = EasyMock.createMock(ITestInvocationListener.class);
+        List<WorkItem> items = new ArrayList<WorkItem>();
+        for (String pkg : PKGS) {
+            items.add(new WorkItem(pkg, CLASS_NAME + "#testExcluded"));
+        }
+        mCoordinator = new Coordinator(items, mMockListener);
+        mPort = mCoordinator.start(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mCoordinator.stop();
+        super.tearDown();
+    }
+
+    /**
+     * Expect the results of a single test for each package to be merged exactly once.
+     */
+    @SuppressWarnings("unchecked")
+    private void expectAllResults() {
+        for (String pkg : PKGS) {
+            TestIdentifier test = new TestIdentifier(CLASS_NAME, pkg);
+            mMockListener.testRunStarted(pkg, 1);
+            mMockListener.testStarted(test);
+            mMockListener.testEnded(EasyMock.eq(test),
+                    EasyMock.eq(Collections.singletonMap("key", "value")));
+            mMockListener.testRunEnded(EasyMock.eq(10L),
+                    (Map<String, String>)EasyMock.anyObject());
+        }
+    }
+
+    /**
+     * Runs a worker that emits the results of a single test for each package it is given.
+     */
+    private class StubWorker extends Thread {
+        private final List<String> mReceivedExclusions = new ArrayList<String>();
+        private IOException mError = null;
+
+        @Override
+        public void run() {
+            try {
+                CoordinatorClient client = new CoordinatorClient("localhost", mPort, getName());
+                WorkItem item;
+                while ((item = client.requestWork()) != null) {
+                    mReceivedExclusions.add(item.getExclusionString());
+                    sendResults(client, item.getUri());
+                }
+                client.close();
+            } catch (IOException e) {
+                mError = e;
+            }
+        }
+    }
+
+    private void sendResults(CoordinatorClient client, String pkg) {
+        client.send(CoordinatorProtocol.RUN_STARTED, pkg, "1");
+        client.send(CoordinatorProtocol.TEST_STARTED, CLASS_NAME, pkg);
+        client.send(CoordinatorProtocol.TEST_ENDED, CLASS_NAME, pkg, "key", "value");
+        client.send(CoordinatorProtocol.RUN_ENDED, "10");
+    }
+
+    /**
+     * Test that work is shared between multiple workers, and all results are merged.
+     */
+    public void testRun_multipleWorkers() throws Exception {
+        expectAllResults();
+        EasyMock.replay(mMockListener);
+        StubWorker worker1 = new StubWorker();
+        StubWorker worker2 = new StubWorker();
+        worker1.start();
+        worker2.start();
+        assertTrue(mCoordinator.waitForCompletion(IDLE_TIMEOUT));
+        worker1.join();
+        worker2.join();
+        assertNull(worker1.mError);
+        assertNull(worker2.mError);
+        assertEquals(PKGS.length, worker1.mReceivedExclusions.size() +
+                worker2.mReceivedExclusions.size());
+        for (String exclusion : worker1.mReceivedExclusions) {
+            assertEquals(CLASS_NAME + "#testExcluded", exclusion);
+        }
+        EasyMock.verify(mMockListener);
+    }
+
+    /**
+     * Test that a work item left incomplete by a disconnected worker is handed out again, and the
+     * partial results of the disconnected worker are dropped.
+     */
+    public void testRun_workerDisconnect() throws Exception {
+        expectAllResults();
+        EasyMock.replay(mMockListener);
+        CoordinatorClient client = new CoordinatorClient("localhost", mPort, "failing");
+        WorkItem item = client.requestWork();
+        assertEquals(PKGS[0], item.getUri());
+        client.send(CoordinatorProtocol.RUN_STARTED, item.getUri(), "1");
+        client.send(CoordinatorProtocol.TEST_STARTED, CLASS_NAME, item.getUri());
+        client.close();
+
+        StubWorker worker = new StubWorker();
+        worker.start();
+        assertTrue(mCoordinator.waitForCompletion(IDLE_TIMEOUT));
+        worker.join();
+        assertNull(worker.mError);
+        assertEquals(PKGS.length, worker.mReceivedExclusions.size());
+        EasyMock.verify(mMockListener);
+    }
+
+    /**
+     * Test that a work item is given up on after its worker disconnected
+     * {@link WorkQueue#MAX_ATTEMPTS} times, and that the partial results of its last attempt are
+     * merged with a failed test run.
+     */
+    @SuppressWarnings("unchecked")
+    public void testRun_workerDisconnectGivesUp() throws Exception {
+        String pkg = PKGS[0];
+        TestIdentifier test = new TestIdentifier(CLASS_NAME, pkg);
+        mMockListener.testRunStarted(pkg, 1);
+        mMockListener.testStarted(test);
+        mMockListener.testRunFailed((String)EasyMock.anyObject());
+        mMockListener.testRunEnded(EasyMock.eq(0L), (Map<String, String>)EasyMock.anyObject());
+        EasyMock.replay(mMockListener);
+        Coordinator coordinator = new Coordinator(
+                Collections.singletonList(new WorkItem(pkg, "")), mMockListener);
+        int port = coordinator.start(0);
+        try {
+            for (int i = 0; i < WorkQueue.MAX_ATTEMPTS; i++) {
+                // the next request waits until the previous attempt has been returned to the queue
+                CoordinatorClient client = new CoordinatorClient("localhost", port, "failing");
+                WorkItem item = client.requestWork();
+                assertEquals(pkg, item.getUri());
+                client.send(CoordinatorProtocol.RUN_STARTED, pkg, "1");
+                client.send(CoordinatorProtocol.TEST_STARTED, CLASS_NAME, pkg);
+                client.close();
+            }
+            assertTrue(coordinator.waitForCompletion(IDLE_TIMEOUT));
+            CoordinatorClient client = new CoordinatorClient("localhost", port, "late");
+            assertNull(client.requestWork());
+            client.close();
+        } finally {
+            coordinator.stop();
+        }
+        EasyMock.verify(mMockListener);
+    }
+
+    /**
+     * Test that waiting for completion times out when no worker connects, and the test runs of
+     * the remaining work items are reported as failed.
+     */
+    @SuppressWarnings("unchecked")
+    public void testWaitForCompletion_noWorkers() throws Exception {
+        for (String pkg : PKGS) {
+            mMockListener.testRunStarted(pkg, 0);
+            mMockListener.testRunFailed((String)EasyMock.anyObject());
+            mMockListener.testRunEnded(EasyMock.eq(0L),
+                    (Map<String, String>)EasyMock.anyObject());
+        }
+        EasyMock.replay(mMockListener);
+        assertFalse(mCoordinator.waitForCompletion(100));
+        EasyMock.verify(mMockListener);
+    }
+
+    /**
+     * Test that protocol fields survive escaping of delimiters.
+     */
+    public void testEncodeDecode() {
+        String[] fields = {"CMD", "a\tb", "line1\nline2\r", "back\\slash", ""};
+        assertEquals(Arrays.asList(fields),
+                CoordinatorProtocol.decode(CoordinatorProtocol.encode(fields)));
+    }
+}
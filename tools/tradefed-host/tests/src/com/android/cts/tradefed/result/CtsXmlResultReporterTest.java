@@ -19,6 +19,9 @@ import com.android.ddmlib.testrunner.ITestRunListener.TestFailure;
 import com.android.ddmlib.testrunner.TestIdentifier;
 import com.android.tradefed.build.IFolderBuildInfo;
 import com.android.tradefed.log.LogUtil.CLog;
+import com.android.tradefed.result.ByteArrayInputStreamSource;
+import com.android.tradefed.result.ILogFileSaver;
+import com.android.tradefed.result.LogDataType;
 import com.android.tradefed.result.XmlResultReporter;
 import com.android.tradefed.util.FileUtil;
 
@@ -29,6 +32,7 @@ import org.easymock.EasyMock;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Collections;
 import java.util.Map;
@@ -150,6 +154,89 @@ public class CtsXmlResultReporterTest extends TestCase {
         assertTrue(output.contains(failureTag));
     }
 
+    /**
+     * Test that a stack trace shared by multiple failed tests is only output once.
+     */
+    public void testSharedStackTrace() {
+        Map<String, String> emptyMap = Collections.emptyMap();
+        final TestIdentifier testId1 = new TestIdentifier("FooTest", "testFoo");
+        final TestIdentifier testId2 = new TestIdentifier("FooTest", "testBar");
+        final String trace = "this is a trace\nmore trace";
+        mResultReporter.invocationStarted(mMockBuild);
+        mResultReporter.testRunStarted("run", 2);
+        for (TestIdentifier testId : new TestIdentifier[] {testId1, testId2}) {
+            mResultReporter.testStarted(testId);
+            mResultReporter.testFailed(TestFailure.FAILURE, testId, trace);
+            mResultReporter.testEnded(testId, emptyMap);
+        }
+        mResultReporter.testRunEnded(3, emptyMap);
+        mResultReporter.invocationEnded(1);
+        String output = getOutput();
+        assertTrue(output.contains("<StackTrace id=\"0\">this is a tracemore trace</StackTrace>"));
+        assertTrue(output.contains("<StackTrace ref=\"0\" />"));
+        assertEquals(2, output.split("FailedScene message=").length - 1);
+    }
+
+    /**
+     * Test that logs are saved in the background before the invocation completes, even if their
+     * source is cancelled right away.
+     */
+    public void testLog() throws IOException {
+        final ILogFileSaver mockSaver = EasyMock.createMock(ILogFileSaver.class);
+        EasyMock.expect(mockSaver.saveAndZipLogData(EasyMock.eq("bugreport"),
+                EasyMock.eq(LogDataType.TEXT), (InputStream)EasyMock.anyObject())).andReturn(
+                        new File("bugreport.zip"));
+        EasyMock.replay(mockSaver);
+        CtsXmlResultReporter reporter = new CtsXmlResultReporter() {
+            @Override
+            OutputStream createOutputResultStream(File reportDir) throws IOException {
+                return mOutputStream;
+            }
+
+            @Override
+            ILogFileSaver getLogFileSaver() {
+                return mockSaver;
+            }
+        };
+        reporter.setReportDir(mReportDir);
+        reporter.invocationStarted(mMockBuild);
+        ByteArrayInputStreamSource logSource = new ByteArrayInputStreamSource(
+                "log data".getBytes());
+        reporter.testLog("bugreport", LogDataType.TEXT, logSource);
+        logSource.cancel();
+        reporter.invocationEnded(1);
+        EasyMock.verify(mockSaver);
+    }
+
+    /**
+     * Test that logs received after the invocation ended are discarded rather than handed to a
+     * compression pool that is never waited for.
+     */
+    public void testLog_afterInvocationEnded() throws IOException {
+        final ILogFileSaver mockSaver = EasyMock.createMock(ILogFileSaver.class);
+        EasyMock.replay(mockSaver);
+        CtsXmlResultReporter reporter = new CtsXmlResultReporter() {
+            @Override
+            OutputStream createOutputResultStream(File reportDir) throws IOException {
+                return mOutputStream;
+            }
+
+            @Override
+            ILogFileSaver getLogFileSaver() {
+                fail("late log was saved");
+                return mockSaver;
+            }
+        };
+        reporter.setReportDir(mReportDir);
+        reporter.invocationStarted(mMockBuild);
+        reporter.invocationEnded(1);
+        ByteArrayInputStreamSource logSource = new ByteArrayInputStreamSource(
+                "log data".getBytes());
+        reporter.testLog("bugreport", LogDataType.TEXT, logSource);
+        logSource.cancel();
+        EasyMock.verify(mockSaver);
+    }
+
     /**
      * Gets the output produced, stripping it of extraneous whitespace characters.
      */
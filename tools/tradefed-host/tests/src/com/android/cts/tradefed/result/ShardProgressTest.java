@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.result;
+
+import com.android.tradefed.util.xml.AbstractXmlParser.ParseException;
+
+import junit.framework.TestCase;
+
+import java.io.StringReader;
+
+/**
+ * Unit tests for {@link ShardProgress} and {@link ResultHistory}.
+ */
+public class ShardProgressTest extends TestCase {
+
+    private static final long START_TIME = 1300000000000L;
+    private static final String PKG = "com.example.pkg";
+    private static final String OTHER_PKG = "com.example.other";
+
+    /**
+     * Create a {@link ResultHistory} where each test of {@link #PKG} took 10 seconds.
+     */
+    private ResultHistory createHistory() throws ParseException {
+        String xml =
+            "<TestResult>" +
+                "<TestPackage appPackageName=\"" + PKG + "\" name=\"pkg\" digest=\"\">" +
+                    "<TestSuite name=\"com\">" +
+                        "<TestCase name=\"FooTest\">" +
+                            createTestXml("testOne", "pass", 0, 10) +
+                            createTestXml("testTwo", "fail", 10, 20) +
+                            createTestXml("testThree", "notExecuted", 20, 1000) +
+                        "</TestCase>" +
+                    "</TestSuite>" +
+                "</TestPackage>" +
+            "</TestResult>";
+        TestResults results = new TestResults();
+        results.parse(new StringReader(xml));
+        ResultHistory history = new ResultHistory();
+        history.addResults(results);
+        return history;
+    }
+
+    private String createTestXml(String name, String result, int startSec, int endSec) {
+        return String.format("<Test name=\"%s\" result=\"%s\" starttime=\"%s\" endtime=\"%s\" />",
+                name, result, TimeUtil.getTimestamp(START_TIME + startSec * 1000L),
+                TimeUtil.getTimestamp(START_TIME + endSec * 1000L));
+    }
+
+    /**
+     * Test that {@link ResultHistory} ignores not executed tests, and falls back to the overall
+     * mean for unknown packages.
+     */
+    public void testHistory() throws ParseException {
+        ResultHistory history = createHistory();
+        assertFalse(history.isEmpty());
+        assertEquals(10000.0, history.getMeanTestTime(PKG));
+        assertEquals(10000.0, history.getMeanTestTime(OTHER_PKG));
+        assertEquals(50000, history.predictTime(PKG, 5));
+        assertEquals(0.0, new ResultHistory().getMeanTestTime(PKG));
+    }
+
+    /**
+     * Test that a shard that has not started yet is estimated purely from history.
+     */
+    public void testEstimate_notStarted() throws ParseException {
+        ShardProgress progress = new ShardProgress();
+        progress.addPackage(PKG, 3);
+        progress.addPackage(OTHER_PKG, 2);
+        assertFalse(progress.isStarted());
+        assertEquals(5, progress.getNumTests());
+        assertEquals(50000, progress.estimateRemainingTime(createHistory(), START_TIME));
+    }
+
+    /**
+     * Test that the history based estimate is scaled by the throughput of the live run.
+     */
+    public void testEstimate_scaled() throws ParseException {
+        ShardProgress progress = new ShardProgress();
+        progress.addPackage(PKG, 2);
+        progress.addPackage(OTHER_PKG, 2);
+        progress.setStarted("serial", START_TIME);
+        progress.setPackageStarted(PKG);
+        progress.testCompleted();
+        progress.testCompleted();
+        progress.setPackageCompleted(PKG);
+        progress.setPackageStarted(OTHER_PKG);
+        progress.testCompleted();
+        assertEquals(3, progress.getNumCompletedTests());
+        assertEquals(OTHER_PKG, progress.getCurrentPackage());
+        // 3 tests predicted at 30s took 60s, so the remaining test should take 20s
+        assertEquals(20000, progress.estimateRemainingTime(createHistory(), START_TIME + 60000));
+    }
+
+    /**
+     * Test that the live throughput is used when there is no history.
+     */
+    public void testEstimate_noHistory() {
+        ResultHistory history = new ResultHistory();
+        ShardProgress progress = new ShardProgress();
+        progress.addPackage(PKG, 4);
+        progress.setStarted("serial", START_TIME);
+        assertEquals(ShardProgress.UNKNOWN_TIME, progress.estimateRemainingTime(history,
+                START_TIME));
+        progress.setPackageStarted(PKG);
+        progress.testCompleted();
+        assertEquals(30000, progress.estimateRemainingTime(history, START_TIME + 10000));
+        progress.setFinished();
+        assertEquals(4, progress.getNumCompletedTests());
+        assertEquals(0, progress.estimateRemainingTime(history, START_TIME + 10000));
+    }
+
+    /**
+     * Test that an invocation is only finished once all its expected shards are.
+     */
+    public void testInvocationFinished() {
+        ProgressTracker tracker = new ProgressTracker();
+        InvocationProgress invocation = tracker.createInvocation("plan CTS", 2, false);
+        invocation.addShard().setFinished();
+        assertFalse(invocation.isFinished());
+        assertEquals(1, tracker.getInvocations().size());
+        invocation.addShard().setFinished();
+        assertTrue(invocation.isFinished());
+        assertTrue(tracker.getInvocations().isEmpty());
+    }
+
+    /**
+     * Test that an invocation whose shards have all finished or been aborted is no longer
+     * reported as running, but is reported again once an aborted shard is resumed.
+     */
+    public void testInvocationAborted() {
+        ProgressTracker tracker = new ProgressTracker();
+        InvocationProgress invocation = tracker.createInvocation("plan CTS", 2, true);
+        ShardProgress aborted = invocation.addShard();
+        aborted.addPackage(PKG, 2);
+        aborted.setStarted("serial", START_TIME);
+        aborted.setPackageStarted(PKG);
+        invocation.addShard().setFinished();
+        assertEquals(1, tracker.getInvocations().size());
+        aborted.setAborted();
+        assertTrue(aborted.isAborted());
+        assertNull(aborted.getCurrentPackage());
+        assertFalse(invocation.isFinished());
+        assertFalse(invocation.isRunning());
+        assertTrue(tracker.getInvocations().isEmpty());
+        aborted.setStarted("other-serial", START_TIME + 1000);
+        assertFalse(aborted.isAborted());
+        assertEquals(1, tracker.getInvocations().size());
+        aborted.setFinished();
+        assertTrue(invocation.isFinished());
+        assertTrue(tracker.getInvocations().isEmpty());
+    }
+
+    /**
+     * Test that an invocation with an aborted shard is discarded when it is not resumable.
+     */
+    public void testInvocationAborted_notResumable() {
+        ProgressTracker tracker = new ProgressTracker();
+        InvocationProgress invocation = tracker.createInvocation("plan CTS", 1, false);
+        ShardProgress aborted = invocation.addShard();
+        aborted.setStarted("serial", START_TIME);
+        aborted.setAborted();
+        assertTrue(tracker.getInvocations(START_TIME).isEmpty());
+        aborted.setStarted("other-serial", START_TIME + 1000);
+        assertTrue(tracker.getInvocations(START_TIME + 1000).isEmpty());
+    }
+
+    /**
+     * Test that a resumable invocation with an aborted shard is discarded once it has been idle
+     * for {@link ProgressTracker#RESUME_TIMEOUT_MS}, and that resuming it restarts the timeout.
+     */
+    public void testInvocationAborted_resumeTimeout() {
+        ProgressTracker tracker = new ProgressTracker();
+        InvocationProgress invocation = tracker.createInvocation("plan CTS", 1, true);
+        ShardProgress aborted = invocation.addShard();
+        aborted.setStarted("serial", START_TIME);
+        aborted.setAborted();
+        assertTrue(tracker.getInvocations(START_TIME).isEmpty());
+        aborted.setStarted("other-serial", START_TIME + 1000);
+        assertEquals(1, tracker.getInvocations(START_TIME + 1000).size());
+        aborted.setAborted();
+        long idleTime = START_TIME + 2000;
+        assertTrue(tracker.getInvocations(idleTime).isEmpty());
+        assertTrue(tracker.getInvocations(idleTime + ProgressTracker.RESUME_TIMEOUT_MS - 1)
+                .isEmpty());
+        aborted.setStarted("serial", idleTime + ProgressTracker.RESUME_TIMEOUT_MS - 1);
+        assertEquals(1, tracker.getInvocations(idleTime + ProgressTracker.RESUME_TIMEOUT_MS)
+                .size());
+        aborted.setAborted();
+        assertTrue(tracker.getInvocations(idleTime + ProgressTracker.RESUME_TIMEOUT_MS)
+                .isEmpty());
+        assertTrue(tracker.getInvocations(idleTime + 2 * ProgressTracker.RESUME_TIMEOUT_MS)
+                .isEmpty());
+        aborted.setStarted("other-serial", idleTime + 2 * ProgressTracker.RESUME_TIMEOUT_MS);
+        assertTrue(tracker.getInvocations(idleTime + 2 * ProgressTracker.RESUME_TIMEOUT_MS)
+                .isEmpty());
+    }
+}
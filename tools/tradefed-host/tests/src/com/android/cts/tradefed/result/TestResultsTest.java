@@ -18,6 +18,7 @@ package com.android.cts.tradefed.result;
 import com.android.tradefed.util.xml.AbstractXmlParser.ParseException;
 
 import java.io.StringReader;
+import java.util.Iterator;
 
 /**
  * Unit tests for {@link TestResults} parsing.
@@ -48,6 +49,24 @@ public class TestResultsTest extends junit.framework.TestCase {
             "</TestSuite>" +
         "</TestSuite>";
 
+    private static final String TEST_SHARED_TRACE =
+        RESULT_START + TEST_PACKAGE_START +
+        "<TestSuite name=\"com\" >" +
+            "<TestCase name=\"ExampleTest\" >" +
+                 "<Test name=\"testOne\"  endtime=\"et\" starttime=\"st\" result=\"fail\" >" +
+                     "<FailedScene message=\"msg\" >" +
+                         "<StackTrace id=\"7\">at ExampleTest.setUp()</StackTrace>" +
+                     "</FailedScene>" +
+                  "</Test>" +
+                 "<Test name=\"testTwo\"  endtime=\"et\" starttime=\"st\" result=\"fail\" >" +
+                     "<FailedScene message=\"msg\" >" +
+                         "<StackTrace ref=\"7\" />" +
+                     "</FailedScene>" +
+                  "</Test>" +
+            "</TestCase>" +
+        "</TestSuite>" +
+        TEST_PACKAGE_END + RESULT_END;
+
     /**
      * Test parsing data with no result content
      */
@@ -103,4 +122,20 @@ public class TestResultsTest extends junit.framework.TestCase {
         assertEquals("msg", exampleTest.getMessage());
         assertEquals("at ExampleTest.testExample()", exampleTest.getStackTrace());
     }
+
+    /**
+     * Test parsing a result where two tests share a stack trace
+     */
+    public void testParse_sharedStackTrace() throws Exception {
+        TestResults parser = new TestResults();
+        parser.parse(new StringReader(TEST_SHARED_TRACE));
+        TestPackageResult pkg = parser.getPackages().iterator().next();
+        TestCase exampleCase = pkg.getTestSuites().iterator().next().getTestCases().iterator()
+                .next();
+        Iterator<Test> tests = exampleCase.getTests().iterator();
+        Test testOne = tests.next();
+        Test testTwo = tests.next();
+        assertEquals("at ExampleTest.setUp()", testOne.getStackTrace());
+        assertSame(testOne.getStackTrace(), testTwo.getStackTrace());
+    }
 }
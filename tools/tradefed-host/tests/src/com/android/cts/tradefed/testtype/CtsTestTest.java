@@ -16,7 +16,14 @@
 package com.android.cts.tradefed.testtype;
 
 import com.android.cts.tradefed.build.StubCtsBuildHelper;
+import com.android.cts.tradefed.distributed.Coordinator;
+import com.android.cts.tradefed.distributed.CoordinatorClient;
+import com.android.cts.tradefed.distributed.WorkItem;
+import com.android.cts.tradefed.result.InvocationProgress;
 import com.android.cts.tradefed.result.PlanCreator;
+import com.android.cts.tradefed.result.ProgressTracker;
+import com.android.cts.tradefed.result.ResultHistory;
+import com.android.cts.tradefed.result.ShardProgress;
 import com.android.ddmlib.testrunner.TestIdentifier;
 import com.android.tradefed.device.DeviceNotAvailableException;
 import com.android.tradefed.device.ITestDevice;
@@ -27,13 +34,19 @@ import com.android.tradefed.util.xml.AbstractXmlParser.ParseException;
 import junit.framework.TestCase;
 
 import org.easymock.EasyMock;
+import org.easymock.IMocksControl;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Unit tests for {@link CtsTest}.
@@ -50,6 +63,7 @@ public class CtsTestTest extends TestCase {
     private StubCtsBuildHelper mStubBuildHelper;
     private ITestPackageDef mMockPackageDef;
     private IRemoteTest mMockTest;
+    private Map<String, Double> mFailureProbabilities;
 
     private static final String PLAN_NAME = "CTS";
 
@@ -66,6 +80,7 @@ public class CtsTestTest extends TestCase {
         mStubBuildHelper = new StubCtsBuildHelper();
         mMockPackageDef = EasyMock.createMock(ITestPackageDef.class);
         mMockTest = EasyMock.createMock(IRemoteTest.class);
+        mFailureProbabilities = new HashMap<String, Double>();
 
         mCtsTest = new CtsTest() {
             @Override
@@ -88,6 +103,17 @@ public class CtsTestTest extends TestCase {
                 // return empty stream, not used
                 return new ByteArrayInputStream(new byte[0]);
             }
+
+            @Override
+            ResultHistory createResultHistory() {
+                return new ResultHistory() {
+                    @Override
+                    public double getFailureProbability(String appPackageName) {
+                        Double probability = mFailureProbabilities.get(appPackageName);
+                        return probability == null ? 0 : probability;
+                    }
+                };
+            }
         };
         mCtsTest.setDevice(mMockDevice);
         mCtsTest.setBuildHelper(mStubBuildHelper);
@@ -95,6 +121,7 @@ public class CtsTestTest extends TestCase {
         mCtsTest.setSkipDeviceInfo(true);
         EasyMock.expect(mMockPackageDef.getTargetApkName()).andStubReturn(null);
         EasyMock.expect(mMockPackageDef.getTargetPackageName()).andStubReturn(null);
+        EasyMock.expect(mMockDevice.getSerialNumber()).andStubReturn("serial");
     }
 
     /**
@@ -153,6 +180,42 @@ public class CtsTestTest extends TestCase {
         verifyMocks();
     }
 
+    /**
+     * Test that a run aborted by the device becoming unavailable is marked as aborted, rather
+     * than left running, and is finished once resumed.
+     */
+    @SuppressWarnings("unchecked")
+    public void testRun_deviceNotAvailable() throws DeviceNotAvailableException {
+        mCtsTest.addPackageName(PACKAGE_NAME);
+
+        setCreateAndRunTestExpectations();
+        EasyMock.expectLastCall().andThrow(new DeviceNotAvailableException());
+
+        mMockTest.run((ITestInvocationListener)EasyMock.anyObject());
+        EasyMock.expect(mMockPackageDef.getName()).andReturn(PACKAGE_NAME);
+        EasyMock.expect(mMockPackageDef.getDigest()).andReturn("digest");
+
+        replayMocks();
+        try {
+            mCtsTest.run(mMockListener);
+            fail("Did not throw DeviceNotAvailableException");
+        } catch (DeviceNotAvailableException e) {
+            // expected
+        }
+        ShardProgress progress = mCtsTest.getShardProgress();
+        assertTrue(progress.isAborted());
+        assertFalse(progress.isFinished());
+        assertNull(progress.getCurrentPackage());
+        for (InvocationProgress invocation : ProgressTracker.getInstance().getInvocations()) {
+            assertFalse(invocation.getShards().contains(progress));
+        }
+
+        mCtsTest.run(mMockListener);
+        verifyMocks();
+        assertFalse(progress.isAborted());
+        assertTrue(progress.isFinished());
+    }
+
     /**
      * Test normal case {@link CtsTest#run(java.util.List)} when running a class.
      */
@@ -211,6 +274,245 @@ public class CtsTestTest extends TestCase {
         verifyMocks();
     }
 
+    /**
+     * Test that with --reorder-packages the package that failed most often in the result
+     * history is run first.
+     */
+    public void testRun_reorderPackages() throws DeviceNotAvailableException {
+        mCtsTest.setReorderPackages(true);
+        mCtsTest.addPackageName("a");
+        mCtsTest.addPackageName("b");
+        mFailureProbabilities.put("b", 0.5);
+        IMocksControl testControl = EasyMock.createStrictControl();
+        IRemoteTest testA = testControl.createMock(IRemoteTest.class);
+        IRemoteTest testB = testControl.createMock(IRemoteTest.class);
+        createMockPackageDef("a", null, testA);
+        createMockPackageDef("b", null, testB);
+        testB.run((ITestInvocationListener)EasyMock.anyObject());
+        testA.run((ITestInvocationListener)EasyMock.anyObject());
+
+        replayMocks();
+        testControl.replay();
+        mCtsTest.run(mMockListener);
+        verifyMocks();
+        testControl.verify();
+    }
+
+    /**
+     * Test that packages keep their plan order when --reorder-packages is not set.
+     */
+    public void testRun_planOrder() throws DeviceNotAvailableException {
+        mCtsTest.addPackageName("a");
+        mCtsTest.addPackageName("b");
+        mFailureProbabilities.put("b", 0.5);
+        IMocksControl testControl = EasyMock.createStrictControl();
+        IRemoteTest testA = testControl.createMock(IRemoteTest.class);
+        IRemoteTest testB = testControl.createMock(IRemoteTest.class);
+        createMockPackageDef("a", null, testA);
+        createMockPackageDef("b", null, testB);
+        testA.run((ITestInvocationListener)EasyMock.anyObject());
+        testB.run((ITestInvocationListener)EasyMock.anyObject());
+
+        replayMocks();
+        testControl.replay();
+        mCtsTest.run(mMockListener);
+        verifyMocks();
+        testControl.verify();
+    }
+
+    /**
+     * Test that {@link CtsTest#split()} keeps packages sharing a prerequisite apk in the same
+     * shard.
+     */
+    public void testSplit_groupByTargetApk() {
+        mCtsTest.setShards(2);
+        mCtsTest.addPackageName("a");
+        mCtsTest.addPackageName("b");
+        mCtsTest.addPackageName("c");
+        mCtsTest.addPackageName("d");
+        createMockPackageDef("a", "Stubs", mMockTest);
+        createMockPackageDef("b", null, mMockTest);
+        createMockPackageDef("c", null, mMockTest);
+        createMockPackageDef("d", "Stubs", mMockTest);
+
+        replayMocks();
+        List<IRemoteTest> shards = new ArrayList<IRemoteTest>(mCtsTest.split());
+        verifyMocks();
+        assertEquals(2, shards.size());
+        assertEquals(Arrays.asList("a", "d"), ((CtsTest)shards.get(0)).getRemainingTestUris());
+        assertEquals(Arrays.asList("b", "c"), ((CtsTest)shards.get(1)).getRemainingTestUris());
+    }
+
+    /**
+     * Test that {@link CtsTest#split()} with --coordinator creates workers that each fetch their
+     * packages from the coordinator, without building a package list.
+     */
+    public void testSplit_coordinator() {
+        mCtsTest.setShards(3);
+        mCtsTest.setCoordinatorAddress("localhost:9876");
+
+        replayMocks();
+        Collection<IRemoteTest> shards = mCtsTest.split();
+        verifyMocks();
+        assertEquals(3, shards.size());
+        for (IRemoteTest shard : shards) {
+            assertTrue(((CtsTest)shard).getRemainingTestUris().isEmpty());
+            assertNotNull(((CtsTest)shard).getShardProgress());
+        }
+    }
+
+    /**
+     * Test that in coordinator mode a prerequisite apk shared by consecutive packages is
+     * installed once, and only uninstalled once the coordinator has no more work.
+     */
+    public void testRun_coordinatorTargetApk() throws Exception {
+        String[] uris = {"a", "b"};
+        List<WorkItem> items = new ArrayList<WorkItem>(uris.length);
+        for (String uri : uris) {
+            items.add(new WorkItem(uri, null));
+            createMockPackageDef(uri, "Stubs", "com.example.stubs", mMockTest);
+        }
+        mMockTest.run((ITestInvocationListener)EasyMock.anyObject());
+        EasyMock.expectLastCall().times(uris.length);
+        EasyMock.expect(mMockDevice.installPackage((File)EasyMock.anyObject(),
+                EasyMock.eq(true))).andReturn(null);
+        EasyMock.expect(mMockDevice.uninstallPackage("com.example.stubs")).andReturn(null);
+        ITestInvocationListener mergedListener = EasyMock.createNiceMock(
+                ITestInvocationListener.class);
+        replayMocks(mergedListener);
+
+        Coordinator coordinator = new Coordinator(items, mergedListener);
+        int port = coordinator.start(0);
+        try {
+            createCoordinatorTest(mMockDevice, port).run(mMockListener);
+            assertTrue(coordinator.waitForCompletion(60 * 1000));
+        } finally {
+            coordinator.stop();
+        }
+        verifyMocks(mergedListener);
+    }
+
+    /**
+     * Test that two {@link CtsTest}s fetching work from the same {@link Coordinator} run every
+     * test package exactly once between them.
+     */
+    public void testRun_coordinator() throws Exception {
+        String[] uris = {"a", "b", "c", "d", "e"};
+        List<WorkItem> items = new ArrayList<WorkItem>(uris.length);
+        List<IRemoteTest> tests = new ArrayList<IRemoteTest>(uris.length);
+        for (String uri : uris) {
+            items.add(new WorkItem(uri, null));
+            IRemoteTest test = EasyMock.createMock(IRemoteTest.class);
+            // each package is expected to run exactly once
+            test.run((ITestInvocationListener)EasyMock.anyObject());
+            EasyMock.replay(test);
+            tests.add(test);
+            createMockPackageDef(uri, null, test);
+        }
+        ITestInvocationListener mergedListener = EasyMock.createNiceMock(
+                ITestInvocationListener.class);
+        ITestDevice otherDevice = EasyMock.createMock(ITestDevice.class);
+        EasyMock.expect(otherDevice.getSerialNumber()).andStubReturn("other-serial");
+        replayMocks(mergedListener, otherDevice);
+
+        Coordinator coordinator = new Coordinator(items, mergedListener);
+        int port = coordinator.start(0);
+        try {
+            CoordinatorWorker worker1 = new CoordinatorWorker(createCoordinatorTest(mMockDevice,
+                    port));
+            CoordinatorWorker worker2 = new CoordinatorWorker(createCoordinatorTest(otherDevice,
+                    port));
+            worker1.start();
+            worker2.start();
+            worker1.join();
+            worker2.join();
+            assertNull(worker1.mError);
+            assertNull(worker2.mError);
+            assertTrue(coordinator.waitForCompletion(60 * 1000));
+        } finally {
+            coordinator.stop();
+        }
+        verifyMocks(mergedListener, otherDevice);
+        for (IRemoteTest test : tests) {
+            EasyMock.verify(test);
+        }
+    }
+
+    /**
+     * Create a {@link CtsTest} that fetches its work from the coordinator at given local port.
+     */
+    private CtsTest createCoordinatorTest(ITestDevice device, final int port) {
+        CtsTest ctsTest = new CtsTest() {
+            @Override
+            ITestPackageRepo createTestCaseRepo() {
+                return mMockRepo;
+            }
+
+            @Override
+            CoordinatorClient createCoordinatorClient() throws IOException {
+                return new CoordinatorClient("localhost", port, getDevice().getSerialNumber());
+            }
+        };
+        ctsTest.setDevice(device);
+        ctsTest.setBuildHelper(mStubBuildHelper);
+        ctsTest.setSkipDeviceInfo(true);
+        ctsTest.setCoordinatorAddress("localhost:" + port);
+        return ctsTest;
+    }
+
+    /**
+     * Runs a {@link CtsTest} in its own thread, as if on a separate host.
+     */
+    private class CoordinatorWorker extends Thread {
+        private final CtsTest mWorkerTest;
+        private Throwable mError = null;
+
+        CoordinatorWorker(CtsTest workerTest) {
+            mWorkerTest = workerTest;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mWorkerTest.run(mMockListener);
+            } catch (Throwable t) {
+                mError = t;
+            }
+        }
+    }
+
+    /**
+     * Create a mock {@link ITestPackageDef} with a single known test, that will be returned by
+     * the mock repo for given uri.
+     */
+    private ITestPackageDef createMockPackageDef(String uri, String targetApkName,
+            IRemoteTest test) {
+        return createMockPackageDef(uri, targetApkName, null, test);
+    }
+
+    /**
+     * Create a mock {@link ITestPackageDef} with a single known test and given prerequisite apk,
+     * that will be returned by the mock repo for given uri.
+     */
+    private ITestPackageDef createMockPackageDef(String uri, String targetApkName,
+            String targetPkgName, IRemoteTest test) {
+        ITestPackageDef pkgDef = EasyMock.createMock(ITestPackageDef.class);
+        Collection<TestIdentifier> tests = new ArrayList<TestIdentifier>(1);
+        tests.add(new TestIdentifier(uri + ".FooTest", "testFoo"));
+        EasyMock.expect(pkgDef.getUri()).andStubReturn(uri);
+        EasyMock.expect(pkgDef.getName()).andStubReturn(uri);
+        EasyMock.expect(pkgDef.getDigest()).andStubReturn("digest");
+        EasyMock.expect(pkgDef.getTargetApkName()).andStubReturn(targetApkName);
+        EasyMock.expect(pkgDef.getTargetPackageName()).andStubReturn(targetPkgName);
+        EasyMock.expect(pkgDef.createTest((File)EasyMock.anyObject())).andStubReturn(test);
+        EasyMock.expect(pkgDef.getTests()).andStubReturn(tests);
+        pkgDef.setExcludedTestFilter((TestFilter)EasyMock.anyObject());
+        EasyMock.expectLastCall().anyTimes();
+        EasyMock.replay(pkgDef);
+        EasyMock.expect(mMockRepo.getTestPackage(uri)).andStubReturn(pkgDef);
+        return pkgDef;
+    }
+
     /**
      * Set EasyMock expectations for parsing {@link #PLAN_NAME}
      */
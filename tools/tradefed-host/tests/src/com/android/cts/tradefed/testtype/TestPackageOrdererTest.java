@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2011 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.cts.tradefed.testtype;
+
+import com.android.cts.tradefed.result.ResultHistory;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link TestPackageOrderer}.
+ */
+public class TestPackageOrdererTest extends TestCase {
+
+    private Map<String, Double> mFailureProbabilities;
+    private TestPackageOrderer mOrderer;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mFailureProbabilities = new HashMap<String, Double>();
+        ResultHistory history = new ResultHistory() {
+            @Override
+            public double getFailureProbability(String appPackageName) {
+                Double probability = mFailureProbabilities.get(appPackageName);
+                return probability == null ? 0 : probability;
+            }
+        };
+        mOrderer = new TestPackageOrderer(history);
+    }
+
+    private TestPackageDef createPackageDef(String uri, String targetBinaryName) {
+        TestPackageDef def = new TestPackageDef();
+        def.setUri(uri);
+        def.setTargetBinaryName(targetBinaryName);
+        return def;
+    }
+
+    /**
+     * Test that plan order is kept when there is no history and no shared target apk.
+     */
+    public void testOrder_planOrder() {
+        List<ITestPackageDef> defs = new ArrayList<ITestPackageDef>();
+        defs.add(createPackageDef("a", null));
+        defs.add(createPackageDef("b", "B"));
+        defs.add(createPackageDef("c", null));
+        assertEquals(defs, mOrderer.order(defs));
+    }
+
+    /**
+     * Test that packages sharing a target apk are grouped at the position of the first one.
+     */
+    public void testOrder_groupByTarget() {
+        ITestPackageDef a = createPackageDef("a", "Stubs");
+        ITestPackageDef b = createPackageDef("b", null);
+        ITestPackageDef c = createPackageDef("c", "Stubs");
+        ITestPackageDef d = createPackageDef("d", "Other");
+        List<ITestPackageDef> defs = new ArrayList<ITestPackageDef>();
+        defs.add(a);
+        defs.add(b);
+        defs.add(c);
+        defs.add(d);
+        List<ITestPackageDef> ordered = mOrderer.order(defs);
+        assertEquals(4, ordered.size());
+        assertSame(a, ordered.get(0));
+        assertSame(c, ordered.get(1));
+        assertSame(b, ordered.get(2));
+        assertSame(d, ordered.get(3));
+    }
+
+    /**
+     * Test that groups and packages within a group that are likely to fail run first.
+     */
+    public void testOrder_failuresFirst() {
+        ITestPackageDef a = createPackageDef("a", "Stubs");
+        ITestPackageDef b = createPackageDef("b", null);
+        ITestPackageDef c = createPackageDef("c", "Stubs");
+        ITestPackageDef d = createPackageDef("d", null);
+        mFailureProbabilities.put("c", 0.4);
+        mFailureProbabilities.put("d", 0.8);
+        List<ITestPackageDef> defs = new ArrayList<ITestPackageDef>();
+        defs.add(a);
+        defs.add(b);
+        defs.add(c);
+        defs.add(d);
+        List<ITestPackageDef> ordered = mOrderer.order(defs);
+        assertSame(d, ordered.get(0));
+        assertSame(c, ordered.get(1));
+        assertSame(a, ordered.get(2));
+        assertSame(b, ordered.get(3));
+    }
+}